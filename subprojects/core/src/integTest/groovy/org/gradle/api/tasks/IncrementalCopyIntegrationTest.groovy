@@ -0,0 +1,138 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.tasks
+
+import org.gradle.integtests.fixtures.AbstractIntegrationSpec
+import spock.lang.Unroll
+
+class IncrementalCopyIntegrationTest extends AbstractIntegrationSpec {
+    // A timestamp the copy would never produce, used to detect whether a file has been copied again
+    private static final long OLD_TIMESTAMP = 1000000000000L
+
+    def setup() {
+        file("src/unchanged.txt") << "unchanged"
+        file("src/changed.txt") << "original"
+        file("src/removed.txt") << "removed"
+    }
+
+    @Unroll
+    def "#type task only copies changed source files"() {
+        given:
+        buildFile << """
+            task copy(type: $type) {
+                from 'src'
+                into 'dest'
+            }
+        """
+        run "copy"
+        file("dest/unchanged.txt").setLastModified(OLD_TIMESTAMP)
+
+        when:
+        file("src/changed.txt").text = "modified"
+        file("src/added.txt") << "added"
+        run "copy"
+
+        then:
+        executedAndNotSkipped(":copy")
+        file("dest/changed.txt").text == "modified"
+        file("dest/added.txt").text == "added"
+        file("dest/unchanged.txt").text == "unchanged"
+        file("dest/unchanged.txt").lastModified() == OLD_TIMESTAMP
+
+        where:
+        type << ["Copy", "Sync"]
+    }
+
+    def "sync task deletes removed source files when copying incrementally"() {
+        given:
+        buildFile << """
+            task sync(type: Sync) {
+                from 'src'
+                into 'dest'
+            }
+        """
+        run "sync"
+        file("dest/unchanged.txt").setLastModified(OLD_TIMESTAMP)
+
+        when:
+        file("src/removed.txt").delete()
+        file("src/changed.txt").text = "modified"
+        run "sync"
+
+        then:
+        executedAndNotSkipped(":sync")
+        !file("dest/removed.txt").exists()
+        file("dest/changed.txt").text == "modified"
+        file("dest/unchanged.txt").lastModified() == OLD_TIMESTAMP
+    }
+
+    @Unroll
+    def "#type task copies all files when the spec has custom actions"() {
+        given:
+        buildFile << """
+            task copy(type: $type) {
+                from 'src'
+                into 'dest'
+                filter { it.toUpperCase() }
+            }
+        """
+        run "copy"
+        file("dest/unchanged.txt").setLastModified(OLD_TIMESTAMP)
+
+        when:
+        file("src/changed.txt").text = "modified"
+        run "copy"
+
+        then:
+        executedAndNotSkipped(":copy")
+        file("dest/changed.txt").text == "MODIFIED"
+        file("dest/unchanged.txt").text == "UNCHANGED"
+        file("dest/unchanged.txt").lastModified() != OLD_TIMESTAMP
+
+        where:
+        type << ["Copy", "Sync"]
+    }
+
+    @Unroll
+    def "#type task copies all files when a source archive has changed"() {
+        given:
+        buildFile << """
+            task copy(type: $type) {
+                from 'src'
+                from zipTree('archive.zip')
+                into 'dest'
+            }
+        """
+        file("archive/entry.txt") << "original"
+        file("archive").zipTo(file("archive.zip"))
+        run "copy"
+        file("dest/unchanged.txt").setLastModified(OLD_TIMESTAMP)
+
+        when:
+        file("archive/entry.txt").text = "modified"
+        file("archive").zipTo(file("archive.zip"))
+        run "copy"
+
+        then:
+        executedAndNotSkipped(":copy")
+        file("dest/entry.txt").text == "modified"
+        file("dest/unchanged.txt").lastModified() != OLD_TIMESTAMP
+
+        where:
+        type << ["Copy", "Sync"]
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.taskgraph
+
+import org.gradle.integtests.fixtures.AbstractIntegrationSpec
+import org.gradle.util.GradleVersion
+
+class CriticalPathOrderingIntegrationTest extends AbstractIntegrationSpec {
+    private static final Set<String> ALL_TASKS = [":a:fast", ":a:slow", ":a:build", ":b:fast", ":b:slow", ":b:build"] as Set
+
+    def setup() {
+        settingsFile << "include 'a', 'b'"
+        buildFile << """
+            subprojects {
+                task slow {
+                    doLast { Thread.sleep(200) }
+                }
+                task fast
+                task build(dependsOn: [slow, fast])
+            }
+            project(':b') {
+                slow.dependsOn ':a:build'
+            }
+        """
+    }
+
+    def "does not keep track of task durations by default"() {
+        when:
+        run "build"
+
+        then:
+        executedTasks as Set == ALL_TASKS
+        !taskDurationsFile.exists()
+    }
+
+    def "does not keep track of task durations when tasks are not executed in parallel"() {
+        given:
+        executer.withArgument("-D${DefaultTaskExecutionPlan.CRITICAL_PATH_TOGGLE}=true")
+
+        when:
+        run "build"
+
+        then:
+        executedTasks as Set == ALL_TASKS
+        !taskDurationsFile.exists()
+    }
+
+    def "records task durations and orders tasks by critical path when enabled"() {
+        given:
+        executer.withArgument("-D${DefaultTaskExecutionPlan.CRITICAL_PATH_TOGGLE}=true")
+
+        when:
+        run "build", "--parallel", "--max-workers=2"
+
+        then:
+        executedTasks as Set == ALL_TASKS
+        dependenciesRanFirst()
+        taskDurationsFile.assertIsFile()
+
+        when:
+        executer.withArgument("-D${DefaultTaskExecutionPlan.CRITICAL_PATH_TOGGLE}=true")
+        run "build", "--parallel", "--max-workers=2"
+
+        then:
+        executedTasks as Set == ALL_TASKS
+        dependenciesRanFirst()
+    }
+
+    private void dependenciesRanFirst() {
+        assert executedTasks.indexOf(":a:slow") < executedTasks.indexOf(":a:build")
+        assert executedTasks.indexOf(":a:build") < executedTasks.indexOf(":b:slow")
+        assert executedTasks.indexOf(":b:slow") < executedTasks.indexOf(":b:build")
+    }
+
+    private getTaskDurationsFile() {
+        file(".gradle/${GradleVersion.current().version}/taskArtifacts/taskDurations.bin")
+    }
+}
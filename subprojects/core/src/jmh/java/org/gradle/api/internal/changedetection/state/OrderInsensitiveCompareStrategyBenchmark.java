@@ -0,0 +1,103 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.changedetection.state;
+
+import com.google.common.hash.HashCode;
+import org.gradle.api.internal.cache.StringInterner;
+import org.gradle.api.internal.changedetection.rules.TaskStateChange;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Measures diffing large snapshots with the order insensitive compare strategy, where a small portion of the files were added, removed or modified.
+ *
+ * <p>Run with the {@code gc} profiler to compare the allocation rate against earlier versions.</p>
+ */
+@State(Scope.Benchmark)
+@Fork(2)
+public class OrderInsensitiveCompareStrategyBenchmark {
+    @Param({"10000", "100000"})
+    int fileCount;
+
+    @Param({"true", "false"})
+    boolean pathIsAbsolute;
+
+    /**
+     * Whether the previous snapshot is held in a plain map, as when it was taken earlier in the build, or was loaded from the task history.
+     */
+    @Param({"map", "compact"})
+    String previousFormat;
+
+    private Map<String, NormalizedFileSnapshot> previous;
+    private Map<String, NormalizedFileSnapshot> current;
+
+    @Setup(Level.Trial)
+    public void createSnapshots() {
+        Random random = new Random(1234L);
+        previous = SnapshotMapSerializerBenchmark.createSnapshots(random, fileCount);
+        current = new LinkedHashMap<String, NormalizedFileSnapshot>(previous);
+        int index = 0;
+        for (Iterator<Map.Entry<String, NormalizedFileSnapshot>> iterator = current.entrySet().iterator(); iterator.hasNext(); index++) {
+            Map.Entry<String, NormalizedFileSnapshot> entry = iterator.next();
+            if (index % 97 == 0) {
+                iterator.remove();
+            } else if (index % 89 == 0) {
+                byte[] hash = new byte[16];
+                random.nextBytes(hash);
+                entry.setValue(new DefaultNormalizedFileSnapshot(entry.getValue().getNormalizedPath(), new FileHashSnapshot(HashCode.fromBytes(hash))));
+            }
+        }
+        for (int i = 0; i < fileCount / 100; i++) {
+            String relativePath = "org/gradle/added/Added" + i + ".java";
+            current.put("/home/user/project/src/main/java/" + relativePath, new DefaultNormalizedFileSnapshot(relativePath, DirSnapshot.getInstance()));
+        }
+        if (previousFormat.equals("compact")) {
+            previous = CompactSnapshotMap.of(previous, true, new StringInterner());
+        }
+    }
+
+    @Benchmark
+    public void unchanged(Blackhole bh) {
+        drain(TaskFilePropertyCompareStrategy.UNORDERED.iterateContentChangesSince(previous, previous, "Input", pathIsAbsolute), bh);
+    }
+
+    @Benchmark
+    public void changed(Blackhole bh) {
+        drain(TaskFilePropertyCompareStrategy.UNORDERED.iterateContentChangesSince(current, previous, "Input", pathIsAbsolute), bh);
+    }
+
+    /**
+     * Takes only the first few changes, as done when the executor reports why a task is out of date.
+     */
+    @Benchmark
+    public void firstChanges(Blackhole bh) {
+        Iterator<TaskStateChange> changes = TaskFilePropertyCompareStrategy.UNORDERED.iterateContentChangesSince(current, previous, "Input", pathIsAbsolute);
+        for (int i = 0; i < 3 && changes.hasNext(); i++) {
+            bh.consume(changes.next());
+        }
+    }
+
+    private static void drain(Iterator<TaskStateChange> changes, Blackhole bh) {
+        while (changes.hasNext()) {
+            bh.consume(changes.next());
+        }
+    }
+}
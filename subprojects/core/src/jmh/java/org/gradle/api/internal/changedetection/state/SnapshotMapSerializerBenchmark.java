@@ -0,0 +1,104 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.changedetection.state;
+
+import com.google.common.hash.HashCode;
+import org.gradle.api.internal.cache.StringInterner;
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Measures writing and reading the snapshot of a large file collection, as done for the task history, using either the legacy
+ * {@link SnapshotMapSerializer} or the {@link CompactSnapshotMap} encoding.
+ */
+@State(Scope.Benchmark)
+@Fork(2)
+public class SnapshotMapSerializerBenchmark {
+    @Param({"1000", "50000"})
+    int fileCount;
+
+    @Param({"legacy", "compact"})
+    String format;
+
+    private final StringInterner stringInterner = new StringInterner();
+    private final SnapshotMapSerializer serializer = new SnapshotMapSerializer(stringInterner);
+    private Map<String, NormalizedFileSnapshot> snapshots;
+    private byte[] serialized;
+
+    @Setup(Level.Trial)
+    public void createSnapshots() throws Exception {
+        snapshots = createSnapshots(new Random(1234L), fileCount);
+        serialized = write();
+    }
+
+    static Map<String, NormalizedFileSnapshot> createSnapshots(Random random, int fileCount) {
+        Map<String, NormalizedFileSnapshot> snapshots = new LinkedHashMap<String, NormalizedFileSnapshot>(fileCount);
+        for (int i = 0; i < fileCount; i++) {
+            String relativePath = "org/gradle/package" + (i / 100) + "/Class" + i + ".java";
+            String absolutePath = "/home/user/project/src/main/java/" + relativePath;
+            IncrementalFileSnapshot snapshot;
+            if (i % 100 == 0) {
+                snapshot = DirSnapshot.getInstance();
+            } else {
+                byte[] hash = new byte[16];
+                random.nextBytes(hash);
+                snapshot = new FileHashSnapshot(HashCode.fromBytes(hash));
+            }
+            snapshots.put(absolutePath, new DefaultNormalizedFileSnapshot(relativePath, snapshot));
+        }
+        return snapshots;
+    }
+
+    @Benchmark
+    public byte[] write() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        KryoBackedEncoder encoder = new KryoBackedEncoder(output);
+        if (format.equals("compact")) {
+            CompactSnapshotMap.of(snapshots, true, stringInterner).write(encoder);
+        } else {
+            serializer.write(encoder, snapshots);
+        }
+        encoder.flush();
+        return output.toByteArray();
+    }
+
+    @Benchmark
+    public Map<String, NormalizedFileSnapshot> read() throws Exception {
+        KryoBackedDecoder decoder = new KryoBackedDecoder(new ByteArrayInputStream(serialized));
+        if (format.equals("compact")) {
+            return CompactSnapshotMap.read(decoder, stringInterner);
+        }
+        return serializer.read(decoder);
+    }
+
+    @Benchmark
+    public int readAndIterate() throws Exception {
+        int count = 0;
+        for (NormalizedFileSnapshot snapshot : read().values()) {
+            if (snapshot.getSnapshot() instanceof FileHashSnapshot) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
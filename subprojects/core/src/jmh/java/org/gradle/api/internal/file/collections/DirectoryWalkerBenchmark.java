@@ -0,0 +1,85 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.file.collections;
+
+import com.google.common.io.Files;
+import org.apache.commons.io.FileUtils;
+import org.gradle.api.file.FileVisitDetails;
+import org.gradle.api.file.FileVisitor;
+import org.gradle.api.file.RelativePath;
+import org.gradle.api.internal.file.collections.jdk7.Jdk7DirectoryWalker;
+import org.gradle.api.specs.Specs;
+import org.gradle.internal.nativeintegration.services.FileSystems;
+import org.gradle.internal.nativeintegration.services.NativeServices;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Compares the {@link DirectoryWalker} implementations on a source tree of about 10000 files.
+ */
+@State(Scope.Benchmark)
+@Fork(2)
+public class DirectoryWalkerBenchmark {
+    @Param({"default", "jdk7"})
+    String walker;
+
+    private File tempDir;
+    private File root;
+    private DirectoryWalker directoryWalker;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        tempDir = Files.createTempDir();
+        NativeServices.initialize(new File(tempDir, "native"));
+        root = new File(tempDir, "tree");
+        for (int i = 0; i < 10; i++) {
+            for (int j = 0; j < 20; j++) {
+                File dir = new File(root, "module" + i + "/src/main/java/org/gradle/package" + j);
+                if (!dir.mkdirs()) {
+                    throw new IllegalStateException("Could not create " + dir);
+                }
+                for (int k = 0; k < 50; k++) {
+                    Files.write(new byte[0], new File(dir, "Class" + k + ".java"));
+                }
+            }
+        }
+        directoryWalker = walker.equals("jdk7") ? new Jdk7DirectoryWalker(FileSystems.getDefault()) : new DefaultDirectoryWalker(FileSystems.getDefault());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        FileUtils.forceDelete(tempDir);
+    }
+
+    @Benchmark
+    public void walk(final Blackhole bh) {
+        directoryWalker.walkDir(root, RelativePath.EMPTY_ROOT, new FileVisitor() {
+            @Override
+            public void visitDir(FileVisitDetails dirDetails) {
+                bh.consume(dirDetails.getRelativePath());
+            }
+
+            @Override
+            public void visitFile(FileVisitDetails fileDetails) {
+                bh.consume(fileDetails.getRelativePath());
+                bh.consume(fileDetails.getLastModified());
+            }
+        }, Specs.satisfyAll(), new AtomicBoolean(), false);
+    }
+}
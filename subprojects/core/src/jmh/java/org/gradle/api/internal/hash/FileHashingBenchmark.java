@@ -0,0 +1,105 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.hash;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Compares the file hash functions on sets of files with sizes distributed like typical task inputs:
+ * <ul>
+ *     <li>{@code sources}: many small source files, mostly a few KB.</li>
+ *     <li>{@code resources}: mostly small files, with some files of up to 1 MB.</li>
+ *     <li>{@code jars}: fewer, larger files of up to 16 MB, some of which are large enough to be memory mapped.</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class FileHashingBenchmark {
+    @Param({"MD5", "MURMUR3_128"})
+    String hashFunction;
+
+    @Param({"sources", "resources", "jars"})
+    String distribution;
+
+    private File directory;
+    private File[] files;
+    private DefaultFileHasher hasher;
+
+    @Setup(Level.Trial)
+    public void createFiles() throws IOException {
+        Random random = new Random(1234L);
+        directory = File.createTempFile("file-hashing", "");
+        directory.delete();
+        directory.mkdirs();
+        if (distribution.equals("sources")) {
+            files = createFiles(random, 2000, 512, 64 * 1024);
+        } else if (distribution.equals("resources")) {
+            File[] small = createFiles(random, 900, 1024, 16 * 1024);
+            File[] large = createFiles(random, 100, 100 * 1024, 1024 * 1024);
+            files = new File[small.length + large.length];
+            System.arraycopy(small, 0, files, 0, small.length);
+            System.arraycopy(large, 0, files, small.length, large.length);
+        } else {
+            files = createFiles(random, 40, 100 * 1024, 16 * 1024 * 1024);
+        }
+        hasher = new DefaultFileHasher(FileHashFunction.valueOf(hashFunction));
+    }
+
+    /**
+     * Creates files with sizes log-uniformly distributed between the given bounds, so that small files are more common than large ones.
+     */
+    private File[] createFiles(Random random, int count, int minSize, int maxSize) throws IOException {
+        File[] result = new File[count];
+        double logMin = Math.log(minSize);
+        double logMax = Math.log(maxSize);
+        for (int i = 0; i < count; i++) {
+            int size = (int) Math.exp(logMin + random.nextDouble() * (logMax - logMin));
+            byte[] content = new byte[size];
+            random.nextBytes(content);
+            File file = File.createTempFile("input", ".bin", directory);
+            FileOutputStream output = new FileOutputStream(file);
+            try {
+                output.write(content);
+            } finally {
+                output.close();
+            }
+            result[i] = file;
+        }
+        return result;
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFiles() throws IOException {
+        FileUtils.deleteDirectory(directory);
+    }
+
+    @Benchmark
+    public void hashFiles(Blackhole bh) {
+        for (File file : files) {
+            bh.consume(hasher.hash(file));
+        }
+    }
+}
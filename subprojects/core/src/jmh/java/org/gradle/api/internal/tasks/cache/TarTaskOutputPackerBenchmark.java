@@ -0,0 +1,138 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.tasks.cache;
+
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.io.Files;
+import org.apache.commons.io.FileUtils;
+import org.gradle.api.internal.TaskOutputsInternal;
+import org.gradle.api.internal.tasks.properties.CacheableTaskOutputFilePropertySpec;
+import org.gradle.api.internal.tasks.properties.TaskOutputFilePropertySpec;
+import org.gradle.internal.concurrent.DefaultExecutorFactory;
+import org.gradle.internal.nativeintegration.services.FileSystems;
+import org.gradle.internal.nativeintegration.services.NativeServices;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Random;
+import java.util.SortedSet;
+
+/**
+ * Measures packing and unpacking a directory output with {@link TarTaskOutputPacker}.
+ */
+@State(Scope.Benchmark)
+@Fork(2)
+public class TarTaskOutputPackerBenchmark {
+    private static final int FILE_COUNT = 1000;
+
+    @Param({"1", "4"})
+    int unpackThreads;
+
+    private File tempDir;
+    private TaskOutputsInternal sourceOutputs;
+    private TaskOutputsInternal targetOutputs;
+    private DefaultExecutorFactory executorFactory;
+    private TarTaskOutputPacker packer;
+    private byte[] packed;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        tempDir = Files.createTempDir();
+        NativeServices.initialize(new File(tempDir, "native"));
+        File sourceDir = new File(tempDir, "source");
+        Random random = new Random(1234L);
+        for (int i = 0; i < FILE_COUNT; i++) {
+            File file = new File(sourceDir, "package" + (i / 50) + "/Class" + i + ".class");
+            byte[] content = new byte[random.nextInt(16 * 1024)];
+            random.nextBytes(content);
+            Files.createParentDirs(file);
+            Files.write(content, file);
+        }
+        sourceOutputs = outputsFor(sourceDir);
+        targetOutputs = outputsFor(new File(tempDir, "target"));
+        executorFactory = new DefaultExecutorFactory();
+        packer = new TarTaskOutputPacker(FileSystems.getDefault(), unpackThreads > 1 ? executorFactory.create("Task output unpacking", unpackThreads) : null);
+        packed = pack();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        executorFactory.stop();
+        FileUtils.forceDelete(tempDir);
+    }
+
+    @Benchmark
+    public byte[] pack() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        packer.pack(sourceOutputs, output);
+        return output.toByteArray();
+    }
+
+    @Benchmark
+    public void unpack() throws Exception {
+        packer.unpack(targetOutputs, new ByteArrayInputStream(packed));
+    }
+
+    private static TaskOutputsInternal outputsFor(File directory) {
+        final CacheableTaskOutputFilePropertySpec propertySpec = proxy(CacheableTaskOutputFilePropertySpec.class, new PropertySpecHandler(directory));
+        final SortedSet<TaskOutputFilePropertySpec> fileProperties = ImmutableSortedSet.<TaskOutputFilePropertySpec>of(propertySpec);
+        return proxy(TaskOutputsInternal.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if (method.getName().equals("getFileProperties")) {
+                    return fileProperties;
+                }
+                throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    private static class PropertySpecHandler implements InvocationHandler {
+        private final File directory;
+
+        PropertySpecHandler(File directory) {
+            this.directory = directory;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            String name = method.getName();
+            if (name.equals("getPropertyName")) {
+                return "classes";
+            } else if (name.equals("getOutputFile")) {
+                return directory;
+            } else if (name.equals("getOutputType")) {
+                return CacheableTaskOutputFilePropertySpec.OutputType.DIRECTORY;
+            } else if (name.equals("compareTo")) {
+                return "classes".compareTo(((TaskOutputFilePropertySpec) args[0]).getPropertyName());
+            } else if (name.equals("hashCode")) {
+                return System.identityHashCode(proxy);
+            } else if (name.equals("equals")) {
+                return proxy == args[0];
+            }
+            throw new UnsupportedOperationException(name);
+        }
+    }
+}
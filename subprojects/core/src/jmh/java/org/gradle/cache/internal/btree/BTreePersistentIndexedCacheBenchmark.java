@@ -0,0 +1,81 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.cache.internal.btree;
+
+import org.gradle.internal.serialize.BaseSerializerFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Measures gets and puts on a {@link BTreePersistentIndexedCache} from several threads. Access is serialized through a lock, the same way
+ * the cache is guarded when used through a persistent cache.
+ */
+@State(Scope.Group)
+@Fork(2)
+public class BTreePersistentIndexedCacheBenchmark {
+    private static final int KEY_COUNT = 10000;
+
+    @Param({"false", "true"})
+    String mappedBlockStore;
+
+    private File cacheFile;
+    private BTreePersistentIndexedCache<String, Long> cache;
+    private String[] keys;
+    private final Object lock = new Object();
+
+    @Setup(Level.Trial)
+    public void createCache() throws IOException {
+        System.setProperty(BTreePersistentIndexedCache.MAPPED_BLOCK_STORE_PROPERTY, mappedBlockStore);
+        cacheFile = File.createTempFile("btree-cache", ".bin");
+        cacheFile.delete();
+        cache = new BTreePersistentIndexedCache<String, Long>(cacheFile, BaseSerializerFactory.STRING_SERIALIZER, BaseSerializerFactory.LONG_SERIALIZER);
+        keys = new String[KEY_COUNT];
+        for (int i = 0; i < KEY_COUNT; i++) {
+            keys[i] = "/some/project/src/main/java/org/gradle/Class" + i + ".java";
+            cache.put(keys[i], (long) i);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void closeCache() {
+        cache.close();
+        cacheFile.delete();
+        System.clearProperty(BTreePersistentIndexedCache.MAPPED_BLOCK_STORE_PROPERTY);
+    }
+
+    @Benchmark
+    @Group("readMostly")
+    @GroupThreads(3)
+    public Long get() {
+        String key = keys[ThreadLocalRandom.current().nextInt(KEY_COUNT)];
+        synchronized (lock) {
+            return cache.get(key);
+        }
+    }
+
+    @Benchmark
+    @Group("readMostly")
+    @GroupThreads(1)
+    public void put() {
+        int index = ThreadLocalRandom.current().nextInt(KEY_COUNT);
+        synchronized (lock) {
+            cache.put(keys[index], (long) index);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.btree;
+
+import org.gradle.internal.serialize.BaseSerializerFactory;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Compares random reads from a {@link BTreePersistentIndexedCache} backed by the {@link FileBackedBlockStore} with reads from one backed by the
+ * {@link MappedFileBlockStore}. The cache is not thread safe, so it is read from a single thread.
+ */
+@State(Scope.Benchmark)
+public class BlockStoreBenchmark {
+    private final static int ENTRY_COUNT = 10000;
+
+    @Param({"file", "mapped"})
+    String storeType;
+
+    private File cacheFile;
+    private BTreePersistentIndexedCache<Long, byte[]> cache;
+    private final Random random = new Random();
+
+    @Setup(Level.Trial)
+    public void createCache() throws IOException {
+        cacheFile = File.createTempFile("block-store", ".bin");
+        cacheFile.delete();
+        System.setProperty(BTreePersistentIndexedCache.MAPPED_BLOCK_STORE_PROPERTY, String.valueOf(storeType.equals("mapped")));
+        try {
+            cache = new BTreePersistentIndexedCache<Long, byte[]>(cacheFile, BaseSerializerFactory.LONG_SERIALIZER, BaseSerializerFactory.BYTE_ARRAY_SERIALIZER);
+        } finally {
+            System.clearProperty(BTreePersistentIndexedCache.MAPPED_BLOCK_STORE_PROPERTY);
+        }
+        Random values = new Random(0);
+        for (long i = 0; i < ENTRY_COUNT; i++) {
+            byte[] value = new byte[256];
+            values.nextBytes(value);
+            cache.put(i, value);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void closeCache() {
+        cache.close();
+        cacheFile.delete();
+    }
+
+    @Benchmark
+    public void randomRead(Blackhole bh) {
+        bh.consume(cache.get((long) random.nextInt(ENTRY_COUNT)));
+    }
+}
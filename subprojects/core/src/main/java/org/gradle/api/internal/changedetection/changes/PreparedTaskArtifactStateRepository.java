@@ -0,0 +1,75 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.changes;
+
+import org.gradle.api.internal.TaskInternal;
+import org.gradle.api.internal.changedetection.TaskArtifactState;
+import org.gradle.api.internal.changedetection.TaskArtifactStateRepository;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Hands out the states of tasks that were prepared before the tasks are executed, e.g. to calculate their cache keys, so that the inputs and outputs
+ * of those tasks are not snapshotted again when they execute.
+ *
+ * <p>A prepared state is kept until its task is executed, even when other tasks generate outputs in the meantime. States should therefore only be
+ * prepared for tasks whose inputs are not produced by other tasks in the graph, and only be kept when the task was found to be out-of-date, as other
+ * tasks may still remove its outputs, e.g. {@code clean}. Use {@link #discardPreparedState(TaskInternal)} for the states that should not be kept.</p>
+ */
+public class PreparedTaskArtifactStateRepository implements TaskArtifactStateRepository {
+    private final TaskArtifactStateRepository delegate;
+    private final ConcurrentMap<TaskInternal, TaskArtifactState> preparedStates = new ConcurrentHashMap<TaskInternal, TaskArtifactState>();
+
+    public PreparedTaskArtifactStateRepository(TaskArtifactStateRepository delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Creates the state of the given task, which is handed out by the next call to {@link #getStateFor(TaskInternal)} for the task.
+     */
+    public TaskArtifactState prepareStateFor(TaskInternal task) {
+        TaskArtifactState state = delegate.getStateFor(task);
+        preparedStates.put(task, state);
+        return state;
+    }
+
+    @Override
+    public TaskArtifactState getStateFor(TaskInternal task) {
+        TaskArtifactState state = preparedStates.remove(task);
+        return state != null ? state : delegate.getStateFor(task);
+    }
+
+    /**
+     * Discards the prepared state of the given task, if it has not been handed out.
+     */
+    public void discardPreparedState(TaskInternal task) {
+        TaskArtifactState state = preparedStates.remove(task);
+        if (state != null) {
+            state.finished();
+        }
+    }
+
+    /**
+     * Discards the prepared states that have not been handed out.
+     */
+    public void discardPreparedStates() {
+        for (TaskInternal task : preparedStates.keySet()) {
+            discardPreparedState(task);
+        }
+    }
+}
@@ -18,7 +18,10 @@ package org.gradle.api.internal.changedetection.state;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.hash.HashCode;
 import org.gradle.api.file.FileCollection;
+import org.gradle.api.file.FileTreeElement;
 import org.gradle.api.file.FileVisitDetails;
 import org.gradle.api.file.FileVisitor;
 import org.gradle.api.internal.cache.StringInterner;
@@ -28,14 +31,17 @@ import org.gradle.api.internal.file.FileTreeInternal;
 import org.gradle.api.internal.file.collections.DirectoryFileTree;
 import org.gradle.api.internal.file.collections.DirectoryFileTreeFactory;
 import org.gradle.api.internal.file.collections.SingletonFileTree;
+import org.gradle.api.internal.hash.BatchingFileHasher;
 import org.gradle.api.internal.hash.FileHasher;
 import org.gradle.api.internal.tasks.execution.TaskOutputsGenerationListener;
 import org.gradle.internal.nativeintegration.filesystem.FileSystem;
 import org.gradle.internal.serialize.SerializerRegistry;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 import static org.gradle.api.internal.changedetection.state.FileDetails.FileType.*;
@@ -43,27 +49,37 @@ import static org.gradle.api.internal.changedetection.state.FileDetails.FileType
 /**
  * Responsible for calculating a {@link FileCollectionSnapshot} for a particular {@link FileCollection}.
  *
- * <p>Implementation performs some in-memory caching, should be notified of potential changes by calling {@link #beforeTaskOutputsGenerated()}.</p>
+ * <p>Implementation performs some in-memory caching, should be notified of potential changes by calling {@link #beforeTaskOutputsGenerated()}.
+ * Directory trees are also read from the given {@link FileSystemMirror}, until the first task outputs are generated. After that point,
+ * changes made to the trees by this build may not have been reported to the mirror yet.</p>
  */
 public abstract class AbstractFileCollectionSnapshotter implements FileCollectionSnapshotter, TaskOutputsGenerationListener {
     private final FileHasher hasher;
     private final StringInterner stringInterner;
     private final FileSystem fileSystem;
     private final DirectoryFileTreeFactory directoryFileTreeFactory;
+    private final FileSystemMirror fileSystemMirror;
+    private volatile boolean taskOutputsGenerated;
     // Map from interned absolute path for a file to known details for the file. Currently used only for root files, not those nested in a directory
     private final Map<String, DefaultFileDetails> rootFiles = new ConcurrentHashMap<String, DefaultFileDetails>();
 
     public AbstractFileCollectionSnapshotter(FileHasher hasher, StringInterner stringInterner, FileSystem fileSystem, DirectoryFileTreeFactory directoryFileTreeFactory) {
+        this(hasher, stringInterner, fileSystem, directoryFileTreeFactory, FileSystemMirror.NONE);
+    }
+
+    public AbstractFileCollectionSnapshotter(FileHasher hasher, StringInterner stringInterner, FileSystem fileSystem, DirectoryFileTreeFactory directoryFileTreeFactory, FileSystemMirror fileSystemMirror) {
         this.hasher = hasher;
         this.stringInterner = stringInterner;
         this.fileSystem = fileSystem;
         this.directoryFileTreeFactory = directoryFileTreeFactory;
+        this.fileSystemMirror = fileSystemMirror;
     }
 
     @Override
     public void beforeTaskOutputsGenerated() {
         // When the task outputs are generated, throw away all cached state. This is intentionally very simple, to be improved later
         rootFiles.clear();
+        taskOutputsGenerated = true;
     }
 
     public void registerSerializers(SerializerRegistry registry) {
@@ -81,6 +97,7 @@ public abstract class AbstractFileCollectionSnapshotter implements FileCollectio
             return FileCollectionSnapshot.EMPTY;
         }
 
+        Map<String, HashCode> fileHashes = hashRegularFiles(fileTreeElements);
         Map<String, NormalizedFileSnapshot> snapshots = Maps.newLinkedHashMap();
         for (DefaultFileDetails fileDetails : fileTreeElements) {
             String absolutePath = fileDetails.path;
@@ -94,7 +111,7 @@ public abstract class AbstractFileCollectionSnapshotter implements FileCollectio
                         snapshot = DirSnapshot.getInstance();
                         break;
                     case RegularFile:
-                        snapshot = new FileHashSnapshot(hasher.hash(fileDetails.details), fileDetails.details.getLastModified());
+                        snapshot = new FileHashSnapshot(fileHashes.get(absolutePath), fileDetails.details.getLastModified());
                         break;
                     default:
                         throw new AssertionError();
@@ -108,6 +125,33 @@ public abstract class AbstractFileCollectionSnapshotter implements FileCollectio
         return new DefaultFileCollectionSnapshot(snapshots, compareStrategy, snapshotNormalizationStrategy.isPathAbsolute());
     }
 
+    /**
+     * Hashes the regular files up-front, so that a {@link BatchingFileHasher} can hash them concurrently. The snapshots are still created in visiting order.
+     */
+    private Map<String, HashCode> hashRegularFiles(List<DefaultFileDetails> fileTreeElements) {
+        Set<String> seenPaths = Sets.newHashSet();
+        List<String> paths = Lists.newArrayList();
+        List<FileTreeElement> regularFiles = Lists.newArrayList();
+        for (DefaultFileDetails fileDetails : fileTreeElements) {
+            if (fileDetails.getType() == RegularFile && seenPaths.add(fileDetails.path)) {
+                paths.add(fileDetails.path);
+                regularFiles.add(fileDetails.details);
+            }
+        }
+        Map<String, HashCode> fileHashes = Maps.newHashMapWithExpectedSize(regularFiles.size());
+        if (hasher instanceof BatchingFileHasher) {
+            List<HashCode> hashes = ((BatchingFileHasher) hasher).hashAll(regularFiles);
+            for (int i = 0; i < hashes.size(); i++) {
+                fileHashes.put(paths.get(i), hashes.get(i));
+            }
+        } else {
+            for (int i = 0; i < regularFiles.size(); i++) {
+                fileHashes.put(paths.get(i), hasher.hash(regularFiles.get(i)));
+            }
+        }
+        return fileHashes;
+    }
+
     private class FileCollectionVisitorImpl implements FileCollectionVisitor {
         private final List<DefaultFileDetails> fileTreeElements;
 
@@ -170,7 +214,24 @@ public abstract class AbstractFileCollectionSnapshotter implements FileCollectio
     }
 
     protected void visitDirectoryTree(DirectoryFileTree directoryTree, List<DefaultFileDetails> fileTreeElements) {
-        directoryTree.visit(new FileVisitorImpl(fileTreeElements));
+        if (!taskOutputsGenerated) {
+            List<? extends FileDetails> mirroredElements = fileSystemMirror.getDirectoryTree(directoryTree);
+            if (mirroredElements != null) {
+                for (FileDetails fileDetails : mirroredElements) {
+                    fileTreeElements.add((DefaultFileDetails) fileDetails);
+                }
+                return;
+            }
+        }
+        FileSystemMirror.DirectoryTreeRecorder recorder = fileSystemMirror.beginVisit(directoryTree);
+        if (recorder == null) {
+            directoryTree.visit(new FileVisitorImpl(fileTreeElements));
+            return;
+        }
+        List<DefaultFileDetails> elements = new ArrayList<DefaultFileDetails>();
+        directoryTree.visit(new FileVisitorImpl(elements));
+        recorder.record(elements);
+        fileTreeElements.addAll(elements);
     }
 
     private class FileVisitorImpl implements FileVisitor {
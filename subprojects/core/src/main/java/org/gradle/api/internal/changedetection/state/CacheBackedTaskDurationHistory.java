@@ -0,0 +1,41 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import org.gradle.api.internal.TaskInternal;
+import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.execution.taskgraph.TaskDurationHistory;
+import org.gradle.internal.serialize.BaseSerializerFactory;
+
+public class CacheBackedTaskDurationHistory implements TaskDurationHistory {
+    private final PersistentIndexedCache<String, Long> durations;
+
+    public CacheBackedTaskDurationHistory(TaskHistoryStore cacheAccess) {
+        durations = cacheAccess.createCache("taskDurations", String.class, BaseSerializerFactory.LONG_SERIALIZER);
+    }
+
+    @Override
+    public long getPreviousDuration(TaskInternal task) {
+        Long duration = durations.get(task.getPath());
+        return duration == null ? -1 : duration;
+    }
+
+    @Override
+    public void recordDuration(TaskInternal task, long durationMillis) {
+        durations.put(task.getPath(), durationMillis);
+    }
+}
@@ -16,12 +16,20 @@
 package org.gradle.api.internal.changedetection.state;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Lists;
 import com.google.common.hash.HashCode;
+import org.gradle.api.Nullable;
 import org.gradle.api.file.FileTreeElement;
 import org.gradle.api.internal.cache.StringInterner;
+import org.gradle.api.internal.hash.BatchingFileHasher;
+import org.gradle.api.internal.hash.FileHashFunction;
 import org.gradle.api.internal.hash.FileHasher;
 import org.gradle.cache.PersistentIndexedCache;
 import org.gradle.cache.PersistentStore;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.concurrent.StoppableExecutor;
 import org.gradle.internal.resource.TextResource;
 import org.gradle.internal.serialize.Decoder;
 import org.gradle.internal.serialize.Encoder;
@@ -29,16 +37,47 @@ import org.gradle.internal.serialize.HashCodeSerializer;
 import org.gradle.internal.serialize.Serializer;
 
 import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Caches the hashes of files by path, length and modification time. When hashing many files at once, the files that are not cached
+ * are hashed concurrently on a bounded pool of threads, if one was provided. The cache itself is only accessed from the calling thread.
+ */
+public class CachingFileHasher implements BatchingFileHasher, Stoppable {
+    private static final int MIN_FILES_PER_BATCH = 16;
 
-public class CachingFileHasher implements FileHasher {
     private final PersistentIndexedCache<String, FileInfo> cache;
     private final FileHasher delegate;
     private final StringInterner stringInterner;
+    private final StoppableExecutor executor;
+    private final int parallelism;
 
     public CachingFileHasher(FileHasher delegate, PersistentStore store, StringInterner stringInterner) {
+        this(delegate, store, stringInterner, FileHashFunction.MD5, null, 1);
+    }
+
+    /**
+     * @param hashFunction the hash function used by the delegate. Cached hashes produced by a different function are ignored.
+     * @param executorFactory used to create the pool hashing files concurrently, or {@code null} to hash all files on the calling thread.
+     * @param parallelism the maximum number of files to hash concurrently.
+     */
+    public CachingFileHasher(FileHasher delegate, PersistentStore store, StringInterner stringInterner, FileHashFunction hashFunction, @Nullable ExecutorFactory executorFactory, int parallelism) {
         this.delegate = delegate;
-        this.cache = store.createCache("fileHashes", String.class, new FileInfoSerializer());
+        this.cache = store.createCache("fileHashes", String.class, new FileInfoSerializer(hashFunction));
         this.stringInterner = stringInterner;
+        this.parallelism = parallelism;
+        this.executor = executorFactory != null && parallelism > 1 ? executorFactory.create("File hasher", parallelism) : null;
+    }
+
+    @Override
+    public void stop() {
+        if (executor != null) {
+            executor.stop();
+        }
     }
 
     @Override
@@ -60,6 +99,67 @@ public class CachingFileHasher implements FileHasher {
         return snapshot(fileDetails).getHash();
     }
 
+    @Override
+    public List<HashCode> hashAll(List<? extends FileTreeElement> fileDetails) {
+        HashCode[] hashes = new HashCode[fileDetails.size()];
+        List<Integer> misses = Lists.newArrayList();
+        for (int i = 0; i < hashes.length; i++) {
+            FileTreeElement file = fileDetails.get(i);
+            FileInfo info = cache.get(file.getFile().getAbsolutePath());
+            if (info != null && file.getSize() == info.length && file.getLastModified() == info.timestamp) {
+                hashes[i] = info.hash;
+            } else {
+                misses.add(i);
+            }
+        }
+
+        if (executor == null || misses.size() < 2 * MIN_FILES_PER_BATCH) {
+            for (Integer index : misses) {
+                hashes[index] = snapshot(fileDetails.get(index)).getHash();
+            }
+        } else {
+            hashConcurrently(fileDetails, misses, hashes);
+        }
+        return Arrays.asList(hashes);
+    }
+
+    private void hashConcurrently(final List<? extends FileTreeElement> fileDetails, List<Integer> misses, HashCode[] hashes) {
+        int batchSize = Math.max(MIN_FILES_PER_BATCH, (misses.size() + parallelism * 4 - 1) / (parallelism * 4));
+        List<List<Integer>> batches = Lists.partition(misses, batchSize);
+        List<Future<HashCode[]>> results = Lists.newArrayListWithCapacity(batches.size());
+        try {
+            for (final List<Integer> batch : batches) {
+                results.add(executor.submit(new Callable<HashCode[]>() {
+                    @Override
+                    public HashCode[] call() {
+                        HashCode[] batchHashes = new HashCode[batch.size()];
+                        for (int i = 0; i < batchHashes.length; i++) {
+                            batchHashes[i] = delegate.hash(fileDetails.get(batch.get(i)).getFile());
+                        }
+                        return batchHashes;
+                    }
+                }));
+            }
+            for (int i = 0; i < batches.size(); i++) {
+                List<Integer> batch = batches.get(i);
+                HashCode[] batchHashes = results.get(i).get();
+                for (int j = 0; j < batchHashes.length; j++) {
+                    FileTreeElement file = fileDetails.get(batch.get(j));
+                    hashes[batch.get(j)] = batchHashes[j];
+                    cache.put(stringInterner.intern(file.getFile().getAbsolutePath()), new FileInfo(batchHashes[j], file.getSize(), file.getLastModified()));
+                }
+            }
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        } catch (ExecutionException e) {
+            throw UncheckedException.throwAsUncheckedException(e.getCause());
+        } finally {
+            for (Future<HashCode[]> result : results) {
+                result.cancel(false);
+            }
+        }
+    }
+
     private FileInfo snapshot(File file) {
         return snapshot(file, file.length(), file.lastModified());
     }
@@ -99,10 +199,22 @@ public class CachingFileHasher implements FileHasher {
         }
     }
 
+    /**
+     * Writes the id of the hash function ahead of each hash. Entries written with a different function, or by a version that did not
+     * write the id, are read as {@code null} so that the file is hashed again.
+     */
     private static class FileInfoSerializer implements Serializer<FileInfo> {
         private final HashCodeSerializer hashCodeSerializer = new HashCodeSerializer();
+        private final byte hashFunctionId;
+
+        FileInfoSerializer(FileHashFunction hashFunction) {
+            this.hashFunctionId = hashFunction.getId();
+        }
 
         public FileInfo read(Decoder decoder) throws Exception {
+            if (decoder.readByte() != hashFunctionId) {
+                return null;
+            }
             HashCode hash = hashCodeSerializer.read(decoder);
             long timestamp = decoder.readLong();
             long length = decoder.readLong();
@@ -110,6 +222,7 @@ public class CachingFileHasher implements FileHasher {
         }
 
         public void write(Encoder encoder, FileInfo value) throws Exception {
+            encoder.writeByte(hashFunctionId);
             hashCodeSerializer.write(encoder, value.hash);
             encoder.writeLong(value.timestamp);
             encoder.writeLong(value.length);
@@ -0,0 +1,417 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.hash.HashCode;
+import org.gradle.api.internal.cache.StringInterner;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.Encoder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A read-only map of file snapshots, backed by the compact encoding used to persist them.
+ *
+ * <p>Each path is stored as the length of the prefix it shares with the previous path, followed by the remaining characters. Unless the order
+ * of the snapshot is significant, the entries are sorted by absolute path, so that consecutive paths share long prefixes. The hashes of all
+ * regular files are kept in a single byte array.</p>
+ *
+ * <p>The paths are decoded when the map is first queried, and the {@link NormalizedFileSnapshot} values are created on demand.
+ * This way a large snapshot can be compared against another one without building a hash map of it.</p>
+ */
+class CompactSnapshotMap extends AbstractMap<String, NormalizedFileSnapshot> {
+    private static final byte DIR_SNAPSHOT = 1;
+    private static final byte MISSING_FILE_SNAPSHOT = 2;
+    private static final byte REGULAR_FILE_SNAPSHOT = 3;
+
+    private static final byte NO_NORMALIZATION = 1;
+    private static final byte DEFAULT_NORMALIZATION = 2;
+    private static final byte INDEXED_NORMALIZATION = 3;
+    private static final byte IGNORED_PATH_NORMALIZATION = 4;
+
+    private static final Comparator<Map.Entry<String, NormalizedFileSnapshot>> BY_PATH = new Comparator<Map.Entry<String, NormalizedFileSnapshot>>() {
+        @Override
+        public int compare(Map.Entry<String, NormalizedFileSnapshot> o1, Map.Entry<String, NormalizedFileSnapshot> o2) {
+            return o1.getKey().compareTo(o2.getKey());
+        }
+    };
+
+    private final int size;
+    private final boolean sorted;
+    // The kind of snapshot in the high nibble, the kind of normalization in the low one
+    private final byte[] kinds;
+    private final byte[] paths;
+    // Normalized paths of the entries using default normalization, and indexes of those using indexed normalization
+    private final byte[] normalizedPaths;
+    private final byte[] hashes;
+    private final StringInterner stringInterner;
+    private volatile Decoded decoded;
+
+    private CompactSnapshotMap(int size, boolean sorted, byte[] kinds, byte[] paths, byte[] normalizedPaths, byte[] hashes, StringInterner stringInterner) {
+        this.size = size;
+        this.sorted = sorted;
+        this.kinds = kinds;
+        this.paths = paths;
+        this.normalizedPaths = normalizedPaths;
+        this.hashes = hashes;
+        this.stringInterner = stringInterner;
+    }
+
+    /**
+     * Encodes the given snapshots. When {@code sort} is true, the order of the entries is not retained.
+     */
+    static CompactSnapshotMap of(Map<String, NormalizedFileSnapshot> snapshots, boolean sort, StringInterner stringInterner) {
+        if (snapshots instanceof CompactSnapshotMap && (((CompactSnapshotMap) snapshots).sorted || !sort)) {
+            return (CompactSnapshotMap) snapshots;
+        }
+        List<Map.Entry<String, NormalizedFileSnapshot>> entries = Lists.newArrayList(snapshots.entrySet());
+        if (sort) {
+            Collections.sort(entries, BY_PATH);
+        }
+        byte[] kinds = new byte[entries.size()];
+        BlockWriter paths = new BlockWriter();
+        BlockWriter normalizedPaths = new BlockWriter();
+        BlockWriter hashes = new BlockWriter();
+        byte[] hashBuffer = new byte[64];
+        for (int i = 0; i < kinds.length; i++) {
+            Map.Entry<String, NormalizedFileSnapshot> entry = entries.get(i);
+            paths.writePath(entry.getKey());
+            NormalizedFileSnapshot value = entry.getValue();
+            IncrementalFileSnapshot snapshot = value.getSnapshot();
+            byte snapshotKind;
+            if (snapshot instanceof DirSnapshot) {
+                snapshotKind = DIR_SNAPSHOT;
+            } else if (snapshot instanceof MissingFileSnapshot) {
+                snapshotKind = MISSING_FILE_SNAPSHOT;
+            } else if (snapshot instanceof FileHashSnapshot) {
+                snapshotKind = REGULAR_FILE_SNAPSHOT;
+                HashCode hash = snapshot.getHash();
+                int length = hash.writeBytesTo(hashBuffer, 0, hashBuffer.length);
+                hashes.write(length);
+                hashes.write(hashBuffer, 0, length);
+            } else {
+                throw new AssertionError();
+            }
+
+            byte normalizationKind;
+            if (value instanceof NonNormalizedFileSnapshot) {
+                normalizationKind = NO_NORMALIZATION;
+            } else if (value instanceof DefaultNormalizedFileSnapshot) {
+                normalizationKind = DEFAULT_NORMALIZATION;
+                normalizedPaths.writePath(value.getNormalizedPath());
+            } else if (value instanceof IndexedNormalizedFileSnapshot) {
+                normalizationKind = INDEXED_NORMALIZATION;
+                normalizedPaths.writeVarInt(((IndexedNormalizedFileSnapshot) value).getIndex());
+            } else if (value instanceof IgnoredPathFileSnapshot) {
+                normalizationKind = IGNORED_PATH_NORMALIZATION;
+            } else {
+                throw new AssertionError();
+            }
+            kinds[i] = (byte) (snapshotKind << 4 | normalizationKind);
+        }
+        return new CompactSnapshotMap(kinds.length, sort, kinds, paths.toByteArray(), normalizedPaths.toByteArray(), hashes.toByteArray(), stringInterner);
+    }
+
+    static CompactSnapshotMap read(Decoder decoder, StringInterner stringInterner) throws IOException {
+        int size = decoder.readSmallInt();
+        boolean sorted = decoder.readBoolean();
+        byte[] kinds = decoder.readBinary();
+        byte[] paths = decoder.readBinary();
+        byte[] normalizedPaths = decoder.readBinary();
+        byte[] hashes = decoder.readBinary();
+        if (kinds.length != size) {
+            throw new IllegalStateException("Unable to read serialized file snapshot. Unexpected number of entries found in the data stream.");
+        }
+        return new CompactSnapshotMap(size, sorted, kinds, paths, normalizedPaths, hashes, stringInterner);
+    }
+
+    void write(Encoder encoder) throws IOException {
+        encoder.writeSmallInt(size);
+        encoder.writeBoolean(sorted);
+        encoder.writeBinary(kinds);
+        encoder.writeBinary(paths);
+        encoder.writeBinary(normalizedPaths);
+        encoder.writeBinary(hashes);
+    }
+
+    /**
+     * Returns true when the entries are sorted by path.
+     */
+    boolean isSorted() {
+        return sorted;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public NormalizedFileSnapshot get(Object key) {
+        int index = indexOf(key);
+        return index < 0 ? null : valueAt(index);
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return new AbstractSet<String>() {
+            @Override
+            public Iterator<String> iterator() {
+                final String[] paths = decode().decodedPaths;
+                return new IndexIterator<String>() {
+                    @Override
+                    protected String get(int index) {
+                        return paths[index];
+                    }
+                };
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return containsKey(o);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public Set<Entry<String, NormalizedFileSnapshot>> entrySet() {
+        return new AbstractSet<Entry<String, NormalizedFileSnapshot>>() {
+            @Override
+            public Iterator<Entry<String, NormalizedFileSnapshot>> iterator() {
+                final String[] paths = decode().decodedPaths;
+                return new IndexIterator<Entry<String, NormalizedFileSnapshot>>() {
+                    @Override
+                    protected Entry<String, NormalizedFileSnapshot> get(int index) {
+                        return new SimpleImmutableEntry<String, NormalizedFileSnapshot>(paths[index], valueAt(index));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private int indexOf(Object key) {
+        if (!(key instanceof String)) {
+            return -1;
+        }
+        Decoded decoded = decode();
+        if (sorted) {
+            int index = Arrays.binarySearch(decoded.decodedPaths, key);
+            return index < 0 ? -1 : index;
+        }
+        Integer index = decoded.getIndexes().get(key);
+        return index == null ? -1 : index;
+    }
+
+    private NormalizedFileSnapshot valueAt(int index) {
+        Decoded decoded = decode();
+        IncrementalFileSnapshot snapshot;
+        switch (kinds[index] >> 4) {
+            case DIR_SNAPSHOT:
+                snapshot = DirSnapshot.getInstance();
+                break;
+            case MISSING_FILE_SNAPSHOT:
+                snapshot = MissingFileSnapshot.getInstance();
+                break;
+            case REGULAR_FILE_SNAPSHOT:
+                int offset = decoded.hashOffsets[index];
+                snapshot = new FileHashSnapshot(HashCode.fromBytes(Arrays.copyOfRange(hashes, offset + 1, offset + 1 + (hashes[offset] & 0xff))));
+                break;
+            default:
+                throw new IllegalStateException("Unable to read serialized file snapshot. Unrecognized value found in the data stream.");
+        }
+        String absolutePath = decoded.decodedPaths[index];
+        switch (kinds[index] & 0xf) {
+            case NO_NORMALIZATION:
+                return new NonNormalizedFileSnapshot(absolutePath, snapshot);
+            case DEFAULT_NORMALIZATION:
+                return new DefaultNormalizedFileSnapshot(decoded.decodedNormalizedPaths[index], snapshot);
+            case INDEXED_NORMALIZATION:
+                return new IndexedNormalizedFileSnapshot(absolutePath, decoded.normalizedPathIndexes[index], snapshot);
+            case IGNORED_PATH_NORMALIZATION:
+                return new IgnoredPathFileSnapshot(snapshot);
+            default:
+                throw new IllegalStateException("Unable to read serialized file snapshot. Unrecognized value found in the data stream.");
+        }
+    }
+
+    private Decoded decode() {
+        Decoded result = decoded;
+        if (result == null) {
+            result = new Decoded();
+            decoded = result;
+        }
+        return result;
+    }
+
+    private class Decoded {
+        final String[] decodedPaths = new String[size];
+        final String[] decodedNormalizedPaths = new String[size];
+        final int[] normalizedPathIndexes = new int[size];
+        final int[] hashOffsets = new int[size];
+        private Map<String, Integer> indexes;
+
+        Decoded() {
+            BlockReader pathReader = new BlockReader(paths);
+            BlockReader normalizedPathReader = new BlockReader(normalizedPaths);
+            int hashOffset = 0;
+            for (int i = 0; i < size; i++) {
+                decodedPaths[i] = stringInterner.intern(pathReader.readPath());
+                switch (kinds[i] & 0xf) {
+                    case DEFAULT_NORMALIZATION:
+                        decodedNormalizedPaths[i] = stringInterner.intern(normalizedPathReader.readPath());
+                        break;
+                    case INDEXED_NORMALIZATION:
+                        normalizedPathIndexes[i] = normalizedPathReader.readVarInt();
+                        break;
+                    default:
+                        break;
+                }
+                if (kinds[i] >> 4 == REGULAR_FILE_SNAPSHOT) {
+                    hashOffsets[i] = hashOffset;
+                    hashOffset += 1 + (hashes[hashOffset] & 0xff);
+                }
+            }
+        }
+
+        synchronized Map<String, Integer> getIndexes() {
+            if (indexes == null) {
+                indexes = Maps.newHashMapWithExpectedSize(size);
+                for (int i = 0; i < size; i++) {
+                    indexes.put(decodedPaths[i], i);
+                }
+            }
+            return indexes;
+        }
+    }
+
+    private abstract class IndexIterator<T> implements Iterator<T> {
+        private int index;
+
+        @Override
+        public boolean hasNext() {
+            return index < size;
+        }
+
+        @Override
+        public T next() {
+            if (index >= size) {
+                throw new NoSuchElementException();
+            }
+            return get(index++);
+        }
+
+        protected abstract T get(int index);
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static class BlockWriter extends ByteArrayOutputStream {
+        private String previousPath = "";
+
+        void writePath(String path) {
+            int commonPrefix = 0;
+            int maxPrefix = Math.min(path.length(), previousPath.length());
+            while (commonPrefix < maxPrefix && path.charAt(commonPrefix) == previousPath.charAt(commonPrefix)) {
+                commonPrefix++;
+            }
+            if (commonPrefix > 0 && Character.isHighSurrogate(path.charAt(commonPrefix - 1))) {
+                // Do not split a surrogate pair
+                commonPrefix--;
+            }
+            byte[] suffix = path.substring(commonPrefix).getBytes(Charsets.UTF_8);
+            writeVarInt(commonPrefix);
+            writeVarInt(suffix.length);
+            write(suffix, 0, suffix.length);
+            previousPath = path;
+        }
+
+        void writeVarInt(int value) {
+            while ((value & ~0x7f) != 0) {
+                write((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            write(value);
+        }
+    }
+
+    private static class BlockReader {
+        private final byte[] bytes;
+        private int position;
+        private String previousPath = "";
+
+        BlockReader(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        String readPath() {
+            int commonPrefix = readVarInt();
+            int suffixLength = readVarInt();
+            String path = previousPath.substring(0, commonPrefix) + new String(bytes, position, suffixLength, Charsets.UTF_8);
+            position += suffixLength;
+            previousPath = path;
+            return path;
+        }
+
+        int readVarInt() {
+            int value = 0;
+            for (int shift = 0;; shift += 7) {
+                byte b = bytes[position++];
+                value |= (b & 0x7f) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+        }
+    }
+}
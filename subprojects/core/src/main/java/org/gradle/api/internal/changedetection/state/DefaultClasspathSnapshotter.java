@@ -40,6 +40,10 @@ public class DefaultClasspathSnapshotter extends AbstractFileCollectionSnapshott
         super(hasher, stringInterner, fileSystem, directoryFileTreeFactory);
     }
 
+    public DefaultClasspathSnapshotter(FileHasher hasher, StringInterner stringInterner, FileSystem fileSystem, DirectoryFileTreeFactory directoryFileTreeFactory, FileSystemMirror fileSystemMirror) {
+        super(hasher, stringInterner, fileSystem, directoryFileTreeFactory, fileSystemMirror);
+    }
+
     @Override
     public Class<? extends FileCollectionSnapshotter> getRegisteredType() {
         return ClasspathSnapshotter.class;
@@ -103,22 +103,38 @@ class DefaultFileCollectionSnapshot implements FileCollectionSnapshot {
     }
 
     public static class SerializerImpl implements Serializer<DefaultFileCollectionSnapshot> {
-        private final SnapshotMapSerializer snapshotMapSerializer;
+        // Written in place of the compare strategy, which older versions of the format start with
+        private static final int COMPACT_FORMAT = 255;
+
+        private final StringInterner stringInterner;
+        private final SnapshotMapSerializer legacySnapshotMapSerializer;
 
         public SerializerImpl(StringInterner stringInterner) {
-            this.snapshotMapSerializer = new SnapshotMapSerializer(stringInterner);
+            this.stringInterner = stringInterner;
+            this.legacySnapshotMapSerializer = new SnapshotMapSerializer(stringInterner);
         }
 
         public DefaultFileCollectionSnapshot read(Decoder decoder) throws Exception {
+            int format = decoder.readSmallInt();
+            if (format != COMPACT_FORMAT) {
+                // Entries written before the compact format was introduced are rewritten in the new format when the task history is next stored
+                TaskFilePropertyCompareStrategy compareStrategy = TaskFilePropertyCompareStrategy.values()[format];
+                Map<String, NormalizedFileSnapshot> snapshots = legacySnapshotMapSerializer.read(decoder);
+                boolean pathIsAbsolute = decoder.readBoolean();
+                return new DefaultFileCollectionSnapshot(snapshots, compareStrategy, pathIsAbsolute);
+            }
             TaskFilePropertyCompareStrategy compareStrategy = TaskFilePropertyCompareStrategy.values()[decoder.readSmallInt()];
-            Map<String, NormalizedFileSnapshot> snapshots = snapshotMapSerializer.read(decoder);
-            boolean pathIsUnique = decoder.readBoolean();
-            return new DefaultFileCollectionSnapshot(snapshots, compareStrategy, pathIsUnique);
+            Map<String, NormalizedFileSnapshot> snapshots = CompactSnapshotMap.read(decoder, stringInterner);
+            boolean pathIsAbsolute = decoder.readBoolean();
+            return new DefaultFileCollectionSnapshot(snapshots, compareStrategy, pathIsAbsolute);
         }
 
         public void write(Encoder encoder, DefaultFileCollectionSnapshot value) throws Exception {
+            encoder.writeSmallInt(COMPACT_FORMAT);
             encoder.writeSmallInt(value.compareStrategy.ordinal());
-            snapshotMapSerializer.write(encoder, value.snapshots);
+            // The order of the entries is only significant for order sensitive snapshots, so sort the others to share more path prefixes
+            boolean sort = value.compareStrategy != TaskFilePropertyCompareStrategy.ORDERED;
+            CompactSnapshotMap.of(value.snapshots, sort, stringInterner).write(encoder);
             encoder.writeBoolean(value.pathIsAbsolute);
         }
     }
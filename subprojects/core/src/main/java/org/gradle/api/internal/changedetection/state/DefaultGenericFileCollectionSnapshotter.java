@@ -26,6 +26,10 @@ public class DefaultGenericFileCollectionSnapshotter extends AbstractFileCollect
         super(hasher, stringInterner, fileSystem, directoryFileTreeFactory);
     }
 
+    public DefaultGenericFileCollectionSnapshotter(FileHasher hasher, StringInterner stringInterner, FileSystem fileSystem, DirectoryFileTreeFactory directoryFileTreeFactory, FileSystemMirror fileSystemMirror) {
+        super(hasher, stringInterner, fileSystem, directoryFileTreeFactory, fileSystemMirror);
+    }
+
     @Override
     public Class<? extends FileCollectionSnapshotter> getRegisteredType() {
         return GenericFileCollectionSnapshotter.class;
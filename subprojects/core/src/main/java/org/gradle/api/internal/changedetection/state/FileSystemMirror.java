@@ -0,0 +1,57 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.changedetection.state;
+
+import org.gradle.api.Nullable;
+import org.gradle.api.internal.file.collections.DirectoryFileTree;
+
+import java.util.List;
+
+/**
+ * Keeps the contents of directory trees in memory between visits, for as long as they are known to be unchanged.
+ */
+public interface FileSystemMirror {
+    FileSystemMirror NONE = new FileSystemMirror() {
+        @Override
+        public List<FileDetails> getDirectoryTree(DirectoryFileTree directoryTree) {
+            return null;
+        }
+
+        @Override
+        public DirectoryTreeRecorder beginVisit(DirectoryFileTree directoryTree) {
+            return null;
+        }
+    };
+
+    /**
+     * Returns the elements of the given tree as recorded by an earlier visit, or {@code null} when the tree is not mirrored or may have changed since.
+     */
+    @Nullable
+    List<? extends FileDetails> getDirectoryTree(DirectoryFileTree directoryTree);
+
+    /**
+     * Starts tracking changes to the given tree, before it is visited. Returns {@code null} when the tree cannot be mirrored.
+     * The recorded elements are discarded when the tree changes after this method returns.
+     */
+    @Nullable
+    DirectoryTreeRecorder beginVisit(DirectoryFileTree directoryTree);
+
+    interface DirectoryTreeRecorder {
+        void record(List<? extends FileDetails> elements);
+    }
+}
@@ -18,33 +18,42 @@ package org.gradle.api.internal.changedetection.state;
 
 import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.Iterators;
-import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Lists;
-import com.google.common.collect.MultimapBuilder;
 import org.gradle.api.internal.changedetection.rules.ChangeType;
 import org.gradle.api.internal.changedetection.rules.FileChange;
 import org.gradle.api.internal.changedetection.rules.TaskStateChange;
 import org.gradle.api.internal.tasks.cache.TaskCacheKeyBuilder;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Deque;
 import java.util.Iterator;
-import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Set;
 
+/**
+ * Compares snapshots by merging their entries sorted by path, so that changes are reported as they are found and no lookup tables are built.
+ */
 class OrderInsensitiveTaskFilePropertyCompareStrategy implements TaskFilePropertyCompareStrategy.Impl {
 
-    private static final Comparator<Entry<NormalizedFileSnapshot, IncrementalFileSnapshotWithAbsolutePath>> ENTRY_COMPARATOR = new Comparator<Entry<NormalizedFileSnapshot, IncrementalFileSnapshotWithAbsolutePath>>() {
+    private static final Comparator<Entry<String, NormalizedFileSnapshot>> BY_ABSOLUTE_PATH = new Comparator<Entry<String, NormalizedFileSnapshot>>() {
         @Override
-        public int compare(Entry<NormalizedFileSnapshot, IncrementalFileSnapshotWithAbsolutePath> o1, Entry<NormalizedFileSnapshot, IncrementalFileSnapshotWithAbsolutePath> o2) {
+        public int compare(Entry<String, NormalizedFileSnapshot> o1, Entry<String, NormalizedFileSnapshot> o2) {
             return o1.getKey().compareTo(o2.getKey());
         }
     };
 
+    private static final Comparator<Entry<String, NormalizedFileSnapshot>> BY_NORMALIZED_SNAPSHOT = new Comparator<Entry<String, NormalizedFileSnapshot>>() {
+        @Override
+        public int compare(Entry<String, NormalizedFileSnapshot> o1, Entry<String, NormalizedFileSnapshot> o2) {
+            return o1.getValue().compareTo(o2.getValue());
+        }
+    };
+
     private final boolean includeAdded;
 
     public OrderInsensitiveTaskFilePropertyCompareStrategy(boolean includeAdded) {
@@ -54,136 +63,146 @@ class OrderInsensitiveTaskFilePropertyCompareStrategy implements TaskFilePropert
     @Override
     public Iterator<TaskStateChange> iterateContentChangesSince(Map<String, NormalizedFileSnapshot> current, Map<String, NormalizedFileSnapshot> previous, String fileType, boolean pathIsAbsolute) {
         if (pathIsAbsolute) {
-            return iterateChangesForAbsolutePaths(current, previous, fileType);
+            return iterateChangesForAbsolutePaths(sortByAbsolutePath(current), sortByAbsolutePath(previous), fileType);
         } else {
-            return iterateChangesForRelativePaths(current, previous, fileType);
+            return iterateChangesForRelativePaths(sort(current, BY_NORMALIZED_SNAPSHOT), sort(previous, BY_NORMALIZED_SNAPSHOT), fileType);
+        }
+    }
+
+    private static Iterator<Entry<String, NormalizedFileSnapshot>> sortByAbsolutePath(Map<String, NormalizedFileSnapshot> snapshots) {
+        if (snapshots instanceof CompactSnapshotMap && ((CompactSnapshotMap) snapshots).isSorted()) {
+            // Snapshots loaded from the task history are already sorted
+            return snapshots.entrySet().iterator();
         }
+        return sort(snapshots, BY_ABSOLUTE_PATH);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Iterator<Entry<String, NormalizedFileSnapshot>> sort(Map<String, NormalizedFileSnapshot> snapshots, Comparator<Entry<String, NormalizedFileSnapshot>> comparator) {
+        Entry<String, NormalizedFileSnapshot>[] entries = snapshots.entrySet().toArray(new Entry[snapshots.size()]);
+        Arrays.sort(entries, comparator);
+        return Iterators.forArray(entries);
+    }
+
+    private static Entry<String, NormalizedFileSnapshot> nextOrNull(Iterator<Entry<String, NormalizedFileSnapshot>> entries) {
+        return entries.hasNext() ? entries.next() : null;
     }
 
     /**
-     * A more efficient implementation when absolute paths are used.
+     * Snapshots using absolute paths are matched up by path.
      */
-    private Iterator<TaskStateChange> iterateChangesForAbsolutePaths(final Map<String, NormalizedFileSnapshot> current, final Map<String, NormalizedFileSnapshot> previous, final String fileType) {
-        final Set<String> unaccountedForPreviousSnapshots = new LinkedHashSet<String>(previous.keySet());
-        final Iterator<Entry<String, NormalizedFileSnapshot>> currentEntries = current.entrySet().iterator();
-        final List<String> added = new ArrayList<String>();
+    private Iterator<TaskStateChange> iterateChangesForAbsolutePaths(final Iterator<Entry<String, NormalizedFileSnapshot>> currentEntries, final Iterator<Entry<String, NormalizedFileSnapshot>> previousEntries, final String fileType) {
         return new AbstractIterator<TaskStateChange>() {
-            private Iterator<String> unaccountedForPreviousSnapshotsIterator;
-            private Iterator<String> addedIterator;
+            private Entry<String, NormalizedFileSnapshot> currentEntry = nextOrNull(currentEntries);
+            private Entry<String, NormalizedFileSnapshot> previousEntry = nextOrNull(previousEntries);
 
             @Override
             protected TaskStateChange computeNext() {
-                while (currentEntries.hasNext()) {
-                    Entry<String, NormalizedFileSnapshot> currentEntry = currentEntries.next();
-                    String currentAbsolutePath = currentEntry.getKey();
-                    NormalizedFileSnapshot currentNormalizedSnapshot = currentEntry.getValue();
-                    IncrementalFileSnapshot currentSnapshot = currentNormalizedSnapshot.getSnapshot();
-                    if (unaccountedForPreviousSnapshots.remove(currentAbsolutePath)) {
-                        NormalizedFileSnapshot previousNormalizedSnapshot = previous.get(currentAbsolutePath);
-                        IncrementalFileSnapshot previousSnapshot = previousNormalizedSnapshot.getSnapshot();
+                while (currentEntry != null || previousEntry != null) {
+                    int result;
+                    if (currentEntry == null) {
+                        result = 1;
+                    } else if (previousEntry == null) {
+                        result = -1;
+                    } else {
+                        result = currentEntry.getKey().compareTo(previousEntry.getKey());
+                    }
+
+                    if (result < 0) {
+                        String currentAbsolutePath = currentEntry.getKey();
+                        currentEntry = nextOrNull(currentEntries);
+                        if (includeAdded) {
+                            return new FileChange(currentAbsolutePath, ChangeType.ADDED, fileType);
+                        }
+                    } else if (result > 0) {
+                        String previousAbsolutePath = previousEntry.getKey();
+                        previousEntry = nextOrNull(previousEntries);
+                        return new FileChange(previousAbsolutePath, ChangeType.REMOVED, fileType);
+                    } else {
+                        String currentAbsolutePath = currentEntry.getKey();
+                        IncrementalFileSnapshot currentSnapshot = currentEntry.getValue().getSnapshot();
+                        IncrementalFileSnapshot previousSnapshot = previousEntry.getValue().getSnapshot();
+                        currentEntry = nextOrNull(currentEntries);
+                        previousEntry = nextOrNull(previousEntries);
                         if (!currentSnapshot.isContentUpToDate(previousSnapshot)) {
                             return new FileChange(currentAbsolutePath, ChangeType.MODIFIED, fileType);
                         }
                         // else, unchanged; check next file
-                    } else {
-                        added.add(currentAbsolutePath);
-                    }
-                }
-
-                if (unaccountedForPreviousSnapshotsIterator == null) {
-                    unaccountedForPreviousSnapshotsIterator = unaccountedForPreviousSnapshots.iterator();
-                }
-                if (unaccountedForPreviousSnapshotsIterator.hasNext()) {
-                    String previousAbsolutePath = unaccountedForPreviousSnapshotsIterator.next();
-                    return new FileChange(previousAbsolutePath, ChangeType.REMOVED, fileType);
-                }
-
-                if (includeAdded) {
-                    if (addedIterator == null) {
-                        addedIterator = added.iterator();
-                    }
-                    if (addedIterator.hasNext()) {
-                        String newAbsolutePath = addedIterator.next();
-                        return new FileChange(newAbsolutePath, ChangeType.ADDED, fileType);
                     }
                 }
-
                 return endOfData();
             }
         };
     }
 
-    private Iterator<TaskStateChange> iterateChangesForRelativePaths(final Map<String, NormalizedFileSnapshot> current, Map<String, NormalizedFileSnapshot> previous, final String fileType) {
-        final ListMultimap<NormalizedFileSnapshot, IncrementalFileSnapshotWithAbsolutePath> unaccountedForPreviousSnapshots = MultimapBuilder.hashKeys().linkedListValues().build();
-        for (Entry<String, NormalizedFileSnapshot> entry : previous.entrySet()) {
-            String absolutePath = entry.getKey();
-            NormalizedFileSnapshot previousSnapshot = entry.getValue();
-            unaccountedForPreviousSnapshots.put(previousSnapshot, new IncrementalFileSnapshotWithAbsolutePath(absolutePath, previousSnapshot.getSnapshot()));
-        }
-        final Iterator<Entry<String, NormalizedFileSnapshot>> currentEntries = current.entrySet().iterator();
+    /**
+     * Snapshots using normalized paths are matched up by normalized path and content. Several files can have the same normalized path,
+     * so the files with a given normalized path that do not match up are reported as modified, and the rest as added or removed.
+     */
+    private Iterator<TaskStateChange> iterateChangesForRelativePaths(final Iterator<Entry<String, NormalizedFileSnapshot>> currentEntries, final Iterator<Entry<String, NormalizedFileSnapshot>> previousEntries, final String fileType) {
         return new AbstractIterator<TaskStateChange>() {
-            private Iterator<Entry<NormalizedFileSnapshot, IncrementalFileSnapshotWithAbsolutePath>> unaccountedForPreviousSnapshotsIterator;
-            private final ListMultimap<String, IncrementalFileSnapshotWithAbsolutePath> addedFiles = MultimapBuilder.hashKeys().linkedListValues().build();
-            private Iterator<IncrementalFileSnapshotWithAbsolutePath> addedFilesIterator;
+            private Entry<String, NormalizedFileSnapshot> currentEntry = nextOrNull(currentEntries);
+            private Entry<String, NormalizedFileSnapshot> previousEntry = nextOrNull(previousEntries);
+            private final List<String> added = new ArrayList<String>();
+            private final List<String> removed = new ArrayList<String>();
+            private final Deque<TaskStateChange> changes = new ArrayDeque<TaskStateChange>();
 
             @Override
             protected TaskStateChange computeNext() {
-                while (currentEntries.hasNext()) {
-                    Entry<String, NormalizedFileSnapshot> entry = currentEntries.next();
-                    String currentAbsolutePath = entry.getKey();
-                    NormalizedFileSnapshot currentNormalizedSnapshot = entry.getValue();
-                    IncrementalFileSnapshot currentSnapshot = currentNormalizedSnapshot.getSnapshot();
-                    List<IncrementalFileSnapshotWithAbsolutePath> previousSnapshotsForNormalizedPath = unaccountedForPreviousSnapshots.get(currentNormalizedSnapshot);
-                    if (previousSnapshotsForNormalizedPath.isEmpty()) {
-                        IncrementalFileSnapshotWithAbsolutePath currentSnapshotWithAbsolutePath = new IncrementalFileSnapshotWithAbsolutePath(currentAbsolutePath, currentSnapshot);
-                        addedFiles.put(currentNormalizedSnapshot.getNormalizedPath(), currentSnapshotWithAbsolutePath);
-                    } else {
-                        IncrementalFileSnapshotWithAbsolutePath previousSnapshotWithAbsolutePath = previousSnapshotsForNormalizedPath.remove(0);
-                        IncrementalFileSnapshot previousSnapshot = previousSnapshotWithAbsolutePath.getSnapshot();
-                        if (!currentSnapshot.isContentUpToDate(previousSnapshot)) {
-                            return new FileChange(currentAbsolutePath, ChangeType.MODIFIED, fileType);
-                        }
+                while (changes.isEmpty()) {
+                    if (currentEntry == null && previousEntry == null) {
+                        return endOfData();
                     }
+                    compareNextNormalizedPath();
                 }
+                return changes.remove();
+            }
 
-                // Create a single iterator to use for all of the still unaccounted files
-                if (unaccountedForPreviousSnapshotsIterator == null) {
-                    if (unaccountedForPreviousSnapshots.isEmpty()) {
-                        unaccountedForPreviousSnapshotsIterator = Iterators.emptyIterator();
-                    } else {
-                        List<Entry<NormalizedFileSnapshot, IncrementalFileSnapshotWithAbsolutePath>> entries = Lists.newArrayList(unaccountedForPreviousSnapshots.entries());
-                        Collections.sort(entries, ENTRY_COMPARATOR);
-                        unaccountedForPreviousSnapshotsIterator = entries.iterator();
-                    }
+            private void compareNextNormalizedPath() {
+                String normalizedPath;
+                if (currentEntry == null) {
+                    normalizedPath = previousEntry.getValue().getNormalizedPath();
+                } else if (previousEntry == null) {
+                    normalizedPath = currentEntry.getValue().getNormalizedPath();
+                } else {
+                    String currentNormalizedPath = currentEntry.getValue().getNormalizedPath();
+                    String previousNormalizedPath = previousEntry.getValue().getNormalizedPath();
+                    normalizedPath = currentNormalizedPath.compareTo(previousNormalizedPath) <= 0 ? currentNormalizedPath : previousNormalizedPath;
                 }
 
-                if (unaccountedForPreviousSnapshotsIterator.hasNext()) {
-                    Entry<NormalizedFileSnapshot, IncrementalFileSnapshotWithAbsolutePath> unaccountedForPreviousSnapshotEntry = unaccountedForPreviousSnapshotsIterator.next();
-                    String normalizedPath = unaccountedForPreviousSnapshotEntry.getKey().getNormalizedPath();
-                    List<IncrementalFileSnapshotWithAbsolutePath> addedFilesForNormalizedPath = addedFiles.get(normalizedPath);
-                    if (!addedFilesForNormalizedPath.isEmpty()) {
-                        // There might be multiple files with the same normalized path, here we choose one of them
-                        IncrementalFileSnapshotWithAbsolutePath modifiedSnapshot = addedFilesForNormalizedPath.remove(0);
-                        return new FileChange(modifiedSnapshot.getAbsolutePath(), ChangeType.MODIFIED, fileType);
+                // Entries with the same normalized path are sorted by content, so identical snapshots are next to each other
+                while (true) {
+                    boolean hasCurrent = currentEntry != null && currentEntry.getValue().getNormalizedPath().equals(normalizedPath);
+                    boolean hasPrevious = previousEntry != null && previousEntry.getValue().getNormalizedPath().equals(normalizedPath);
+                    if (!hasCurrent && !hasPrevious) {
+                        break;
+                    }
+                    if (hasCurrent && hasPrevious && currentEntry.getValue().equals(previousEntry.getValue())) {
+                        currentEntry = nextOrNull(currentEntries);
+                        previousEntry = nextOrNull(previousEntries);
+                    } else if (!hasPrevious || (hasCurrent && currentEntry.getValue().compareTo(previousEntry.getValue()) <= 0)) {
+                        added.add(currentEntry.getKey());
+                        currentEntry = nextOrNull(currentEntries);
                     } else {
-                        IncrementalFileSnapshotWithAbsolutePath removedSnapshot = unaccountedForPreviousSnapshotEntry.getValue();
-                        return new FileChange(removedSnapshot.getAbsolutePath(), ChangeType.REMOVED, fileType);
+                        removed.add(previousEntry.getKey());
+                        previousEntry = nextOrNull(previousEntries);
                     }
                 }
 
+                int modifiedCount = Math.min(added.size(), removed.size());
+                for (int i = 0; i < modifiedCount; i++) {
+                    changes.add(new FileChange(added.get(i), ChangeType.MODIFIED, fileType));
+                }
+                for (int i = modifiedCount; i < removed.size(); i++) {
+                    changes.add(new FileChange(removed.get(i), ChangeType.REMOVED, fileType));
+                }
                 if (includeAdded) {
-                    // Create a single iterator to use for all of the added files
-                    if (addedFilesIterator == null) {
-                        addedFilesIterator = addedFiles.values().iterator();
-                    }
-
-                    if (addedFilesIterator.hasNext()) {
-                        IncrementalFileSnapshotWithAbsolutePath addedFile = addedFilesIterator.next();
-                        return new FileChange(addedFile.getAbsolutePath(), ChangeType.ADDED, fileType);
+                    for (int i = modifiedCount; i < added.size(); i++) {
+                        changes.add(new FileChange(added.get(i), ChangeType.ADDED, fileType));
                     }
                 }
-
-                return endOfData();
+                added.clear();
+                removed.clear();
             }
         };
     }
@@ -201,27 +220,4 @@ class OrderInsensitiveTaskFilePropertyCompareStrategy implements TaskFilePropert
     public boolean isIncludeAdded() {
         return includeAdded;
     }
-
-    private static class IncrementalFileSnapshotWithAbsolutePath {
-        private final String absolutePath;
-        private final IncrementalFileSnapshot snapshot;
-
-        public IncrementalFileSnapshotWithAbsolutePath(String absolutePath, IncrementalFileSnapshot snapshot) {
-            this.absolutePath = absolutePath;
-            this.snapshot = snapshot;
-        }
-
-        public String getAbsolutePath() {
-            return absolutePath;
-        }
-
-        public IncrementalFileSnapshot getSnapshot() {
-            return snapshot;
-        }
-
-        @Override
-        public String toString() {
-            return String.format("%s (%s)", getSnapshot(), absolutePath);
-        }
-    }
 }
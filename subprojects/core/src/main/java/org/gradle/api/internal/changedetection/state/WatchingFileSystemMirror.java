@@ -0,0 +1,278 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.changedetection.state;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.gradle.api.Action;
+import org.gradle.api.Nullable;
+import org.gradle.api.internal.file.FileSystemSubset;
+import org.gradle.api.internal.file.collections.DirectoryFileTree;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.tasks.util.PatternSet;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.filewatch.FileWatcher;
+import org.gradle.internal.filewatch.FileWatcherEvent;
+import org.gradle.internal.filewatch.FileWatcherFactory;
+import org.gradle.internal.filewatch.FileWatcherListener;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * A {@link FileSystemMirror} for long living processes, which watches the roots of the mirrored trees for changes.
+ *
+ * <p>A tree is discarded as soon as a change is reported for any file in it. When the watcher reports that events were lost or fails,
+ * all trees are discarded. Trees with include or exclude specs are not mirrored, as specs cannot be compared between builds.</p>
+ *
+ * <p>Change events are delivered asynchronously, so a change made just before a build may not have been reported yet when the build reads the mirror.
+ * The mirror is therefore only used when enabled with {@link #TOGGLE_PROPERTY}.</p>
+ */
+public class WatchingFileSystemMirror implements FileSystemMirror, Stoppable {
+    private static final Logger LOGGER = Logging.getLogger(WatchingFileSystemMirror.class);
+    private static final long MAX_MIRRORED_ELEMENTS = 1000000;
+
+    /**
+     * When set to {@code true}, long living processes keep the directory trees visited by the file collection snapshotters in memory.
+     */
+    public static final String TOGGLE_PROPERTY = "org.gradle.internal.watching-file-system-mirror";
+
+    private final FileWatcherFactory fileWatcherFactory;
+    private final Cache<TreeKey, MirroredTree> trees;
+    // Sorted by path, so that the roots below a changed directory can be found without looking at every root
+    private final ConcurrentNavigableMap<String, Validity> watchedRoots = new ConcurrentSkipListMap<String, Validity>();
+    private final Object lock = new Object();
+    private FileWatcher watcher;
+    private volatile boolean watcherFailed;
+    private boolean disabled;
+
+    public WatchingFileSystemMirror(FileWatcherFactory fileWatcherFactory) {
+        this.fileWatcherFactory = fileWatcherFactory;
+        this.trees = CacheBuilder.newBuilder()
+            .maximumWeight(MAX_MIRRORED_ELEMENTS)
+            .weigher(new Weigher<TreeKey, MirroredTree>() {
+                @Override
+                public int weigh(TreeKey key, MirroredTree value) {
+                    return value.elements.size();
+                }
+            })
+            .build();
+    }
+
+    @Override
+    public List<? extends FileDetails> getDirectoryTree(DirectoryFileTree directoryTree) {
+        TreeKey key = TreeKey.of(directoryTree);
+        MirroredTree tree = key == null ? null : trees.getIfPresent(key);
+        return tree == null || !tree.validity.valid ? null : tree.elements;
+    }
+
+    @Override
+    public DirectoryTreeRecorder beginVisit(DirectoryFileTree directoryTree) {
+        final TreeKey key = TreeKey.of(directoryTree);
+        if (key == null || !directoryTree.getDir().isDirectory()) {
+            return null;
+        }
+        final Validity validity = watch(directoryTree.getDir(), key.path);
+        if (validity == null) {
+            return null;
+        }
+        return new DirectoryTreeRecorder() {
+            @Override
+            public void record(List<? extends FileDetails> elements) {
+                if (validity.valid) {
+                    trees.put(key, new MirroredTree(validity, ImmutableList.<FileDetails>copyOf(elements)));
+                }
+            }
+        };
+    }
+
+    @Nullable
+    private Validity watch(File dir, String path) {
+        synchronized (lock) {
+            if (disabled) {
+                return null;
+            }
+            Validity validity = watchedRoots.get(path);
+            if (validity != null) {
+                return validity;
+            }
+            validity = new Validity();
+            watchedRoots.put(path, validity);
+            try {
+                if (watcher != null && (watcherFailed || !watcher.isRunning())) {
+                    stopWatcher();
+                }
+                if (watcher == null) {
+                    watcherFailed = false;
+                    watcher = fileWatcherFactory.watch(new ErrorHandler(), new ChangeHandler());
+                }
+                watcher.watch(FileSystemSubset.builder().add(dir).build());
+            } catch (Exception e) {
+                LOGGER.info("Could not watch " + dir + " for changes. Directory trees will no longer be kept in memory.", e);
+                disabled = true;
+                stopWatcher();
+                return null;
+            }
+            return validity;
+        }
+    }
+
+    private void stopWatcher() {
+        invalidateAll();
+        if (watcher != null) {
+            CompositeStoppable.stoppable(watcher).stop();
+            watcher = null;
+        }
+    }
+
+    /**
+     * Does not lock, as it is called from the watcher thread, and the watcher may hold its own lock while reporting changes.
+     */
+    private void invalidateAll() {
+        for (Iterator<Validity> iterator = watchedRoots.values().iterator(); iterator.hasNext();) {
+            iterator.next().valid = false;
+            iterator.remove();
+        }
+        trees.invalidateAll();
+    }
+
+    /**
+     * Discards the trees of the roots that contain the given file, or that are contained by it. The trees themselves are left in the cache
+     * until they are replaced or evicted, as they are no longer returned once their root is invalid.
+     */
+    private void invalidate(File file) {
+        for (File ancestor = file.getAbsoluteFile(); ancestor != null; ancestor = ancestor.getParentFile()) {
+            invalidateRoot(watchedRoots.remove(ancestor.getPath()));
+        }
+        String prefix = file.getAbsolutePath() + File.separatorChar;
+        String end = prefix.substring(0, prefix.length() - 1) + (char) (File.separatorChar + 1);
+        for (Iterator<Validity> iterator = watchedRoots.subMap(prefix, end).values().iterator(); iterator.hasNext();) {
+            invalidateRoot(iterator.next());
+            iterator.remove();
+        }
+    }
+
+    private static void invalidateRoot(@Nullable Validity validity) {
+        if (validity != null) {
+            validity.valid = false;
+        }
+    }
+
+    @Override
+    public void stop() {
+        synchronized (lock) {
+            disabled = true;
+            stopWatcher();
+        }
+    }
+
+    private class ChangeHandler implements FileWatcherListener {
+        @Override
+        public void onChange(FileWatcher watcher, FileWatcherEvent event) {
+            if (event.getType() == FileWatcherEvent.Type.UNDEFINED) {
+                // Events have been lost, e.g. because of an overflow
+                invalidateAll();
+            } else {
+                invalidate(event.getFile());
+            }
+        }
+    }
+
+    private class ErrorHandler implements Action<Throwable> {
+        @Override
+        public void execute(Throwable throwable) {
+            LOGGER.info("Problem watching the file system. Discarding the directory trees kept in memory.", throwable);
+            watcherFailed = true;
+            invalidateAll();
+        }
+    }
+
+    private static class Validity {
+        volatile boolean valid = true;
+    }
+
+    private static class MirroredTree {
+        private final Validity validity;
+        private final List<FileDetails> elements;
+
+        MirroredTree(Validity validity, List<FileDetails> elements) {
+            this.validity = validity;
+            this.elements = elements;
+        }
+    }
+
+    private static class TreeKey {
+        private final String path;
+        private final Set<String> includes;
+        private final Set<String> excludes;
+        private final boolean caseSensitive;
+        private final boolean postfix;
+
+        private TreeKey(String path, Set<String> includes, Set<String> excludes, boolean caseSensitive, boolean postfix) {
+            this.path = path;
+            this.includes = includes;
+            this.excludes = excludes;
+            this.caseSensitive = caseSensitive;
+            this.postfix = postfix;
+        }
+
+        @Nullable
+        static TreeKey of(DirectoryFileTree directoryTree) {
+            PatternSet patterns = directoryTree.getPatterns();
+            if (patterns.getClass() != PatternSet.class || !patterns.getIncludeSpecs().isEmpty() || !patterns.getExcludeSpecs().isEmpty()) {
+                return null;
+            }
+            return new TreeKey(directoryTree.getDir().getAbsolutePath(), ImmutableSet.copyOf(patterns.getIncludes()), ImmutableSet.copyOf(patterns.getExcludes()), patterns.isCaseSensitive(), directoryTree.isPostfix());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            TreeKey that = (TreeKey) o;
+            return caseSensitive == that.caseSensitive
+                && postfix == that.postfix
+                && path.equals(that.path)
+                && includes.equals(that.includes)
+                && excludes.equals(that.excludes);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = path.hashCode();
+            result = 31 * result + includes.hashCode();
+            result = 31 * result + excludes.hashCode();
+            result = 31 * result + (caseSensitive ? 1 : 0);
+            result = 31 * result + (postfix ? 1 : 0);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.file.archive;
+
+import java.io.IOException;
+
+/**
+ * A file backed by a compressed entry of a ZIP file, which can be copied into another ZIP file without being inflated and deflated again.
+ */
+public interface CompressedZipEntrySource {
+    /**
+     * Adds the compressed data of this file to the given writer, as an entry with the given metadata.
+     *
+     * @return false when the data cannot be copied as is, e.g. because the entry is not deflated. Nothing is written in this case.
+     */
+    boolean putCompressedTo(ParallelZipWriter writer, String name, long lastModified, int unixMode) throws IOException;
+}
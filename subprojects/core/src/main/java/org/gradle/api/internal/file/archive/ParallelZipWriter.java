@@ -0,0 +1,232 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.file.archive;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.gradle.api.Action;
+import org.gradle.internal.UncheckedException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Adds entries to a {@link ZipWriter}, deflating their content on a bounded pool of threads.
+ *
+ * <p>The content of an entry is read on the calling thread, as the details of a visited file are not guaranteed to be valid once the visitor has
+ * moved on. Compressed entries are handed to the writer in the order they were added, so the archive does not depend on the scheduling of the pool.
+ * Entries larger than {@link #MAX_BUFFERED_ENTRY_SIZE} are streamed into the archive on the calling thread, once the entries added before them have been written.</p>
+ */
+public class ParallelZipWriter implements Closeable {
+    static final int MAX_BUFFERED_ENTRY_SIZE = 4 * 1024 * 1024;
+    private static final long MAX_PENDING_BYTES = 64L * 1024 * 1024;
+    private static final Set<String> COMPRESSED_FILE_EXTENSIONS = ImmutableSet.of(
+        "zip", "jar", "war", "ear", "aar", "apk",
+        "gz", "tgz", "bz2", "tbz2", "xz", "txz", "7z", "rar",
+        "png", "jpg", "jpeg", "gif", "webp", "mp3", "mp4", "ogg", "woff", "woff2");
+
+    private final ZipWriter writer;
+    private final boolean storeCompressedFiles;
+    private final Executor executor;
+    private final int maxPendingEntries;
+    private final Deque<PendingEntry> pending = new ArrayDeque<PendingEntry>();
+    private long pendingBytes;
+
+    /**
+     * @param storeCompressedFiles whether files that are already compressed, such as archives and images, are stored without being deflated again.
+     * @param executor the executor that deflates the entries, which may be shared with other writers.
+     * @param parallelism the number of threads of the executor, used to bound the number of pending entries.
+     */
+    public ParallelZipWriter(ZipWriter writer, boolean storeCompressedFiles, Executor executor, int parallelism) {
+        this.writer = writer;
+        this.storeCompressedFiles = storeCompressedFiles;
+        this.executor = executor;
+        this.maxPendingEntries = parallelism * 64;
+    }
+
+    public void putDirectory(String name, long lastModified, int unixMode) throws IOException {
+        enqueue(Futures.immediateFuture(new CompressedEntry(new ZipWriter.Entry(name, lastModified, unixMode, ZipWriter.STORED, 0, 0, 0), new byte[0])), 0);
+    }
+
+    /**
+     * Adds a file entry, whose content is written to the given stream by the given action.
+     *
+     * @param sizeHint the expected size of the content, used to decide whether to buffer it, or -1 when not known, in which case the content is buffered.
+     */
+    public void putFile(final String name, final long lastModified, final int unixMode, long sizeHint, Action<? super OutputStream> content) throws IOException {
+        final int method = storeCompressedFiles && isCompressedFile(name) ? ZipWriter.STORED : ZipWriter.DEFLATED;
+        if (sizeHint > MAX_BUFFERED_ENTRY_SIZE) {
+            writePending(0);
+            OutputStream entryStream = writer.putStreamingEntry(name, lastModified, unixMode, method);
+            content.execute(entryStream);
+            entryStream.close();
+            return;
+        }
+
+        final ContentBuffer buffer = new ContentBuffer((int) Math.max(sizeHint, 32));
+        content.execute(buffer);
+        FutureTask<CompressedEntry> compression = new FutureTask<CompressedEntry>(new Callable<CompressedEntry>() {
+            public CompressedEntry call() {
+                return compress(name, lastModified, unixMode, method, buffer.getBuffer(), buffer.size());
+            }
+        });
+        executor.execute(compression);
+        enqueue(compression, buffer.size());
+    }
+
+    /**
+     * Adds an entry whose content has already been compressed, e.g. by copying it from another archive. The data is read on the calling thread.
+     */
+    public void putCompressedEntry(ZipWriter.Entry entry, InputStream compressedData) throws IOException {
+        if (entry.getCompressedSize() > MAX_BUFFERED_ENTRY_SIZE) {
+            writePending(0);
+            writer.putEntry(entry, compressedData);
+            return;
+        }
+
+        byte[] data = new byte[(int) entry.getCompressedSize()];
+        ByteStreams.readFully(compressedData, data);
+        enqueue(Futures.immediateFuture(new CompressedEntry(entry, data)), data.length);
+    }
+
+    /**
+     * Writes the remaining entries, then the central directory.
+     */
+    public void close() throws IOException {
+        try {
+            writePending(0);
+        } finally {
+            for (PendingEntry entry : pending) {
+                entry.compression.cancel(false);
+            }
+            writer.close();
+        }
+    }
+
+    private void enqueue(Future<CompressedEntry> compression, int bufferedSize) throws IOException {
+        pending.addLast(new PendingEntry(compression, bufferedSize));
+        pendingBytes += bufferedSize;
+        while (!pending.isEmpty() && pending.peekFirst().compression.isDone()) {
+            writeFirstPending();
+        }
+        writePending(MAX_PENDING_BYTES);
+    }
+
+    private void writePending(long maxPendingBytes) throws IOException {
+        while (!pending.isEmpty() && (pendingBytes > maxPendingBytes || pending.size() > maxPendingEntries || maxPendingBytes == 0)) {
+            writeFirstPending();
+        }
+    }
+
+    private void writeFirstPending() throws IOException {
+        PendingEntry next = pending.removeFirst();
+        pendingBytes -= next.bufferedSize;
+        CompressedEntry entry;
+        try {
+            entry = Uninterruptibles.getUninterruptibly(next.compression);
+        } catch (ExecutionException e) {
+            throw UncheckedException.throwAsUncheckedException(e.getCause());
+        }
+        writer.putEntry(entry.entry, entry.data, 0, entry.data.length);
+    }
+
+    private static boolean isCompressedFile(String name) {
+        int extension = name.lastIndexOf('.');
+        return extension > name.lastIndexOf('/') && COMPRESSED_FILE_EXTENSIONS.contains(name.substring(extension + 1).toLowerCase(Locale.US));
+    }
+
+    private static CompressedEntry compress(String name, long lastModified, int unixMode, int method, byte[] content, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(content, 0, length);
+        byte[] data;
+        if (method == ZipWriter.STORED) {
+            data = content.length == length ? content : copyOf(content, length);
+        } else {
+            data = deflate(content, length);
+        }
+        return new CompressedEntry(new ZipWriter.Entry(name, lastModified, unixMode, method, crc.getValue(), length, data.length), data);
+    }
+
+    private static byte[] deflate(byte[] content, int length) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setInput(content, 0, length);
+            deflater.finish();
+            ByteArrayOutputStream output = new ByteArrayOutputStream(length / 2 + 64);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                int count = deflater.deflate(buffer);
+                output.write(buffer, 0, count);
+            }
+            return output.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] copyOf(byte[] content, int length) {
+        byte[] copy = new byte[length];
+        System.arraycopy(content, 0, copy, 0, length);
+        return copy;
+    }
+
+    private static class PendingEntry {
+        private final Future<CompressedEntry> compression;
+        private final int bufferedSize;
+
+        PendingEntry(Future<CompressedEntry> compression, int bufferedSize) {
+            this.compression = compression;
+            this.bufferedSize = bufferedSize;
+        }
+    }
+
+    private static class CompressedEntry {
+        private final ZipWriter.Entry entry;
+        private final byte[] data;
+
+        CompressedEntry(ZipWriter.Entry entry, byte[] data) {
+            this.entry = entry;
+            this.data = data;
+        }
+    }
+
+    private static class ContentBuffer extends ByteArrayOutputStream {
+        ContentBuffer(int size) {
+            super(size);
+        }
+
+        byte[] getBuffer() {
+            return buf;
+        }
+    }
+}
@@ -20,6 +20,8 @@ import org.apache.tools.tar.TarInputStream;
 import org.gradle.api.GradleException;
 import org.gradle.api.InvalidUserDataException;
 import org.gradle.api.Nullable;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.file.FileTreeElement;
 import org.gradle.api.file.FileVisitDetails;
 import org.gradle.api.file.FileVisitor;
 import org.gradle.api.file.RelativePath;
@@ -29,32 +31,50 @@ import org.gradle.api.internal.file.FileSystemSubset;
 import org.gradle.api.internal.file.collections.*;
 import org.gradle.api.resources.ResourceException;
 import org.gradle.api.resources.internal.ReadableResourceInternal;
+import org.gradle.api.specs.Spec;
+import org.gradle.api.tasks.util.PatternFilterable;
+import org.gradle.api.tasks.util.PatternSet;
 import org.gradle.internal.hash.HashUtil;
 import org.gradle.internal.nativeintegration.filesystem.Chmod;
 import org.gradle.internal.nativeintegration.filesystem.Stat;
 import org.gradle.util.GFileUtils;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 
-public class TarFileTree implements MinimalFileTree, FileSystemMirroringFileTree {
+/**
+ * The entries of a TAR file. A tar file has no central directory, so the first complete visit of a tar file on disk records an index of its entries.
+ * Later visits of the same, unchanged file use the index to match patterns and only read the archive when the content of an entry is accessed.
+ */
+public class TarFileTree implements MinimalFileTree, FileSystemMirroringFileTree, PatternFilterableFileTree {
     private final File tarFile;
     private final ReadableResourceInternal resource;
     private final Chmod chmod;
     private final Stat stat;
     private final DirectoryFileTreeFactory directoryFileTreeFactory;
+    private final TarIndexCache indexCache;
     private final File tmpDir;
+    private final PatternSet patternSet;
+
+    public TarFileTree(@Nullable File tarFile, ReadableResourceInternal resource, File tmpDir, Chmod chmod, Stat stat, DirectoryFileTreeFactory directoryFileTreeFactory, TarIndexCache indexCache) {
+        this(tarFile, resource, new File(tmpDir, resource.getBaseName() + "_" + HashUtil.createCompactMD5(resource.getURI().toString())), chmod, stat, directoryFileTreeFactory, indexCache, null);
+    }
 
-    public TarFileTree(@Nullable File tarFile, ReadableResourceInternal resource, File tmpDir, Chmod chmod, Stat stat, DirectoryFileTreeFactory directoryFileTreeFactory) {
+    private TarFileTree(@Nullable File tarFile, ReadableResourceInternal resource, File expandDir, Chmod chmod, Stat stat, DirectoryFileTreeFactory directoryFileTreeFactory, TarIndexCache indexCache, @Nullable PatternSet patternSet) {
         this.tarFile = tarFile;
         this.resource = resource;
         this.chmod = chmod;
         this.stat = stat;
         this.directoryFileTreeFactory = directoryFileTreeFactory;
-        String expandDirName = resource.getBaseName() + "_" + HashUtil.createCompactMD5(resource.getURI().toString());
-        this.tmpDir = new File(tmpDir, expandDirName);
+        this.indexCache = indexCache;
+        this.tmpDir = expandDir;
+        this.patternSet = patternSet;
     }
 
     public String getDisplayName() {
@@ -62,22 +82,40 @@ public class TarFileTree implements MinimalFileTree, FileSystemMirroringFileTree
     }
 
     public DirectoryFileTree getMirror() {
-        return directoryFileTreeFactory.create(tmpDir);
+        return patternSet == null ? directoryFileTreeFactory.create(tmpDir) : directoryFileTreeFactory.create(tmpDir, patternSet);
+    }
+
+    public TarFileTree filter(PatternFilterable patterns) {
+        PatternSet filtered = patternSet == null ? new PatternSet() : patternSet.intersect();
+        filtered.copyFrom(patterns);
+        return new TarFileTree(tarFile, resource, tmpDir, chmod, stat, directoryFileTreeFactory, indexCache, filtered);
     }
 
     public void visit(FileVisitor visitor) {
-        InputStream inputStream;
-        try {
-            inputStream = resource.read();
-        } catch (ResourceException e) {
-            throw new InvalidUserDataException(String.format("Cannot expand %s.", getDisplayName()), e);
+        TarIndexCache.Key indexKey = getIndexKey();
+        List<TarEntry> index = indexKey == null ? null : indexCache.get(indexKey);
+        TarStream tar;
+        if (index == null) {
+            InputStream inputStream;
+            try {
+                inputStream = resource.read();
+            } catch (ResourceException e) {
+                throw new InvalidUserDataException(String.format("Cannot expand %s.", getDisplayName()), e);
+            }
+            tar = new TarStream(inputStream);
+        } else {
+            tar = new TarStream(null);
         }
 
         try {
             try {
-                visitImpl(visitor, inputStream);
+                if (index == null) {
+                    visitImpl(visitor, tar, indexKey);
+                } else {
+                    visitIndex(visitor, tar, index);
+                }
             } finally {
-                inputStream.close();
+                tar.close();
             }
         } catch (Exception e) {
             String message = "Unable to expand " + getDisplayName() + "\n"
@@ -88,19 +126,51 @@ public class TarFileTree implements MinimalFileTree, FileSystemMirroringFileTree
         }
     }
 
-    private void visitImpl(FileVisitor visitor, InputStream inputStream) throws IOException {
+    private void visitImpl(FileVisitor visitor, TarStream tar, @Nullable TarIndexCache.Key indexKey) throws IOException {
         AtomicBoolean stopFlag = new AtomicBoolean();
-        NoCloseTarInputStream tar = new NoCloseTarInputStream(inputStream);
+        Spec<FileTreeElement> spec = patternSet == null ? null : patternSet.getAsSpec();
+        List<TarEntry> index = indexKey == null ? null : new ArrayList<TarEntry>();
         TarEntry entry;
-        while (!stopFlag.get() && (entry = tar.getNextEntry()) != null) {
-            if (entry.isDirectory()) {
-                visitor.visitDir(new DetailsImpl(entry, tar, stopFlag, chmod));
-            } else {
-                visitor.visitFile(new DetailsImpl(entry, tar, stopFlag, chmod));
+        while (!stopFlag.get() && (entry = tar.next()) != null) {
+            if (index != null) {
+                index.add(entry);
             }
+            visitEntry(visitor, spec, new DetailsImpl(entry, tar.getPosition(), tar, stopFlag, chmod));
+        }
+        if (index != null && !stopFlag.get()) {
+            indexCache.put(indexKey, Collections.unmodifiableList(index));
         }
     }
 
+    private void visitIndex(FileVisitor visitor, TarStream tar, List<TarEntry> index) {
+        AtomicBoolean stopFlag = new AtomicBoolean();
+        Spec<FileTreeElement> spec = patternSet == null ? null : patternSet.getAsSpec();
+        for (int i = 0; !stopFlag.get() && i < index.size(); i++) {
+            visitEntry(visitor, spec, new DetailsImpl(index.get(i), i, tar, stopFlag, chmod));
+        }
+    }
+
+    private static void visitEntry(FileVisitor visitor, @Nullable Spec<FileTreeElement> spec, DetailsImpl details) {
+        if (spec != null && !spec.isSatisfiedBy(details)) {
+            return;
+        }
+        if (details.isDirectory()) {
+            visitor.visitDir(details);
+        } else {
+            visitor.visitFile(details);
+        }
+    }
+
+    /**
+     * Identifies the content of the archive by the location, length and modification time of its backing file, as hashing the content would
+     * mean reading the whole archive. Returns null when the archive is not backed by a file, in which case it is not indexed.
+     */
+    @Nullable
+    private TarIndexCache.Key getIndexKey() {
+        File backingFile = getBackingFile();
+        return backingFile == null ? null : indexCache.keyFor(resource.getURI(), backingFile);
+    }
+
     private File getBackingFile() {
         if (tarFile != null) {
             return tarFile;
@@ -111,16 +181,82 @@ public class TarFileTree implements MinimalFileTree, FileSystemMirroringFileTree
         return null;
     }
 
+    /**
+     * The tar stream shared by the entries of a visit. When visiting an index, the archive is only opened once the content of an entry is read,
+     * and is opened again if an entry before the current one is read.
+     */
+    private class TarStream implements Closeable {
+        private final boolean reopenable;
+        private InputStream inputStream;
+        private NoCloseTarInputStream tar;
+        private int position = -1;
+        private boolean currentRead;
+
+        TarStream(@Nullable InputStream inputStream) {
+            this.reopenable = inputStream == null;
+            if (inputStream != null) {
+                this.inputStream = inputStream;
+                this.tar = new NoCloseTarInputStream(inputStream);
+            }
+        }
+
+        int getPosition() {
+            return position;
+        }
+
+        @Nullable
+        TarEntry next() throws IOException {
+            TarEntry entry = tar.getNextEntry();
+            position++;
+            currentRead = false;
+            return entry;
+        }
+
+        @Nullable
+        InputStream open(int index, TarEntry entry) throws IOException {
+            if (!reopenable) {
+                if (currentRead || position != index) {
+                    return null;
+                }
+            } else if (tar == null || currentRead || position > index) {
+                close();
+                inputStream = resource.read();
+                tar = new NoCloseTarInputStream(inputStream);
+                position = -1;
+            }
+            while (position < index) {
+                if (next() == null) {
+                    break;
+                }
+            }
+            if (position != index || tar.getCurrent() == null || !tar.getCurrent().getName().equals(entry.getName())) {
+                throw new IOException(String.format("Could not find entry '%s' in %s, the archive may have changed.", entry.getName(), getDisplayName()));
+            }
+            currentRead = true;
+            return tar;
+        }
+
+        public void close() throws IOException {
+            if (inputStream != null) {
+                inputStream.close();
+                inputStream = null;
+                tar = null;
+            }
+        }
+    }
+
     private class DetailsImpl extends AbstractFileTreeElement implements FileVisitDetails {
         private final TarEntry entry;
-        private final NoCloseTarInputStream tar;
+        private final int index;
+        private final TarStream tar;
         private final AtomicBoolean stopFlag;
         private File file;
         private boolean read;
 
-        public DetailsImpl(TarEntry entry, NoCloseTarInputStream tar, AtomicBoolean stopFlag, Chmod chmod) {
+        public DetailsImpl(TarEntry entry, int index, TarStream tar, AtomicBoolean stopFlag, Chmod chmod) {
             super(chmod);
             this.entry = entry;
+            this.index = index;
             this.tar = tar;
             this.stopFlag = stopFlag;
         }
@@ -157,11 +293,17 @@ public class TarFileTree implements MinimalFileTree, FileSystemMirroringFileTree
             if (read && file != null) {
                 return GFileUtils.openInputStream(file);
             }
-            if (read || tar.getCurrent() != entry) {
+            InputStream content;
+            try {
+                content = tar.open(index, entry);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (content == null) {
                 throw new UnsupportedOperationException(String.format("The contents of %s has already been read.", this));
             }
             read = true;
-            return tar;
+            return content;
         }
 
         public RelativePath getRelativePath() {
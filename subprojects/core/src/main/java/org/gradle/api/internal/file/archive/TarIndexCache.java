@@ -0,0 +1,85 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.file.archive;
+
+import com.google.common.base.Objects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.tools.tar.TarEntry;
+import org.gradle.api.Nullable;
+
+import java.io.File;
+import java.net.URI;
+import java.util.List;
+
+/**
+ * The entries of the TAR files visited during a build, so that later visits of an unchanged archive do not need to read it again.
+ * An archive is identified by its resource and the location, length and modification time of its backing file.
+ */
+public class TarIndexCache {
+    private final Cache<Key, List<TarEntry>> indexes = CacheBuilder.newBuilder().maximumSize(100).softValues().build();
+
+    /**
+     * Returns the key for the current state of the given backing file, or null when the file does not exist and so cannot be indexed.
+     */
+    @Nullable
+    public Key keyFor(URI resource, File backingFile) {
+        if (!backingFile.isFile()) {
+            return null;
+        }
+        return new Key(resource, backingFile.getAbsolutePath(), backingFile.length(), backingFile.lastModified());
+    }
+
+    @Nullable
+    public List<TarEntry> get(Key key) {
+        return indexes.getIfPresent(key);
+    }
+
+    public void put(Key key, List<TarEntry> entries) {
+        indexes.put(key, entries);
+    }
+
+    public static final class Key {
+        private final URI resource;
+        private final String path;
+        private final long length;
+        private final long lastModified;
+
+        private Key(URI resource, String path, long length, long lastModified) {
+            this.resource = resource;
+            this.path = path;
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key other = (Key) o;
+            return length == other.length && lastModified == other.lastModified && resource.equals(other.resource) && path.equals(other.path);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(resource, path, length, lastModified);
+        }
+    }
+}
@@ -0,0 +1,397 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.file.archive;
+
+import org.gradle.api.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+/**
+ * Reads the central directory of a ZIP file, giving access to the compressed data of its entries without inflating them.
+ */
+public class ZipCentralDirectory implements Closeable {
+    private static final int LOCAL_FILE_HEADER_SIG = 0x04034b50;
+    private static final int CENTRAL_FILE_HEADER_SIG = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIR_SIG = 0x06054b50;
+    private static final int ZIP64_END_OF_CENTRAL_DIR_SIG = 0x06064b50;
+    private static final int ZIP64_END_OF_CENTRAL_DIR_LOCATOR_SIG = 0x07064b50;
+    private static final int END_OF_CENTRAL_DIR_SIZE = 22;
+    private static final int ZIP64_END_OF_CENTRAL_DIR_LOCATOR_SIZE = 20;
+    private static final int LOCAL_FILE_HEADER_SIZE = 30;
+    private static final int CENTRAL_FILE_HEADER_SIZE = 46;
+    private static final int MAX_COMMENT_SIZE = 0xFFFF;
+    private static final int ZIP64_EXTRA_ID = 0x0001;
+    private static final int UNICODE_PATH_EXTRA_ID = 0x7075;
+    private static final int PLATFORM_UNIX = 3;
+    private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+    private static final int ZIP64_MAGIC_SHORT = 0xFFFF;
+    private static final int ENCRYPTED_FLAG = 1;
+    private static final int UTF8_FLAG = 1 << 11;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final Map<String, Entry> entries;
+
+    private ZipCentralDirectory(RandomAccessFile file, Map<String, Entry> entries) {
+        this.file = file;
+        this.channel = file.getChannel();
+        this.entries = entries;
+    }
+
+    /**
+     * Reads the central directory of the given file. Entry names that are not flagged as UTF-8 are decoded using the given character set,
+     * or the platform's default character set when null.
+     */
+    public static ZipCentralDirectory open(File zipFile, @Nullable String encoding) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(zipFile, "r");
+        try {
+            Charset charset = encoding == null ? Charset.defaultCharset() : Charset.forName(encoding);
+            return new ZipCentralDirectory(file, readEntries(zipFile, file.getChannel(), charset));
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        } catch (RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the entries in the order of the central directory. When several entries have the same name, the last one is returned.
+     */
+    public Map<String, Entry> getEntries() {
+        return entries;
+    }
+
+    @Nullable
+    public Entry getEntry(String name) {
+        return entries.get(name);
+    }
+
+    /**
+     * Opens the compressed data of the given entry, exactly {@link Entry#getCompressedSize()} bytes. Returns null when the local header of the entry
+     * is not found at the recorded offset, e.g. because the archive has been prepended with other content.
+     */
+    @Nullable
+    public InputStream openCompressedData(Entry entry) throws IOException {
+        if (entry.localHeaderOffset + LOCAL_FILE_HEADER_SIZE > channel.size()) {
+            return null;
+        }
+        ByteBuffer header = read(channel, entry.localHeaderOffset, LOCAL_FILE_HEADER_SIZE);
+        if (header.getInt(0) != LOCAL_FILE_HEADER_SIG) {
+            return null;
+        }
+        long dataOffset = entry.localHeaderOffset + LOCAL_FILE_HEADER_SIZE + (header.getShort(26) & 0xFFFF) + (header.getShort(28) & 0xFFFF);
+        return new ChannelInputStream(channel, dataOffset, entry.compressedSize);
+    }
+
+    /**
+     * Opens the uncompressed content of the given entry.
+     */
+    public InputStream openContent(Entry entry) throws IOException {
+        if (entry.isEncrypted()) {
+            throw new ZipException(String.format("Encrypted entry '%s' is not supported.", entry.name));
+        }
+        InputStream compressedData = openCompressedData(entry);
+        if (compressedData == null) {
+            throw new ZipException(String.format("Could not find the local header of entry '%s'.", entry.name));
+        }
+        switch (entry.method) {
+            case ZipEntry.STORED:
+                return compressedData;
+            case ZipEntry.DEFLATED:
+                final Inflater inflater = new Inflater(true);
+                // Inflating raw data needs an extra dummy byte at the end
+                InputStream padded = new SequenceInputStream(compressedData, new ByteArrayInputStream(new byte[1]));
+                return new InflaterInputStream(padded, inflater, 8192) {
+                    @Override
+                    public void close() throws IOException {
+                        try {
+                            super.close();
+                        } finally {
+                            inflater.end();
+                        }
+                    }
+                };
+            default:
+                throw new ZipException(String.format("Found unsupported compression method %d for entry '%s'.", entry.method, entry.name));
+        }
+    }
+
+    public void close() throws IOException {
+        file.close();
+    }
+
+    private static Map<String, Entry> readEntries(File zipFile, FileChannel channel, Charset charset) throws IOException {
+        long endOfCentralDirectory = findEndOfCentralDirectory(zipFile, channel);
+        ByteBuffer end = read(channel, endOfCentralDirectory, END_OF_CENTRAL_DIR_SIZE);
+        long count = end.getShort(10) & 0xFFFF;
+        long centralDirectorySize = end.getInt(12) & ZIP64_MAGIC;
+        long centralDirectoryOffset = end.getInt(16) & ZIP64_MAGIC;
+
+        if (count == ZIP64_MAGIC_SHORT || centralDirectorySize == ZIP64_MAGIC || centralDirectoryOffset == ZIP64_MAGIC) {
+            long locatorOffset = endOfCentralDirectory - ZIP64_END_OF_CENTRAL_DIR_LOCATOR_SIZE;
+            ByteBuffer locator = locatorOffset < 0 ? null : read(channel, locatorOffset, ZIP64_END_OF_CENTRAL_DIR_LOCATOR_SIZE);
+            if (locator != null && locator.getInt(0) == ZIP64_END_OF_CENTRAL_DIR_LOCATOR_SIG) {
+                ByteBuffer zip64End = read(channel, locator.getLong(8), 56);
+                if (zip64End.getInt(0) != ZIP64_END_OF_CENTRAL_DIR_SIG) {
+                    throw new ZipException(String.format("Invalid Zip64 end of central directory in ZIP '%s'.", zipFile));
+                }
+                count = zip64End.getLong(32);
+                centralDirectorySize = zip64End.getLong(40);
+                centralDirectoryOffset = zip64End.getLong(48);
+            }
+        }
+        if (centralDirectorySize > Integer.MAX_VALUE) {
+            throw new ZipException(String.format("Central directory of ZIP '%s' is too large.", zipFile));
+        }
+
+        ByteBuffer centralDirectory = read(channel, centralDirectoryOffset, (int) centralDirectorySize);
+        Map<String, Entry> entries = new LinkedHashMap<String, Entry>((int) Math.min(count, Integer.MAX_VALUE / 2) * 4 / 3 + 1);
+        while (centralDirectory.remaining() >= CENTRAL_FILE_HEADER_SIZE && centralDirectory.getInt(centralDirectory.position()) == CENTRAL_FILE_HEADER_SIG) {
+            Entry entry = readEntry(centralDirectory, charset);
+            entries.remove(entry.name);
+            entries.put(entry.name, entry);
+        }
+        return Collections.unmodifiableMap(entries);
+    }
+
+    private static Entry readEntry(ByteBuffer buffer, Charset charset) throws ZipException {
+        int start = buffer.position();
+        int platform = (buffer.getShort(start + 4) & 0xFFFF) >> 8;
+        int flags = buffer.getShort(start + 8) & 0xFFFF;
+        int method = buffer.getShort(start + 10) & 0xFFFF;
+        long crc = buffer.getInt(start + 16) & ZIP64_MAGIC;
+        long compressedSize = buffer.getInt(start + 20) & ZIP64_MAGIC;
+        long size = buffer.getInt(start + 24) & ZIP64_MAGIC;
+        int dosTime = buffer.getInt(start + 12);
+        int nameLength = buffer.getShort(start + 28) & 0xFFFF;
+        int extraLength = buffer.getShort(start + 30) & 0xFFFF;
+        int commentLength = buffer.getShort(start + 32) & 0xFFFF;
+        int externalAttributes = buffer.getInt(start + 38);
+        long localHeaderOffset = buffer.getInt(start + 42) & ZIP64_MAGIC;
+
+        int nameOffset = start + CENTRAL_FILE_HEADER_SIZE;
+        if (buffer.limit() < nameOffset + nameLength + extraLength + commentLength) {
+            throw new ZipException("Truncated central directory entry.");
+        }
+        byte[] encodedName = new byte[nameLength];
+        buffer.position(nameOffset);
+        buffer.get(encodedName);
+        String name = new String(encodedName, (flags & UTF8_FLAG) != 0 ? UTF8 : charset);
+
+        int extra = nameOffset + nameLength;
+        int extraEnd = extra + extraLength;
+        while (extra + 4 <= extraEnd) {
+            int id = buffer.getShort(extra) & 0xFFFF;
+            int length = buffer.getShort(extra + 2) & 0xFFFF;
+            int value = extra + 4;
+            int valueEnd = Math.min(value + length, extraEnd);
+            if (id == UNICODE_PATH_EXTRA_ID && (flags & UTF8_FLAG) == 0) {
+                // Only used when the name has not been changed since the field was written
+                if (value + 5 <= valueEnd && buffer.get(value) == 1 && (buffer.getInt(value + 1) & ZIP64_MAGIC) == crc32(encodedName)) {
+                    byte[] unicodeName = new byte[valueEnd - value - 5];
+                    buffer.position(value + 5);
+                    buffer.get(unicodeName);
+                    name = new String(unicodeName, UTF8);
+                }
+            } else if (id == ZIP64_EXTRA_ID) {
+                // Values that don't fit the header are stored in the Zip64 extra field, in this order
+                if (size == ZIP64_MAGIC && value + 8 <= valueEnd) {
+                    size = buffer.getLong(value);
+                    value += 8;
+                }
+                if (compressedSize == ZIP64_MAGIC && value + 8 <= valueEnd) {
+                    compressedSize = buffer.getLong(value);
+                    value += 8;
+                }
+                if (localHeaderOffset == ZIP64_MAGIC && value + 8 <= valueEnd) {
+                    localHeaderOffset = buffer.getLong(value);
+                }
+            }
+            extra = value + length;
+        }
+        long lastModified = fromDosTime(dosTime);
+        int unixMode = platform == PLATFORM_UNIX ? (externalAttributes >> 16) & 0xFFFF : 0;
+
+        buffer.position(extraEnd + commentLength);
+        return new Entry(name, flags, method, crc, size, compressedSize, localHeaderOffset, lastModified, unixMode);
+    }
+
+    private static long crc32(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return crc.getValue();
+    }
+
+    private static long fromDosTime(int dosTime) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(((dosTime >> 25) & 0x7f) + 1980, ((dosTime >> 21) & 0x0f) - 1, (dosTime >> 16) & 0x1f, (dosTime >> 11) & 0x1f, (dosTime >> 5) & 0x3f, (dosTime << 1) & 0x3e);
+        return calendar.getTimeInMillis();
+    }
+
+    private static long findEndOfCentralDirectory(File zipFile, FileChannel channel) throws IOException {
+        long fileSize = channel.size();
+        int searchLength = (int) Math.min(fileSize, END_OF_CENTRAL_DIR_SIZE + MAX_COMMENT_SIZE);
+        if (searchLength >= END_OF_CENTRAL_DIR_SIZE) {
+            long searchStart = fileSize - searchLength;
+            ByteBuffer tail = read(channel, searchStart, searchLength);
+            for (int offset = searchLength - END_OF_CENTRAL_DIR_SIZE; offset >= 0; offset--) {
+                if (tail.getInt(offset) == END_OF_CENTRAL_DIR_SIG) {
+                    return searchStart + offset;
+                }
+            }
+        }
+        throw new ZipException(String.format("Could not find the central directory of ZIP '%s'.", zipFile));
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * An entry of the central directory.
+     */
+    public static final class Entry {
+        private final String name;
+        private final int flags;
+        private final int method;
+        private final long crc;
+        private final long size;
+        private final long compressedSize;
+        private final long localHeaderOffset;
+        private final long lastModified;
+        private final int unixMode;
+
+        Entry(String name, int flags, int method, long crc, long size, long compressedSize, long localHeaderOffset, long lastModified, int unixMode) {
+            this.name = name;
+            this.flags = flags;
+            this.method = method;
+            this.crc = crc;
+            this.size = size;
+            this.compressedSize = compressedSize;
+            this.localHeaderOffset = localHeaderOffset;
+            this.lastModified = lastModified;
+            this.unixMode = unixMode;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isDirectory() {
+            return name.endsWith("/");
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        /**
+         * Returns the unix mode of the entry, including the file type bits, or 0 when the entry was not written on a unix platform.
+         */
+        public int getUnixMode() {
+            return unixMode;
+        }
+
+        public int getMethod() {
+            return method;
+        }
+
+        public long getCrc() {
+            return crc;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getCompressedSize() {
+            return compressedSize;
+        }
+
+        public boolean isEncrypted() {
+            return (flags & ENCRYPTED_FLAG) != 0;
+        }
+    }
+
+    private static class ChannelInputStream extends InputStream {
+        private final FileChannel channel;
+        private long position;
+        private long remaining;
+
+        ChannelInputStream(FileChannel channel, long position, long length) {
+            this.channel = channel;
+            this.position = position;
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int count = channel.read(ByteBuffer.wrap(bytes, offset, (int) Math.min(length, remaining)), position);
+            if (count < 0) {
+                throw new EOFException();
+            }
+            position += count;
+            remaining -= count;
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(remaining, Integer.MAX_VALUE);
+        }
+    }
+}
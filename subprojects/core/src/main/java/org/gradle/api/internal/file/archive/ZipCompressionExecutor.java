@@ -0,0 +1,49 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.file.archive;
+
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.concurrent.StoppableExecutor;
+
+import java.util.concurrent.Executor;
+
+/**
+ * The thread pool shared by the ZIP archive tasks of a build, used to deflate the entries of the archives concurrently.
+ */
+public class ZipCompressionExecutor implements Stoppable {
+    private final StoppableExecutor executor;
+    private final int maxThreads;
+
+    public ZipCompressionExecutor(ExecutorFactory executorFactory, int maxThreads) {
+        this.executor = executorFactory.create("Compress ZIP entries", maxThreads);
+        this.maxThreads = maxThreads;
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    public int getMaxThreads() {
+        return maxThreads;
+    }
+
+    @Override
+    public void stop() {
+        executor.stop();
+    }
+}
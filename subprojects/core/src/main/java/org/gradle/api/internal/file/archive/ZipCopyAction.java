@@ -23,11 +23,13 @@ import org.gradle.api.Action;
 import org.gradle.api.GradleException;
 import org.gradle.api.UncheckedIOException;
 import org.gradle.api.file.FileCopyDetails;
+import org.gradle.api.file.FileVisitDetails;
 import org.gradle.api.internal.DocumentationRegistry;
 import org.gradle.api.internal.file.CopyActionProcessingStreamAction;
 import org.gradle.api.internal.file.copy.CopyAction;
 import org.gradle.api.internal.file.copy.CopyActionProcessingStream;
 import org.gradle.api.internal.file.copy.FileCopyDetailsInternal;
+import org.gradle.api.internal.file.copy.ParallelZipCompressor;
 import org.gradle.api.internal.file.copy.ZipCompressor;
 import org.gradle.api.internal.tasks.SimpleWorkResult;
 import org.gradle.api.tasks.WorkResult;
@@ -35,6 +37,8 @@ import org.gradle.api.tasks.bundling.Zip;
 import org.gradle.internal.IoActions;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
 
 public class ZipCopyAction implements CopyAction {
     private final File zipFile;
@@ -50,6 +54,10 @@ public class ZipCopyAction implements CopyAction {
     }
 
     public WorkResult execute(final CopyActionProcessingStream stream) {
+        if (compressor instanceof ParallelZipCompressor) {
+            return executeParallel(stream, (ParallelZipCompressor) compressor);
+        }
+
         final ZipOutputStream zipOutStr;
 
         try {
@@ -66,15 +74,44 @@ public class ZipCopyAction implements CopyAction {
             });
         } catch (UncheckedIOException e) {
             if (e.getCause() instanceof Zip64RequiredException) {
-                throw new org.gradle.api.tasks.bundling.internal.Zip64RequiredException(
-                        String.format("%s\n\nTo build this archive, please enable the zip64 extension.\nSee: %s", e.getCause().getMessage(), documentationRegistry.getDslRefForProperty(Zip.class, "zip64"))
-                );
+                throw zip64Required((Zip64RequiredException) e.getCause());
+            }
+        }
+
+        return new SimpleWorkResult(true);
+    }
+
+    private WorkResult executeParallel(final CopyActionProcessingStream stream, ParallelZipCompressor compressor) {
+        final ParallelZipWriter writer;
+
+        try {
+            writer = compressor.createArchiveWriter(zipFile, encoding);
+        } catch (Exception e) {
+            throw new GradleException(String.format("Could not create ZIP '%s'.", zipFile), e);
+        }
+
+        try {
+            IoActions.withResource(writer, new Action<ParallelZipWriter>() {
+                public void execute(ParallelZipWriter zipWriter) {
+                    stream.process(new ParallelStreamAction(zipWriter));
+                }
+            });
+        } catch (UncheckedIOException e) {
+            if (e.getCause() instanceof Zip64RequiredException) {
+                throw zip64Required((Zip64RequiredException) e.getCause());
             }
+            throw e;
         }
 
         return new SimpleWorkResult(true);
     }
 
+    private RuntimeException zip64Required(Zip64RequiredException e) {
+        return new org.gradle.api.tasks.bundling.internal.Zip64RequiredException(
+                String.format("%s\n\nTo build this archive, please enable the zip64 extension.\nSee: %s", e.getMessage(), documentationRegistry.getDslRefForProperty(Zip.class, "zip64"))
+        );
+    }
+
     private class StreamAction implements CopyActionProcessingStreamAction {
         private final ZipOutputStream zipOutStr;
 
@@ -119,4 +156,46 @@ public class ZipCopyAction implements CopyAction {
             }
         }
     }
+
+    private class ParallelStreamAction implements CopyActionProcessingStreamAction {
+        private final ParallelZipWriter writer;
+
+        public ParallelStreamAction(ParallelZipWriter writer) {
+            this.writer = writer;
+        }
+
+        public void processFile(FileCopyDetailsInternal details) {
+            try {
+                if (details.isDirectory()) {
+                    // Trailing slash in name indicates that entry is a directory
+                    writer.putDirectory(details.getRelativePath().getPathString() + '/', details.getLastModified(), UnixStat.DIR_FLAG | details.getMode());
+                } else {
+                    visitFile(details);
+                }
+            } catch (Zip64RequiredException e) {
+                throw zip64Required(e);
+            } catch (Exception e) {
+                throw new GradleException(String.format("Could not add %s to ZIP '%s'.", details, zipFile), e);
+            }
+        }
+
+        private void visitFile(final FileCopyDetailsInternal fileDetails) throws IOException {
+            String name = fileDetails.getRelativePath().getPathString();
+            int unixMode = UnixStat.FILE_FLAG | fileDetails.getMode();
+
+            // Entries of ZIP files that are not filtered can be copied without being inflated and deflated again
+            FileVisitDetails source = fileDetails.getUnfilteredSource();
+            if (source instanceof CompressedZipEntrySource && ((CompressedZipEntrySource) source).putCompressedTo(writer, name, fileDetails.getLastModified(), unixMode)) {
+                return;
+            }
+
+            // The size of a filtered file is only known once the filters have been applied, which the writer does anyway
+            long sizeHint = source == null ? -1 : source.getSize();
+            writer.putFile(name, fileDetails.getLastModified(), unixMode, sizeHint, new Action<OutputStream>() {
+                public void execute(OutputStream outputStream) {
+                    fileDetails.copyTo(outputStream);
+                }
+            });
+        }
+    }
 }
@@ -15,17 +15,20 @@
  */
 package org.gradle.api.internal.file.archive;
 
-import org.apache.tools.zip.ZipEntry;
-import org.apache.tools.zip.ZipFile;
 import org.gradle.api.GradleException;
 import org.gradle.api.InvalidUserDataException;
+import org.gradle.api.Nullable;
 import org.gradle.api.UncheckedIOException;
+import org.gradle.api.file.FileTreeElement;
 import org.gradle.api.file.FileVisitDetails;
 import org.gradle.api.file.FileVisitor;
 import org.gradle.api.file.RelativePath;
 import org.gradle.api.internal.file.AbstractFileTreeElement;
 import org.gradle.api.internal.file.FileSystemSubset;
 import org.gradle.api.internal.file.collections.*;
+import org.gradle.api.specs.Spec;
+import org.gradle.api.tasks.util.PatternFilterable;
+import org.gradle.api.tasks.util.PatternSet;
 import org.gradle.internal.hash.HashUtil;
 import org.gradle.internal.nativeintegration.filesystem.Chmod;
 import org.gradle.internal.nativeintegration.filesystem.FileSystem;
@@ -33,24 +36,33 @@ import org.gradle.internal.nativeintegration.filesystem.FileSystem;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Enumeration;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.ZipEntry;
 
-public class ZipFileTree implements MinimalFileTree, FileSystemMirroringFileTree {
+/**
+ * The entries of a ZIP file, as listed by its central directory. Patterns are applied to the entries before they are visited,
+ * and the content of an entry is only read or extracted when it is accessed.
+ */
+public class ZipFileTree implements MinimalFileTree, FileSystemMirroringFileTree, PatternFilterableFileTree {
     private final File zipFile;
     private final Chmod chmod;
     private final DirectoryFileTreeFactory directoryFileTreeFactory;
     private final File tmpDir;
+    private final PatternSet patternSet;
 
     public ZipFileTree(File zipFile, File tmpDir, Chmod chmod, DirectoryFileTreeFactory directoryFileTreeFactory) {
+        this(zipFile, new File(tmpDir, zipFile.getName() + "_" + HashUtil.createCompactMD5(zipFile.getAbsolutePath())), chmod, directoryFileTreeFactory, null);
+    }
+
+    private ZipFileTree(File zipFile, File expandDir, Chmod chmod, DirectoryFileTreeFactory directoryFileTreeFactory, @Nullable PatternSet patternSet) {
         this.zipFile = zipFile;
         this.chmod = chmod;
         this.directoryFileTreeFactory = directoryFileTreeFactory;
-        String expandDirName = zipFile.getName() + "_" + HashUtil.createCompactMD5(zipFile.getAbsolutePath());
-        this.tmpDir = new File(tmpDir, expandDirName);
+        this.tmpDir = expandDir;
+        this.patternSet = patternSet;
     }
 
     public String getDisplayName() {
@@ -58,7 +70,13 @@ public class ZipFileTree implements MinimalFileTree, FileSystemMirroringFileTree
     }
 
     public DirectoryFileTree getMirror() {
-        return directoryFileTreeFactory.create(tmpDir);
+        return patternSet == null ? directoryFileTreeFactory.create(tmpDir) : directoryFileTreeFactory.create(tmpDir, patternSet);
+    }
+
+    public ZipFileTree filter(PatternFilterable patterns) {
+        PatternSet filtered = patternSet == null ? new PatternSet() : patternSet.intersect();
+        filtered.copyFrom(patterns);
+        return new ZipFileTree(zipFile, tmpDir, chmod, directoryFileTreeFactory, filtered);
     }
 
     public void visit(FileVisitor visitor) {
@@ -70,25 +88,25 @@ public class ZipFileTree implements MinimalFileTree, FileSystemMirroringFileTree
         }
 
         AtomicBoolean stopFlag = new AtomicBoolean();
+        Spec<FileTreeElement> spec = patternSet == null ? null : patternSet.getAsSpec();
 
         try {
-            ZipFile zip = new ZipFile(zipFile);
+            ZipCentralDirectory zip = ZipCentralDirectory.open(zipFile, null);
             try {
-                // The iteration order of zip.getEntries() is based on the hash of the zip entry. This isn't much use
-                // to us. So, collect the entries in a map and iterate over them in alphabetical order.
-                Map<String, ZipEntry> entriesByName = new TreeMap<String, ZipEntry>();
-                Enumeration entries = zip.getEntries();
-                while (entries.hasMoreElements()) {
-                    ZipEntry entry = (ZipEntry) entries.nextElement();
-                    entriesByName.put(entry.getName(), entry);
-                }
-                Iterator<ZipEntry> sortedEntries = entriesByName.values().iterator();
+                // The central directory lists the entries in the order they were added to the ZIP file. This isn't much use
+                // to us. So, iterate over them in alphabetical order.
+                Map<String, ZipCentralDirectory.Entry> entriesByName = new TreeMap<String, ZipCentralDirectory.Entry>(zip.getEntries());
+                Iterator<ZipCentralDirectory.Entry> sortedEntries = entriesByName.values().iterator();
                 while (!stopFlag.get() && sortedEntries.hasNext()) {
-                    ZipEntry entry = sortedEntries.next();
+                    ZipCentralDirectory.Entry entry = sortedEntries.next();
+                    DetailsImpl details = new DetailsImpl(entry, zip, stopFlag, chmod);
+                    if (spec != null && !spec.isSatisfiedBy(details)) {
+                        continue;
+                    }
                     if (entry.isDirectory()) {
-                        visitor.visitDir(new DetailsImpl(entry, zip, stopFlag, chmod));
+                        visitor.visitDir(details);
                     } else {
-                        visitor.visitFile(new DetailsImpl(entry, zip, stopFlag, chmod));
+                        visitor.visitFile(details);
                     }
                 }
             } finally {
@@ -103,13 +121,13 @@ public class ZipFileTree implements MinimalFileTree, FileSystemMirroringFileTree
         return zipFile;
     }
 
-    private class DetailsImpl extends AbstractFileTreeElement implements FileVisitDetails {
-        private final ZipEntry entry;
-        private final ZipFile zip;
+    private class DetailsImpl extends AbstractFileTreeElement implements FileVisitDetails, CompressedZipEntrySource {
+        private final ZipCentralDirectory.Entry entry;
+        private final ZipCentralDirectory zip;
         private final AtomicBoolean stopFlag;
         private File file;
 
-        public DetailsImpl(ZipEntry entry, ZipFile zip, AtomicBoolean stopFlag, Chmod chmod) {
+        public DetailsImpl(ZipCentralDirectory.Entry entry, ZipCentralDirectory zip, AtomicBoolean stopFlag, Chmod chmod) {
             super(chmod);
             this.entry = entry;
             this.zip = zip;
@@ -133,7 +151,7 @@ public class ZipFileTree implements MinimalFileTree, FileSystemMirroringFileTree
         }
 
         public long getLastModified() {
-            return entry.getTime();
+            return entry.getLastModified();
         }
 
         public boolean isDirectory() {
@@ -146,12 +164,28 @@ public class ZipFileTree implements MinimalFileTree, FileSystemMirroringFileTree
 
         public InputStream open() {
             try {
-                return zip.getInputStream(entry);
+                return zip.openContent(entry);
             } catch (IOException e) {
                 throw new UncheckedIOException(e);
             }
         }
 
+        public boolean putCompressedTo(ParallelZipWriter writer, String name, long lastModified, int unixMode) throws IOException {
+            if (entry.getMethod() != ZipEntry.DEFLATED || entry.isEncrypted()) {
+                return false;
+            }
+            InputStream data = zip.openCompressedData(entry);
+            if (data == null) {
+                return false;
+            }
+            try {
+                writer.putCompressedEntry(new ZipWriter.Entry(name, lastModified, unixMode, ZipWriter.DEFLATED, entry.getCrc(), entry.getSize(), entry.getCompressedSize()), data);
+            } finally {
+                data.close();
+            }
+            return true;
+        }
+
         public RelativePath getRelativePath() {
             return new RelativePath(!entry.isDirectory(), entry.getName().split("/"));
         }
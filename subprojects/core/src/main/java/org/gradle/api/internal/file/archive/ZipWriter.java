@@ -0,0 +1,483 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.file.archive;
+
+import org.apache.tools.zip.Zip64RequiredException;
+import org.gradle.api.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes a ZIP file from entries whose compressed data has been produced up front, e.g. on another thread or by copying it from another archive.
+ *
+ * <p>The CRC and sizes of each entry are written to its local header, so no data descriptors are needed. The output only depends on the entries
+ * and the order in which they are added. Zip64 extensions are only used when an entry or the archive exceeds the limits of the standard format.</p>
+ */
+public class ZipWriter implements Closeable {
+    public static final int STORED = 0;
+    public static final int DEFLATED = 8;
+
+    private static final int LOCAL_FILE_HEADER_SIG = 0x04034b50;
+    private static final int CENTRAL_FILE_HEADER_SIG = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIR_SIG = 0x06054b50;
+    private static final int ZIP64_END_OF_CENTRAL_DIR_SIG = 0x06064b50;
+    private static final int ZIP64_END_OF_CENTRAL_DIR_LOCATOR_SIG = 0x07064b50;
+    private static final int LOCAL_FILE_HEADER_SIZE = 30;
+    private static final int CENTRAL_FILE_HEADER_SIZE = 46;
+    private static final int ZIP64_EXTRA_ID = 0x0001;
+    private static final int ZIP64_LOCAL_EXTRA_SIZE = 20;
+    private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+    private static final int ZIP64_MAGIC_SHORT = 0xFFFF;
+    private static final int UTF8_FLAG = 1 << 11;
+    private static final int PLATFORM_UNIX = 3;
+    private static final int VERSION_STORED = 10;
+    private static final int VERSION_DEFLATED = 20;
+    private static final int VERSION_ZIP64 = 45;
+    private static final long DOSTIME_BEFORE_1980 = (1 << 21) | (1 << 16);
+
+    private final File destination;
+    private final RandomAccessFile file;
+    private final OutputStream output;
+    private final Charset charset;
+    private final boolean utf8;
+    private final boolean allowZip64;
+    private final List<CentralDirectoryRecord> records = new ArrayList<CentralDirectoryRecord>();
+    private final Calendar calendar = Calendar.getInstance();
+    private long written;
+    private EntryOutputStream openEntry;
+
+    /**
+     * Creates a writer for the given file.
+     *
+     * @param encoding the character set used to encode entry names, or null to use the platform's default character set.
+     * @param allowZip64 whether Zip64 extensions can be used for archives that exceed the limits of the standard format.
+     */
+    public ZipWriter(File destination, @Nullable String encoding, boolean allowZip64) throws IOException {
+        this.destination = destination;
+        this.charset = encoding == null ? Charset.defaultCharset() : Charset.forName(encoding);
+        this.utf8 = charset.name().equals("UTF-8");
+        this.allowZip64 = allowZip64;
+        this.file = new RandomAccessFile(destination, "rw");
+        this.file.setLength(0);
+        this.output = new BufferedOutputStream(Channels.newOutputStream(file.getChannel()), 64 * 1024);
+    }
+
+    public File getDestination() {
+        return destination;
+    }
+
+    /**
+     * Adds a directory entry. The name should end with a slash.
+     */
+    public void putDirectory(String name, long lastModified, int unixMode) throws IOException {
+        putEntry(new Entry(name, lastModified, unixMode, STORED, 0, 0, 0), new byte[0], 0, 0);
+    }
+
+    /**
+     * Adds an entry whose compressed data is held in the given buffer.
+     */
+    public void putEntry(Entry entry, byte[] compressedData, int offset, int length) throws IOException {
+        if (length != entry.compressedSize) {
+            throw new IllegalArgumentException(String.format("Expected %d bytes of compressed data for ZIP entry '%s' but got %d.", entry.compressedSize, entry.name, length));
+        }
+        writeEntryHeader(entry);
+        writeRaw(compressedData, offset, length);
+    }
+
+    /**
+     * Adds an entry whose compressed data is read from the given stream. Exactly {@link Entry#getCompressedSize()} bytes are read.
+     */
+    public void putEntry(Entry entry, InputStream compressedData) throws IOException {
+        writeEntryHeader(entry);
+        byte[] buffer = new byte[8192];
+        long remaining = entry.compressedSize;
+        while (remaining > 0) {
+            int read = compressedData.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (read < 0) {
+                throw new EOFException(String.format("Unexpected end of compressed data for ZIP entry '%s'.", entry.name));
+            }
+            writeRaw(buffer, 0, read);
+            remaining -= read;
+        }
+    }
+
+    /**
+     * Adds an entry whose content is not known up front. The content is compressed as it is written to the returned stream, and the local header
+     * is updated when the stream is closed. No other entry can be added until then.
+     */
+    public OutputStream putStreamingEntry(String name, long lastModified, int unixMode, int method) throws IOException {
+        assertNoOpenEntry();
+        Entry entry = new Entry(name, lastModified, unixMode, method, 0, 0, 0);
+        byte[] encodedName = encode(name);
+        long headerOffset = written;
+        writeLocalHeader(entry, encodedName, allowZip64);
+        openEntry = new EntryOutputStream(entry, encodedName, headerOffset, allowZip64);
+        return openEntry;
+    }
+
+    /**
+     * Writes the central directory and closes the file. When an entry is still open, e.g. because writing its content failed, the file is closed
+     * without a central directory.
+     */
+    public void close() throws IOException {
+        try {
+            if (openEntry == null) {
+                writeCentralDirectory();
+                output.flush();
+            }
+        } finally {
+            file.close();
+        }
+    }
+
+    private void writeEntryHeader(Entry entry) throws IOException {
+        assertNoOpenEntry();
+        byte[] encodedName = encode(entry.name);
+        boolean zip64 = entry.size >= ZIP64_MAGIC || entry.compressedSize >= ZIP64_MAGIC;
+        if (zip64 && !allowZip64) {
+            throw entryTooBig(entry);
+        }
+        long headerOffset = written;
+        writeLocalHeader(entry, encodedName, zip64);
+        records.add(new CentralDirectoryRecord(entry, encodedName, headerOffset, zip64));
+    }
+
+    private void writeLocalHeader(Entry entry, byte[] encodedName, boolean zip64) throws IOException {
+        ByteBuffer header = buffer(LOCAL_FILE_HEADER_SIZE + encodedName.length + (zip64 ? ZIP64_LOCAL_EXTRA_SIZE : 0));
+        header.putInt(LOCAL_FILE_HEADER_SIG);
+        header.putShort((short) versionNeeded(entry, zip64));
+        header.putShort((short) flags());
+        header.putShort((short) entry.method);
+        header.putInt((int) toDosTime(entry.lastModified));
+        header.putInt((int) entry.crc);
+        header.putInt((int) (zip64 ? ZIP64_MAGIC : entry.compressedSize));
+        header.putInt((int) (zip64 ? ZIP64_MAGIC : entry.size));
+        header.putShort((short) encodedName.length);
+        header.putShort((short) (zip64 ? ZIP64_LOCAL_EXTRA_SIZE : 0));
+        header.put(encodedName);
+        if (zip64) {
+            header.putShort((short) ZIP64_EXTRA_ID);
+            header.putShort((short) 16);
+            header.putLong(entry.size);
+            header.putLong(entry.compressedSize);
+        }
+        writeRaw(header.array(), 0, header.position());
+    }
+
+    private void writeCentralDirectory() throws IOException {
+        long centralDirectoryOffset = written;
+        for (CentralDirectoryRecord record : records) {
+            writeCentralDirectoryRecord(record);
+        }
+        long centralDirectorySize = written - centralDirectoryOffset;
+        int count = records.size();
+
+        boolean zip64 = count >= ZIP64_MAGIC_SHORT || centralDirectoryOffset >= ZIP64_MAGIC || centralDirectorySize >= ZIP64_MAGIC;
+        if (zip64 && !allowZip64) {
+            if (count >= ZIP64_MAGIC_SHORT) {
+                throw new Zip64RequiredException("archive contains more than 65535 entries.");
+            }
+            throw new Zip64RequiredException("archive's size exceeds the limit of 4GByte.");
+        }
+        if (zip64) {
+            long zip64EndOffset = written;
+            ByteBuffer end = buffer(56 + 20);
+            end.putInt(ZIP64_END_OF_CENTRAL_DIR_SIG);
+            end.putLong(44);
+            end.putShort((short) ((PLATFORM_UNIX << 8) | VERSION_ZIP64));
+            end.putShort((short) VERSION_ZIP64);
+            end.putInt(0);
+            end.putInt(0);
+            end.putLong(count);
+            end.putLong(count);
+            end.putLong(centralDirectorySize);
+            end.putLong(centralDirectoryOffset);
+            end.putInt(ZIP64_END_OF_CENTRAL_DIR_LOCATOR_SIG);
+            end.putInt(0);
+            end.putLong(zip64EndOffset);
+            end.putInt(1);
+            writeRaw(end.array(), 0, end.position());
+        }
+
+        ByteBuffer end = buffer(22);
+        end.putInt(END_OF_CENTRAL_DIR_SIG);
+        end.putShort((short) 0);
+        end.putShort((short) 0);
+        end.putShort((short) Math.min(count, ZIP64_MAGIC_SHORT));
+        end.putShort((short) Math.min(count, ZIP64_MAGIC_SHORT));
+        end.putInt((int) Math.min(centralDirectorySize, ZIP64_MAGIC));
+        end.putInt((int) Math.min(centralDirectoryOffset, ZIP64_MAGIC));
+        end.putShort((short) 0);
+        writeRaw(end.array(), 0, end.position());
+    }
+
+    private void writeCentralDirectoryRecord(CentralDirectoryRecord record) throws IOException {
+        Entry entry = record.entry;
+        boolean sizesZip64 = entry.size >= ZIP64_MAGIC || entry.compressedSize >= ZIP64_MAGIC;
+        boolean offsetZip64 = record.headerOffset >= ZIP64_MAGIC;
+        if (offsetZip64 && !allowZip64) {
+            throw new Zip64RequiredException("archive's size exceeds the limit of 4GByte.");
+        }
+        int extraSize = (sizesZip64 ? 16 : 0) + (offsetZip64 ? 8 : 0);
+        boolean zip64 = extraSize > 0;
+
+        ByteBuffer header = buffer(CENTRAL_FILE_HEADER_SIZE + record.encodedName.length + (zip64 ? extraSize + 4 : 0));
+        header.putInt(CENTRAL_FILE_HEADER_SIG);
+        header.putShort((short) ((PLATFORM_UNIX << 8) | (zip64 || record.localZip64 ? VERSION_ZIP64 : VERSION_DEFLATED)));
+        header.putShort((short) versionNeeded(entry, zip64 || record.localZip64));
+        header.putShort((short) flags());
+        header.putShort((short) entry.method);
+        header.putInt((int) toDosTime(entry.lastModified));
+        header.putInt((int) entry.crc);
+        header.putInt((int) (sizesZip64 ? ZIP64_MAGIC : entry.compressedSize));
+        header.putInt((int) (sizesZip64 ? ZIP64_MAGIC : entry.size));
+        header.putShort((short) record.encodedName.length);
+        header.putShort((short) (zip64 ? extraSize + 4 : 0));
+        header.putShort((short) 0);
+        header.putShort((short) 0);
+        header.putShort((short) 0);
+        header.putInt(externalAttributes(entry));
+        header.putInt((int) (offsetZip64 ? ZIP64_MAGIC : record.headerOffset));
+        header.put(record.encodedName);
+        if (zip64) {
+            header.putShort((short) ZIP64_EXTRA_ID);
+            header.putShort((short) extraSize);
+            if (sizesZip64) {
+                header.putLong(entry.size);
+                header.putLong(entry.compressedSize);
+            }
+            if (offsetZip64) {
+                header.putLong(record.headerOffset);
+            }
+        }
+        writeRaw(header.array(), 0, header.position());
+    }
+
+    private void writeRaw(byte[] bytes, int offset, int length) throws IOException {
+        output.write(bytes, offset, length);
+        written += length;
+    }
+
+    private void assertNoOpenEntry() {
+        if (openEntry != null) {
+            throw new IllegalStateException(String.format("ZIP entry '%s' has not been closed.", openEntry.entry.name));
+        }
+    }
+
+    private byte[] encode(String name) {
+        return name.getBytes(charset);
+    }
+
+    private int flags() {
+        return utf8 ? UTF8_FLAG : 0;
+    }
+
+    private static int versionNeeded(Entry entry, boolean zip64) {
+        if (zip64) {
+            return VERSION_ZIP64;
+        }
+        return entry.method == DEFLATED || entry.isDirectory() ? VERSION_DEFLATED : VERSION_STORED;
+    }
+
+    private static int externalAttributes(Entry entry) {
+        return (entry.unixMode << 16) | ((entry.unixMode & 0200) == 0 ? 1 : 0) | (entry.isDirectory() ? 0x10 : 0);
+    }
+
+    private static Zip64RequiredException entryTooBig(Entry entry) {
+        return new Zip64RequiredException(entry.name + "'s size exceeds the limit of 4GByte.");
+    }
+
+    private static ByteBuffer buffer(int size) {
+        return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private long toDosTime(long time) {
+        calendar.setTimeInMillis(time);
+        int year = calendar.get(Calendar.YEAR);
+        if (year < 1980) {
+            return DOSTIME_BEFORE_1980;
+        }
+        return ((year - 1980) << 25)
+            | ((calendar.get(Calendar.MONTH) + 1) << 21)
+            | (calendar.get(Calendar.DAY_OF_MONTH) << 16)
+            | (calendar.get(Calendar.HOUR_OF_DAY) << 11)
+            | (calendar.get(Calendar.MINUTE) << 5)
+            | (calendar.get(Calendar.SECOND) >> 1);
+    }
+
+    /**
+     * The metadata of an entry. Directory names end with a slash, and the unix mode includes the file type bits.
+     */
+    public static final class Entry {
+        private final String name;
+        private final long lastModified;
+        private final int unixMode;
+        private final int method;
+        private final long crc;
+        private final long size;
+        private final long compressedSize;
+
+        public Entry(String name, long lastModified, int unixMode, int method, long crc, long size, long compressedSize) {
+            this.name = name;
+            this.lastModified = lastModified;
+            this.unixMode = unixMode;
+            this.method = method;
+            this.crc = crc;
+            this.size = size;
+            this.compressedSize = compressedSize;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getMethod() {
+            return method;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getCompressedSize() {
+            return compressedSize;
+        }
+
+        public boolean isDirectory() {
+            return name.endsWith("/");
+        }
+    }
+
+    private static class CentralDirectoryRecord {
+        private final Entry entry;
+        private final byte[] encodedName;
+        private final long headerOffset;
+        private final boolean localZip64;
+
+        CentralDirectoryRecord(Entry entry, byte[] encodedName, long headerOffset, boolean localZip64) {
+            this.entry = entry;
+            this.encodedName = encodedName;
+            this.headerOffset = headerOffset;
+            this.localZip64 = localZip64;
+        }
+    }
+
+    private class EntryOutputStream extends OutputStream {
+        private final Entry entry;
+        private final byte[] encodedName;
+        private final long headerOffset;
+        private final boolean localZip64;
+        private final long dataOffset;
+        private final CRC32 crc = new CRC32();
+        private final Deflater deflater;
+        private final byte[] buffer;
+        private long size;
+
+        EntryOutputStream(Entry entry, byte[] encodedName, long headerOffset, boolean localZip64) {
+            this.entry = entry;
+            this.encodedName = encodedName;
+            this.headerOffset = headerOffset;
+            this.localZip64 = localZip64;
+            this.dataOffset = written;
+            this.deflater = entry.method == DEFLATED ? new Deflater(Deflater.DEFAULT_COMPRESSION, true) : null;
+            this.buffer = deflater == null ? null : new byte[64 * 1024];
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            crc.update(bytes, offset, length);
+            size += length;
+            if (deflater == null) {
+                writeRaw(bytes, offset, length);
+                return;
+            }
+            deflater.setInput(bytes, offset, length);
+            while (!deflater.needsInput()) {
+                deflate();
+            }
+        }
+
+        private void deflate() throws IOException {
+            int count = deflater.deflate(buffer);
+            if (count > 0) {
+                writeRaw(buffer, 0, count);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (openEntry != this) {
+                return;
+            }
+            if (deflater != null) {
+                try {
+                    deflater.finish();
+                    while (!deflater.finished()) {
+                        deflate();
+                    }
+                } finally {
+                    deflater.end();
+                }
+            }
+            openEntry = null;
+
+            Entry completed = new Entry(entry.name, entry.lastModified, entry.unixMode, entry.method, crc.getValue(), size, written - dataOffset);
+            boolean zip64 = completed.size >= ZIP64_MAGIC || completed.compressedSize >= ZIP64_MAGIC;
+            if (zip64 && !localZip64) {
+                throw entryTooBig(completed);
+            }
+
+            output.flush();
+            ByteBuffer sizes = buffer(12);
+            sizes.putInt((int) completed.crc);
+            sizes.putInt((int) (zip64 ? ZIP64_MAGIC : completed.compressedSize));
+            sizes.putInt((int) (zip64 ? ZIP64_MAGIC : completed.size));
+            file.seek(headerOffset + 14);
+            file.write(sizes.array());
+            if (localZip64) {
+                ByteBuffer extra = buffer(16);
+                extra.putLong(completed.size);
+                extra.putLong(completed.compressedSize);
+                file.seek(headerOffset + LOCAL_FILE_HEADER_SIZE + encodedName.length + 4);
+                file.write(extra.array());
+            }
+            file.seek(written);
+            records.add(new CentralDirectoryRecord(completed, encodedName, headerOffset, localZip64));
+        }
+    }
+}
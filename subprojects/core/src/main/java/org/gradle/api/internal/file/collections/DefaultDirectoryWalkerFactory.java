@@ -18,7 +18,9 @@ package org.gradle.api.internal.file.collections;
 
 import com.google.common.base.Charsets;
 import org.gradle.api.JavaVersion;
+import org.gradle.api.internal.file.collections.jdk7.CachingDirectoryWalker;
 import org.gradle.api.internal.file.collections.jdk7.Jdk7DirectoryWalker;
+import org.gradle.api.internal.file.collections.jdk7.ParallelDirectoryWalker;
 import org.gradle.internal.Factory;
 import org.gradle.internal.nativeintegration.services.FileSystems;
 import org.gradle.internal.nativeplatform.filesystem.FileSystem;
@@ -26,6 +28,16 @@ import org.gradle.internal.nativeplatform.filesystem.FileSystem;
 import java.nio.charset.Charset;
 
 public class DefaultDirectoryWalkerFactory implements Factory<DirectoryWalker> {
+    /**
+     * When set to {@code true}, directories are listed concurrently by the {@link ParallelDirectoryWalker}, which helps on file systems with high latency.
+     */
+    public static final String PARALLEL_WALKER_PROPERTY = "org.gradle.internal.parallel-directory-walker";
+
+    /**
+     * When set to {@code true}, directory listings are remembered across builds by the {@link CachingDirectoryWalker}, and only listed again when a directory has changed.
+     */
+    public static final String CACHING_WALKER_PROPERTY = "org.gradle.internal.caching-directory-walker";
+
     private final JavaVersion javaVersion;
     private final FileSystem fileSystem;
     private DirectoryWalker instance;
@@ -50,6 +62,12 @@ public class DefaultDirectoryWalkerFactory implements Factory<DirectoryWalker> {
 
     private DirectoryWalker createInstance() {
         if (javaVersion.isJava8Compatible() || (javaVersion.isJava7Compatible() && defaultEncodingContainsPlatformEncoding())) {
+            if (Boolean.getBoolean(PARALLEL_WALKER_PROPERTY)) {
+                return new ParallelDirectoryWalker(fileSystem);
+            }
+            if (Boolean.getBoolean(CACHING_WALKER_PROPERTY)) {
+                return new CachingDirectoryWalker(fileSystem);
+            }
             return new Jdk7DirectoryWalker(fileSystem);
         } else {
             return new DefaultDirectoryWalker(fileSystem);
@@ -183,4 +183,8 @@ public class DirectoryFileTree implements MinimalFileTree, PatternFilterableFile
         return patternSet;
     }
 
+    public boolean isPostfix() {
+        return postfix;
+    }
+
 }
@@ -0,0 +1,231 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.file.collections.jdk7;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Objects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import org.gradle.api.GradleException;
+import org.gradle.api.Nullable;
+import org.gradle.api.file.FileTreeElement;
+import org.gradle.api.file.FileVisitDetails;
+import org.gradle.api.file.FileVisitor;
+import org.gradle.api.file.RelativePath;
+import org.gradle.api.internal.file.DefaultFileVisitDetails;
+import org.gradle.api.internal.file.collections.DirectoryWalker;
+import org.gradle.api.specs.Spec;
+import org.gradle.internal.nativeintegration.filesystem.FileSystem;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A {@link DirectoryWalker} that remembers the listing of each directory it walks, for the lifetime of the process. A remembered listing is reused as long as the
+ * modification time and file key (the inode, where the platform provides one) of the directory are unchanged, so walking an unchanged tree again costs one
+ * {@code stat} per directory instead of one per file.
+ *
+ * <p>Only the names and types of the children are remembered. The modification time of a directory does not change when the content of one of its files does,
+ * so the size and modification time of the files are read again, when asked for. Listings are not remembered when they contain symbolic links, whose targets can
+ * change without the directory changing, or when the directory was modified too recently to tell a later modification apart on file systems with a coarse timestamp
+ * resolution.</p>
+ *
+ * <p>Visits happen in the same order as with the {@link org.gradle.api.internal.file.collections.DefaultDirectoryWalker}: the files of a directory first, then each
+ * of its subdirectories.</p>
+ */
+public class CachingDirectoryWalker implements DirectoryWalker {
+    private static final long MIN_CACHEABLE_AGE_MILLIS = 2000;
+    private static final Cache<String, DirectoryListing> DEFAULT_LISTINGS = CacheBuilder.newBuilder()
+        .maximumWeight(1000000)
+        .weigher(new Weigher<String, DirectoryListing>() {
+            @Override
+            public int weigh(String key, DirectoryListing value) {
+                return value.children.length + 1;
+            }
+        })
+        .build();
+
+    private final FileSystem fileSystem;
+    private final Cache<String, DirectoryListing> listings;
+
+    public CachingDirectoryWalker(FileSystem fileSystem) {
+        this(fileSystem, DEFAULT_LISTINGS);
+    }
+
+    @VisibleForTesting
+    CachingDirectoryWalker(FileSystem fileSystem, Cache<String, DirectoryListing> listings) {
+        this.fileSystem = fileSystem;
+        this.listings = listings;
+    }
+
+    @Override
+    public void walkDir(File file, RelativePath path, FileVisitor visitor, Spec<? super FileTreeElement> spec, AtomicBoolean stopFlag, boolean postfix) {
+        BasicFileAttributes attributes = readDirectoryAttributes(file);
+        Set<Object> ancestors = new HashSet<Object>();
+        if (attributes.fileKey() != null) {
+            ancestors.add(attributes.fileKey());
+        }
+        walkDir(file, attributes, path, visitor, spec, stopFlag, postfix, ancestors);
+    }
+
+    private void walkDir(File dir, BasicFileAttributes attributes, RelativePath path, FileVisitor visitor, Spec<? super FileTreeElement> spec, AtomicBoolean stopFlag, boolean postfix, Set<Object> ancestors) {
+        Child[] children = list(dir, attributes);
+        List<FileVisitDetails> dirs = new ArrayList<FileVisitDetails>();
+        for (int i = 0; !stopFlag.get() && i < children.length; i++) {
+            Child child = children[i];
+            File childFile = new File(dir, child.name);
+            RelativePath childPath = path.append(child.isFile, child.name);
+            FileVisitDetails details = child.attributes == null
+                ? new DefaultFileVisitDetails(childFile, childPath, stopFlag, fileSystem, fileSystem, !child.isFile)
+                : new DefaultFileVisitDetails(childFile, childPath, stopFlag, fileSystem, fileSystem, !child.isFile, child.attributes.lastModifiedTime().toMillis(), child.attributes.size());
+            if (spec.isSatisfiedBy(details)) {
+                if (child.isFile) {
+                    visitor.visitFile(details);
+                } else {
+                    dirs.add(details);
+                }
+            }
+        }
+
+        for (int i = 0; !stopFlag.get() && i < dirs.size(); i++) {
+            FileVisitDetails subDir = dirs.get(i);
+            BasicFileAttributes dirAttributes = readDirectoryAttributes(subDir.getFile());
+            Object fileKey = dirAttributes.fileKey();
+            if (fileKey != null && !ancestors.add(fileKey)) {
+                // A link to one of the directories being walked
+                continue;
+            }
+            try {
+                if (postfix) {
+                    walkDir(subDir.getFile(), dirAttributes, subDir.getRelativePath(), visitor, spec, stopFlag, postfix, ancestors);
+                    visitor.visitDir(subDir);
+                } else {
+                    visitor.visitDir(subDir);
+                    walkDir(subDir.getFile(), dirAttributes, subDir.getRelativePath(), visitor, spec, stopFlag, postfix, ancestors);
+                }
+            } finally {
+                if (fileKey != null) {
+                    ancestors.remove(fileKey);
+                }
+            }
+        }
+    }
+
+    private Child[] list(File dir, BasicFileAttributes attributes) {
+        String key = dir.getAbsolutePath();
+        DirectoryListing cached = listings.getIfPresent(key);
+        if (cached != null && cached.isValidFor(attributes)) {
+            return cached.children;
+        }
+
+        String[] names = dir.list();
+        if (names == null) {
+            throw cannotList(dir);
+        }
+        Child[] children = new Child[names.length];
+        boolean cacheable = System.currentTimeMillis() - attributes.lastModifiedTime().toMillis() >= MIN_CACHEABLE_AGE_MILLIS;
+        for (int i = 0; i < names.length; i++) {
+            Path child = new File(dir, names[i]).toPath();
+            BasicFileAttributes childAttributes = readAttributes(child, LinkOption.NOFOLLOW_LINKS);
+            if (childAttributes == null || childAttributes.isSymbolicLink()) {
+                cacheable = false;
+                childAttributes = readAttributes(child);
+            }
+            if (childAttributes == null) {
+                // A link which points to nothing, or a file removed while we're visiting. Treated like a directory, which then fails to be listed.
+                children[i] = new Child(names[i], false, null);
+            } else {
+                children[i] = new Child(names[i], childAttributes.isRegularFile(), childAttributes);
+            }
+        }
+
+        if (cacheable) {
+            Child[] cachedChildren = new Child[children.length];
+            for (int i = 0; i < children.length; i++) {
+                cachedChildren[i] = new Child(children[i].name, children[i].isFile, null);
+            }
+            listings.put(key, new DirectoryListing(attributes.lastModifiedTime(), attributes.fileKey(), cachedChildren));
+        } else if (cached != null) {
+            listings.invalidate(key);
+        }
+        return children;
+    }
+
+    private static BasicFileAttributes readDirectoryAttributes(File dir) {
+        BasicFileAttributes attributes = readAttributes(dir.toPath());
+        if (attributes == null || !attributes.isDirectory()) {
+            throw cannotList(dir);
+        }
+        return attributes;
+    }
+
+    @Nullable
+    private static BasicFileAttributes readAttributes(Path path, LinkOption... options) {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class, options);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static GradleException cannotList(File dir) {
+        if (dir.isDirectory() && !dir.canRead()) {
+            return new GradleException(String.format("Could not list contents of directory '%s' as it is not readable.", dir));
+        }
+        // else, might be a link which points to nothing, or has been removed while we're visiting, or ...
+        return new GradleException(String.format("Could not list contents of '%s'.", dir));
+    }
+
+    @VisibleForTesting
+    static class DirectoryListing {
+        private final FileTime lastModified;
+        private final Object fileKey;
+        private final Child[] children;
+
+        DirectoryListing(FileTime lastModified, @Nullable Object fileKey, Child[] children) {
+            this.lastModified = lastModified;
+            this.fileKey = fileKey;
+            this.children = children;
+        }
+
+        boolean isValidFor(BasicFileAttributes attributes) {
+            return lastModified.equals(attributes.lastModifiedTime()) && Objects.equal(fileKey, attributes.fileKey());
+        }
+    }
+
+    private static class Child {
+        final String name;
+        final boolean isFile;
+        final BasicFileAttributes attributes;
+
+        Child(String name, boolean isFile, @Nullable BasicFileAttributes attributes) {
+            this.name = name;
+            this.isFile = isFile;
+            this.attributes = attributes;
+        }
+    }
+}
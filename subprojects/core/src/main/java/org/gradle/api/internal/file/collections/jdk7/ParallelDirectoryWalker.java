@@ -0,0 +1,172 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.file.collections.jdk7;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.file.FileTreeElement;
+import org.gradle.api.file.FileVisitDetails;
+import org.gradle.api.file.FileVisitor;
+import org.gradle.api.file.RelativePath;
+import org.gradle.api.internal.file.DefaultFileVisitDetails;
+import org.gradle.api.internal.file.collections.DirectoryWalker;
+import org.gradle.api.specs.Spec;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.nativeintegration.filesystem.FileSystem;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A {@link DirectoryWalker} that lists directories on a fork-join pool, ahead of the visitor. Useful when listing a directory has a high latency, e.g. on network file systems.
+ *
+ * <p>Visits happen in the same order as with the {@link org.gradle.api.internal.file.collections.DefaultDirectoryWalker}: the files of a directory first, then each of its
+ * subdirectories. When the children of a directory are visited, all of its subdirectories accepted by the spec start being listed concurrently.
+ * The visitor and the spec are only called from the thread walking the tree.</p>
+ */
+public class ParallelDirectoryWalker implements DirectoryWalker {
+    private static final int DEFAULT_PARALLELISM = Math.min(16, 2 * Runtime.getRuntime().availableProcessors());
+    private static final ForkJoinPool DEFAULT_POOL = new ForkJoinPool(DEFAULT_PARALLELISM);
+
+    private final FileSystem fileSystem;
+    private final ForkJoinPool pool;
+
+    public ParallelDirectoryWalker(FileSystem fileSystem) {
+        this(fileSystem, DEFAULT_POOL);
+    }
+
+    ParallelDirectoryWalker(FileSystem fileSystem, ForkJoinPool pool) {
+        this.fileSystem = fileSystem;
+        this.pool = pool;
+    }
+
+    @Override
+    public void walkDir(File file, RelativePath path, FileVisitor visitor, Spec<? super FileTreeElement> spec, AtomicBoolean stopFlag, boolean postfix) {
+        walkDir(pool.submit(new ListDirectory(file)), path, visitor, spec, stopFlag, postfix);
+    }
+
+    private void walkDir(ForkJoinTask<Child[]> listing, RelativePath path, FileVisitor visitor, Spec<? super FileTreeElement> spec, AtomicBoolean stopFlag, boolean postfix) {
+        Child[] children = getChildren(listing);
+        List<FileVisitDetails> dirs = new ArrayList<FileVisitDetails>();
+        for (int i = 0; !stopFlag.get() && i < children.length; i++) {
+            Child child = children[i];
+            RelativePath childPath = path.append(child.isFile, child.file.getName());
+            FileVisitDetails details = new DefaultFileVisitDetails(child.file, childPath, stopFlag, fileSystem, fileSystem, !child.isFile, child.lastModified, child.size);
+            if (spec.isSatisfiedBy(details)) {
+                if (child.isFile) {
+                    visitor.visitFile(details);
+                } else {
+                    dirs.add(details);
+                }
+            }
+        }
+        if (stopFlag.get() || dirs.isEmpty()) {
+            return;
+        }
+
+        List<ForkJoinTask<Child[]>> listings = new ArrayList<ForkJoinTask<Child[]>>(dirs.size());
+        for (FileVisitDetails dir : dirs) {
+            listings.add(pool.submit(new ListDirectory(dir.getFile())));
+        }
+        try {
+            for (int i = 0; !stopFlag.get() && i < dirs.size(); i++) {
+                FileVisitDetails dir = dirs.get(i);
+                if (postfix) {
+                    walkDir(listings.get(i), dir.getRelativePath(), visitor, spec, stopFlag, postfix);
+                    visitor.visitDir(dir);
+                } else {
+                    visitor.visitDir(dir);
+                    walkDir(listings.get(i), dir.getRelativePath(), visitor, spec, stopFlag, postfix);
+                }
+            }
+        } finally {
+            // Discard the listings that were not used because the walk was stopped or failed
+            for (ForkJoinTask<Child[]> pendingListing : listings) {
+                pendingListing.cancel(false);
+            }
+        }
+    }
+
+    private static Child[] getChildren(ForkJoinTask<Child[]> listing) {
+        try {
+            return listing.get();
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        } catch (ExecutionException e) {
+            throw UncheckedException.throwAsUncheckedException(e.getCause());
+        }
+    }
+
+    private static class ListDirectory implements Callable<Child[]> {
+        private final File dir;
+
+        ListDirectory(File dir) {
+            this.dir = dir;
+        }
+
+        @Override
+        public Child[] call() {
+            File[] files = dir.listFiles();
+            if (files == null) {
+                if (dir.isDirectory() && !dir.canRead()) {
+                    throw new GradleException(String.format("Could not list contents of directory '%s' as it is not readable.", dir));
+                }
+                // else, might be a link which points to nothing, or has been removed while we're visiting, or ...
+                throw new GradleException(String.format("Could not list contents of '%s'.", dir));
+            }
+            Child[] children = new Child[files.length];
+            for (int i = 0; i < files.length; i++) {
+                children[i] = Child.of(files[i]);
+            }
+            return children;
+        }
+    }
+
+    private static class Child {
+        final File file;
+        final boolean isFile;
+        final long lastModified;
+        final long size;
+
+        private Child(File file, boolean isFile, long lastModified, long size) {
+            this.file = file;
+            this.isFile = isFile;
+            this.lastModified = lastModified;
+            this.size = size;
+        }
+
+        static Child of(File file) {
+            BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+            } catch (IOException e) {
+                // A link which points to nothing, or a file removed while we're visiting. Treated like a directory, which then fails to be listed.
+                return new Child(file, false, 0, 0);
+            }
+            return new Child(file, attributes.isRegularFile(), attributes.lastModifiedTime().toMillis(), attributes.size());
+        }
+    }
+}
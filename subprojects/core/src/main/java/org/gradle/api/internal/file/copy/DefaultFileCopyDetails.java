@@ -53,6 +53,10 @@ public class DefaultFileCopyDetails extends AbstractFileTreeElement implements F
         return fileDetails.toString();
     }
 
+    public FileVisitDetails getUnfilteredSource() {
+        return filterChain.hasFilters() ? null : fileDetails;
+    }
+
     public void stopVisiting() {
         fileDetails.stopVisiting();
     }
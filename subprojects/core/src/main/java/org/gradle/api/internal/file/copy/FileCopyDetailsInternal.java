@@ -16,10 +16,18 @@
 
 package org.gradle.api.internal.file.copy;
 
+import org.gradle.api.Nullable;
 import org.gradle.api.file.FileCopyDetails;
+import org.gradle.api.file.FileVisitDetails;
 
 public interface FileCopyDetailsInternal extends FileCopyDetails {
 
     boolean isIncludeEmptyDirs();
 
+    /**
+     * Returns the details of the source file when its content is copied unchanged, or null when the content is filtered.
+     */
+    @Nullable
+    FileVisitDetails getUnfilteredSource();
+
 }
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.file.copy;
+
+import org.gradle.api.file.RelativePath;
+import org.gradle.api.internal.file.CopyActionProcessingStreamAction;
+import org.gradle.api.tasks.WorkResult;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Only passes the files whose source has changed since the previous copy on to the delegate, along with all directories.
+ * The other files are expected to be up-to-date in the destination already.
+ *
+ * <p>When several files are copied to the same destination path, every file after the first one is passed on as well,
+ * so that the duplicates strategy yields the same result as a full copy.</p>
+ */
+public class IncrementalCopyActionDecorator implements CopyAction {
+    private final Set<String> changedSourcePaths;
+    private final CopyAction delegate;
+
+    /**
+     * @param changedSourcePaths the absolute paths of the source files that were added or modified. All source files must be plain files, rather than archive entries.
+     */
+    public IncrementalCopyActionDecorator(Set<String> changedSourcePaths, CopyAction delegate) {
+        this.changedSourcePaths = changedSourcePaths;
+        this.delegate = delegate;
+    }
+
+    public WorkResult execute(final CopyActionProcessingStream stream) {
+        final Set<RelativePath> visitedFiles = new HashSet<RelativePath>();
+        return delegate.execute(new CopyActionProcessingStream() {
+            public void process(final CopyActionProcessingStreamAction action) {
+                stream.process(new CopyActionProcessingStreamAction() {
+                    public void processFile(FileCopyDetailsInternal details) {
+                        if (details.isDirectory()) {
+                            action.processFile(details);
+                            return;
+                        }
+                        boolean duplicate = !visitedFiles.add(details.getRelativePath());
+                        if (duplicate || changedSourcePaths.contains(details.getFile().getAbsolutePath())) {
+                            action.processFile(details);
+                        }
+                    }
+                });
+            }
+        });
+    }
+}
@@ -21,6 +21,7 @@ import groovy.lang.Closure;
 import org.gradle.api.Transformer;
 import org.gradle.api.file.ContentFilterable;
 import org.gradle.api.file.DuplicatesStrategy;
+import org.gradle.api.file.FileVisitDetails;
 import org.gradle.api.file.RelativePath;
 import org.gradle.api.internal.file.AbstractFileTreeElement;
 import org.gradle.api.internal.file.CopyActionProcessingStreamAction;
@@ -118,6 +119,10 @@ public class NormalizingCopyActionDecorator implements CopyAction {
             return includeEmptyDirs;
         }
 
+        public FileVisitDetails getUnfilteredSource() {
+            return null;
+        }
+
         @Override
         public String getDisplayName() {
             return path.toString();
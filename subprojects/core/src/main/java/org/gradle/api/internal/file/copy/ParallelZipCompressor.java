@@ -0,0 +1,48 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.file.copy;
+
+import org.apache.tools.zip.ZipOutputStream;
+import org.gradle.api.Nullable;
+import org.gradle.api.internal.file.archive.ParallelZipWriter;
+import org.gradle.api.internal.file.archive.ZipWriter;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Executor;
+
+/**
+ * Compresses the entries of a deflated ZIP file in parallel. Still usable as a sequential {@link ZipCompressor}.
+ */
+public class ParallelZipCompressor extends DefaultZipCompressor {
+    private final boolean allowZip64Mode;
+    private final boolean storeCompressedFiles;
+    private final Executor executor;
+    private final int parallelism;
+
+    public ParallelZipCompressor(boolean allowZip64Mode, boolean storeCompressedFiles, Executor executor, int parallelism) {
+        super(allowZip64Mode, ZipOutputStream.DEFLATED);
+        this.allowZip64Mode = allowZip64Mode;
+        this.storeCompressedFiles = storeCompressedFiles;
+        this.executor = executor;
+        this.parallelism = parallelism;
+    }
+
+    public ParallelZipWriter createArchiveWriter(File destination, @Nullable String encoding) throws IOException {
+        return new ParallelZipWriter(new ZipWriter(destination, encoding, allowZip64Mode), storeCompressedFiles, executor, parallelism);
+    }
+}
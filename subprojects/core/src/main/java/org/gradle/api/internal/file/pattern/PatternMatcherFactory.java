@@ -15,23 +15,52 @@
  */
 package org.gradle.api.internal.file.pattern;
 
+import com.google.common.base.Objects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
 import org.apache.commons.lang.StringUtils;
 import org.gradle.api.file.RelativePath;
 import org.gradle.api.specs.Spec;
+import org.gradle.internal.UncheckedException;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 
 public class PatternMatcherFactory {
 
     public static final EndOfPathMatcher END_OF_PATH_MATCHER = new EndOfPathMatcher();
     private static final String PATH_SEPARATORS = "\\/";
+    private static final Cache<PatternsKey, PathMatcher> PATTERNS_MATCHERS = CacheBuilder.newBuilder().maximumSize(1000).build();
 
     public static Spec<RelativePath> getPatternMatcher(boolean partialMatchDirs, boolean caseSensitive, String pattern) {
         PathMatcher pathMatcher = compile(caseSensitive, pattern);
         return new PathMatcherBackedSpec(partialMatchDirs, pathMatcher);
     }
 
+    /**
+     * Returns a matcher that is satisfied by the paths matching any of the given patterns. The patterns are compiled into a single
+     * {@link PatternTriePathMatcher}, which is shared by all matchers for the same set of patterns.
+     */
+    public static Spec<RelativePath> getPatternsMatcher(boolean partialMatchDirs, final boolean caseSensitive, Collection<String> patterns) {
+        final PatternsKey key = new PatternsKey(ImmutableSet.copyOf(patterns), caseSensitive);
+        PathMatcher pathMatcher;
+        try {
+            pathMatcher = PATTERNS_MATCHERS.get(key, new Callable<PathMatcher>() {
+                @Override
+                public PathMatcher call() {
+                    return new PatternTriePathMatcher(key.patterns, caseSensitive);
+                }
+            });
+        } catch (ExecutionException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+        return new PathMatcherBackedSpec(partialMatchDirs, pathMatcher);
+    }
+
     private static PathMatcher compile(boolean caseSensitive, String pattern) {
         if (pattern.length() == 0) {
             return END_OF_PATH_MATCHER;
@@ -81,4 +110,31 @@ public class PatternMatcherFactory {
             }
         }
     }
+
+    private static class PatternsKey {
+        private final ImmutableSet<String> patterns;
+        private final boolean caseSensitive;
+
+        PatternsKey(ImmutableSet<String> patterns, boolean caseSensitive) {
+            this.patterns = patterns;
+            this.caseSensitive = caseSensitive;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            PatternsKey that = (PatternsKey) o;
+            return caseSensitive == that.caseSensitive && patterns.equals(that.patterns);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(patterns, caseSensitive);
+        }
+    }
 }
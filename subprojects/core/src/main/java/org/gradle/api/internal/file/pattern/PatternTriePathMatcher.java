@@ -0,0 +1,229 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.file.pattern;
+
+import org.apache.commons.lang.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Matches a path against a set of patterns at once.
+ *
+ * <p>The patterns are compiled into a trie of pattern steps, so that the leading steps shared by several patterns, such as the {@code **} that all
+ * default excludes start with, are only evaluated once. Steps without wildcards are looked up by segment rather than tried one after the other.
+ * A path is matched by tracking the trie nodes that the segments seen so far lead to.</p>
+ *
+ * <p>The result is the same as the union of the matchers created by {@link PatternMatcherFactory} for each of the patterns.</p>
+ */
+public class PatternTriePathMatcher implements PathMatcher {
+    private static final String PATH_SEPARATORS = "\\/";
+
+    private final Node root = new Node(false);
+    private final boolean matchesEmptyPath;
+    private final int minSegments;
+    private final int maxSegments;
+
+    public PatternTriePathMatcher(Collection<String> patterns, boolean caseSensitive) {
+        boolean matchesEmptyPath = false;
+        int minSegments = Integer.MAX_VALUE;
+        int maxSegments = 0;
+        for (String pattern : patterns) {
+            // trailing / or \ assumes **
+            if (pattern.endsWith("/") || pattern.endsWith("\\")) {
+                pattern = pattern + "**";
+            }
+            String[] parts = StringUtils.split(pattern, PATH_SEPARATORS);
+            if (parts.length == 0) {
+                // The empty pattern only matches the empty path
+                matchesEmptyPath = true;
+                minSegments = 0;
+                continue;
+            }
+            Node node = root;
+            int fixedSteps = 0;
+            boolean greedy = false;
+            for (String part : parts) {
+                if (part.equals("**")) {
+                    greedy = true;
+                    if (!node.greedy) {
+                        node = node.greedyChild();
+                    }
+                } else {
+                    fixedSteps++;
+                    node = node.stepChild(part, caseSensitive);
+                }
+            }
+            node.terminal = true;
+            minSegments = Math.min(minSegments, fixedSteps);
+            maxSegments = greedy ? Integer.MAX_VALUE : Math.max(maxSegments, fixedSteps);
+        }
+        this.matchesEmptyPath = matchesEmptyPath;
+        this.minSegments = minSegments;
+        this.maxSegments = maxSegments;
+    }
+
+    public int getMinSegments() {
+        return minSegments;
+    }
+
+    public int getMaxSegments() {
+        return maxSegments;
+    }
+
+    public boolean matches(String[] segments, int startIndex) {
+        int remaining = segments.length - startIndex;
+        if (remaining < minSegments || remaining > maxSegments) {
+            return false;
+        }
+        if (remaining == 0 && matchesEmptyPath) {
+            return true;
+        }
+        List<Node> states = new ArrayList<Node>();
+        List<Node> nextStates = new ArrayList<Node>();
+        addInitialStates(states);
+        for (int pos = startIndex; pos < segments.length && !states.isEmpty(); pos++) {
+            advance(states, segments[pos], nextStates);
+            List<Node> tmp = states;
+            states = nextStates;
+            nextStates = tmp;
+        }
+        for (Node state : states) {
+            if (state.terminal) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isPrefix(String[] segments, int startIndex) {
+        List<Node> states = new ArrayList<Node>();
+        List<Node> nextStates = new ArrayList<Node>();
+        addInitialStates(states);
+        for (int pos = startIndex;; pos++) {
+            if (states.isEmpty()) {
+                return false;
+            }
+            for (Node state : states) {
+                if (state.greedy) {
+                    // Anything can follow a **
+                    return true;
+                }
+            }
+            if (pos == segments.length) {
+                return true;
+            }
+            advance(states, segments[pos], nextStates);
+            List<Node> tmp = states;
+            states = nextStates;
+            nextStates = tmp;
+        }
+    }
+
+    private void addInitialStates(List<Node> states) {
+        // The empty pattern does not match anything but the empty path, so it does not start any path either
+        if (root.greedyChild != null || root.fixedChildren != null || root.steps != null) {
+            addWithClosure(states, root);
+        }
+    }
+
+    private static void advance(List<Node> states, String segment, List<Node> nextStates) {
+        nextStates.clear();
+        for (Node state : states) {
+            if (state.greedy) {
+                addWithClosure(nextStates, state);
+            }
+            if (state.fixedChildren != null) {
+                Node child = state.fixedChildren.get(segment);
+                if (child != null) {
+                    addWithClosure(nextStates, child);
+                }
+            }
+            if (state.steps != null) {
+                for (int i = 0; i < state.steps.size(); i++) {
+                    if (state.steps.get(i).matches(segment)) {
+                        addWithClosure(nextStates, state.stepChildren.get(i));
+                    }
+                }
+            }
+        }
+    }
+
+    private static void addWithClosure(List<Node> states, Node node) {
+        if (!states.contains(node)) {
+            states.add(node);
+            // A ** can match no segment at all
+            if (node.greedyChild != null) {
+                addWithClosure(states, node.greedyChild);
+            }
+        }
+    }
+
+    private static class Node {
+        private final boolean greedy;
+        private boolean terminal;
+        private Node greedyChild;
+        // Children for steps without wildcards, when matching case sensitively
+        private Map<String, Node> fixedChildren;
+        private List<PatternStep> steps;
+        private List<Node> stepChildren;
+        private Map<String, Node> stepChildrenBySource;
+
+        Node(boolean greedy) {
+            this.greedy = greedy;
+        }
+
+        Node greedyChild() {
+            if (greedyChild == null) {
+                greedyChild = new Node(true);
+            }
+            return greedyChild;
+        }
+
+        Node stepChild(String source, boolean caseSensitive) {
+            PatternStep step = PatternStepFactory.getStep(source, caseSensitive);
+            if (caseSensitive && step instanceof FixedPatternStep) {
+                if (fixedChildren == null) {
+                    fixedChildren = new HashMap<String, Node>();
+                }
+                Node child = fixedChildren.get(source);
+                if (child == null) {
+                    child = new Node(false);
+                    fixedChildren.put(source, child);
+                }
+                return child;
+            }
+            if (steps == null) {
+                steps = new ArrayList<PatternStep>();
+                stepChildren = new ArrayList<Node>();
+                stepChildrenBySource = new LinkedHashMap<String, Node>();
+            }
+            Node child = stepChildrenBySource.get(source);
+            if (child == null) {
+                child = new Node(false);
+                steps.add(step);
+                stepChildren.add(child);
+                stepChildrenBySource.put(source, child);
+            }
+            return child;
+        }
+    }
+}
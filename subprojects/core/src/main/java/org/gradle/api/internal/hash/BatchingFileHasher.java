@@ -0,0 +1,31 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.hash;
+
+import com.google.common.hash.HashCode;
+import org.gradle.api.file.FileTreeElement;
+
+import java.util.List;
+
+/**
+ * A {@link FileHasher} that can hash many files at once, for example by hashing them concurrently.
+ */
+public interface BatchingFileHasher extends FileHasher {
+    /**
+     * Returns the hashes of the current content of the given files, in the same order as the files. The provided files must exist and be files (rather than, say, directories).
+     */
+    List<HashCode> hashAll(List<? extends FileTreeElement> fileDetails);
+}
@@ -16,36 +16,84 @@
 package org.gradle.api.internal.hash;
 
 import com.google.common.base.Charsets;
-import com.google.common.hash.Funnels;
 import com.google.common.hash.HashCode;
-import com.google.common.hash.Hasher;
 import com.google.common.hash.Hashing;
-import com.google.common.io.Files;
 import org.gradle.api.UncheckedIOException;
 import org.gradle.api.file.FileTreeElement;
+import org.gradle.internal.os.OperatingSystem;
 import org.gradle.internal.resource.TextResource;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
+/**
+ * Hashes files using the given {@link FileHashFunction}, MD5 by default. File content is read through a {@link FileChannel} into a direct buffer. Large files are memory mapped instead,
+ * except on Windows where a mapped file cannot be deleted until the mapping is garbage collected.
+ */
 public class DefaultFileHasher implements FileHasher {
     private static final byte[] SIGNATURE = Hashing.md5().hashString(DefaultFileHasher.class.getName(), Charsets.UTF_8).asBytes();
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long MAPPED_THRESHOLD = 8 * 1024 * 1024;
+    private static final long MAPPED_REGION_SIZE = 64 * 1024 * 1024;
+    private static final boolean MAPPING_SUPPORTED = !OperatingSystem.current().isWindows();
+    private static final ThreadLocal<ByteBuffer> BUFFER = new ThreadLocal<ByteBuffer>() {
+        @Override
+        protected ByteBuffer initialValue() {
+            return ByteBuffer.allocateDirect(BUFFER_SIZE);
+        }
+    };
+
+    private final FileHashFunction hashFunction;
+
+    public DefaultFileHasher() {
+        this(FileHashFunction.MD5);
+    }
+
+    public DefaultFileHasher(FileHashFunction hashFunction) {
+        this.hashFunction = hashFunction;
+    }
+
+    public FileHashFunction getHashFunction() {
+        return hashFunction;
+    }
 
     @Override
     public HashCode hash(TextResource resource) {
-        Hasher hasher = createFileHasher();
-        hasher.putString(resource.getText(), Charsets.UTF_8);
-        return hasher.hash();
+        FileHashFunction.Digest digest = createFileDigest();
+        digest.update(resource.getText().getBytes(Charsets.UTF_8));
+        return digest.hash();
     }
 
     @Override
     public HashCode hash(File file) {
         try {
-            Hasher hasher = createFileHasher();
-            Files.copy(file, Funnels.asOutputStream(hasher));
-            return hasher.hash();
+            FileHashFunction.Digest digest = createFileDigest();
+            FileInputStream input = new FileInputStream(file);
+            try {
+                FileChannel channel = input.getChannel();
+                long size = channel.size();
+                if (MAPPING_SUPPORTED && size >= MAPPED_THRESHOLD) {
+                    for (long position = 0; position < size; position += MAPPED_REGION_SIZE) {
+                        digest.update(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAPPED_REGION_SIZE, size - position)));
+                    }
+                } else {
+                    ByteBuffer buffer = BUFFER.get();
+                    buffer.clear();
+                    while (channel.read(buffer) >= 0) {
+                        buffer.flip();
+                        digest.update(buffer);
+                        buffer.clear();
+                    }
+                }
+            } finally {
+                input.close();
+            }
+            return digest.hash();
         } catch (IOException e) {
-            throw new UncheckedIOException(String.format("Failed to create MD5 hash for file '%s'.", file), e);
+            throw new UncheckedIOException(String.format("Failed to create %s hash for file '%s'.", hashFunction, file), e);
         }
     }
 
@@ -54,9 +102,9 @@ public class DefaultFileHasher implements FileHasher {
         return hash(fileDetails.getFile());
     }
 
-    private static Hasher createFileHasher() {
-        Hasher hasher = Hashing.md5().newHasher();
-        hasher.putBytes(SIGNATURE);
-        return hasher;
+    private FileHashFunction.Digest createFileDigest() {
+        FileHashFunction.Digest digest = hashFunction.newDigest();
+        digest.update(SIGNATURE);
+        return digest;
     }
 }
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.hash;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.gradle.internal.UncheckedException;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * The hash functions that can be used to hash file content for local up-to-date checks. Each function has an id that is persisted alongside
+ * the hashes it produced, so that hashes produced by different functions are never compared with each other.
+ */
+public enum FileHashFunction {
+    /**
+     * MD5, the default.
+     */
+    MD5(1) {
+        @Override
+        public Digest newDigest() {
+            final MessageDigest digest;
+            try {
+                digest = MessageDigest.getInstance("MD5");
+            } catch (NoSuchAlgorithmException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+            return new Digest() {
+                @Override
+                public void update(byte[] bytes) {
+                    digest.update(bytes);
+                }
+
+                @Override
+                public void update(ByteBuffer buffer) {
+                    digest.update(buffer);
+                }
+
+                @Override
+                public HashCode hash() {
+                    return HashCode.fromBytes(digest.digest());
+                }
+            };
+        }
+    },
+
+    /**
+     * The 128-bit variant of MurmurHash3. Not cryptographic, but several times faster than MD5.
+     */
+    MURMUR3_128(2) {
+        @Override
+        public Digest newDigest() {
+            final Hasher hasher = Hashing.murmur3_128().newHasher();
+            return new Digest() {
+                private byte[] chunk;
+
+                @Override
+                public void update(byte[] bytes) {
+                    hasher.putBytes(bytes);
+                }
+
+                @Override
+                public void update(ByteBuffer buffer) {
+                    if (buffer.hasArray()) {
+                        hasher.putBytes(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+                        buffer.position(buffer.limit());
+                        return;
+                    }
+                    if (chunk == null) {
+                        chunk = new byte[CHUNK_SIZE];
+                    }
+                    while (buffer.hasRemaining()) {
+                        int length = Math.min(chunk.length, buffer.remaining());
+                        buffer.get(chunk, 0, length);
+                        hasher.putBytes(chunk, 0, length);
+                    }
+                }
+
+                @Override
+                public HashCode hash() {
+                    return hasher.hash();
+                }
+            };
+        }
+    };
+
+    /**
+     * The system property used to select the hash function for local up-to-date checks. It is ignored when the task output cache is enabled,
+     * as the file hashes are then also used to calculate the cache keys of tasks.
+     */
+    public static final String HASH_FUNCTION_PROPERTY = "org.gradle.internal.file-hash-function";
+
+    private static final int CHUNK_SIZE = 16 * 1024;
+
+    private final byte id;
+
+    FileHashFunction(int id) {
+        this.id = (byte) id;
+    }
+
+    /**
+     * Returns the id that is persisted alongside hashes produced by this function.
+     */
+    public byte getId() {
+        return id;
+    }
+
+    /**
+     * Creates a new digest to hash the content of a single file.
+     */
+    public abstract Digest newDigest();
+
+    /**
+     * Returns the function selected by the {@value #HASH_FUNCTION_PROPERTY} system property, or {@link #MD5} when not set.
+     */
+    public static FileHashFunction fromSystemProperties() {
+        String name = System.getProperty(HASH_FUNCTION_PROPERTY);
+        if (name == null) {
+            return MD5;
+        }
+        for (FileHashFunction function : values()) {
+            if (function.name().equalsIgnoreCase(name.trim())) {
+                return function;
+            }
+        }
+        throw new IllegalArgumentException(String.format("Unknown file hash function '%s' specified via '%s' system property.", name, HASH_FUNCTION_PROPERTY));
+    }
+
+    /**
+     * Incrementally hashes the content of a file.
+     */
+    public interface Digest {
+        void update(byte[] bytes);
+
+        void update(ByteBuffer buffer);
+
+        HashCode hash();
+    }
+}
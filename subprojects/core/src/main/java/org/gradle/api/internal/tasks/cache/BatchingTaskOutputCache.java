@@ -0,0 +1,34 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.cache;
+
+import java.util.Collection;
+
+/**
+ * Extension of the cache protocol for backends where looking up entries one at a time is expensive, e.g. because of network latency.
+ */
+public interface BatchingTaskOutputCache extends TaskOutputCache {
+    /**
+     * Looks up the given task cache keys in a batch, and starts fetching the entries that are found into a local staging area.
+     * A later call to {@link #load(TaskCacheKey, TaskOutputReader)} for one of the keys is served from the staging area, waiting for the fetch to complete if necessary.
+     *
+     * <p>This method should not block until the entries are fetched. Keys that are never loaded are discarded when the cache is closed.</p>
+     *
+     * @param keys the cache keys that are likely to be loaded later on.
+     */
+    void prefetch(Collection<? extends TaskCacheKey> keys);
+}
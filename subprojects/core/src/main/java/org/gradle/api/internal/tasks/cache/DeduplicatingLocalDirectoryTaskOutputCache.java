@@ -0,0 +1,565 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.cache;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.hash.Hashing;
+import com.google.common.hash.HashingOutputStream;
+import com.google.common.io.ByteStreams;
+import org.apache.tools.tar.TarEntry;
+import org.apache.tools.tar.TarInputStream;
+import org.apache.tools.tar.TarOutputStream;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.cache.internal.FileLock;
+import org.gradle.cache.internal.FileLockManager;
+import org.gradle.cache.internal.LockTimeoutException;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.Encoder;
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.gradle.cache.internal.filelock.LockOptionsBuilder.mode;
+
+/**
+ * A local directory cache that stores the content of each file in the packed task output once, keyed by the hash of the content, and a manifest
+ * describing the entries of the packed output per cache key. The packed output is expected to be a GZIP compressed TAR stream, as produced by
+ * {@link GZipTaskOutputPacker}.
+ *
+ * <p>Manifests are touched when they are loaded. Once the cache grows beyond its maximum size, the least recently used manifests are removed
+ * along with any content they no longer share with other manifests. Loads and stores hold a shared lock on the cache directory, and cleanup
+ * is performed while holding an exclusive lock, so that content is not removed while another process is using it.</p>
+ *
+ * <p>Loaded entries are packed on demand from the manifest and content files as the reader consumes them.</p>
+ */
+public class DeduplicatingLocalDirectoryTaskOutputCache implements TaskOutputCache {
+    public static final String DEDUPLICATING_CACHE_PROPERTY = "org.gradle.cache.tasks.deduplicating";
+    public static final String MAX_SIZE_PROPERTY = "org.gradle.cache.tasks.max-size-mb";
+    public static final long DEFAULT_MAX_SIZE_MB = 5 * 1024;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DeduplicatingLocalDirectoryTaskOutputCache.class);
+    private static final int MANIFEST_VERSION = 1;
+    private static final long UNREFERENCED_CONTENT_RETENTION = TimeUnit.HOURS.toMillis(1);
+    private static final double CLEANUP_TARGET_RATIO = 0.8;
+
+    private final File directory;
+    private final File manifestsDir;
+    private final File contentDir;
+    private final File tmpDir;
+    private final long maxSize;
+    private final FileLockManager lockManager;
+    private final AtomicBoolean cleanupChecked = new AtomicBoolean();
+    private final ReadWriteLock accessLock = new ReentrantReadWriteLock();
+    private final Object sharedLockMonitor = new Object();
+    private int activeOperations;
+    private FileLock sharedLock;
+
+    public DeduplicatingLocalDirectoryTaskOutputCache(File directory, long maxSize, FileLockManager lockManager) {
+        LocalDirectoryTaskOutputCache.checkDirectory(directory);
+        this.directory = directory;
+        this.manifestsDir = new File(directory, "manifests");
+        this.contentDir = new File(directory, "content");
+        this.tmpDir = new File(directory, "tmp");
+        this.maxSize = maxSize;
+        this.lockManager = lockManager;
+        for (File dir : Arrays.asList(manifestsDir, contentDir, tmpDir)) {
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                throw new UncheckedIOException(String.format("Could not create cache directory: %s", dir));
+            }
+        }
+    }
+
+    @Override
+    public boolean load(TaskCacheKey key, TaskOutputReader reader) throws IOException {
+        acquireSharedAccess("load");
+        try {
+            File manifestFile = new File(manifestsDir, key.getHashCode());
+            if (!manifestFile.isFile()) {
+                return false;
+            }
+            List<ManifestEntry> entries = readManifest(manifestFile);
+            for (ManifestEntry entry : entries) {
+                if (entry.contentHash != null && !contentFile(entry.contentHash).isFile()) {
+                    LOGGER.info("Content {} for cache key {} is missing from {}", entry.contentHash, key.getHashCode(), getDescription());
+                    return false;
+                }
+            }
+            manifestFile.setLastModified(System.currentTimeMillis());
+
+            InputStream input = new PackedOutputInputStream(entries);
+            try {
+                reader.readFrom(input);
+            } finally {
+                input.close();
+            }
+            return true;
+        } finally {
+            releaseSharedAccess();
+        }
+    }
+
+    @Override
+    public void store(TaskCacheKey key, TaskOutputWriter writer) throws IOException {
+        acquireSharedAccess("store");
+        try {
+            File packed = File.createTempFile("entry", ".tgz", tmpDir);
+            try {
+                OutputStream output = new FileOutputStream(packed);
+                try {
+                    writer.writeTo(output);
+                } finally {
+                    output.close();
+                }
+                List<ManifestEntry> entries = storeContent(packed);
+                writeManifest(key.getHashCode(), entries);
+            } finally {
+                packed.delete();
+            }
+        } finally {
+            releaseSharedAccess();
+        }
+        if (cleanupChecked.compareAndSet(false, true)) {
+            cleanupIfRequired();
+        }
+    }
+
+    @Override
+    public String getDescription() {
+        return "deduplicating local directory cache in " + directory;
+    }
+
+    private File contentFile(String hash) {
+        return new File(new File(contentDir, hash.substring(0, 2)), hash);
+    }
+
+    private List<ManifestEntry> storeContent(File packed) throws IOException {
+        List<ManifestEntry> entries = Lists.newArrayList();
+        InputStream input = new BufferedInputStream(new FileInputStream(packed));
+        try {
+            TarInputStream tarInput = new TarInputStream(new GZIPInputStream(input));
+            TarEntry entry;
+            while ((entry = tarInput.getNextEntry()) != null) {
+                String contentHash = entry.isDirectory() ? null : storeContentFile(tarInput);
+                entries.add(new ManifestEntry(entry.getName(), entry.getMode(), entry.getModTime().getTime(), entry.getLongGroupId(), entry.getSize(), contentHash));
+            }
+        } finally {
+            input.close();
+        }
+        return entries;
+    }
+
+    private String storeContentFile(InputStream input) throws IOException {
+        File tmpFile = File.createTempFile("content", ".bin", tmpDir);
+        try {
+            HashingOutputStream output = new HashingOutputStream(Hashing.sha1(), new BufferedOutputStream(new FileOutputStream(tmpFile)));
+            try {
+                ByteStreams.copy(input, output);
+            } finally {
+                output.close();
+            }
+            String hash = output.hash().toString();
+            File contentFile = contentFile(hash);
+            if (contentFile.isFile()) {
+                // Already stored, mark it as recently used so that cleanup does not remove it before the manifest is written
+                contentFile.setLastModified(System.currentTimeMillis());
+            } else {
+                contentFile.getParentFile().mkdirs();
+                if (!tmpFile.renameTo(contentFile) && !contentFile.isFile()) {
+                    throw new IOException(String.format("Could not move content to %s", contentFile));
+                }
+            }
+            return hash;
+        } finally {
+            tmpFile.delete();
+        }
+    }
+
+    private void writeManifest(String key, List<ManifestEntry> entries) throws IOException {
+        File tmpFile = File.createTempFile("manifest", ".bin", tmpDir);
+        try {
+            OutputStream output = new FileOutputStream(tmpFile);
+            try {
+                KryoBackedEncoder encoder = new KryoBackedEncoder(output);
+                encoder.writeSmallInt(MANIFEST_VERSION);
+                encoder.writeSmallInt(entries.size());
+                for (ManifestEntry entry : entries) {
+                    entry.write(encoder);
+                }
+                encoder.flush();
+            } finally {
+                output.close();
+            }
+            File manifestFile = new File(manifestsDir, key);
+            if (!tmpFile.renameTo(manifestFile)) {
+                manifestFile.delete();
+                if (!tmpFile.renameTo(manifestFile)) {
+                    throw new IOException(String.format("Could not move manifest to %s", manifestFile));
+                }
+            }
+        } finally {
+            tmpFile.delete();
+        }
+    }
+
+    private static List<ManifestEntry> readManifest(File manifestFile) throws IOException {
+        InputStream input = new BufferedInputStream(new FileInputStream(manifestFile));
+        try {
+            KryoBackedDecoder decoder = new KryoBackedDecoder(input);
+            int version = decoder.readSmallInt();
+            if (version != MANIFEST_VERSION) {
+                throw new IOException(String.format("Unsupported manifest version %d in %s", version, manifestFile));
+            }
+            int count = decoder.readSmallInt();
+            List<ManifestEntry> entries = Lists.newArrayListWithCapacity(count);
+            for (int i = 0; i < count; i++) {
+                entries.add(ManifestEntry.read(decoder));
+            }
+            return entries;
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(String.format("Could not read manifest %s", manifestFile), e);
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Holds a shared lock on the cache directory while any load or store is in progress in this process, so that cleanup in another process
+     * does not remove content that is being read or written. The file lock manager allows a single lock per process, so the lock is shared by
+     * all in-progress operations and released by the last one.
+     */
+    private void acquireSharedAccess(String operationDisplayName) {
+        accessLock.readLock().lock();
+        try {
+            synchronized (sharedLockMonitor) {
+                if (activeOperations == 0) {
+                    sharedLock = lockManager.lock(directory, mode(FileLockManager.LockMode.Shared), getDescription(), operationDisplayName);
+                }
+                activeOperations++;
+            }
+        } catch (RuntimeException e) {
+            accessLock.readLock().unlock();
+            throw e;
+        }
+    }
+
+    private void releaseSharedAccess() {
+        try {
+            synchronized (sharedLockMonitor) {
+                activeOperations--;
+                if (activeOperations == 0) {
+                    sharedLock.close();
+                    sharedLock = null;
+                }
+            }
+        } finally {
+            accessLock.readLock().unlock();
+        }
+    }
+
+    private void cleanupIfRequired() {
+        long currentSize = sizeOf(manifestsDir) + sizeOf(contentDir);
+        if (currentSize <= maxSize) {
+            return;
+        }
+        // Wait for the loads and stores of this process to finish, so that the shared lock has been released
+        accessLock.writeLock().lock();
+        try {
+            FileLock lock = lockManager.lock(directory, mode(FileLockManager.LockMode.Exclusive), getDescription(), "cleanup");
+            try {
+                cleanup();
+            } finally {
+                lock.close();
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Could not clean up {}", getDescription(), e);
+        } catch (LockTimeoutException e) {
+            LOGGER.warn("Could not clean up {}", getDescription(), e);
+        } finally {
+            accessLock.writeLock().unlock();
+        }
+    }
+
+    private void cleanup() throws IOException {
+        Map<String, Integer> references = Maps.newHashMap();
+        Map<File, List<ManifestEntry>> manifests = Maps.newHashMap();
+        long liveSize = 0;
+        File[] manifestFiles = manifestsDir.listFiles();
+        if (manifestFiles == null) {
+            return;
+        }
+        for (File manifestFile : manifestFiles) {
+            List<ManifestEntry> entries;
+            try {
+                entries = readManifest(manifestFile);
+            } catch (IOException e) {
+                LOGGER.info("Removing unreadable manifest {}", manifestFile, e);
+                manifestFile.delete();
+                continue;
+            }
+            manifests.put(manifestFile, entries);
+            liveSize += manifestFile.length();
+            for (ManifestEntry entry : entries) {
+                if (entry.contentHash != null && addReference(references, entry.contentHash)) {
+                    liveSize += entry.size;
+                }
+            }
+        }
+
+        // Remove least recently used manifests until the remaining entries fit
+        List<File> leastRecentlyUsedFirst = Lists.newArrayList(manifests.keySet());
+        Collections.sort(leastRecentlyUsedFirst, new Comparator<File>() {
+            @Override
+            public int compare(File left, File right) {
+                long leftModified = left.lastModified();
+                long rightModified = right.lastModified();
+                return leftModified < rightModified ? -1 : leftModified == rightModified ? 0 : 1;
+            }
+        });
+        long targetSize = (long) (maxSize * CLEANUP_TARGET_RATIO);
+        for (File manifestFile : leastRecentlyUsedFirst) {
+            if (liveSize <= targetSize) {
+                break;
+            }
+            liveSize -= manifestFile.length();
+            manifestFile.delete();
+            for (ManifestEntry entry : manifests.get(manifestFile)) {
+                if (entry.contentHash != null && removeReference(references, entry.contentHash)) {
+                    liveSize -= entry.size;
+                }
+            }
+        }
+
+        // Remove content that is no longer referenced. Recently written content may belong to a manifest that is being stored by another build.
+        long cutoff = System.currentTimeMillis() - UNREFERENCED_CONTENT_RETENTION;
+        File[] contentDirs = contentDir.listFiles();
+        if (contentDirs != null) {
+            for (File dir : contentDirs) {
+                File[] contentFiles = dir.listFiles();
+                if (contentFiles == null) {
+                    continue;
+                }
+                for (File contentFile : contentFiles) {
+                    if (!references.containsKey(contentFile.getName()) && contentFile.lastModified() < cutoff) {
+                        contentFile.delete();
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean addReference(Map<String, Integer> references, String hash) {
+        Integer count = references.get(hash);
+        references.put(hash, count == null ? 1 : count + 1);
+        return count == null;
+    }
+
+    private static boolean removeReference(Map<String, Integer> references, String hash) {
+        Integer count = references.get(hash);
+        if (count == null) {
+            return false;
+        }
+        if (count == 1) {
+            references.remove(hash);
+            return true;
+        }
+        references.put(hash, count - 1);
+        return false;
+    }
+
+    private static long sizeOf(File dir) {
+        long size = 0;
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                size += file.isDirectory() ? sizeOf(file) : file.length();
+            }
+        }
+        return size;
+    }
+
+    private static class ManifestEntry {
+        private final String name;
+        private final int mode;
+        private final long modificationTime;
+        private final long groupId;
+        private final long size;
+        private final String contentHash;
+
+        ManifestEntry(String name, int mode, long modificationTime, long groupId, long size, String contentHash) {
+            this.name = name;
+            this.mode = mode;
+            this.modificationTime = modificationTime;
+            this.groupId = groupId;
+            this.size = size;
+            this.contentHash = contentHash;
+        }
+
+        void write(Encoder encoder) throws IOException {
+            encoder.writeString(name);
+            encoder.writeSmallInt(mode);
+            encoder.writeLong(modificationTime);
+            encoder.writeLong(groupId);
+            encoder.writeSmallLong(size);
+            encoder.writeNullableString(contentHash);
+        }
+
+        static ManifestEntry read(Decoder decoder) throws IOException {
+            String name = decoder.readString();
+            int mode = decoder.readSmallInt();
+            long modificationTime = decoder.readLong();
+            long groupId = decoder.readLong();
+            long size = decoder.readSmallLong();
+            String contentHash = decoder.readNullableString();
+            return new ManifestEntry(name, mode, modificationTime, groupId, size, contentHash);
+        }
+    }
+
+    /**
+     * Produces the packed output for a manifest on demand, reading the content of each entry as the reader consumes the stream.
+     */
+    private class PackedOutputInputStream extends InputStream {
+        private final Iterator<ManifestEntry> entries;
+        private final ExposedByteArrayOutputStream buffer = new ExposedByteArrayOutputStream();
+        private final TarOutputStream tarOutput;
+        private final byte[] copyBuffer = new byte[8192];
+        private InputStream content;
+        private int position;
+        private boolean finished;
+
+        PackedOutputInputStream(List<ManifestEntry> entries) throws IOException {
+            this.entries = entries.iterator();
+            // The packed output is only used locally, so we don't spend time compressing it
+            this.tarOutput = new TarOutputStream(new UncompressedGZIPOutputStream(buffer), "utf-8");
+            tarOutput.setLongFileMode(TarOutputStream.LONGFILE_POSIX);
+            tarOutput.setBigNumberMode(TarOutputStream.BIGNUMBER_POSIX);
+            tarOutput.setAddPaxHeadersForNonAsciiNames(true);
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!fill()) {
+                return -1;
+            }
+            return buffer.getBuffer()[position++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.size() - position);
+            System.arraycopy(buffer.getBuffer(), position, bytes, offset, count);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (content != null) {
+                content.close();
+                content = null;
+            }
+        }
+
+        private boolean fill() throws IOException {
+            while (position == buffer.size()) {
+                if (finished) {
+                    return false;
+                }
+                buffer.reset();
+                position = 0;
+                writeNext();
+            }
+            return true;
+        }
+
+        private void writeNext() throws IOException {
+            if (content != null) {
+                int count = content.read(copyBuffer);
+                if (count < 0) {
+                    content.close();
+                    content = null;
+                    tarOutput.closeEntry();
+                } else {
+                    tarOutput.write(copyBuffer, 0, count);
+                }
+            } else if (entries.hasNext()) {
+                ManifestEntry entry = entries.next();
+                TarEntry tarEntry = new TarEntry(entry.name);
+                tarEntry.setModTime(entry.modificationTime);
+                tarEntry.setGroupId(entry.groupId);
+                tarEntry.setMode(entry.mode);
+                if (entry.contentHash != null) {
+                    tarEntry.setSize(entry.size);
+                }
+                tarOutput.putNextEntry(tarEntry);
+                if (entry.contentHash != null) {
+                    content = new FileInputStream(contentFile(entry.contentHash));
+                } else {
+                    tarOutput.closeEntry();
+                }
+            } else {
+                tarOutput.close();
+                finished = true;
+            }
+        }
+    }
+
+    private static class ExposedByteArrayOutputStream extends ByteArrayOutputStream {
+        byte[] getBuffer() {
+            return buf;
+        }
+    }
+
+    private static class UncompressedGZIPOutputStream extends GZIPOutputStream {
+        UncompressedGZIPOutputStream(OutputStream output) throws IOException {
+            super(output);
+            def.setLevel(Deflater.NO_COMPRESSION);
+        }
+    }
+}
@@ -28,6 +28,11 @@ public class LocalDirectoryTaskOutputCache implements TaskOutputCache {
     private final File directory;
 
     public LocalDirectoryTaskOutputCache(File directory) {
+        checkDirectory(directory);
+        this.directory = directory;
+    }
+
+    static void checkDirectory(File directory) {
         if (directory.exists()) {
             if (!directory.isDirectory()) {
                 throw new IllegalArgumentException(String.format("Cache directory %s must be a directory", directory));
@@ -43,7 +48,6 @@ public class LocalDirectoryTaskOutputCache implements TaskOutputCache {
                 throw new UncheckedIOException(String.format("Could not create cache directory: %s", directory));
             }
         }
-        this.directory = directory;
     }
 
     @Override
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.cache;
+
+import org.gradle.internal.UncheckedException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses blocks of the written data concurrently into raw deflate data, and writes them to the target stream in order as a single GZIP member.
+ *
+ * <p>Every block but the last one ends with a sync flush, so the compressed blocks can simply be concatenated. A single member is written because
+ * {@link java.util.zip.GZIPInputStream} relies on {@link java.io.InputStream#available()} to detect further members on some JDKs, and could
+ * stop reading early from a stream that does not report the available bytes.</p>
+ */
+class ParallelGZipOutputStream extends OutputStream {
+    static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+
+    private static final int GZIP_MAGIC = 0x8b1f;
+    private static final byte[] HEADER = new byte[]{
+        (byte) GZIP_MAGIC, (byte) (GZIP_MAGIC >> 8), Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0
+    };
+
+    private final OutputStream target;
+    private final ExecutorService executor;
+    private final int blockSize;
+    private final int maxPendingBlocks;
+    private final Deque<Future<byte[]>> pendingBlocks = new ArrayDeque<Future<byte[]>>();
+    private final CRC32 crc = new CRC32();
+    private long uncompressedSize;
+    private byte[] buffer;
+    private int count;
+    private boolean headerWritten;
+    private boolean closed;
+
+    ParallelGZipOutputStream(OutputStream target, ExecutorService executor, int blockSize, int maxPendingBlocks) {
+        this.target = target;
+        this.executor = executor;
+        this.blockSize = blockSize;
+        this.maxPendingBlocks = maxPendingBlocks;
+        this.buffer = new byte[blockSize];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (count == blockSize) {
+            submitBlock(false);
+        }
+        buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (count == blockSize) {
+                submitBlock(false);
+            }
+            int chunk = Math.min(length, blockSize - count);
+            System.arraycopy(bytes, offset, buffer, count, chunk);
+            count += chunk;
+            offset += chunk;
+            length -= chunk;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        // Only complete blocks are compressed, so that the block boundaries do not depend on how the stream is flushed
+        target.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            submitBlock(true);
+            while (!pendingBlocks.isEmpty()) {
+                writeNextBlock();
+            }
+            writeTrailer();
+            target.flush();
+        } finally {
+            cancelPendingBlocks();
+            target.close();
+        }
+    }
+
+    private void submitBlock(final boolean last) throws IOException {
+        final byte[] block = buffer;
+        final int length = count;
+        crc.update(block, 0, length);
+        uncompressedSize += length;
+        pendingBlocks.addLast(executor.submit(new Callable<byte[]>() {
+            @Override
+            public byte[] call() throws Exception {
+                return deflate(block, length, last);
+            }
+        }));
+        buffer = last ? null : new byte[blockSize];
+        count = 0;
+        while (pendingBlocks.size() > maxPendingBlocks) {
+            writeNextBlock();
+        }
+    }
+
+    private static byte[] deflate(byte[] block, int length, boolean last) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(length / 2 + 64);
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setInput(block, 0, length);
+            byte[] chunk = new byte[8192];
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    compressed.write(chunk, 0, deflater.deflate(chunk));
+                }
+            } else {
+                // Deflate until the output buffer is not filled up completely, which means all input has been flushed
+                int chunkLength;
+                do {
+                    chunkLength = deflater.deflate(chunk, 0, chunk.length, Deflater.SYNC_FLUSH);
+                    compressed.write(chunk, 0, chunkLength);
+                } while (chunkLength == chunk.length);
+            }
+        } finally {
+            deflater.end();
+        }
+        return compressed.toByteArray();
+    }
+
+    private void writeNextBlock() throws IOException {
+        Future<byte[]> next = pendingBlocks.removeFirst();
+        try {
+            byte[] compressed = next.get();
+            if (!headerWritten) {
+                target.write(HEADER);
+                headerWritten = true;
+            }
+            target.write(compressed);
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException("Interrupted while compressing task output");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw UncheckedException.throwAsUncheckedException(cause);
+        }
+    }
+
+    private void writeTrailer() throws IOException {
+        writeInt((int) crc.getValue());
+        writeInt((int) uncompressedSize);
+    }
+
+    private void writeInt(int value) throws IOException {
+        target.write(value & 0xff);
+        target.write((value >> 8) & 0xff);
+        target.write((value >> 16) & 0xff);
+        target.write((value >> 24) & 0xff);
+    }
+
+    private void cancelPendingBlocks() {
+        for (Future<byte[]> pendingBlock : pendingBlocks) {
+            pendingBlock.cancel(false);
+        }
+        pendingBlocks.clear();
+    }
+}
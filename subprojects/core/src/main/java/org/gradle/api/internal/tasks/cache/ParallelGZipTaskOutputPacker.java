@@ -0,0 +1,63 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.cache;
+
+import org.gradle.api.internal.TaskOutputsInternal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Adds compression and CRC32 checks to the packed task output, compressing blocks of the output concurrently.
+ * The packed output is a regular GZIP stream, which can be unpacked by {@link GZipTaskOutputPacker} as well.
+ */
+public class ParallelGZipTaskOutputPacker implements TaskOutputPacker {
+    public static final String PARALLEL_PACKING_PROPERTY = "org.gradle.cache.tasks.parallel-packing";
+
+    private final TarTaskOutputPacker delegate;
+    private final ExecutorService executor;
+    private final int maxThreads;
+
+    public ParallelGZipTaskOutputPacker(TarTaskOutputPacker delegate, ExecutorService executor, int maxThreads) {
+        this.delegate = delegate;
+        this.executor = executor;
+        this.maxThreads = maxThreads;
+    }
+
+    @Override
+    public void pack(TaskOutputsInternal taskOutputs, OutputStream output) throws IOException {
+        ParallelGZipOutputStream gzipOutput = new ParallelGZipOutputStream(output, executor, ParallelGZipOutputStream.DEFAULT_BLOCK_SIZE, maxThreads * 2);
+        try {
+            delegate.pack(taskOutputs, gzipOutput);
+        } finally {
+            gzipOutput.close();
+        }
+    }
+
+    @Override
+    public void unpack(TaskOutputsInternal taskOutputs, InputStream input) throws IOException {
+        GZIPInputStream gzipInput = new GZIPInputStream(input);
+        try {
+            delegate.unpack(taskOutputs, gzipInput);
+        } finally {
+            gzipInput.close();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.cache;
+
+import org.gradle.StartParameter;
+import org.gradle.api.internal.file.TemporaryFileProvider;
+import org.gradle.internal.concurrent.ExecutorFactory;
+
+/**
+ * A factory for caches that do work in the background or stage entries in temporary files, and so need services of the build.
+ */
+public interface ServiceAwareTaskOutputCacheFactory extends TaskOutputCacheFactory {
+    /**
+     * Creates the cache for a build. The cache is closed when the build finishes, and should stop the executors it has created by then.
+     *
+     * @param executorFactory used to create the executors of the cache.
+     * @param temporaryFileProvider used to allocate the temporary files of the cache, which should be deleted once they are no longer used.
+     */
+    TaskOutputCache createCache(StartParameter startParameter, ExecutorFactory executorFactory, TemporaryFileProvider temporaryFileProvider);
+}
@@ -20,6 +20,7 @@ import com.google.common.base.Function;
 import com.google.common.base.Strings;
 import com.google.common.base.Throwables;
 import com.google.common.collect.Maps;
+import com.google.common.io.ByteStreams;
 import com.google.common.io.Closer;
 import com.google.common.io.Files;
 import org.apache.commons.io.FileUtils;
@@ -29,6 +30,7 @@ import org.apache.tools.tar.TarOutputStream;
 import org.apache.tools.zip.UnixStat;
 import org.gradle.api.GradleException;
 import org.gradle.api.JavaVersion;
+import org.gradle.api.Nullable;
 import org.gradle.api.file.FileVisitDetails;
 import org.gradle.api.file.FileVisitor;
 import org.gradle.api.file.RelativePath;
@@ -46,8 +48,11 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -59,13 +64,24 @@ import java.util.regex.Pattern;
 public class TarTaskOutputPacker implements TaskOutputPacker {
     private static final Pattern PROPERTY_PATH = Pattern.compile("property-([^/]+)(?:/(.*))?");
     private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final int MAX_CONCURRENTLY_WRITTEN_FILE_SIZE = 1024 * 1024;
+    private static final int MAX_CONCURRENTLY_WRITTEN_BYTES = 32 * 1024 * 1024;
 
     private final DefaultDirectoryWalkerFactory directoryWalkerFactory;
     private final FileSystem fileSystem;
+    private final Executor unpackExecutor;
 
     public TarTaskOutputPacker(FileSystem fileSystem) {
+        this(fileSystem, null);
+    }
+
+    /**
+     * Creates a packer that writes small files concurrently when unpacking, using the given executor.
+     */
+    public TarTaskOutputPacker(FileSystem fileSystem, @Nullable Executor unpackExecutor) {
         this.directoryWalkerFactory = new DefaultDirectoryWalkerFactory(JavaVersion.current(), fileSystem);
         this.fileSystem = fileSystem;
+        this.unpackExecutor = unpackExecutor;
     }
 
     @Override
@@ -183,7 +199,17 @@ public class TarTaskOutputPacker implements TaskOutputPacker {
         Closer closer = Closer.create();
         TarInputStream tarInput = new TarInputStream(input);
         try {
-            unpack(taskOutputs, tarInput);
+            if (unpackExecutor == null) {
+                unpack(taskOutputs, tarInput, null);
+            } else {
+                PendingWrites pendingWrites = new PendingWrites();
+                try {
+                    unpack(taskOutputs, tarInput, pendingWrites);
+                } finally {
+                    pendingWrites.await();
+                }
+                pendingWrites.rethrowFailure();
+            }
         } catch (Throwable ex) {
             throw closer.rethrow(ex);
         } finally {
@@ -191,7 +217,7 @@ public class TarTaskOutputPacker implements TaskOutputPacker {
         }
     }
 
-    private void unpack(TaskOutputsInternal taskOutputs, TarInputStream tarInput) throws IOException {
+    private void unpack(TaskOutputsInternal taskOutputs, TarInputStream tarInput, @Nullable PendingWrites pendingWrites) throws IOException {
         Map<String, TaskOutputFilePropertySpec> propertySpecs = Maps.uniqueIndex(taskOutputs.getFileProperties(), new Function<TaskFilePropertySpec, String>() {
             @Override
             public String apply(TaskFilePropertySpec propertySpec) {
@@ -224,14 +250,86 @@ public class TarTaskOutputPacker implements TaskOutputPacker {
                     throw new IllegalStateException("Property should be an output directory property: " + propertyName);
                 }
                 FileUtils.forceMkdir(outputFile);
+            } else if (pendingWrites != null && entry.getSize() <= MAX_CONCURRENTLY_WRITTEN_FILE_SIZE) {
+                pendingWrites.rethrowFailure();
+                writeFileConcurrently(outputFile, entry, tarInput, pendingWrites);
+                continue;
             } else {
                 Files.asByteSink(outputFile).writeFrom(tarInput);
             }
-            //noinspection OctalInteger
-            fileSystem.chmod(outputFile, entry.getMode() & 0777);
-            long lastModified = getModificationTime(entry);
-            if (!outputFile.setLastModified(lastModified)) {
-                throw new IOException(String.format("Could not set modification time for '%s'", outputFile));
+            restoreMetadata(outputFile, entry);
+        }
+    }
+
+    private void writeFileConcurrently(final File outputFile, final TarEntry entry, TarInputStream tarInput, final PendingWrites pendingWrites) throws IOException {
+        final int size = (int) entry.getSize();
+        final byte[] content = pendingWrites.buffer(tarInput, size);
+        try {
+            unpackExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        Files.write(content, outputFile);
+                        restoreMetadata(outputFile, entry);
+                    } catch (Throwable e) {
+                        pendingWrites.failed(e);
+                    } finally {
+                        pendingWrites.written(size);
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            pendingWrites.written(size);
+            throw e;
+        }
+    }
+
+    private void restoreMetadata(File outputFile, TarEntry entry) throws IOException {
+        //noinspection OctalInteger
+        fileSystem.chmod(outputFile, entry.getMode() & 0777);
+        long lastModified = getModificationTime(entry);
+        if (!outputFile.setLastModified(lastModified)) {
+            throw new IOException(String.format("Could not set modification time for '%s'", outputFile));
+        }
+    }
+
+    /**
+     * Tracks the files of a single unpack operation that are being written by the shared executor. At most
+     * {@value #MAX_CONCURRENTLY_WRITTEN_BYTES} bytes of content are buffered at a time, so waiting for all of the
+     * buffer to become available waits for all pending writes to finish.
+     */
+    private static class PendingWrites {
+        private final Semaphore bufferedBytes = new Semaphore(MAX_CONCURRENTLY_WRITTEN_BYTES);
+        private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+        byte[] buffer(InputStream input, int size) throws IOException {
+            bufferedBytes.acquireUninterruptibly(size);
+            try {
+                return ByteStreams.toByteArray(input);
+            } catch (IOException e) {
+                bufferedBytes.release(size);
+                throw e;
+            }
+        }
+
+        void written(int size) {
+            bufferedBytes.release(size);
+        }
+
+        void failed(Throwable e) {
+            failure.compareAndSet(null, e);
+        }
+
+        void await() {
+            bufferedBytes.acquireUninterruptibly(MAX_CONCURRENTLY_WRITTEN_BYTES);
+            bufferedBytes.release(MAX_CONCURRENTLY_WRITTEN_BYTES);
+        }
+
+        void rethrowFailure() throws IOException {
+            Throwable e = failure.get();
+            if (e != null) {
+                Throwables.propagateIfInstanceOf(e, IOException.class);
+                throw Throwables.propagate(e);
             }
         }
     }
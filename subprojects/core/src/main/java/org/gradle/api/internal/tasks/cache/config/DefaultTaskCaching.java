@@ -17,35 +17,47 @@
 package org.gradle.api.internal.tasks.cache.config;
 
 import org.gradle.StartParameter;
+import org.gradle.api.internal.tasks.cache.DeduplicatingLocalDirectoryTaskOutputCache;
 import org.gradle.api.internal.tasks.cache.LocalDirectoryTaskOutputCache;
 import org.gradle.api.internal.tasks.cache.TaskOutputCache;
 import org.gradle.api.internal.tasks.cache.TaskOutputCacheFactory;
+import org.gradle.cache.internal.FileLockManager;
 
 import java.io.File;
 
 public class DefaultTaskCaching implements TaskCachingInternal {
-    private static final TaskOutputCacheFactory DEFAULT_LOCAL_TASK_CACHE_FACTORY = new TaskOutputCacheFactory() {
+    private final TaskOutputCacheFactory defaultLocalTaskCacheFactory = new TaskOutputCacheFactory() {
         @Override
         public TaskOutputCache createCache(StartParameter startParameter) {
             String cacheDirectoryPath = System.getProperty("org.gradle.cache.tasks.directory");
             File cacheDirectory = cacheDirectoryPath != null
                 ? new File(cacheDirectoryPath)
                 : new File(startParameter.getGradleUserHomeDir(), "task-cache");
-            return new LocalDirectoryTaskOutputCache(cacheDirectory);
+            return createLocalCache(cacheDirectory);
         }
     };
+    private final FileLockManager fileLockManager;
     private final boolean pullAllowed;
     private final boolean pushAllowed;
-    private TaskOutputCacheFactory factory = DEFAULT_LOCAL_TASK_CACHE_FACTORY;
+    private TaskOutputCacheFactory factory = defaultLocalTaskCacheFactory;
 
-    public DefaultTaskCaching() {
+    public DefaultTaskCaching(FileLockManager fileLockManager) {
+        this.fileLockManager = fileLockManager;
         this.pullAllowed = "true".equalsIgnoreCase(System.getProperty("org.gradle.cache.tasks.pull", "true").trim());
         this.pushAllowed = "true".equalsIgnoreCase(System.getProperty("org.gradle.cache.tasks.push", "true").trim());
     }
 
+    private TaskOutputCache createLocalCache(File cacheDirectory) {
+        if (Boolean.getBoolean(DeduplicatingLocalDirectoryTaskOutputCache.DEDUPLICATING_CACHE_PROPERTY)) {
+            long maxSizeMb = Long.getLong(DeduplicatingLocalDirectoryTaskOutputCache.MAX_SIZE_PROPERTY, DeduplicatingLocalDirectoryTaskOutputCache.DEFAULT_MAX_SIZE_MB);
+            return new DeduplicatingLocalDirectoryTaskOutputCache(cacheDirectory, maxSizeMb * 1024 * 1024, fileLockManager);
+        }
+        return new LocalDirectoryTaskOutputCache(cacheDirectory);
+    }
+
     @Override
     public void useLocalCache() {
-        this.factory = DEFAULT_LOCAL_TASK_CACHE_FACTORY;
+        this.factory = defaultLocalTaskCacheFactory;
     }
 
     @Override
@@ -53,7 +65,7 @@ public class DefaultTaskCaching implements TaskCachingInternal {
         this.factory = new TaskOutputCacheFactory() {
             @Override
             public TaskOutputCache createCache(StartParameter startParameter) {
-                return new LocalDirectoryTaskOutputCache(directory);
+                return createLocalCache(directory);
             }
         };
     }
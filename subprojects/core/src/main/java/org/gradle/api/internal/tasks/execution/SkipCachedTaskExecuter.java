@@ -16,21 +16,33 @@
 
 package org.gradle.api.internal.tasks.execution;
 
+import com.google.common.collect.Lists;
 import org.gradle.StartParameter;
 import org.gradle.api.GradleException;
+import org.gradle.api.Task;
+import org.gradle.api.execution.TaskExecutionGraph;
 import org.gradle.api.internal.TaskInternal;
 import org.gradle.api.internal.TaskOutputsInternal;
 import org.gradle.api.internal.changedetection.TaskArtifactState;
+import org.gradle.api.internal.changedetection.changes.PreparedTaskArtifactStateRepository;
+import org.gradle.api.internal.file.TemporaryFileProvider;
 import org.gradle.api.internal.tasks.TaskExecuter;
 import org.gradle.api.internal.tasks.TaskExecutionContext;
 import org.gradle.api.internal.tasks.TaskExecutionOutcome;
 import org.gradle.api.internal.tasks.TaskStateInternal;
+import org.gradle.api.internal.tasks.cache.BatchingTaskOutputCache;
+import org.gradle.api.internal.tasks.cache.ServiceAwareTaskOutputCacheFactory;
 import org.gradle.api.internal.tasks.cache.TaskCacheKey;
 import org.gradle.api.internal.tasks.cache.TaskOutputCache;
+import org.gradle.api.internal.tasks.cache.TaskOutputCacheFactory;
 import org.gradle.api.internal.tasks.cache.TaskOutputPacker;
 import org.gradle.api.internal.tasks.cache.TaskOutputReader;
 import org.gradle.api.internal.tasks.cache.TaskOutputWriter;
 import org.gradle.api.internal.tasks.cache.config.TaskCachingInternal;
+import org.gradle.execution.taskgraph.TaskGraphExecutionListener;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.Stoppable;
 import org.gradle.internal.time.Timer;
 import org.gradle.internal.time.Timers;
 import org.gradle.util.SingleMessageLogger;
@@ -40,8 +52,9 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.List;
 
-public class SkipCachedTaskExecuter implements TaskExecuter {
+public class SkipCachedTaskExecuter implements TaskExecuter, TaskGraphExecutionListener, Stoppable {
     private static final Logger LOGGER = LoggerFactory.getLogger(SkipCachedTaskExecuter.class);
 
     private final TaskCachingInternal taskCaching;
@@ -49,9 +62,26 @@ public class SkipCachedTaskExecuter implements TaskExecuter {
     private final TaskOutputPacker packer;
     private final TaskExecuter delegate;
     private final TaskOutputsGenerationListener taskOutputsGenerationListener;
+    private final PreparedTaskArtifactStateRepository prefetchStateRepository;
+    private final ExecutorFactory executorFactory;
+    private final TemporaryFileProvider temporaryFileProvider;
     private TaskOutputCache cache;
 
     public SkipCachedTaskExecuter(TaskCachingInternal taskCaching, TaskOutputPacker packer, StartParameter startParameter, TaskOutputsGenerationListener taskOutputsGenerationListener, TaskExecuter delegate) {
+        this(taskCaching, packer, startParameter, taskOutputsGenerationListener, null, null, null, delegate);
+    }
+
+    /**
+     * Creates an executer that prefetches the cached output of tasks that can be keyed up-front when the cache supports it.
+     *
+     * @param prefetchStateRepository used to prepare the states of tasks that are prefetched, or {@code null} to not prefetch.
+     * @param executorFactory passed to caches created by a {@link ServiceAwareTaskOutputCacheFactory}, or {@code null} when not available.
+     * @param temporaryFileProvider passed to caches created by a {@link ServiceAwareTaskOutputCacheFactory}, or {@code null} when not available.
+     */
+    public SkipCachedTaskExecuter(TaskCachingInternal taskCaching, TaskOutputPacker packer, StartParameter startParameter, TaskOutputsGenerationListener taskOutputsGenerationListener, PreparedTaskArtifactStateRepository prefetchStateRepository, ExecutorFactory executorFactory, TemporaryFileProvider temporaryFileProvider, TaskExecuter delegate) {
+        this.prefetchStateRepository = prefetchStateRepository;
+        this.executorFactory = executorFactory;
+        this.temporaryFileProvider = temporaryFileProvider;
         this.taskCaching = taskCaching;
         this.startParameter = startParameter;
         this.packer = packer;
@@ -157,9 +187,91 @@ public class SkipCachedTaskExecuter implements TaskExecuter {
         }
     }
 
+    /**
+     * Calculates the cache keys of tasks without any dependencies in the graph and hands them to the cache in a single batch, so that the cache
+     * can look them up and fetch the entries found before the tasks are executed. The inputs of other tasks are not known until their dependencies
+     * have executed. The keys calculated here are only a hint to the cache, the key used to load the outputs is calculated again when the task executes.
+     * The states of the prefetched tasks are kept in the prepared state repository, so that the snapshots taken here are reused when the tasks execute.
+     */
+    @Override
+    public void beforeGraphExecuted(TaskExecutionGraph graph) {
+        if (prefetchStateRepository == null || !taskCaching.isPullAllowed()) {
+            return;
+        }
+        TaskOutputCache outputCache = getCache();
+        if (!(outputCache instanceof BatchingTaskOutputCache)) {
+            return;
+        }
+
+        Timer clock = Timers.startTimer();
+        List<TaskCacheKey> keys = Lists.newArrayList();
+        for (Task task : graph.getAllTasks()) {
+            TaskCacheKey cacheKey = calculatePrefetchKey((TaskInternal) task);
+            if (cacheKey != null) {
+                keys.add(cacheKey);
+            }
+        }
+        if (!keys.isEmpty()) {
+            LOGGER.info("Prefetching {} entries from {} (calculating cache keys took {}).", keys.size(), outputCache.getDescription(), clock.getElapsed());
+            ((BatchingTaskOutputCache) outputCache).prefetch(keys);
+        }
+    }
+
+    private TaskCacheKey calculatePrefetchKey(TaskInternal task) {
+        try {
+            TaskOutputsInternal taskOutputs = task.getOutputs();
+            if (!taskOutputs.isCacheEnabled() || !taskOutputs.hasDeclaredOutputs() || !taskOutputs.isCacheAllowed()) {
+                return null;
+            }
+            if (!task.getTaskDependencies().getDependencies(task).isEmpty() || !task.getMustRunAfter().getDependencies(task).isEmpty()) {
+                return null;
+            }
+            TaskArtifactState taskState = prefetchStateRepository.prepareStateFor(task);
+            TaskCacheKey cacheKey = null;
+            try {
+                if (taskState.isAllowedToUseCachedResults() && !taskState.isUpToDate(null)) {
+                    cacheKey = taskState.calculateCacheKey();
+                }
+            } finally {
+                if (cacheKey == null) {
+                    prefetchStateRepository.discardPreparedState(task);
+                }
+            }
+            return cacheKey;
+        } catch (Exception e) {
+            // The task will report the problem when it is executed
+            LOGGER.debug("Could not calculate cache key to prefetch for {}", task, e);
+            return null;
+        }
+    }
+
+    /**
+     * Releases the cache used by this executer, which may block until pending work of the cache, such as uploads, has completed.
+     */
+    @Override
+    public void stop() {
+        if (prefetchStateRepository != null) {
+            prefetchStateRepository.discardPreparedStates();
+        }
+        if (cache != null) {
+            try {
+                CompositeStoppable.stoppable(cache).stop();
+            } catch (Exception e) {
+                LOGGER.warn("Could not close {}", cache.getDescription(), e);
+            } finally {
+                cache = null;
+            }
+        }
+    }
+
     private TaskOutputCache getCache() {
         if (cache == null) {
-            cache = taskCaching.getCacheFactory().createCache(startParameter);
+            TaskOutputCacheFactory cacheFactory = taskCaching.getCacheFactory();
+            if (cacheFactory instanceof ServiceAwareTaskOutputCacheFactory && executorFactory != null) {
+                cache = ((ServiceAwareTaskOutputCacheFactory) cacheFactory).createCache(startParameter, executorFactory, temporaryFileProvider);
+            } else {
+                cache = cacheFactory.createCache(startParameter);
+            }
             LOGGER.info("Using {}", cache.getDescription());
         }
         return cache;
@@ -28,8 +28,12 @@ import org.gradle.api.file.FileTree;
 import org.gradle.api.file.FileTreeElement;
 import org.gradle.api.internal.ClosureBackedAction;
 import org.gradle.api.internal.ConventionTask;
+import org.gradle.api.internal.file.FileCollectionInternal;
+import org.gradle.api.internal.file.FileCollectionVisitor;
 import org.gradle.api.internal.file.FileLookup;
 import org.gradle.api.internal.file.FileResolver;
+import org.gradle.api.internal.file.FileTreeInternal;
+import org.gradle.api.internal.file.collections.DirectoryFileTree;
 import org.gradle.api.internal.file.copy.ClosureBackedTransformer;
 import org.gradle.api.internal.file.copy.CopyAction;
 import org.gradle.api.internal.file.copy.CopyActionExecuter;
@@ -37,16 +41,21 @@ import org.gradle.api.internal.file.copy.CopySpecInternal;
 import org.gradle.api.internal.file.copy.CopySpecResolver;
 import org.gradle.api.internal.file.copy.CopySpecSource;
 import org.gradle.api.internal.file.copy.DefaultCopySpec;
+import org.gradle.api.internal.file.copy.IncrementalCopyActionDecorator;
 import org.gradle.api.specs.Spec;
+import org.gradle.api.tasks.incremental.IncrementalTaskInputs;
+import org.gradle.api.tasks.incremental.InputFileDetails;
 import org.gradle.internal.nativeplatform.filesystem.FileSystem;
 import org.gradle.internal.reflect.Instantiator;
 import org.gradle.util.DeprecationLogger;
 
 import javax.inject.Inject;
 import java.io.FilterReader;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.regex.Pattern;
 
 /**
@@ -58,6 +67,7 @@ public abstract class AbstractCopyTask extends ConventionTask implements CopySpe
 
     private final CopySpecInternal rootSpec;
     private final CopySpecInternal mainSpec;
+    private Set<String> changedSourcePaths;
 
     protected AbstractCopyTask() {
         this.rootSpec = createRootSpec();
@@ -183,6 +193,59 @@ public abstract class AbstractCopyTask extends ConventionTask implements CopySpe
         setDidWork(didWork.getDidWork());
     }
 
+    /**
+     * Copies only the files whose source has changed since the previous execution, when the rest of the destination is known to be up-to-date.
+     * That is the case when only source files have changed, and the spec does not transform the files in ways that cannot be tracked, such as
+     * filtering or renaming. Otherwise, all files are copied.
+     */
+    void copyChanges(IncrementalTaskInputs inputs) {
+        if (inputs.isIncremental() && !rootSpec.hasCustomActions() && hasOnlyLocalSources()) {
+            final Set<String> changed = new HashSet<String>();
+            inputs.outOfDate(new Action<InputFileDetails>() {
+                @Override
+                public void execute(InputFileDetails details) {
+                    changed.add(details.getFile().getAbsolutePath());
+                }
+            });
+            changedSourcePaths = changed;
+        }
+        try {
+            copy();
+        } finally {
+            changedSourcePaths = null;
+        }
+    }
+
+    /**
+     * Returns whether all source files are copied from directories or plain files, so that the changed inputs can be matched with the files to copy.
+     * Archive trees are snapshotted as their backing file, which never matches any of their entries.
+     */
+    private boolean hasOnlyLocalSources() {
+        final AtomicBoolean onlyLocalSources = new AtomicBoolean(true);
+        ((FileCollectionInternal) getSource()).visitRootElements(new FileCollectionVisitor() {
+            @Override
+            public void visitCollection(FileCollectionInternal fileCollection) {
+            }
+
+            @Override
+            public void visitTree(FileTreeInternal fileTree) {
+                onlyLocalSources.set(false);
+            }
+
+            @Override
+            public void visitDirectoryTree(DirectoryFileTree directoryTree) {
+            }
+        });
+        return onlyLocalSources.get();
+    }
+
+    /**
+     * Decorates the action that copies the files into the destination, so that only the changed files are copied when executing incrementally.
+     */
+    CopyAction copyChangesOnly(CopyAction fileCopyAction) {
+        return changedSourcePaths == null ? fileCopyAction : new IncrementalCopyActionDecorator(changedSourcePaths, fileCopyAction);
+    }
+
     /**
      * Returns the source files for this task.
      * @return The source files. Never returns null.
@@ -16,12 +16,14 @@
 
 package org.gradle.api.tasks;
 
+import org.gradle.api.Incubating;
 import org.gradle.api.InvalidUserDataException;
 import org.gradle.api.internal.file.FileResolver;
 import org.gradle.api.internal.file.copy.CopyAction;
 import org.gradle.api.internal.file.copy.CopySpecInternal;
 import org.gradle.api.internal.file.copy.DestinationRootCopySpec;
 import org.gradle.api.internal.file.copy.FileCopyAction;
+import org.gradle.api.tasks.incremental.IncrementalTaskInputs;
 import org.gradle.internal.reflect.Instantiator;
 
 import java.io.File;
@@ -70,13 +72,25 @@ import java.io.File;
 @ParallelizableTask
 public class Copy extends AbstractCopyTask {
 
+    /**
+     * Copies the files into the destination directory. When only source files have changed since the previous execution,
+     * only the added and modified files are copied.
+     *
+     * @since 3.3
+     */
+    @TaskAction
+    @Incubating
+    protected void copy(IncrementalTaskInputs inputs) {
+        copyChanges(inputs);
+    }
+
     @Override
     protected CopyAction createCopyAction() {
         File destinationDir = getDestinationDir();
         if (destinationDir == null) {
             throw new InvalidUserDataException("No copy destination directory has been specified, use 'into' to specify a target directory.");
         }
-        return new FileCopyAction(getFileLookup().getFileResolver(destinationDir));
+        return copyChangesOnly(new FileCopyAction(getFileLookup().getFileResolver(destinationDir)));
     }
 
     @Override
@@ -25,6 +25,7 @@ import org.gradle.api.internal.file.copy.CopySpecInternal;
 import org.gradle.api.internal.file.copy.DestinationRootCopySpec;
 import org.gradle.api.internal.file.copy.FileCopyAction;
 import org.gradle.api.internal.file.copy.SyncCopyActionDecorator;
+import org.gradle.api.tasks.incremental.IncrementalTaskInputs;
 import org.gradle.api.tasks.util.PatternFilterable;
 import org.gradle.api.tasks.util.PatternSet;
 import org.gradle.internal.reflect.Instantiator;
@@ -68,13 +69,25 @@ public class Sync extends AbstractCopyTask {
 
     private final PatternFilterable preserveInDestination = new PatternSet();
 
+    /**
+     * Copies the files into the destination directory. When only source files have changed since the previous execution,
+     * only the added and modified files are copied.
+     *
+     * @since 3.3
+     */
+    @TaskAction
+    @Incubating
+    protected void copy(IncrementalTaskInputs inputs) {
+        copyChanges(inputs);
+    }
+
     @Override
     protected CopyAction createCopyAction() {
         File destinationDir = getDestinationDir();
         if (destinationDir == null) {
             throw new InvalidUserDataException("No copy destination directory has been specified, use 'into' to specify a target directory.");
         }
-        return new SyncCopyActionDecorator(destinationDir, new FileCopyAction(getFileLookup().getFileResolver(destinationDir)), preserveInDestination);
+        return new SyncCopyActionDecorator(destinationDir, copyChangesOnly(new FileCopyAction(getFileLookup().getFileResolver(destinationDir))), preserveInDestination);
     }
 
     @Override
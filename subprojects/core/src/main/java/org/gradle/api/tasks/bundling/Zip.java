@@ -19,9 +19,11 @@ import org.apache.tools.zip.ZipOutputStream;
 import org.gradle.api.Incubating;
 import org.gradle.api.InvalidUserDataException;
 import org.gradle.api.internal.DocumentationRegistry;
+import org.gradle.api.internal.file.archive.ZipCompressionExecutor;
 import org.gradle.api.internal.file.archive.ZipCopyAction;
 import org.gradle.api.internal.file.copy.CopyAction;
 import org.gradle.api.internal.file.copy.DefaultZipCompressor;
+import org.gradle.api.internal.file.copy.ParallelZipCompressor;
 import org.gradle.api.internal.file.copy.ZipCompressor;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.Internal;
@@ -38,6 +40,7 @@ public class Zip extends AbstractArchiveTask {
     public static final String ZIP_EXTENSION = "zip";
     private ZipEntryCompression entryCompression = ZipEntryCompression.DEFLATED;
     private boolean allowZip64;
+    private boolean storeCompressedFiles;
     private String metadataCharset;
 
     public Zip() {
@@ -49,7 +52,8 @@ public class Zip extends AbstractArchiveTask {
     protected ZipCompressor getCompressor() {
         switch (entryCompression) {
             case DEFLATED:
-                return new DefaultZipCompressor(allowZip64, ZipOutputStream.DEFLATED);
+                ZipCompressionExecutor compressionExecutor = getServices().get(ZipCompressionExecutor.class);
+                return new ParallelZipCompressor(allowZip64, storeCompressedFiles, compressionExecutor.getExecutor(), compressionExecutor.getMaxThreads());
             case STORED:
                 return new DefaultZipCompressor(allowZip64, ZipOutputStream.STORED);
             default:
@@ -84,6 +88,30 @@ public class Zip extends AbstractArchiveTask {
         this.entryCompression = entryCompression;
     }
 
+    /**
+     * Whether files that are already compressed, such as archives and images, are stored in the archive without being compressed again.
+     * Only applies when the entry compression is {@link ZipEntryCompression#DEFLATED}. Defaults to {@code false}.
+     *
+     * @return true if already compressed files are stored uncompressed.
+     * @since 3.3
+     */
+    @Input
+    @Incubating
+    public boolean isStoreCompressedFiles() {
+        return storeCompressedFiles;
+    }
+
+    /**
+     * Sets whether files that are already compressed, such as archives and images, are stored in the archive without being compressed again.
+     *
+     * @see #isStoreCompressedFiles()
+     * @since 3.3
+     */
+    @Incubating
+    public void setStoreCompressedFiles(boolean storeCompressedFiles) {
+        this.storeCompressedFiles = storeCompressedFiles;
+    }
+
     /**
      * Enables building zips with more than 65535 files or bigger than 4GB.
      *
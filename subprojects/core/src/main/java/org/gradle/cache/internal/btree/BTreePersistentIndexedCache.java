@@ -47,6 +47,10 @@ import java.util.List;
 // todo - use more efficient lookup for free block with nearest size
 public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache<K, V> {
     private static final Logger LOGGER = LoggerFactory.getLogger(BTreePersistentIndexedCache.class);
+    /**
+     * When set to {@code true}, blocks are read through memory mapped regions of the cache file rather than through a {@link java.io.RandomAccessFile}.
+     */
+    public static final String MAPPED_BLOCK_STORE_PROPERTY = "org.gradle.cache.internal.btree.mapped";
     private final File cacheFile;
     private final KeyHasher<K> keyHasher;
     private final Serializer<V> serializer;
@@ -66,7 +70,7 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
         this.serializer = valueSerializer;
         this.maxChildIndexEntries = maxChildIndexEntries;
         this.minIndexChildNodes = maxChildIndexEntries / 2;
-        BlockStore cachingStore = new CachingBlockStore(new FileBackedBlockStore(cacheFile), IndexBlock.class, FreeListBlockStore.FreeListBlock.class);
+        BlockStore cachingStore = new CachingBlockStore(createBackingStore(cacheFile), IndexBlock.class, FreeListBlockStore.FreeListBlock.class);
         store = new StateCheckBlockStore(new FreeListBlockStore(cachingStore, maxFreeListEntries));
         try {
             open();
@@ -75,6 +79,13 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
         }
     }
 
+    private static BlockStore createBackingStore(File cacheFile) {
+        if (Boolean.getBoolean(MAPPED_BLOCK_STORE_PROPERTY)) {
+            return new MappedFileBlockStore(cacheFile);
+        }
+        return new FileBackedBlockStore(cacheFile);
+    }
+
     @Override
     public String toString() {
         return "cache " + cacheFile.getName() + " (" + cacheFile + ")";
@@ -0,0 +1,411 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.cache.internal.btree;
+
+import com.google.common.io.CountingInputStream;
+import com.google.common.io.CountingOutputStream;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.internal.io.StreamByteBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A {@link BlockStore} that reads blocks from memory mapped regions of the backing file, using the same on-disk format as {@link FileBackedBlockStore}.
+ *
+ * <p>Reading a block copies it straight out of the mapped region, rather than seeking and reading through the file. As for the other block stores,
+ * the store is not thread safe, and access to it is expected to be serialized by the caller.</p>
+ *
+ * <p>Mapped regions are unmapped explicitly when they are replaced and when the store is closed or cleared, rather than when they are garbage
+ * collected, so that the file can be truncated or deleted straight away on platforms that do not allow this for mapped files, such as Windows.
+ * The JDK offers no public API to unmap a buffer, so this relies on JDK internals. When these are not accessible, the regions are left to the
+ * garbage collector, and the file may stay locked until then.</p>
+ */
+public class MappedFileBlockStore implements BlockStore {
+    private static final int HEADER_SIZE = 1 + Block.INT_SIZE; // type, payload size
+    private static final int TAIL_SIZE = Block.INT_SIZE;
+    private static final int DEFAULT_REGION_SIZE = 1024 * 1024;
+    private static final Logger LOGGER = LoggerFactory.getLogger(MappedFileBlockStore.class);
+    private static final Unmapper UNMAPPER = createUnmapper();
+
+    private final File cacheFile;
+    private final int regionSize;
+    private RandomAccessFile file;
+    private FileChannel channel;
+    private MappedByteBuffer[] regions = new MappedByteBuffer[0];
+    private long currentFileSize;
+    private long nextBlock;
+    private Factory factory;
+
+    public MappedFileBlockStore(File cacheFile) {
+        this(cacheFile, DEFAULT_REGION_SIZE);
+    }
+
+    MappedFileBlockStore(File cacheFile, int regionSize) {
+        this.cacheFile = cacheFile;
+        this.regionSize = regionSize;
+    }
+
+    @Override
+    public String toString() {
+        return "cache '" + cacheFile + "'";
+    }
+
+    public void open(Runnable runnable, Factory factory) {
+        this.factory = factory;
+        try {
+            cacheFile.getParentFile().mkdirs();
+            file = new RandomAccessFile(cacheFile, "rw");
+            channel = file.getChannel();
+            currentFileSize = file.length();
+            nextBlock = currentFileSize;
+            if (currentFileSize == 0) {
+                runnable.run();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void close() {
+        discardRegions();
+        try {
+            file.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void clear() {
+        discardRegions();
+        try {
+            file.setLength(0);
+            currentFileSize = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        nextBlock = 0;
+    }
+
+    public void attach(BlockPayload block) {
+        if (block.getBlock() == null) {
+            block.setBlock(new BlockImpl(block));
+        }
+    }
+
+    public void remove(BlockPayload block) {
+        BlockImpl blockImpl = (BlockImpl) block.getBlock();
+        blockImpl.detach();
+    }
+
+    public void flush() {
+    }
+
+    public <T extends BlockPayload> T readFirst(Class<T> payloadType) {
+        return read(new BlockPointer(0), payloadType);
+    }
+
+    public <T extends BlockPayload> T read(BlockPointer pos, Class<T> payloadType) {
+        assert !pos.isNull();
+        try {
+            T payload = payloadType.cast(factory.create(payloadType));
+            BlockImpl block = new BlockImpl(payload, pos);
+            block.read();
+            return payload;
+        } catch (CorruptedCacheException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void write(BlockPayload block) {
+        BlockImpl blockImpl = (BlockImpl) block.getBlock();
+        try {
+            blockImpl.write();
+        } catch (CorruptedCacheException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private long alloc(long length) {
+        long pos = nextBlock;
+        nextBlock += length;
+        return pos;
+    }
+
+    private void discardRegions() {
+        for (MappedByteBuffer region : regions) {
+            if (region != null) {
+                unmap(region);
+            }
+        }
+        regions = new MappedByteBuffer[0];
+    }
+
+    /**
+     * Copies the given range of the file into the given array, reading from the mapped regions.
+     */
+    private void readBytes(long pos, byte[] dest, int length) throws IOException {
+        int offset = 0;
+        while (offset < length) {
+            long current = pos + offset;
+            int regionIndex = (int) (current / regionSize);
+            int regionOffset = (int) (current % regionSize);
+            int count = Math.min(length - offset, regionSize - regionOffset);
+            copy(mappedRegion(regionIndex, regionOffset + count), regionOffset, dest, offset, count);
+            offset += count;
+        }
+    }
+
+    private void writeBytes(long pos, byte[] bytes, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, length);
+        long offset = pos;
+        while (buffer.hasRemaining()) {
+            offset += channel.write(buffer, offset);
+        }
+    }
+
+    private static void copy(MappedByteBuffer region, int regionOffset, byte[] dest, int offset, int count) {
+        ByteBuffer buffer = region.duplicate();
+        buffer.position(regionOffset);
+        buffer.get(dest, offset, count);
+    }
+
+    /**
+     * Returns a mapped buffer for the given region that covers at least the given number of bytes, mapping the region again if the file has grown since it was mapped.
+     */
+    private MappedByteBuffer mappedRegion(int index, int requiredLength) throws IOException {
+        MappedByteBuffer existing = index < regions.length ? regions[index] : null;
+        if (existing != null && existing.capacity() >= requiredLength) {
+            return existing;
+        }
+        long start = (long) index * regionSize;
+        long length = Math.min(regionSize, currentFileSize - start);
+        if (length < requiredLength) {
+            throw new CorruptedCacheException(String.format("Attempted to read beyond the end of %s.", this));
+        }
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        if (index >= regions.length) {
+            MappedByteBuffer[] updated = new MappedByteBuffer[index + 1];
+            System.arraycopy(regions, 0, updated, 0, regions.length);
+            regions = updated;
+        }
+        regions[index] = buffer;
+        if (existing != null) {
+            unmap(existing);
+        }
+        return buffer;
+    }
+
+    private static void unmap(MappedByteBuffer buffer) {
+        try {
+            UNMAPPER.unmap(buffer);
+        } catch (Exception e) {
+            LOGGER.debug("Could not unmap memory mapped block store region.", e);
+        }
+    }
+
+    private static Unmapper createUnmapper() {
+        try {
+            // Java 9 and later
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            final Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            final Object unsafe = theUnsafe.get(null);
+            return new Unmapper() {
+                @Override
+                void unmap(MappedByteBuffer buffer) throws Exception {
+                    invokeCleaner.invoke(unsafe, buffer);
+                }
+            };
+        } catch (Exception e) {
+            // Fall through
+        }
+        try {
+            // Java 8 and earlier
+            final Method cleanerMethod = Class.forName("java.nio.DirectByteBuffer").getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            final Method cleanMethod = Class.forName("sun.misc.Cleaner").getMethod("clean");
+            cleanMethod.setAccessible(true);
+            return new Unmapper() {
+                @Override
+                void unmap(MappedByteBuffer buffer) throws Exception {
+                    Object cleaner = cleanerMethod.invoke(buffer);
+                    if (cleaner != null) {
+                        cleanMethod.invoke(cleaner);
+                    }
+                }
+            };
+        } catch (Exception e) {
+            LOGGER.debug("Cannot unmap memory mapped block store regions on this JVM. Regions will be unmapped when garbage collected.", e);
+            return new Unmapper() {
+                @Override
+                void unmap(MappedByteBuffer buffer) {
+                }
+            };
+        }
+    }
+
+    /**
+     * Releases the mapping of a buffer, which must not be accessed afterwards.
+     */
+    private static abstract class Unmapper {
+        abstract void unmap(MappedByteBuffer buffer) throws Exception;
+    }
+
+    private final class BlockImpl extends Block {
+        private BlockPointer pos;
+        private int payloadSize;
+
+        private BlockImpl(BlockPayload payload, BlockPointer pos) {
+            this(payload);
+            setPos(pos);
+        }
+
+        public BlockImpl(BlockPayload payload) {
+            super(payload);
+            pos = null;
+            payloadSize = -1;
+        }
+
+        @Override
+        public boolean hasPos() {
+            return pos != null;
+        }
+
+        @Override
+        public BlockPointer getPos() {
+            if (pos == null) {
+                pos = new BlockPointer(alloc(getSize()));
+            }
+            return pos;
+        }
+
+        @Override
+        public void setPos(BlockPointer pos) {
+            assert this.pos == null && !pos.isNull();
+            this.pos = pos;
+        }
+
+        public int getSize() {
+            if (payloadSize < 0) {
+                payloadSize = getPayload().getSize();
+            }
+            return payloadSize + HEADER_SIZE + TAIL_SIZE;
+        }
+
+        @Override
+        public void setSize(int size) {
+            int newPayloadSize = size - HEADER_SIZE - TAIL_SIZE;
+            assert newPayloadSize >= payloadSize;
+            payloadSize = newPayloadSize;
+        }
+
+        public void write() throws Exception {
+            long pos = getPos().getPos();
+
+            StreamByteBuffer buffer = new StreamByteBuffer(getSize());
+            CountingOutputStream countingOutputStream = new CountingOutputStream(buffer.getOutputStream());
+            DataOutputStream outputStream = new DataOutputStream(countingOutputStream);
+
+            BlockPayload payload = getPayload();
+
+            // Write header
+            outputStream.writeByte(payload.getType());
+            outputStream.writeInt(payloadSize);
+            long finalSize = pos + HEADER_SIZE + TAIL_SIZE + payloadSize;
+
+            // Write body
+            payload.write(outputStream);
+
+            // Write count
+            long bytesWritten = countingOutputStream.getCount();
+            if (bytesWritten > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Block payload exceeds maximum size");
+            }
+            outputStream.writeInt((int) bytesWritten);
+            outputStream.flush();
+
+            byte[] bytes = buffer.readAsByteArray();
+            writeBytes(pos, bytes, bytes.length);
+
+            // Pad
+            if (currentFileSize < finalSize) {
+                file.setLength(finalSize);
+                currentFileSize = finalSize;
+            }
+        }
+
+        public void read() throws Exception {
+            long pos = getPos().getPos();
+            assert pos >= 0;
+            long fileSize = currentFileSize;
+            if (pos + HEADER_SIZE >= fileSize) {
+                throw blockCorruptedException();
+            }
+
+            byte[] header = new byte[HEADER_SIZE];
+            readBytes(pos, header, HEADER_SIZE);
+            DataInputStream headerStream = new DataInputStream(new ByteArrayInputStream(header));
+
+            BlockPayload payload = getPayload();
+
+            // Read header
+            byte type = headerStream.readByte();
+            if (type != payload.getType()) {
+                throw blockCorruptedException();
+            }
+            payloadSize = headerStream.readInt();
+            if (payloadSize < 0 || pos + HEADER_SIZE + TAIL_SIZE + payloadSize > fileSize) {
+                throw blockCorruptedException();
+            }
+
+            // Read body
+            byte[] body = new byte[payloadSize + TAIL_SIZE];
+            readBytes(pos + HEADER_SIZE, body, body.length);
+            CountingInputStream countingInputStream = new CountingInputStream(new ByteArrayInputStream(body));
+            DataInputStream inputStream = new DataInputStream(countingInputStream);
+            payload.read(inputStream);
+
+            // Read and verify count
+            long actualCount = HEADER_SIZE + countingInputStream.getCount();
+            long count = inputStream.readInt();
+            if (actualCount != count) {
+                throw blockCorruptedException();
+            }
+        }
+
+        public RuntimeException blockCorruptedException() {
+            return new CorruptedCacheException(String.format("Corrupted %s found in %s.", this,
+                    MappedFileBlockStore.this));
+        }
+    }
+}
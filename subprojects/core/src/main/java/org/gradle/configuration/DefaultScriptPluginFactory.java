@@ -22,6 +22,7 @@ import org.gradle.api.internal.GradleInternal;
 import org.gradle.api.internal.SettingsInternal;
 import org.gradle.api.internal.cache.StringInterner;
 import org.gradle.api.internal.file.FileLookup;
+import org.gradle.api.internal.file.archive.TarIndexCache;
 import org.gradle.api.internal.file.collections.DirectoryFileTreeFactory;
 import org.gradle.api.internal.initialization.ClassLoaderScope;
 import org.gradle.api.internal.initialization.ScriptHandlerFactory;
@@ -64,6 +65,7 @@ public class DefaultScriptPluginFactory implements ScriptPluginFactory {
     private final PluginRequestApplicator pluginRequestApplicator;
     private final FileLookup fileLookup;
     private final DirectoryFileTreeFactory directoryFileTreeFactory;
+    private final TarIndexCache tarIndexCache;
     private final DocumentationRegistry documentationRegistry;
     private final ModelRuleSourceDetector modelRuleSourceDetector;
     private final BuildScriptDataSerializer buildScriptDataSerializer = new BuildScriptDataSerializer();
@@ -78,6 +80,7 @@ public class DefaultScriptPluginFactory implements ScriptPluginFactory {
                                       PluginRequestApplicator pluginRequestApplicator,
                                       FileLookup fileLookup,
                                       DirectoryFileTreeFactory directoryFileTreeFactory,
+                                      TarIndexCache tarIndexCache,
                                       DocumentationRegistry documentationRegistry,
                                       ModelRuleSourceDetector modelRuleSourceDetector,
                                       PluginRepositoryRegistry pluginRepositoryRegistry,
@@ -89,6 +92,7 @@ public class DefaultScriptPluginFactory implements ScriptPluginFactory {
         this.pluginRequestApplicator = pluginRequestApplicator;
         this.fileLookup = fileLookup;
         this.directoryFileTreeFactory = directoryFileTreeFactory;
+        this.tarIndexCache = tarIndexCache;
         this.documentationRegistry = documentationRegistry;
         this.modelRuleSourceDetector = modelRuleSourceDetector;
         this.pluginRepositoryRegistry = pluginRepositoryRegistry;
@@ -132,6 +136,7 @@ public class DefaultScriptPluginFactory implements ScriptPluginFactory {
             services.add(ScriptHandler.class, scriptHandler);
             services.add(FileLookup.class, fileLookup);
             services.add(DirectoryFileTreeFactory.class, directoryFileTreeFactory);
+            services.add(TarIndexCache.class, tarIndexCache);
             services.add(ModelRuleSourceDetector.class, modelRuleSourceDetector);
             services.add(PluginRepositoryRegistry.class, pluginRepositoryRegistry);
             services.add(PluginRepositoryFactory.class, pluginRepositoryFactory);
@@ -46,6 +46,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.StringWriter;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -58,19 +59,25 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
 
     public static final String INTRA_PROJECT_TOGGLE = "org.gradle.parallel.intra";
 
+    public static final String CRITICAL_PATH_TOGGLE = "org.gradle.parallel.criticalpath";
+
     private final static Logger LOGGER = Logging.getLogger(DefaultTaskExecutionPlan.class);
 
     private final Lock lock = new ReentrantLock();
     private final Condition condition = lock.newCondition();
+    private final AtomicLong lockWaitTime = new AtomicLong();
     private final Set<TaskInfo> tasksInUnknownState = new LinkedHashSet<TaskInfo>();
     private final Set<TaskInfo> entryTasks = new LinkedHashSet<TaskInfo>();
+    private final Map<TaskInfo, Integer> entryTaskGroups = Maps.newHashMap();
+    private int entryTaskGroupCount;
     private final TaskDependencyGraph graph = new TaskDependencyGraph();
     private final LinkedHashMap<Task, TaskInfo> executionPlan = new LinkedHashMap<Task, TaskInfo>();
-    private final List<TaskInfo> executionQueue = new LinkedList<TaskInfo>();
+    private final Set<TaskInfo> executionQueue = new LinkedHashSet<TaskInfo>();
     private final List<Throwable> failures = new ArrayList<Throwable>();
     private Spec<? super Task> filter = Specs.satisfyAll();
 
     private TaskFailureHandler failureHandler = new RethrowingFailureHandler();
+    private TaskDurationHistory durationHistory;
     private final BuildCancellationToken cancellationToken;
     private final Multiset<String> projectsWithRunningTasks = HashMultiset.create();
     private final Multiset<String> projectsWithRunningNonParallelizableTasks = HashMultiset.create();
@@ -96,6 +103,7 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
 
     public void addToTaskGraph(Collection<? extends Task> tasks) {
         List<TaskInfo> queue = new ArrayList<TaskInfo>();
+        int group = entryTaskGroupCount++;
 
         List<Task> sortedTasks = new ArrayList<Task>(tasks);
         Collections.sort(sortedTasks);
@@ -106,7 +114,9 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
             } else if (filter.isSatisfiedBy(task)) {
                 node.require();
             }
-            entryTasks.add(node);
+            if (entryTasks.add(node)) {
+                entryTaskGroups.put(node, group);
+            }
             queue.add(node);
         }
 
@@ -308,7 +318,53 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
             }
         }
         executionQueue.clear();
-        executionQueue.addAll(executionPlan.values());
+        if (durationHistory != null) {
+            executionQueue.addAll(orderByLongestRemainingPath());
+        } else {
+            executionQueue.addAll(executionPlan.values());
+        }
+    }
+
+    /**
+     * Orders the tasks of the plan so that tasks with the longest chain of dependent work, based on the durations of previous executions, come first.
+     * Tasks required by different groups of entry tasks, such as {@code clean build}, keep the order of the groups, and tasks without history keep their order in the plan.
+     * Tasks are still only started once their dependencies and must run after constraints are satisfied, but should run after ordering may not be preserved.
+     */
+    private List<TaskInfo> orderByLongestRemainingPath() {
+        final Map<TaskInfo, Integer> groups = Maps.newHashMap();
+        final Map<TaskInfo, Long> remainingPath = Maps.newHashMap();
+        List<TaskInfo> tasks = new ArrayList<TaskInfo>(executionPlan.values());
+        // Tasks that depend on a task, and its finalizers, always appear later in the plan, and so do the tasks of later groups
+        int group = Integer.MAX_VALUE;
+        for (int i = tasks.size() - 1; i >= 0; i--) {
+            TaskInfo taskInfo = tasks.get(i);
+            Integer entryTaskGroup = entryTaskGroups.get(taskInfo);
+            if (entryTaskGroup != null) {
+                group = Math.min(group, entryTaskGroup);
+            }
+            groups.put(taskInfo, group);
+            long longestDependent = 0;
+            for (TaskInfo dependent : Iterables.concat(taskInfo.getDependencyPredecessors(), taskInfo.getFinalizers())) {
+                Long dependentPath = remainingPath.get(dependent);
+                if (dependentPath != null) {
+                    longestDependent = Math.max(longestDependent, dependentPath);
+                }
+            }
+            long duration = Math.max(0, durationHistory.getPreviousDuration(taskInfo.getTask()));
+            remainingPath.put(taskInfo, duration + longestDependent);
+        }
+        // The sort is stable, so tasks with the same remaining path keep their order in the plan
+        Collections.sort(tasks, new Comparator<TaskInfo>() {
+            @Override
+            public int compare(TaskInfo left, TaskInfo right) {
+                int result = groups.get(left).compareTo(groups.get(right));
+                if (result != 0) {
+                    return result;
+                }
+                return remainingPath.get(right).compareTo(remainingPath.get(left));
+            }
+        });
+        return tasks;
     }
 
     private void maybeRemoveProcessedShouldRunAfterEdge(Stack<GraphEdge> walkedShouldRunAfterEdges, TaskInfo taskNode) {
@@ -446,10 +502,12 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
     }
 
     public void clear() {
-        lock.lock();
+        lockPlan();
         try {
             graph.clear();
             entryTasks.clear();
+            entryTaskGroups.clear();
+            entryTaskGroupCount = 0;
             executionPlan.clear();
             executionQueue.clear();
             failures.clear();
@@ -475,8 +533,15 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         this.failureHandler = handler;
     }
 
+    /**
+     * Uses the given history to prefer tasks on the critical path when choosing the next task to execute.
+     */
+    public void useDurationHistory(TaskDurationHistory durationHistory) {
+        this.durationHistory = durationHistory;
+    }
+
     public TaskInfo getTaskToExecute() {
-        lock.lock();
+        lockPlan();
         try {
             while (true) {
                 if (cancellationToken.isCancellationRequested()) {
@@ -521,6 +586,57 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         }
     }
 
+    public TaskInfo tryStartExecution(Collection<TaskInfo> candidates) {
+        if (durationHistory != null) {
+            // Every task is constrained by the order of the queue
+            return null;
+        }
+        List<TaskInfo> unconstrained = new ArrayList<TaskInfo>(candidates.size());
+        for (TaskInfo candidate : candidates) {
+            if (candidate.getShouldSuccessors().isEmpty()) {
+                unconstrained.add(candidate);
+            }
+        }
+        if (unconstrained.isEmpty()) {
+            return null;
+        }
+        lockPlan();
+        try {
+            if (cancellationToken.isCancellationRequested()) {
+                return null;
+            }
+            for (TaskInfo taskInfo : unconstrained) {
+                if (!executionQueue.contains(taskInfo)) {
+                    continue;
+                }
+                if (!(taskInfo.isReady() && taskInfo.allDependenciesComplete() && canRunWithWithCurrentlyExecutedTasks(taskInfo))) {
+                    continue;
+                }
+                executionQueue.remove(taskInfo);
+                if (taskInfo.allDependenciesSuccessful()) {
+                    taskInfo.startExecution();
+                    recordTaskStarted(taskInfo);
+                    return taskInfo;
+                }
+                taskInfo.skipExecution();
+                condition.signalAll();
+            }
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getLockWaitTime() {
+        return lockWaitTime.get();
+    }
+
+    private void lockPlan() {
+        long start = System.nanoTime();
+        lock.lock();
+        lockWaitTime.addAndGet(System.nanoTime() - start);
+    }
+
     private boolean canRunWithWithCurrentlyExecutedTasks(TaskInfo taskInfo) {
         TaskInternal task = taskInfo.getTask();
         String projectPath = task.getProject().getPath();
@@ -652,7 +768,7 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
     }
 
     public void taskComplete(TaskInfo taskInfo) {
-        lock.lock();
+        lockPlan();
         try {
             enforceFinalizerTasks(taskInfo);
             if (taskInfo.isFailed()) {
@@ -723,7 +839,7 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
     }
 
     public void awaitCompletion() {
-        lock.lock();
+        lockPlan();
         try {
             while (!allTasksComplete()) {
                 try {
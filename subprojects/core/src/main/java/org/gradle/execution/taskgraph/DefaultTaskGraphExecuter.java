@@ -18,6 +18,7 @@ package org.gradle.execution.taskgraph;
 
 import groovy.lang.Closure;
 import org.gradle.api.Action;
+import org.gradle.api.Nullable;
 import org.gradle.api.Task;
 import org.gradle.api.execution.TaskExecutionAdapter;
 import org.gradle.api.execution.TaskExecutionGraph;
@@ -62,22 +63,35 @@ public class DefaultTaskGraphExecuter implements TaskGraphExecuter {
     private final TaskPlanExecutor taskPlanExecutor;
     // This currently needs to be lazy, as it uses state that is not available when the graph is created
     private final Factory<? extends TaskExecuter> taskExecuter;
+    private final Factory<? extends TaskDurationHistory> taskDurationHistory;
+    private final boolean criticalPathOrdering;
     private final TimeProvider timeProvider;
     private final ListenerBroadcast<TaskExecutionGraphListener> graphListeners;
     private final ListenerBroadcast<TaskExecutionListener> taskListeners;
     private final ListenerBroadcast<InternalTaskExecutionListener> internalTaskListeners;
+    private final TaskGraphExecutionListener graphExecutionListener;
     private final DefaultTaskExecutionPlan taskExecutionPlan;
     private final BuildOperationExecutor buildOperationExecutor;
     private TaskGraphState taskGraphState = TaskGraphState.EMPTY;
 
     public DefaultTaskGraphExecuter(ListenerManager listenerManager, TaskPlanExecutor taskPlanExecutor, Factory<? extends TaskExecuter> taskExecuter, BuildCancellationToken cancellationToken, TimeProvider timeProvider, BuildOperationExecutor buildOperationExecutor) {
+        this(listenerManager, taskPlanExecutor, taskExecuter, null, cancellationToken, timeProvider, buildOperationExecutor);
+    }
+
+    /**
+     * @param taskDurationHistory the history used to order the tasks by their critical path, or null to execute them in the order of the plan.
+     */
+    public DefaultTaskGraphExecuter(ListenerManager listenerManager, TaskPlanExecutor taskPlanExecutor, Factory<? extends TaskExecuter> taskExecuter, @Nullable Factory<? extends TaskDurationHistory> taskDurationHistory, BuildCancellationToken cancellationToken, TimeProvider timeProvider, BuildOperationExecutor buildOperationExecutor) {
         this.taskPlanExecutor = taskPlanExecutor;
         this.taskExecuter = taskExecuter;
+        this.taskDurationHistory = taskDurationHistory;
+        this.criticalPathOrdering = taskDurationHistory != null;
         this.timeProvider = timeProvider;
         this.buildOperationExecutor = buildOperationExecutor;
         graphListeners = listenerManager.createAnonymousBroadcaster(TaskExecutionGraphListener.class);
         taskListeners = listenerManager.createAnonymousBroadcaster(TaskExecutionListener.class);
         internalTaskListeners = listenerManager.createAnonymousBroadcaster(InternalTaskExecutionListener.class);
+        graphExecutionListener = listenerManager.getBroadcaster(TaskGraphExecutionListener.class);
         taskExecutionPlan = new DefaultTaskExecutionPlan(cancellationToken);
     }
 
@@ -111,7 +125,12 @@ public class DefaultTaskGraphExecuter implements TaskGraphExecuter {
 
         graphListeners.getSource().graphPopulated(this);
         try {
-            taskPlanExecutor.process(taskExecutionPlan, new EventFiringTaskWorker(taskExecuter.create(), buildOperationExecutor.getCurrentOperationId()));
+            TaskExecuter executer = taskExecuter.create();
+            // The executer may listen for this event
+            graphExecutionListener.beforeGraphExecuted(this);
+            // Only keep track of durations when they are used to order the tasks
+            TaskDurationHistory durationHistory = criticalPathOrdering ? taskDurationHistory.create() : TaskDurationHistory.NONE;
+            taskPlanExecutor.process(taskExecutionPlan, new EventFiringTaskWorker(executer, durationHistory, buildOperationExecutor.getCurrentOperationId()));
             LOGGER.debug("Timing: Executing the DAG took " + clock.getElapsed());
         } finally {
             taskExecutionPlan.clear();
@@ -200,6 +219,9 @@ public class DefaultTaskGraphExecuter implements TaskGraphExecuter {
                 throw new IllegalStateException(
                         "Task information is not available, as this task execution graph has not been populated.");
             case DIRTY:
+                if (criticalPathOrdering) {
+                    taskExecutionPlan.useDurationHistory(taskDurationHistory.create());
+                }
                 taskExecutionPlan.determineExecutionPlan();
                 taskGraphState = TaskGraphState.POPULATED;
                 return;
@@ -215,10 +237,12 @@ public class DefaultTaskGraphExecuter implements TaskGraphExecuter {
      */
     private class EventFiringTaskWorker implements Action<TaskInternal> {
         private final TaskExecuter taskExecuter;
+        private final TaskDurationHistory durationHistory;
         private final Object parentOperationId;
 
-        public EventFiringTaskWorker(TaskExecuter taskExecuter, Object parentOperationId) {
+        public EventFiringTaskWorker(TaskExecuter taskExecuter, TaskDurationHistory durationHistory, Object parentOperationId) {
             this.taskExecuter = taskExecuter;
+            this.durationHistory = durationHistory;
             this.parentOperationId = parentOperationId;
         }
 
@@ -235,6 +259,9 @@ public class DefaultTaskGraphExecuter implements TaskGraphExecuter {
                 taskListeners.getSource().afterExecute(task, state);
             } finally {
                 long endTime = timeProvider.getCurrentTime();
+                if (!state.getSkipped() && state.getFailure() == null) {
+                    durationHistory.recordDuration(task, endTime - startTime);
+                }
                 internalTaskListeners.getSource().afterExecute(taskOperation, new OperationResult(startTime, endTime, task.getState().getFailure()));
             }
         }
@@ -16,8 +16,10 @@
 
 package org.gradle.execution.taskgraph;
 
+import org.gradle.api.Nullable;
 import org.gradle.api.Task;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -47,4 +49,19 @@ public interface TaskExecutionPlan {
      * @return The task, or null if no matching tasks remain.
      */
     TaskInfo getTaskToExecute();
+
+    /**
+     * Attempts to start execution of one of the given tasks, without blocking until a task becomes ready-to-execute.
+     * A candidate is started only if it is ready-to-execute, can run alongside the currently executing tasks, and starting it ahead of the other
+     * tasks of the plan does not break any ordering of the plan, such as a should run after constraint.
+     * @param candidates the candidate tasks, in order of preference.
+     * @return the task that has been started and must be executed by the caller, or null if none of the candidates can be started.
+     */
+    @Nullable
+    TaskInfo tryStartExecution(Collection<TaskInfo> candidates);
+
+    /**
+     * @return the total time in nanoseconds that threads have spent waiting to access the plan.
+     */
+    long getLockWaitTime();
 }
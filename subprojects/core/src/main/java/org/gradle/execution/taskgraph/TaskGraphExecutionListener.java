@@ -0,0 +1,28 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.execution.taskgraph;
+
+import org.gradle.api.execution.TaskExecutionGraph;
+
+/**
+ * Notified when the tasks of a graph are about to be executed. This happens after the {@link org.gradle.api.execution.TaskExecutionGraphListener}s
+ * have been notified, so the tasks are no longer configured, and after the {@link org.gradle.api.internal.tasks.TaskExecuter} has been created.
+ */
+public interface TaskGraphExecutionListener {
+    void beforeGraphExecuted(TaskExecutionGraph graph);
+}
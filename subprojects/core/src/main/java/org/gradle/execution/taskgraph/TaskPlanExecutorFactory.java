@@ -21,20 +21,32 @@ import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.operations.BuildOperationWorkerRegistry;
 
 public class TaskPlanExecutorFactory implements Factory<TaskPlanExecutor> {
+
+    public static final String WORK_STEALING_TOGGLE = "org.gradle.parallel.workstealing";
+
     private final int parallelThreads;
     private final ExecutorFactory executorFactory;
     private final BuildOperationWorkerRegistry buildOperationWorkerRegistry;
+    private final boolean workStealing;
 
-    public TaskPlanExecutorFactory(int parallelThreads, ExecutorFactory executorFactory, BuildOperationWorkerRegistry buildOperationWorkerRegistry) {
+    public TaskPlanExecutorFactory(int parallelThreads, ExecutorFactory executorFactory, BuildOperationWorkerRegistry buildOperationWorkerRegistry, boolean workStealing) {
         this.parallelThreads = parallelThreads;
         this.executorFactory = executorFactory;
         this.buildOperationWorkerRegistry = buildOperationWorkerRegistry;
+        this.workStealing = workStealing;
+    }
+
+    public TaskPlanExecutorFactory(int parallelThreads, ExecutorFactory executorFactory, BuildOperationWorkerRegistry buildOperationWorkerRegistry) {
+        this(parallelThreads, executorFactory, buildOperationWorkerRegistry, Boolean.getBoolean(WORK_STEALING_TOGGLE));
     }
 
     public TaskPlanExecutor create() {
         if (parallelThreads < 1) {
             throw new IllegalStateException(String.format("Cannot create executor for requested number of worker threads: %s.", parallelThreads));
         }
+        if (parallelThreads > 1 && workStealing) {
+            return new WorkStealingTaskPlanExecutor(parallelThreads, executorFactory, buildOperationWorkerRegistry);
+        }
         if (parallelThreads > 1) {
             return new ParallelTaskPlanExecutor(parallelThreads, executorFactory, buildOperationWorkerRegistry);
         }
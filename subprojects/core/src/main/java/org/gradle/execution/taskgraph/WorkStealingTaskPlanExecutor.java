@@ -0,0 +1,187 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.taskgraph;
+
+import org.gradle.api.Action;
+import org.gradle.api.internal.TaskInternal;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.StoppableExecutor;
+import org.gradle.internal.operations.BuildOperationWorkerRegistry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.gradle.internal.time.Clock.prettyTime;
+
+/**
+ * A parallel {@link TaskPlanExecutor} where each worker keeps a deque of candidate tasks. When a task completes, the tasks that were waiting on it are
+ * pushed onto the deque of the worker that executed it. A worker tries the candidates from its own deque first, then steals from the other workers, and
+ * only falls back to searching the whole {@link TaskExecutionPlan} when no candidate can be started. The candidates of a deque are handed to the plan
+ * together, which only starts a candidate when this does not break the ordering of the plan.
+ */
+class WorkStealingTaskPlanExecutor extends AbstractTaskPlanExecutor {
+    private static final Logger LOGGER = Logging.getLogger(WorkStealingTaskPlanExecutor.class);
+    private final int executorCount;
+    private final ExecutorFactory executorFactory;
+    private final BuildOperationWorkerRegistry buildOperationWorkerRegistry;
+
+    public WorkStealingTaskPlanExecutor(int numberOfParallelExecutors, ExecutorFactory executorFactory, BuildOperationWorkerRegistry buildOperationWorkerRegistry) {
+        this.executorFactory = executorFactory;
+        this.buildOperationWorkerRegistry = buildOperationWorkerRegistry;
+        if (numberOfParallelExecutors < 2) {
+            throw new IllegalArgumentException("Not a valid number of parallel executors: " + numberOfParallelExecutors);
+        }
+
+        this.executorCount = numberOfParallelExecutors;
+    }
+
+    @Override
+    public void process(TaskExecutionPlan taskExecutionPlan, Action<? super TaskInternal> taskWorker) {
+        LOGGER.info("Using {} parallel executor threads with work stealing", executorCount);
+        List<BlockingDeque<TaskInfo>> queues = new ArrayList<BlockingDeque<TaskInfo>>(executorCount);
+        for (int i = 0; i < executorCount; i++) {
+            queues.add(new LinkedBlockingDeque<TaskInfo>());
+        }
+        WorkerStats stats = new WorkerStats();
+        StoppableExecutor executor = executorFactory.create("Task worker");
+        try {
+            for (int i = 1; i < executorCount; i++) {
+                executor.execute(new WorkStealingWorker(i, queues, taskExecutionPlan, taskWorker, stats));
+            }
+            new WorkStealingWorker(0, queues, taskExecutionPlan, taskWorker, stats).run();
+            taskExecutionPlan.awaitCompletion();
+        } finally {
+            executor.stop();
+            stats.report(taskExecutionPlan);
+        }
+    }
+
+    private class WorkStealingWorker implements Runnable {
+        private final int index;
+        private final List<BlockingDeque<TaskInfo>> queues;
+        private final TaskExecutionPlan taskExecutionPlan;
+        private final Action<? super TaskInternal> taskWorker;
+        private final WorkerStats stats;
+
+        WorkStealingWorker(int index, List<BlockingDeque<TaskInfo>> queues, TaskExecutionPlan taskExecutionPlan, Action<? super TaskInternal> taskWorker, WorkerStats stats) {
+            this.index = index;
+            this.queues = queues;
+            this.taskExecutionPlan = taskExecutionPlan;
+            this.taskWorker = taskWorker;
+            this.stats = stats;
+        }
+
+        public void run() {
+            BlockingDeque<TaskInfo> localQueue = queues.get(index);
+            TaskInfo task;
+            while ((task = nextTask(localQueue)) != null) {
+                BuildOperationWorkerRegistry.Completion completion = buildOperationWorkerRegistry.operationStart();
+                try {
+                    LOGGER.info("{} ({}) started.", task.getTask().getPath(), Thread.currentThread());
+                    long start = System.nanoTime();
+                    try {
+                        taskWorker.execute(task.getTask());
+                    } catch (Throwable e) {
+                        task.setExecutionFailure(e);
+                    }
+                    stats.busy.addAndGet(System.nanoTime() - start);
+                    taskExecutionPlan.taskComplete(task);
+                    for (TaskInfo dependent : task.getDependencyPredecessors()) {
+                        localQueue.offerLast(dependent);
+                    }
+                    for (TaskInfo finalizer : task.getFinalizers()) {
+                        localQueue.offerLast(finalizer);
+                    }
+                } finally {
+                    completion.operationFinish();
+                }
+            }
+        }
+
+        private TaskInfo nextTask(BlockingDeque<TaskInfo> localQueue) {
+            // The most recently offered candidates are the most likely to be ready
+            List<TaskInfo> candidates = new ArrayList<TaskInfo>();
+            TaskInfo candidate;
+            while ((candidate = localQueue.pollLast()) != null) {
+                candidates.add(candidate);
+            }
+            TaskInfo task = tryStart(candidates, localQueue);
+            if (task != null) {
+                stats.localTasks.incrementAndGet();
+                return task;
+            }
+            for (int i = 1; i < queues.size(); i++) {
+                BlockingDeque<TaskInfo> victim = queues.get((index + i) % queues.size());
+                candidates.clear();
+                while ((candidate = victim.pollFirst()) != null) {
+                    candidates.add(candidate);
+                }
+                task = tryStart(candidates, localQueue);
+                if (task != null) {
+                    stats.stolenTasks.incrementAndGet();
+                    return task;
+                }
+            }
+            long start = System.nanoTime();
+            task = taskExecutionPlan.getTaskToExecute();
+            stats.idle.addAndGet(System.nanoTime() - start);
+            if (task != null) {
+                stats.plannedTasks.incrementAndGet();
+            }
+            return task;
+        }
+
+        /**
+         * Starts the first of the given candidates that can be started, and keeps the candidates after it in the local deque.
+         * The candidates before it cannot be started now, and are left to the plan.
+         */
+        private TaskInfo tryStart(List<TaskInfo> candidates, BlockingDeque<TaskInfo> localQueue) {
+            if (candidates.isEmpty()) {
+                return null;
+            }
+            TaskInfo task = taskExecutionPlan.tryStartExecution(candidates);
+            if (task != null) {
+                List<TaskInfo> untried = candidates.subList(candidates.indexOf(task) + 1, candidates.size());
+                for (TaskInfo candidate : untried) {
+                    localQueue.offerFirst(candidate);
+                }
+            }
+            return task;
+        }
+    }
+
+    private static class WorkerStats {
+        private final AtomicLong busy = new AtomicLong();
+        private final AtomicLong idle = new AtomicLong();
+        private final AtomicLong localTasks = new AtomicLong();
+        private final AtomicLong stolenTasks = new AtomicLong();
+        private final AtomicLong plannedTasks = new AtomicLong();
+
+        void report(TaskExecutionPlan taskExecutionPlan) {
+            if (LOGGER.isInfoEnabled()) {
+                LOGGER.info("Task workers finished, busy: {}, waiting for a task: {}, waiting on task plan: {}. Tasks taken from local queue: {}, stolen: {}, from task plan: {}.",
+                    prettyTime(busy.get() / 1000000), prettyTime(idle.get() / 1000000), prettyTime(taskExecutionPlan.getLockWaitTime() / 1000000),
+                    localTasks.get(), stolenTasks.get(), plannedTasks.get());
+            }
+        }
+    }
+}
@@ -37,6 +37,7 @@ import org.gradle.api.internal.component.ComponentTypeRegistry;
 import org.gradle.api.internal.component.DefaultComponentTypeRegistry;
 import org.gradle.api.internal.file.FileLookup;
 import org.gradle.api.internal.file.FileResolver;
+import org.gradle.api.internal.file.archive.TarIndexCache;
 import org.gradle.api.internal.file.collections.DirectoryFileTreeFactory;
 import org.gradle.api.internal.hash.FileHasher;
 import org.gradle.api.internal.initialization.DefaultScriptHandlerFactory;
@@ -291,6 +292,10 @@ public class BuildScopeServices extends DefaultServiceRegistry {
             classLoaderHierarchyHasher);
     }
 
+    protected TarIndexCache createTarIndexCache() {
+        return new TarIndexCache();
+    }
+
     protected ScriptPluginFactory createScriptPluginFactory() {
         return new ScriptPluginFactorySelector(defaultScriptPluginFactory(), this);
     }
@@ -304,6 +309,7 @@ public class BuildScopeServices extends DefaultServiceRegistry {
             get(PluginRequestApplicator.class),
             get(FileLookup.class),
             get(DirectoryFileTreeFactory.class),
+            get(TarIndexCache.class),
             get(DocumentationRegistry.class),
             get(ModelRuleSourceDetector.class),
             get(PluginRepositoryRegistry.class),
@@ -29,6 +29,7 @@ import org.gradle.api.internal.tasks.cache.config.DefaultTaskCaching;
 import org.gradle.api.internal.tasks.cache.config.TaskCachingInternal;
 import org.gradle.cache.CacheRepository;
 import org.gradle.cache.internal.CacheRepositoryServices;
+import org.gradle.cache.internal.FileLockManager;
 import org.gradle.deployment.internal.DefaultDeploymentRegistry;
 import org.gradle.deployment.internal.DeploymentRegistry;
 import org.gradle.internal.classpath.ClassPath;
@@ -93,8 +94,8 @@ public class BuildSessionScopeServices extends DefaultServiceRegistry {
         return new WorkerProcessClassPathProvider(cacheRepository);
     }
 
-    TaskCachingInternal createTaskCaching() {
-        return new DefaultTaskCaching();
+    TaskCachingInternal createTaskCaching(FileLockManager fileLockManager) {
+        return new DefaultTaskCaching(fileLockManager);
     }
 
     GeneratedGradleJarCache createGeneratedGradleJarCache(CacheRepository cacheRepository) {
@@ -29,8 +29,10 @@ import org.gradle.api.internal.DocumentationRegistry;
 import org.gradle.api.internal.DynamicModulesClassPathProvider;
 import org.gradle.api.internal.cache.StringInterner;
 import org.gradle.api.internal.changedetection.state.CachingFileHasher;
+import org.gradle.api.internal.changedetection.state.FileSystemMirror;
 import org.gradle.api.internal.changedetection.state.InMemoryTaskArtifactCache;
 import org.gradle.api.internal.changedetection.state.ShortLivedProcessInMemoryTaskArtifactCache;
+import org.gradle.api.internal.changedetection.state.WatchingFileSystemMirror;
 import org.gradle.api.internal.classpath.DefaultModuleRegistry;
 import org.gradle.api.internal.classpath.DefaultPluginModuleRegistry;
 import org.gradle.api.internal.classpath.ModuleRegistry;
@@ -102,6 +104,7 @@ import org.gradle.internal.jvm.inspection.JvmVersionDetector;
 import org.gradle.internal.logging.progress.ProgressLoggerFactory;
 import org.gradle.internal.nativeintegration.ProcessEnvironment;
 import org.gradle.internal.nativeintegration.filesystem.FileSystem;
+import org.gradle.internal.os.OperatingSystem;
 import org.gradle.internal.reflect.DirectInstantiator;
 import org.gradle.internal.reflect.Instantiator;
 import org.gradle.internal.remote.MessagingServer;
@@ -363,6 +366,14 @@ public class GlobalScopeServices {
         return new DefaultFileWatcherFactory(executorFactory, fileSystem);
     }
 
+    FileSystemMirror createFileSystemMirror(FileWatcherFactory fileWatcherFactory) {
+        // The JDK watch service polls for changes on OS X, so changes would be reported too late
+        if (Boolean.getBoolean(WatchingFileSystemMirror.TOGGLE_PROPERTY) && environment.isLongLivingProcess() && !OperatingSystem.current().isMacOsX()) {
+            return new WatchingFileSystemMirror(fileWatcherFactory);
+        }
+        return FileSystemMirror.NONE;
+    }
+
     StringInterner createStringInterner() {
         return new StringInterner();
     }
@@ -15,6 +15,8 @@
  */
 package org.gradle.internal.service.scopes;
 
+import org.gradle.BuildAdapter;
+import org.gradle.BuildResult;
 import org.gradle.StartParameter;
 import org.gradle.api.execution.TaskActionListener;
 import org.gradle.api.execution.internal.TaskInputsListener;
@@ -22,8 +24,10 @@ import org.gradle.api.internal.GradleInternal;
 import org.gradle.api.internal.cache.StringInterner;
 import org.gradle.api.internal.changedetection.TaskArtifactStateRepository;
 import org.gradle.api.internal.changedetection.changes.DefaultTaskArtifactStateRepository;
+import org.gradle.api.internal.changedetection.changes.PreparedTaskArtifactStateRepository;
 import org.gradle.api.internal.changedetection.changes.ShortCircuitTaskArtifactStateRepository;
 import org.gradle.api.internal.changedetection.state.CacheBackedFileSnapshotRepository;
+import org.gradle.api.internal.changedetection.state.CacheBackedTaskDurationHistory;
 import org.gradle.api.internal.changedetection.state.CacheBackedTaskHistoryRepository;
 import org.gradle.api.internal.changedetection.state.CachingFileHasher;
 import org.gradle.api.internal.changedetection.state.ClasspathSnapshotter;
@@ -34,19 +38,25 @@ import org.gradle.api.internal.changedetection.state.DefaultTaskHistoryStore;
 import org.gradle.api.internal.changedetection.state.FileCollectionSnapshot;
 import org.gradle.api.internal.changedetection.state.FileCollectionSnapshotter;
 import org.gradle.api.internal.changedetection.state.FileCollectionSnapshotterRegistry;
+import org.gradle.api.internal.changedetection.state.FileSystemMirror;
 import org.gradle.api.internal.changedetection.state.GenericFileCollectionSnapshotter;
 import org.gradle.api.internal.changedetection.state.InMemoryTaskArtifactCache;
 import org.gradle.api.internal.changedetection.state.OutputFilesSnapshotter;
 import org.gradle.api.internal.changedetection.state.TaskHistoryRepository;
 import org.gradle.api.internal.changedetection.state.TaskHistoryStore;
 import org.gradle.api.internal.file.FileCollectionFactory;
+import org.gradle.api.internal.file.TemporaryFileProvider;
+import org.gradle.api.internal.file.archive.ZipCompressionExecutor;
 import org.gradle.api.internal.file.collections.DirectoryFileTreeFactory;
 import org.gradle.api.internal.hash.DefaultFileHasher;
+import org.gradle.api.internal.hash.FileHashFunction;
 import org.gradle.api.internal.hash.FileHasher;
 import org.gradle.api.internal.tasks.TaskExecuter;
 import org.gradle.api.internal.tasks.cache.GZipTaskOutputPacker;
 import org.gradle.api.internal.tasks.cache.OutputPreparingTaskOutputPacker;
+import org.gradle.api.internal.tasks.cache.ParallelGZipTaskOutputPacker;
 import org.gradle.api.internal.tasks.cache.TarTaskOutputPacker;
+import org.gradle.api.internal.tasks.cache.TaskOutputPackingExecutor;
 import org.gradle.api.internal.tasks.cache.TaskOutputPacker;
 import org.gradle.api.internal.tasks.cache.config.TaskCachingInternal;
 import org.gradle.api.internal.tasks.execution.CatchExceptionTaskExecuter;
@@ -62,6 +72,7 @@ import org.gradle.api.internal.tasks.execution.TaskOutputsGenerationListener;
 import org.gradle.api.internal.tasks.execution.ValidatingTaskExecuter;
 import org.gradle.api.invocation.Gradle;
 import org.gradle.cache.CacheRepository;
+import org.gradle.execution.taskgraph.TaskDurationHistory;
 import org.gradle.execution.taskgraph.TaskPlanExecutor;
 import org.gradle.execution.taskgraph.TaskPlanExecutorFactory;
 import org.gradle.internal.classloader.ClassLoaderHierarchyHasher;
@@ -84,7 +95,7 @@ import java.util.List;
 
 public class TaskExecutionServices {
 
-    TaskExecuter createTaskExecuter(TaskArtifactStateRepository repository, TaskOutputPacker packer, StartParameter startParameter, ListenerManager listenerManager, GradleInternal gradle) {
+    TaskExecuter createTaskExecuter(TaskArtifactStateRepository repository, TaskOutputPacker packer, StartParameter startParameter, ListenerManager listenerManager, GradleInternal gradle, ExecutorFactory executorFactory, TemporaryFileProvider temporaryFileProvider) {
         // TODO - need a more comprehensible way to only collect inputs for the outer build
         //      - we are trying to ignore buildSrc here, but also avoid weirdness with use of GradleBuild tasks
         boolean isOuterBuild = gradle.getParent() == null;
@@ -93,12 +104,14 @@ public class TaskExecutionServices {
             : TaskInputsListener.NOOP;
 
         TaskOutputsGenerationListener taskOutputsGenerationListener = listenerManager.getBroadcaster(TaskOutputsGenerationListener.class);
+        // The states of tasks prepared up-front to prefetch their cached outputs are reused when the tasks execute
+        PreparedTaskArtifactStateRepository stateRepository = new PreparedTaskArtifactStateRepository(repository);
         return new CatchExceptionTaskExecuter(
             new ExecuteAtMostOnceTaskExecuter(
                 new SkipOnlyIfTaskExecuter(
                     new SkipTaskWithNoActionsExecuter(
                         new ResolveTaskArtifactStateTaskExecuter(
-                            repository,
+                            stateRepository,
                             new SkipEmptySourceFilesTaskExecuter(
                                 taskInputsListener,
                                 new ValidatingTaskExecuter(
@@ -108,6 +121,10 @@ public class TaskExecutionServices {
                                             gradle.getTaskCaching(),
                                             packer,
                                             taskOutputsGenerationListener,
+                                            stateRepository,
+                                            listenerManager,
+                                            executorFactory,
+                                            temporaryFileProvider,
                                             new ExecuteActionsTaskExecuter(
                                                 taskOutputsGenerationListener,
                                                 listenerManager.getBroadcaster(TaskActionListener.class)
@@ -123,9 +140,18 @@ public class TaskExecutionServices {
         );
     }
 
-    private static TaskExecuter createSkipCachedExecuterIfNecessary(StartParameter startParameter, TaskCachingInternal taskCaching, TaskOutputPacker packer, TaskOutputsGenerationListener taskOutputsGenerationListener, TaskExecuter delegate) {
+    private static TaskExecuter createSkipCachedExecuterIfNecessary(StartParameter startParameter, TaskCachingInternal taskCaching, TaskOutputPacker packer, TaskOutputsGenerationListener taskOutputsGenerationListener, PreparedTaskArtifactStateRepository repository, ListenerManager listenerManager, ExecutorFactory executorFactory, TemporaryFileProvider temporaryFileProvider, TaskExecuter delegate) {
         if (startParameter.isTaskOutputCacheEnabled()) {
-            return new SkipCachedTaskExecuter(taskCaching, packer, startParameter, taskOutputsGenerationListener, delegate);
+            final SkipCachedTaskExecuter executer = new SkipCachedTaskExecuter(taskCaching, packer, startParameter, taskOutputsGenerationListener, repository, executorFactory, temporaryFileProvider, delegate);
+            listenerManager.addListener(executer);
+            // Wait for any work still pending in the cache, such as asynchronous uploads, before the build completes
+            listenerManager.addListener(new BuildAdapter() {
+                @Override
+                public void buildFinished(BuildResult result) {
+                    executer.stop();
+                }
+            });
+            return executer;
         } else {
             return delegate;
         }
@@ -135,18 +161,25 @@ public class TaskExecutionServices {
         return new DefaultTaskHistoryStore(gradle, cacheRepository, inMemoryTaskArtifactCache);
     }
 
-    CachingFileHasher createFileSnapshotter(TaskHistoryStore cacheAccess, StringInterner stringInterner) {
-        return new CachingFileHasher(new DefaultFileHasher(), cacheAccess, stringInterner);
+    TaskDurationHistory createTaskDurationHistory(TaskHistoryStore cacheAccess) {
+        return new CacheBackedTaskDurationHistory(cacheAccess);
     }
 
-    GenericFileCollectionSnapshotter createGenericFileCollectionSnapshotter(FileHasher hasher, StringInterner stringInterner, FileSystem fileSystem, DirectoryFileTreeFactory directoryFileTreeFactory, ListenerManager listenerManager) {
-        DefaultGenericFileCollectionSnapshotter snapshotter = new DefaultGenericFileCollectionSnapshotter(hasher, stringInterner, fileSystem, directoryFileTreeFactory);
+    CachingFileHasher createFileSnapshotter(TaskHistoryStore cacheAccess, StringInterner stringInterner, ExecutorFactory executorFactory, StartParameter startParameter) {
+        int parallelism = Math.min(startParameter.getMaxWorkerCount(), Runtime.getRuntime().availableProcessors());
+        // File hashes are part of the task output cache keys, so these must keep using the default function
+        FileHashFunction hashFunction = startParameter.isTaskOutputCacheEnabled() ? FileHashFunction.MD5 : FileHashFunction.fromSystemProperties();
+        return new CachingFileHasher(new DefaultFileHasher(hashFunction), cacheAccess, stringInterner, hashFunction, executorFactory, parallelism);
+    }
+
+    GenericFileCollectionSnapshotter createGenericFileCollectionSnapshotter(FileHasher hasher, StringInterner stringInterner, FileSystem fileSystem, DirectoryFileTreeFactory directoryFileTreeFactory, FileSystemMirror fileSystemMirror, ListenerManager listenerManager) {
+        DefaultGenericFileCollectionSnapshotter snapshotter = new DefaultGenericFileCollectionSnapshotter(hasher, stringInterner, fileSystem, directoryFileTreeFactory, fileSystemMirror);
         listenerManager.addListener(snapshotter);
         return snapshotter;
     }
 
-    ClasspathSnapshotter createClasspathSnapshotter(FileHasher hasher, StringInterner stringInterner, FileSystem fileSystem, DirectoryFileTreeFactory directoryFileTreeFactory, ListenerManager listenerManager) {
-        DefaultClasspathSnapshotter snapshotter = new DefaultClasspathSnapshotter(hasher, stringInterner, fileSystem, directoryFileTreeFactory);
+    ClasspathSnapshotter createClasspathSnapshotter(FileHasher hasher, StringInterner stringInterner, FileSystem fileSystem, DirectoryFileTreeFactory directoryFileTreeFactory, FileSystemMirror fileSystemMirror, ListenerManager listenerManager) {
+        DefaultClasspathSnapshotter snapshotter = new DefaultClasspathSnapshotter(hasher, stringInterner, fileSystem, directoryFileTreeFactory, fileSystemMirror);
         listenerManager.addListener(snapshotter);
         return snapshotter;
     }
@@ -197,7 +230,25 @@ public class TaskExecutionServices {
         return new DefaultBuildOperationWorkerRegistry(startParameter.getMaxWorkerCount());
     }
 
-    TaskOutputPacker createTaskResultPacker(FileSystem fileSystem) {
+    TaskOutputPackingExecutor createTaskOutputPackingExecutor(ExecutorFactory executorFactory, StartParameter startParameter) {
+        return new TaskOutputPackingExecutor(executorFactory, startParameter.getMaxWorkerCount());
+    }
+
+    ZipCompressionExecutor createZipCompressionExecutor(ExecutorFactory executorFactory, StartParameter startParameter) {
+        return new ZipCompressionExecutor(executorFactory, Math.min(startParameter.getMaxWorkerCount(), Runtime.getRuntime().availableProcessors()));
+    }
+
+    TaskOutputPacker createTaskResultPacker(FileSystem fileSystem, StartParameter startParameter, ServiceRegistry serviceRegistry) {
+        if (startParameter.getMaxWorkerCount() > 1 && Boolean.getBoolean(ParallelGZipTaskOutputPacker.PARALLEL_PACKING_PROPERTY)) {
+            TaskOutputPackingExecutor packingExecutor = serviceRegistry.get(TaskOutputPackingExecutor.class);
+            return new OutputPreparingTaskOutputPacker(
+                new ParallelGZipTaskOutputPacker(
+                    new TarTaskOutputPacker(fileSystem, packingExecutor.getExecutor()),
+                    packingExecutor.getExecutor(),
+                    packingExecutor.getMaxThreads()
+                )
+            );
+        }
         return new OutputPreparingTaskOutputPacker(
             new GZipTaskOutputPacker(
                 new TarTaskOutputPacker(fileSystem)
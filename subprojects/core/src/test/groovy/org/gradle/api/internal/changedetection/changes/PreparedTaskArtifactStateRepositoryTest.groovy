@@ -0,0 +1,63 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.changedetection.changes
+package org.gradle.api.internal.changedetection.changes
+
+import org.gradle.api.internal.TaskInternal
+import org.gradle.api.internal.changedetection.TaskArtifactState
+import org.gradle.api.internal.changedetection.TaskArtifactStateRepository
+import spock.lang.Specification
+
+class PreparedTaskArtifactStateRepositoryTest extends Specification {
+    def delegate = Mock(TaskArtifactStateRepository)
+    def repository = new PreparedTaskArtifactStateRepository(delegate)
+    def task = Stub(TaskInternal)
+    def preparedState = Mock(TaskArtifactState)
+    def state = Mock(TaskArtifactState)
+
+    def "hands out prepared state once"() {
+        when:
+        def prepared = repository.prepareStateFor(task)
+
+        then:
+        1 * delegate.getStateFor(task) >> preparedState
+        prepared == preparedState
+
+        when:
+        def first = repository.getStateFor(task)
+        def second = repository.getStateFor(task)
+
+        then:
+        1 * delegate.getStateFor(task) >> state
+        first == preparedState
+        second == state
+    }
+
+    def "discards prepared state that is not used"() {
+        given:
+        delegate.getStateFor(task) >>> [preparedState, state]
+        repository.prepareStateFor(task)
+
+        when:
+        repository.discardPreparedState(task)
+
+        then:
+        1 * preparedState.finished()
+
+        and:
+        repository.getStateFor(task) == state
+    }
+}
@@ -19,7 +19,11 @@ package org.gradle.api.internal.changedetection.state
 import com.google.common.base.Charsets
 import com.google.common.hash.Hashing
 import org.gradle.api.internal.cache.StringInterner
+import org.gradle.api.file.FileTreeElement
+import org.gradle.api.internal.hash.DefaultFileHasher
+import org.gradle.api.internal.hash.FileHashFunction
 import org.gradle.api.internal.hash.FileHasher
+import org.gradle.internal.concurrent.DefaultExecutorFactory
 import org.gradle.cache.PersistentIndexedCache
 import org.gradle.internal.resource.TextResource
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
@@ -138,4 +142,38 @@ class CachingFileHasherTest extends Specification {
         1 * target.hash(resource) >> hash
         0 * _._
     }
+
+    def hashesUncachedFilesConcurrentlyInOrder() {
+        def executorFactory = new DefaultExecutorFactory()
+        def files = (1..100).collect { i ->
+            def f = tmpDir.createFile("file${i}.txt")
+            f.text = "content ${i}"
+            Stub(FileTreeElement) {
+                getFile() >> f
+                getSize() >> f.length()
+                getLastModified() >> f.lastModified()
+            }
+        }
+        def cached = files[0]
+        def cachedHash = Hashing.md5().hashString("cached", Charsets.UTF_8)
+        def fileHasher = new DefaultFileHasher()
+
+        when:
+        hasher = new CachingFileHasher(fileHasher, cacheAccess, new StringInterner(), FileHashFunction.MD5, executorFactory, 4)
+        def result = hasher.hashAll(files)
+
+        then:
+        1 * cacheAccess.createCache("fileHashes", _, _) >> cache
+        1 * cache.get(cached.file.absolutePath) >> new FileInfo(cachedHash, cached.size, cached.lastModified)
+        99 * cache.get(_) >> null
+        99 * cache.put(_, _)
+
+        and:
+        result[0] == cachedHash
+        result.subList(1, 100) == files.subList(1, 100).collect { fileHasher.hash(it.file) }
+
+        cleanup:
+        hasher?.stop()
+        executorFactory.stop()
+    }
 }
@@ -20,8 +20,10 @@ import com.google.common.base.Charsets
 import com.google.common.hash.Hashing
 import org.gradle.api.internal.cache.StringInterner
 import org.gradle.internal.serialize.SerializerSpec
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder
 
 import static org.gradle.api.internal.changedetection.state.TaskFilePropertyCompareStrategy.ORDERED
+import static org.gradle.api.internal.changedetection.state.TaskFilePropertyCompareStrategy.OUTPUT
 import static org.gradle.api.internal.changedetection.state.TaskFilePropertyCompareStrategy.UNORDERED
 
 class DefaultFileCollectionSnapshotSerializerTest extends SerializerSpec {
@@ -62,4 +64,81 @@ class DefaultFileCollectionSnapshotSerializerTest extends SerializerSpec {
         then:
         out.snapshots.keySet() as List == ['/3', '/2', '/1']
     }
+
+    def "sorts unordered snapshots by path"() {
+        when:
+        def hash = Hashing.md5().hashString("foo", Charsets.UTF_8)
+        DefaultFileCollectionSnapshot out = serialize(new DefaultFileCollectionSnapshot([
+            "/dir/b/2.txt": new IndexedNormalizedFileSnapshot("/dir/b/2.txt", 7, new FileHashSnapshot(hash)),
+            "/dir/a": new IndexedNormalizedFileSnapshot("/dir/a", 5, DirSnapshot.getInstance()),
+            "/dir/b": new IndexedNormalizedFileSnapshot("/dir/b", 5, DirSnapshot.getInstance()),
+            "/dir/a/1.txt": new IndexedNormalizedFileSnapshot("/dir/a/1.txt", 7, MissingFileSnapshot.getInstance())
+        ], OUTPUT, false), serializer)
+
+        then:
+        out.snapshots.keySet() as List == ['/dir/a', '/dir/a/1.txt', '/dir/b', '/dir/b/2.txt']
+        out.snapshots['/dir/a/1.txt'].normalizedPath == "1.txt"
+        out.snapshots['/dir/a/1.txt'].snapshot instanceof MissingFileSnapshot
+        out.snapshots['/dir/b/2.txt'].normalizedPath == "2.txt"
+        out.snapshots['/dir/b/2.txt'].snapshot.hash == hash
+        out.snapshots.containsKey('/dir/b')
+        !out.snapshots.containsKey('/dir/c')
+        out.snapshots['/dir'] == null
+        out.compareStrategy == OUTPUT
+        !out.pathIsAbsolute
+    }
+
+    def "reads and writes paths sharing prefixes"() {
+        when:
+        def snapshots = [:]
+        ["/", "/a", "/ab", "/ab/c", "/a\u00e9", "/a\ud83d\ude00/x", "/a\ud83d\ude01/y", "", "/z"].each {
+            snapshots[it] = new NonNormalizedFileSnapshot(it, DirSnapshot.getInstance())
+        }
+        snapshots["/ab/d"] = new IgnoredPathFileSnapshot(MissingFileSnapshot.getInstance())
+        DefaultFileCollectionSnapshot out = serialize(new DefaultFileCollectionSnapshot(snapshots, ORDERED, true), serializer)
+
+        then:
+        out.snapshots == snapshots
+        out.snapshots.keySet() as List == snapshots.keySet() as List
+        out.snapshots['/ab/d'] instanceof IgnoredPathFileSnapshot
+    }
+
+    def "serialized snapshot can be serialized again"() {
+        def hash = Hashing.md5().hashString("foo", Charsets.UTF_8)
+        def original = new DefaultFileCollectionSnapshot([
+            "/b": new DefaultNormalizedFileSnapshot("b", new FileHashSnapshot(hash)),
+            "/a": new DefaultNormalizedFileSnapshot("a", DirSnapshot.getInstance())
+        ], UNORDERED, true)
+
+        when:
+        def bytes = toBytes(original, serializer)
+        def out = fromBytes(bytes, serializer)
+
+        then:
+        toBytes(out, serializer) == bytes
+        out.snapshots == original.snapshots
+    }
+
+    def "reads snapshots in the legacy format"() {
+        def hash = Hashing.md5().hashString("foo", Charsets.UTF_8)
+        def snapshots = [
+            "/3": new DefaultNormalizedFileSnapshot("3", new FileHashSnapshot(hash)),
+            "/2": new IndexedNormalizedFileSnapshot("/2", 1, MissingFileSnapshot.getInstance()),
+            "/1": new NonNormalizedFileSnapshot("/1", DirSnapshot.getInstance())
+        ]
+        def bytes = new ByteArrayOutputStream()
+        def encoder = new KryoBackedEncoder(bytes)
+        encoder.writeSmallInt(UNORDERED.ordinal())
+        new SnapshotMapSerializer(stringInterner).write(encoder, snapshots)
+        encoder.writeBoolean(true)
+        encoder.flush()
+
+        when:
+        DefaultFileCollectionSnapshot out = fromBytes(bytes.toByteArray(), serializer)
+
+        then:
+        out.snapshots == snapshots
+        out.compareStrategy == UNORDERED
+        out.pathIsAbsolute
+    }
 }
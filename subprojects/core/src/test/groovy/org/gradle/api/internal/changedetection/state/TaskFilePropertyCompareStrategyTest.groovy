@@ -18,6 +18,7 @@ package org.gradle.api.internal.changedetection.state
 
 import com.google.common.collect.Lists
 import com.google.common.hash.HashCode
+import org.gradle.api.internal.cache.StringInterner
 import org.gradle.api.internal.changedetection.rules.ChangeType
 import org.gradle.api.internal.changedetection.rules.FileChange
 import spock.lang.Specification
@@ -232,6 +233,53 @@ class TaskFilePropertyCompareStrategyTest extends Specification {
         strategy << [ORDERED, UNORDERED, OUTPUT]
     }
 
+    @Unroll
+    def "reports changes in path order (#strategy)"() {
+        expect:
+        changesUsingAbsolutePaths(strategy,
+            ["d": snapshot("d"), "a": snapshot("a", "9876cafe"), "c": snapshot("c"), "e": snapshot("e")],
+            ["e": snapshot("e"), "b": snapshot("b"), "a": snapshot("a"), "c": snapshot("c")]
+        ) == results
+
+        where:
+        strategy  | results
+        UNORDERED | [change("a", MODIFIED), change("b", REMOVED), change("d", ADDED)]
+        OUTPUT    | [change("a", MODIFIED), change("b", REMOVED)]
+    }
+
+    @Unroll
+    def "handling modified duplicates (#strategy)"() {
+        expect:
+        changes(strategy,
+            ["one-new-1": snapshot("one", "9876cafe"), "one-new-2": snapshot("one"), "one-new-3": snapshot("one", "5678abcd"), "two-new": snapshot("two")],
+            ["one-old-1": snapshot("one"), "one-old-2": snapshot("one", "face1234"), "two-old": snapshot("two")]
+        ) == results
+
+        where:
+        strategy  | results
+        UNORDERED | [change("one-new-1", MODIFIED), change("one-new-3", ADDED)]
+        OUTPUT    | [change("one-new-1", MODIFIED)]
+    }
+
+    @Unroll
+    def "compares against compact snapshots (#strategy)"() {
+        def previous = CompactSnapshotMap.of([
+            "/c": snapshot("c"), "/b": snapshot("b"), "/a": snapshot("a")
+        ], true, new StringInterner())
+
+        expect:
+        previous.isSorted()
+        changesUsingAbsolutePaths(strategy,
+            ["/a": snapshot("a"), "/b": snapshot("b", "9876cafe"), "/d": snapshot("d")],
+            previous
+        ) == results
+
+        where:
+        strategy  | results
+        UNORDERED | [change("/b", MODIFIED), change("/c", REMOVED), change("/d", ADDED)]
+        OUTPUT    | [change("/b", MODIFIED), change("/c", REMOVED)]
+    }
+
     @Unroll
     def "too many elements not handled by trivial comparison (#current.size() current vs #previous.size() previous)"() {
         expect:
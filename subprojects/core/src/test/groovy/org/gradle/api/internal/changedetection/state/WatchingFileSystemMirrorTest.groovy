@@ -0,0 +1,173 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.changedetection.state
+
+import org.gradle.api.Action
+import org.gradle.api.internal.file.TestFiles
+import org.gradle.api.internal.file.collections.DirectoryFileTree
+import org.gradle.api.specs.Spec
+import org.gradle.api.tasks.util.PatternSet
+import org.gradle.internal.filewatch.FileWatcher
+import org.gradle.internal.filewatch.FileWatcherEvent
+import org.gradle.internal.filewatch.FileWatcherFactory
+import org.gradle.internal.filewatch.FileWatcherListener
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class WatchingFileSystemMirrorTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    def watcher = Mock(FileWatcher)
+    def fileWatcherFactory = Mock(FileWatcherFactory)
+    FileWatcherListener listener
+    Action<? super Throwable> onError
+    def mirror = new WatchingFileSystemMirror(fileWatcherFactory)
+    def elements = [Stub(FileDetails)]
+
+    def setup() {
+        _ * fileWatcherFactory.watch(_, _) >> { Action<? super Throwable> errorHandler, FileWatcherListener fileWatcherListener ->
+            onError = errorHandler
+            listener = fileWatcherListener
+            watcher
+        }
+        _ * watcher.isRunning() >> true
+    }
+
+    def "returns recorded tree until a file in it changes"() {
+        def dir = tmpDir.createDir("dir")
+        def tree = tree(dir)
+
+        when:
+        mirror.beginVisit(tree).record(elements)
+
+        then:
+        1 * watcher.watch({ it.contains(tree.dir) })
+        mirror.getDirectoryTree(tree(dir)) == elements
+        mirror.getDirectoryTree(tree(dir, new PatternSet().include("**/*.java"))) == null
+
+        when:
+        listener.onChange(watcher, FileWatcherEvent.modify(new File(tree.dir, "sub/file.txt")))
+
+        then:
+        mirror.getDirectoryTree(tree) == null
+    }
+
+    def "does not record tree that changes while it is visited"() {
+        def dir = tmpDir.createDir("dir")
+        def tree = tree(dir)
+
+        when:
+        def recorder = mirror.beginVisit(tree)
+        listener.onChange(watcher, FileWatcherEvent.create(new File(tree.dir, "new.txt")))
+        recorder.record(elements)
+
+        then:
+        mirror.getDirectoryTree(tree) == null
+    }
+
+    def "changes outside of the tree do not discard it"() {
+        def dir = tmpDir.createDir("dir")
+        def tree = tree(dir)
+        mirror.beginVisit(tree).record(elements)
+
+        when:
+        listener.onChange(watcher, FileWatcherEvent.modify(new File(tree.dir.parentFile, "dir-other/file.txt")))
+
+        then:
+        mirror.getDirectoryTree(tree) == elements
+    }
+
+    def "discards trees below a changed directory"() {
+        def dir1 = tmpDir.createDir("parent/dir1")
+        def dir2 = tmpDir.createDir("parent/dir2")
+        def other = tmpDir.createDir("parent-other")
+        mirror.beginVisit(tree(dir1)).record(elements)
+        mirror.beginVisit(tree(dir2)).record(elements)
+        mirror.beginVisit(tree(other)).record(elements)
+
+        when:
+        listener.onChange(watcher, FileWatcherEvent.delete(dir1.parentFile))
+
+        then:
+        mirror.getDirectoryTree(tree(dir1)) == null
+        mirror.getDirectoryTree(tree(dir2)) == null
+        mirror.getDirectoryTree(tree(other)) == elements
+
+        when:
+        mirror.beginVisit(tree(dir1)).record(elements)
+
+        then:
+        mirror.getDirectoryTree(tree(dir1)) == elements
+    }
+
+    def "discards all trees when events are lost or watching fails"() {
+        def dir1 = tmpDir.createDir("dir1")
+        def dir2 = tmpDir.createDir("dir2")
+
+        when:
+        mirror.beginVisit(tree(dir1)).record(elements)
+        mirror.beginVisit(tree(dir2)).record(elements)
+        listener.onChange(watcher, FileWatcherEvent.undefined())
+
+        then:
+        mirror.getDirectoryTree(tree(dir1)) == null
+        mirror.getDirectoryTree(tree(dir2)) == null
+
+        when:
+        mirror.beginVisit(tree(dir1)).record(elements)
+        onError.execute(new RuntimeException("broken"))
+
+        then:
+        mirror.getDirectoryTree(tree(dir1)) == null
+
+        when:
+        mirror.beginVisit(tree(dir1)).record(elements)
+
+        then:
+        1 * watcher.stop()
+        mirror.getDirectoryTree(tree(dir1)) == elements
+    }
+
+    def "does not mirror trees that cannot be watched or compared"() {
+        def dir = tmpDir.createDir("dir")
+        def patterns = new PatternSet()
+        patterns.include({ true } as Spec)
+
+        when:
+        def missingDirRecorder = mirror.beginVisit(tree(tmpDir.file("missing")))
+        def specRecorder = mirror.beginVisit(tree(dir, patterns))
+
+        then:
+        missingDirRecorder == null
+        specRecorder == null
+        0 * watcher.watch(_)
+
+        when:
+        def recorder = mirror.beginVisit(tree(dir))
+
+        then:
+        1 * watcher.watch(_) >> { throw new IOException("too many watches") }
+        recorder == null
+        mirror.beginVisit(tree(dir)) == null
+    }
+
+    private static DirectoryFileTree tree(File dir, PatternSet patterns = new PatternSet()) {
+        return new DirectoryFileTree(dir, patterns, TestFiles.fileSystem())
+    }
+}
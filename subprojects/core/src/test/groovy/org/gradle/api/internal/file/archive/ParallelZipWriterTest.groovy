@@ -0,0 +1,215 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.file.archive
+
+import org.apache.tools.zip.UnixStat
+import org.apache.tools.zip.Zip64RequiredException
+import org.apache.tools.zip.ZipFile
+import org.gradle.api.Action
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+import java.util.zip.ZipEntry
+
+class ParallelZipWriterTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+
+    def executorFactory = new DefaultExecutorFactory()
+    def lastModified = new GregorianCalendar(2016, 10, 2, 13, 14, 16).timeInMillis
+
+    def cleanup() {
+        executorFactory.stop()
+    }
+
+    def "writes entries that can be read back"() {
+        def zip = tmpDir.file("test.zip")
+
+        when:
+        write(zip, 4, false) { ParallelZipWriter writer ->
+            writer.putDirectory("dir/", lastModified, UnixStat.DIR_FLAG | 0755)
+            putFile(writer, "dir/file1.txt", "contents of dir/file1" * 100, 0644)
+            putFile(writer, "file2.txt", "contents of file2", 0444)
+        }
+
+        then:
+        def zipFile = new ZipFile(zip, "UTF-8")
+        def entries = zipFile.entries.toList()
+        entries*.name == ["dir/", "dir/file1.txt", "file2.txt"]
+        entries[0].directory
+        entries[0].unixMode == (UnixStat.DIR_FLAG | 0755)
+        entries[1].method == ZipEntry.DEFLATED
+        entries[1].unixMode == (UnixStat.FILE_FLAG | 0644)
+        entries[1].time == lastModified
+        entries[2].unixMode == (UnixStat.FILE_FLAG | 0444)
+        zipFile.getInputStream(entries[1]).text == "contents of dir/file1" * 100
+        zipFile.getInputStream(entries[2]).text == "contents of file2"
+
+        cleanup:
+        zipFile?.close()
+    }
+
+    def "output does not depend on parallelism"() {
+        def random = new Random(42)
+        def contents = (0..<200).collect { i ->
+            def bytes = new byte[random.nextInt(20000)]
+            // Make the content compressible
+            for (int j = 0; j < bytes.length; j++) {
+                bytes[j] = (byte) ('a' + random.nextInt(4))
+            }
+            bytes
+        }
+        def sequential = tmpDir.file("sequential.zip")
+        def parallel = tmpDir.file("parallel.zip")
+
+        when:
+        [(sequential): 1, (parallel): 8].each { file, parallelism ->
+            write(file, parallelism, false) { ParallelZipWriter writer ->
+                contents.eachWithIndex { byte[] content, int i ->
+                    putFile(writer, "file${i}.txt", content, 0644)
+                }
+            }
+        }
+
+        then:
+        sequential.bytes == parallel.bytes
+        new java.util.zip.ZipFile(parallel).withCloseable { it.entries().toList()*.name } == (0..<200).collect { "file${it}.txt" }
+    }
+
+    def "can store already compressed files"() {
+        def zip = tmpDir.file("test.zip")
+
+        when:
+        write(zip, 2, storeCompressedFiles) { ParallelZipWriter writer ->
+            putFile(writer, "lib/library.jar", "jar contents", 0644)
+            putFile(writer, "image.PNG", "image contents", 0644)
+            putFile(writer, "text.txt", "text contents", 0644)
+        }
+
+        then:
+        def zipFile = new ZipFile(zip)
+        zipFile.entries.toList().collect { it.method } == methods
+        zipFile.getInputStream(zipFile.getEntry("lib/library.jar")).text == "jar contents"
+
+        cleanup:
+        zipFile?.close()
+
+        where:
+        storeCompressedFiles | methods
+        false                | [ZipEntry.DEFLATED, ZipEntry.DEFLATED, ZipEntry.DEFLATED]
+        true                 | [ZipEntry.STORED, ZipEntry.STORED, ZipEntry.DEFLATED]
+    }
+
+    def "streams large files after the entries added before them"() {
+        def zip = tmpDir.file("test.zip")
+        def large = ("large content " * (ParallelZipWriter.MAX_BUFFERED_ENTRY_SIZE / 10)).bytes
+
+        when:
+        write(zip, 4, true) { ParallelZipWriter writer ->
+            putFile(writer, "small1.txt", "small 1", 0644)
+            putFile(writer, "large.txt", large, 0644)
+            putFile(writer, "large.zip", large, 0644)
+            putFile(writer, "small2.txt", "small 2", 0644)
+        }
+
+        then:
+        def zipFile = new ZipFile(zip)
+        zipFile.entries.toList()*.name == ["small1.txt", "large.txt", "large.zip", "small2.txt"]
+        zipFile.getEntry("large.txt").method == ZipEntry.DEFLATED
+        zipFile.getEntry("large.zip").method == ZipEntry.STORED
+        zipFile.getInputStream(zipFile.getEntry("large.txt")).bytes == large
+        zipFile.getInputStream(zipFile.getEntry("large.zip")).bytes == large
+        zipFile.getInputStream(zipFile.getEntry("small2.txt")).text == "small 2"
+
+        cleanup:
+        zipFile?.close()
+    }
+
+    def "can be read with the JDK zip stream"() {
+        def zip = tmpDir.file("test.zip")
+        def large = ("large content " * (ParallelZipWriter.MAX_BUFFERED_ENTRY_SIZE / 10)).bytes
+
+        when:
+        write(zip, 4, false) { ParallelZipWriter writer ->
+            writer.putDirectory("dir/", lastModified, UnixStat.DIR_FLAG | 0755)
+            putFile(writer, "dir/small.txt", "small", 0644)
+            putFile(writer, "dir/large.txt", large, 0644)
+        }
+
+        then:
+        def contents = [:]
+        new java.util.zip.ZipInputStream(zip.newInputStream()).withCloseable { input ->
+            def entry
+            while ((entry = input.nextEntry) != null) {
+                contents[entry.name] = entry.directory ? null : input.bytes.length
+            }
+        }
+        contents == ["dir/": null, "dir/small.txt": 5, "dir/large.txt": large.length]
+    }
+
+    def "fails when archive has too many entries and zip64 is not enabled"() {
+        def zip = tmpDir.file("test.zip")
+
+        when:
+        write(zip, 1, false, false) { ParallelZipWriter writer ->
+            for (int i = 0; i < 65536; i++) {
+                writer.putDirectory("dir${i}/", lastModified, UnixStat.DIR_FLAG | 0755)
+            }
+        }
+
+        then:
+        def e = thrown(Zip64RequiredException)
+        e.message == "archive contains more than 65535 entries."
+    }
+
+    def "uses zip64 extensions for archives with many entries"() {
+        def zip = tmpDir.file("test.zip")
+
+        when:
+        write(zip, 1, false, true) { ParallelZipWriter writer ->
+            for (int i = 0; i < 65536; i++) {
+                writer.putDirectory("dir${i}/", lastModified, UnixStat.DIR_FLAG | 0755)
+            }
+        }
+
+        then:
+        new java.util.zip.ZipFile(zip).withCloseable { it.size() } == 65536
+    }
+
+    private void write(File zip, int parallelism, boolean storeCompressedFiles, boolean allowZip64 = false, Closure action) {
+        def writer = new ParallelZipWriter(new ZipWriter(zip, "UTF-8", allowZip64), storeCompressedFiles, executorFactory.create("compress", parallelism), parallelism)
+        try {
+            action(writer)
+        } finally {
+            writer.close()
+        }
+    }
+
+    private void putFile(ParallelZipWriter writer, String name, String content, int mode) {
+        putFile(writer, name, content.getBytes("UTF-8"), mode)
+    }
+
+    private void putFile(ParallelZipWriter writer, String name, byte[] content, int mode) {
+        writer.putFile(name, lastModified, UnixStat.FILE_FLAG | mode, content.length, new Action<OutputStream>() {
+            void execute(OutputStream outputStream) {
+                outputStream.write(content)
+            }
+        })
+    }
+}
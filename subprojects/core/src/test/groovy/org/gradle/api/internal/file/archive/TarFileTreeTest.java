@@ -17,16 +17,22 @@ package org.gradle.api.internal.file.archive;
 
 import org.gradle.api.GradleException;
 import org.gradle.api.InvalidUserDataException;
+import org.gradle.api.file.FileVisitDetails;
+import org.gradle.api.file.FileVisitor;
 import org.gradle.api.internal.file.FileResource;
 import org.gradle.api.internal.file.MaybeCompressedFileResource;
 import org.gradle.api.resources.MissingResourceException;
+import org.gradle.api.tasks.util.PatternSet;
 import org.gradle.test.fixtures.file.TestFile;
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider;
 import org.gradle.util.Resources;
 import org.junit.Rule;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.gradle.api.file.FileVisitorUtil.*;
@@ -44,7 +50,7 @@ public class TarFileTreeTest {
     private final TestFile tarFile = tmpDir.getTestDirectory().file("test.tar");
     private final TestFile rootDir = tmpDir.getTestDirectory().file("root");
     private final TestFile expandDir = tmpDir.getTestDirectory().file("tmp");
-    private final TarFileTree tree = new TarFileTree(tarFile, new MaybeCompressedFileResource(new FileResource(tarFile)), expandDir, fileSystem(), fileSystem(), directoryFileTreeFactory());
+    private final TarFileTree tree = new TarFileTree(tarFile, new MaybeCompressedFileResource(new FileResource(tarFile)), expandDir, fileSystem(), fileSystem(), directoryFileTreeFactory(), new TarIndexCache());
 
     @Test
     public void displayName() {
@@ -69,7 +75,7 @@ public class TarFileTreeTest {
         rootDir.file("subdir2/file2.txt").write("content");
         rootDir.tgzTo(tgz);
 
-        TarFileTree tree = new TarFileTree(tarFile, new MaybeCompressedFileResource(new FileResource(tgz)), expandDir, fileSystem(), fileSystem(), directoryFileTreeFactory());
+        TarFileTree tree = new TarFileTree(tarFile, new MaybeCompressedFileResource(new FileResource(tgz)), expandDir, fileSystem(), fileSystem(), directoryFileTreeFactory(), new TarIndexCache());
 
         assertVisits(tree, toList("subdir/file1.txt", "subdir2/file2.txt"), toList("subdir", "subdir2"));
         assertSetContainsForAllTypes(tree, toList("subdir/file1.txt", "subdir2/file2.txt"));
@@ -83,12 +89,66 @@ public class TarFileTreeTest {
         rootDir.file("subdir2/file2.txt").write("content");
         rootDir.tbzTo(tbz2);
 
-        TarFileTree tree = new TarFileTree(tarFile, new MaybeCompressedFileResource(new FileResource(tbz2)), expandDir, fileSystem(), fileSystem(), directoryFileTreeFactory());
+        TarFileTree tree = new TarFileTree(tarFile, new MaybeCompressedFileResource(new FileResource(tbz2)), expandDir, fileSystem(), fileSystem(), directoryFileTreeFactory(), new TarIndexCache());
 
         assertVisits(tree, toList("subdir/file1.txt", "subdir2/file2.txt"), toList("subdir", "subdir2"));
         assertSetContainsForAllTypes(tree, toList("subdir/file1.txt", "subdir2/file2.txt"));
     }
 
+    @Test
+    public void visitsMatchingEntriesOfFilteredTarFile() {
+        rootDir.file("subdir/file1.txt").write("content");
+        rootDir.file("subdir/file2.xml").write("content");
+        rootDir.file("subdir2/file3.txt").write("content");
+        rootDir.tarTo(tarFile);
+
+        TarFileTree filtered = tree.filter(new PatternSet().include("**/*.txt")).filter(new PatternSet().exclude("subdir2/**"));
+
+        assertVisits(filtered, toList("subdir/file1.txt"), Collections.<String>emptyList());
+        assertVisits(filtered, toList("subdir/file1.txt"), Collections.<String>emptyList());
+    }
+
+    @Test
+    public void canReadEntriesInAnyOrderOnceTarFileIsIndexed() {
+        rootDir.file("file1.txt").write("content 1");
+        rootDir.file("file2.txt").write("content 2");
+        rootDir.file("file3.txt").write("content 3");
+        rootDir.tarTo(tarFile);
+
+        assertVisits(tree, toList("file1.txt", "file2.txt", "file3.txt"), Collections.<String>emptyList());
+
+        final List<FileVisitDetails> visited = new ArrayList<FileVisitDetails>();
+        final List<String> contents = new ArrayList<String>();
+        tree.visit(new FileVisitor() {
+            public void visitDir(FileVisitDetails dirDetails) {
+            }
+
+            public void visitFile(FileVisitDetails fileDetails) {
+                visited.add(fileDetails);
+                if (visited.size() == 3) {
+                    for (int i = visited.size() - 1; i >= 0; i--) {
+                        contents.add(readText(visited.get(i)));
+                    }
+                }
+            }
+        });
+
+        assertThat(contents, equalTo(toList("content 3", "content 2", "content 1")));
+    }
+
+    @Test
+    public void visitsContentsOfTarFileAgainWhenItHasChanged() {
+        rootDir.file("file1.txt").write("content");
+        rootDir.tarTo(tarFile);
+
+        assertVisits(tree, toList("file1.txt"), Collections.<String>emptyList());
+
+        rootDir.file("file2.txt").write("content");
+        rootDir.tarTo(tarFile);
+
+        assertVisits(tree, toList("file1.txt", "file2.txt"), Collections.<String>emptyList());
+    }
+
     @Test
     public void canStopVisitingFiles() {
         rootDir.file("subdir/file1.txt").write("content");
@@ -154,4 +214,8 @@ public class TarFileTreeTest {
 
         assertVisitsPermissions(tree, expected);
     }
+
+    private static String readText(FileVisitDetails details) {
+        return new TestFile(details.getFile()).getText();
+    }
 }
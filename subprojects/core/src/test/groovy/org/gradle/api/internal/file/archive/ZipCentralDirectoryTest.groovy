@@ -0,0 +1,142 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.file.archive
+
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+import java.util.zip.CRC32
+import java.util.zip.Inflater
+import java.util.zip.InflaterInputStream
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+
+class ZipCentralDirectoryTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+
+    def "reads entries written with data descriptors"() {
+        def zip = tmpDir.file("test.zip")
+        new ZipOutputStream(zip.newOutputStream()).withCloseable { output ->
+            output.setComment("some comment")
+            output.putNextEntry(new ZipEntry("dir/"))
+            output.closeEntry()
+            output.putNextEntry(new ZipEntry("dir/file.txt"))
+            output << "contents of file" * 10
+            output.closeEntry()
+            def stored = new ZipEntry("stored.txt")
+            stored.method = ZipEntry.STORED
+            stored.size = 6
+            stored.crc = crc("stored")
+            output.putNextEntry(stored)
+            output << "stored"
+            output.closeEntry()
+        }
+
+        when:
+        def centralDirectory = ZipCentralDirectory.open(zip, "UTF-8")
+        def entries = centralDirectory.entries
+
+        then:
+        entries.keySet().toList() == ["dir/", "dir/file.txt", "stored.txt"]
+        entries["dir/file.txt"].method == ZipEntry.DEFLATED
+        entries["dir/file.txt"].size == 160
+        entries["dir/file.txt"].crc == crc("contents of file" * 10)
+        entries["stored.txt"].method == ZipEntry.STORED
+        inflate(centralDirectory.openCompressedData(entries["dir/file.txt"])) == "contents of file" * 10
+        centralDirectory.openCompressedData(entries["stored.txt"]).text == "stored"
+
+        cleanup:
+        centralDirectory?.close()
+    }
+
+    def "reads entries of archives written with zip64 extensions"() {
+        def zip = tmpDir.file("test.zip")
+        def writer = new ZipWriter(zip, "UTF-8", true)
+        for (int i = 0; i < 65536; i++) {
+            writer.putDirectory("dir${i}/", 0, 040755)
+        }
+        def content = "content".bytes
+        def output = writer.putStreamingEntry("file.txt", 0, 0100644, ZipWriter.DEFLATED)
+        output.write(content)
+        output.close()
+        writer.close()
+
+        when:
+        def centralDirectory = ZipCentralDirectory.open(zip, "UTF-8")
+
+        then:
+        centralDirectory.entries.size() == 65537
+        centralDirectory.getEntry("file.txt").size == content.length
+        inflate(centralDirectory.openCompressedData(centralDirectory.getEntry("file.txt"))) == "content"
+
+        cleanup:
+        centralDirectory?.close()
+    }
+
+    def "reads modification time, permissions and content of entries"() {
+        def zip = tmpDir.file("test.zip")
+        def lastModified = new GregorianCalendar(2016, 10, 2, 13, 14, 16).timeInMillis
+        def writer = new ZipWriter(zip, "UTF-8", false)
+        writer.putDirectory("dir/", lastModified, 040755)
+        def output = writer.putStreamingEntry("dir/file.txt", lastModified, 0100640, ZipWriter.DEFLATED)
+        output.write(("contents of file" * 10).bytes)
+        output.close()
+        output = writer.putStreamingEntry("stored.txt", lastModified, 0100644, ZipWriter.STORED)
+        output.write("stored".bytes)
+        output.close()
+        writer.close()
+
+        when:
+        def centralDirectory = ZipCentralDirectory.open(zip, "UTF-8")
+        def entries = centralDirectory.entries
+
+        then:
+        entries["dir/"].directory
+        entries["dir/"].unixMode == 040755
+        !entries["dir/file.txt"].directory
+        entries["dir/file.txt"].unixMode == 0100640
+        entries["dir/file.txt"].lastModified == lastModified
+        centralDirectory.openContent(entries["dir/file.txt"]).text == "contents of file" * 10
+        centralDirectory.openContent(entries["stored.txt"]).text == "stored"
+
+        cleanup:
+        centralDirectory?.close()
+    }
+
+    def "fails for files that are not ZIP files"() {
+        def file = tmpDir.file("test.zip") << "not a zip file"
+
+        when:
+        ZipCentralDirectory.open(file, null)
+
+        then:
+        thrown(java.util.zip.ZipException)
+    }
+
+    private static long crc(String content) {
+        def crc = new CRC32()
+        crc.update(content.bytes)
+        return crc.value
+    }
+
+    private static String inflate(InputStream compressed) {
+        // Inflating raw data needs an extra dummy byte at the end
+        return new InflaterInputStream(new SequenceInputStream(compressed, new ByteArrayInputStream([0] as byte[])), new Inflater(true)).text
+    }
+}
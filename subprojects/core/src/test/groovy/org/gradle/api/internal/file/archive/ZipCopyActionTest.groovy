@@ -17,13 +17,17 @@ package org.gradle.api.internal.file.archive
 
 import org.apache.tools.zip.Zip64RequiredException
 import org.apache.tools.zip.ZipOutputStream
+import org.gradle.api.file.EmptyFileVisitor
+import org.gradle.api.file.FileVisitDetails
 import org.gradle.api.file.RelativePath
 import org.gradle.api.internal.DocumentationRegistry
 import org.gradle.api.internal.file.CopyActionProcessingStreamAction
 import org.gradle.api.internal.file.copy.CopyActionProcessingStream
 import org.gradle.api.internal.file.copy.DefaultZipCompressor
 import org.gradle.api.internal.file.copy.FileCopyDetailsInternal
+import org.gradle.api.internal.file.copy.ParallelZipCompressor
 import org.gradle.api.tasks.bundling.Zip
+import org.gradle.internal.concurrent.DefaultExecutorFactory
 import org.gradle.test.fixtures.file.TestFile
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.junit.Rule
@@ -76,6 +80,86 @@ class ZipCopyActionTest extends Specification {
         expandDir.file("file2").assertContents(equalTo("contents of file2"))
     }
 
+    void createsZipFileWithEntriesCompressedInParallel() {
+        given:
+        def executorFactory = new DefaultExecutorFactory()
+        visitor = new ZipCopyAction(zipFile, new ParallelZipCompressor(false, false, executorFactory.create("compress", 4), 4), new DocumentationRegistry(), encoding)
+        zip(dir("dir"), file("dir/file1"), file("file2"))
+
+        when:
+        TestFile expandDir = tmpDir.getTestDirectory().file("expanded")
+        zipFile.unzipTo(expandDir)
+
+        then:
+        expandDir.file("dir/file1").assertContents(equalTo("contents of dir/file1"))
+        expandDir.file("file2").assertContents(equalTo("contents of file2"))
+        assertVisitsPermissions(new ZipFileTree(zipFile, null, fileSystem(), directoryFileTreeFactory()), [dir: 2, file1: 1, file2: 1])
+
+        cleanup:
+        executorFactory.stop()
+    }
+
+    void doesNotApplyTheFiltersOfAFileToDetermineItsSizeWhenCompressingInParallel() {
+        given:
+        def executorFactory = new DefaultExecutorFactory()
+        visitor = new ZipCopyAction(zipFile, new ParallelZipCompressor(false, false, executorFactory.create("compress", 4), 4), new DocumentationRegistry(), encoding)
+        def filtered = file("filtered")
+
+        when:
+        zip(filtered)
+
+        then:
+        0 * filtered.getSize()
+        zipFile.unzipTo(tmpDir.getTestDirectory().file("expanded"))
+        tmpDir.getTestDirectory().file("expanded/filtered").assertContents(equalTo("contents of filtered"))
+
+        cleanup:
+        executorFactory.stop()
+    }
+
+    void copiesUnfilteredEntriesOfZipFilesWithoutRecompressingThem() {
+        given:
+        def executorFactory = new DefaultExecutorFactory()
+        visitor = new ZipCopyAction(zipFile, new ParallelZipCompressor(false, false, executorFactory.create("compress", 4), 4), new DocumentationRegistry(), encoding)
+        def content = (0..<1000).collect { "line $it" }.join("\n")
+        def source = tmpDir.file("source.zip")
+        new java.util.zip.ZipOutputStream(source.newOutputStream()).withCloseable { output ->
+            // Use a different level than the one used to deflate entries
+            output.level = 1
+            output.putNextEntry(new java.util.zip.ZipEntry("file.txt"))
+            output << content
+            output.closeEntry()
+        }
+        def sourceTree = new ZipFileTree(source, tmpDir.file("tmp"), fileSystem(), directoryFileTreeFactory())
+
+        when:
+        visitor.execute(new CopyActionProcessingStream() {
+            public void process(CopyActionProcessingStreamAction action) {
+                sourceTree.visit(new EmptyFileVisitor() {
+                    @Override
+                    void visitFile(FileVisitDetails details) {
+                        action.processFile(sourceFile(details, "copied/file.txt", true))
+                        action.processFile(sourceFile(details, "filtered/file.txt", false))
+                    }
+                })
+            }
+        })
+
+        then:
+        def sourceSize = new java.util.zip.ZipFile(source).withCloseable { it.getEntry("file.txt").compressedSize }
+        new java.util.zip.ZipFile(zipFile).withCloseable { zip ->
+            assert zip.getEntry("copied/file.txt").compressedSize == sourceSize
+            assert zip.getEntry("filtered/file.txt").compressedSize != sourceSize
+            assert zip.getInputStream(zip.getEntry("copied/file.txt")).text == content
+            assert zip.getInputStream(zip.getEntry("filtered/file.txt")).text == content
+            true
+        }
+        !tmpDir.file("tmp").exists()
+
+        cleanup:
+        executorFactory.stop()
+    }
+
     void zipFileContainsExpectedPermissions() {
         given:
         zip(dir("dir"), file("file"))
@@ -149,6 +233,25 @@ class ZipCopyActionTest extends Specification {
         e.cause.is(failure)
     }
 
+    void wrapsFailureToAddElementWhenCompressingInParallel() {
+        given:
+        def executorFactory = new DefaultExecutorFactory()
+        visitor = new ZipCopyAction(zipFile, new ParallelZipCompressor(false, false, executorFactory.create("compress", 4), 4), new DocumentationRegistry(), encoding)
+        Throwable failure = new RuntimeException("broken")
+        def brokenFile = brokenFile("dir/file1", failure)
+
+        when:
+        visit(visitor, brokenFile)
+
+        then:
+        def e = thrown(Exception)
+        e.message == String.format("Could not add $brokenFile to ZIP '%s'.", zipFile)
+        e.cause.is(failure)
+
+        cleanup:
+        executorFactory.stop()
+    }
+
     private void zip(final FileCopyDetailsInternal... files) {
         visitor.execute(new CopyActionProcessingStream() {
             public void process(CopyActionProcessingStreamAction action) {
@@ -171,6 +274,20 @@ class ZipCopyActionTest extends Specification {
         mock
     }
 
+    private FileCopyDetailsInternal sourceFile(FileVisitDetails source, String path, boolean unfiltered) {
+        def mock = Mock(FileCopyDetailsInternal)
+        mock.getRelativePath() >> RelativePath.parse(true, path)
+        mock.getLastModified() >> source.lastModified
+        mock.isDirectory() >> false
+        mock.getMode() >> source.mode
+        mock.getSize() >> source.size
+        mock.getUnfilteredSource() >> (unfiltered ? source : null)
+        mock.copyTo(_ as OutputStream) >> { OutputStream out ->
+            source.copyTo(out)
+        }
+        mock
+    }
+
     private FileCopyDetailsInternal dir(final String path) {
         def mock = Mock(FileCopyDetailsInternal)
         mock.getRelativePath() >> RelativePath.parse(false, path)
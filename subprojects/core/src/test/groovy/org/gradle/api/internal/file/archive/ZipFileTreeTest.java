@@ -17,12 +17,14 @@ package org.gradle.api.internal.file.archive;
 
 import org.gradle.api.GradleException;
 import org.gradle.api.InvalidUserDataException;
+import org.gradle.api.tasks.util.PatternSet;
 import org.gradle.test.fixtures.file.TestFile;
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider;
 import org.gradle.util.Resources;
 import org.junit.Rule;
 import org.junit.Test;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -58,6 +60,19 @@ public class ZipFileTreeTest {
         assertSetContainsForAllTypes(tree, toList("subdir/file1.txt", "subdir2/file2.txt"));
     }
 
+    @Test
+    public void visitsMatchingEntriesOfFilteredZipFile() {
+        rootDir.file("subdir/file1.txt").write("content");
+        rootDir.file("subdir/file2.xml").write("content");
+        rootDir.file("subdir2/file3.txt").write("content");
+        rootDir.zipTo(zipFile);
+
+        ZipFileTree filtered = tree.filter(new PatternSet().include("**/*.txt")).filter(new PatternSet().exclude("subdir2/**"));
+
+        assertVisits(filtered, toList("subdir/file1.txt"), Collections.<String>emptyList());
+        assertSetContainsForAllTypes(filtered, toList("subdir/file1.txt"));
+    }
+
     @Test
     public void canStopVisitingFiles() {
         rootDir.file("subdir/file1.txt").write("content");
@@ -17,13 +17,16 @@
 package org.gradle.api.internal.file.collections.jdk7
 
 import com.google.common.base.Charsets
+import com.google.common.cache.CacheBuilder
 import org.gradle.api.GradleException
 import org.gradle.api.JavaVersion
 import org.gradle.api.file.FileVisitDetails
 import org.gradle.api.file.FileVisitor
+import org.gradle.api.file.RelativePath
 import org.gradle.api.internal.file.TestFiles
 import org.gradle.api.internal.file.collections.DefaultDirectoryWalker
 import org.gradle.api.internal.file.collections.DirectoryFileTree
+import org.gradle.api.specs.Specs
 import org.gradle.api.tasks.util.PatternSet
 import org.gradle.internal.Factory
 import org.gradle.test.fixtures.file.TestFile
@@ -38,6 +41,7 @@ import spock.lang.Specification
 import spock.lang.Unroll
 
 import java.nio.charset.Charset
+import java.util.concurrent.atomic.AtomicBoolean
 import java.util.concurrent.atomic.AtomicInteger
 
 @UsesNativeServices
@@ -106,7 +110,7 @@ class Jdk7DirectoryWalkerTest extends Specification {
         !visited.contains(doesNotExist.absolutePath)
 
         where:
-        walkerInstance << [new DefaultDirectoryWalker(), new Jdk7DirectoryWalker()]
+        walkerInstance << [new DefaultDirectoryWalker(), new Jdk7DirectoryWalker(), new ParallelDirectoryWalker(TestFiles.fileSystem()), new CachingDirectoryWalker(TestFiles.fileSystem(), CacheBuilder.newBuilder().build())]
     }
 
     def "both DirectoryWalker implementations return same set of files and attributes"() {
@@ -124,6 +128,106 @@ class Jdk7DirectoryWalkerTest extends Specification {
         checkFileVisitDetailsEqual(visitedWithDefaultWalker, visitedWithJdk7Walker)
     }
 
+    def "parallel walker visits files in the same order as the default walker"() {
+        given:
+        def rootDir = tmpDir.createDir("root")
+        generateFilesAndSubDirectories(rootDir, 10, 5, 3, 1, new AtomicInteger(0))
+
+        when:
+        def visitedWithParallelWalker = walkFiles(rootDir, new ParallelDirectoryWalker(TestFiles.fileSystem()))
+        def visitedWithDefaultWalker = walkFiles(rootDir, new DefaultDirectoryWalker())
+
+        then:
+        visitedWithParallelWalker.size() == 340
+        visitedWithParallelWalker*.relativePath == visitedWithDefaultWalker*.relativePath
+        checkFileVisitDetailsEqual(visitedWithDefaultWalker, visitedWithParallelWalker)
+    }
+
+    def "parallel walker stops visiting when requested"() {
+        given:
+        def rootDir = tmpDir.createDir("root")
+        generateFilesAndSubDirectories(rootDir, 10, 5, 3, 1, new AtomicInteger(0))
+        def walker = new ParallelDirectoryWalker(TestFiles.fileSystem())
+        def visited = []
+        def visitClosure = { FileVisitDetails details ->
+            visited << details
+            if (visited.size() == 25) {
+                details.stopVisiting()
+            }
+        }
+        def fileVisitor = [visitFile: visitClosure, visitDir: visitClosure] as FileVisitor
+
+        when:
+        walker.walkDir(rootDir, RelativePath.EMPTY_ROOT, fileVisitor, Specs.satisfyAll(), new AtomicBoolean(), false)
+
+        then:
+        visited.size() == 25
+    }
+
+    def "caching walker visits files in the same order as the default walker"() {
+        given:
+        def rootDir = tmpDir.createDir("root")
+        generateFilesAndSubDirectories(rootDir, 10, 5, 3, 1, new AtomicInteger(0))
+        def walker = new CachingDirectoryWalker(TestFiles.fileSystem(), CacheBuilder.newBuilder().build())
+
+        when:
+        def visitedWithDefaultWalker = walkFiles(rootDir, new DefaultDirectoryWalker())
+        def visitedWithCachingWalker = walkFiles(rootDir, walker)
+        def visitedAgainWithCachingWalker = walkFiles(rootDir, walker)
+
+        then:
+        visitedWithCachingWalker.size() == 340
+        visitedWithCachingWalker*.relativePath == visitedWithDefaultWalker*.relativePath
+        visitedAgainWithCachingWalker*.relativePath == visitedWithDefaultWalker*.relativePath
+        checkFileVisitDetailsEqual(visitedWithDefaultWalker, visitedWithCachingWalker)
+        checkFileVisitDetailsEqual(visitedWithDefaultWalker, visitedAgainWithCachingWalker)
+    }
+
+    def "caching walker lists a directory again only when its modification time changes"() {
+        given:
+        def rootDir = tmpDir.createDir("root")
+        def subDir = rootDir.createDir("a")
+        subDir.createFile("1.txt")
+        def lastModified = System.currentTimeMillis() - 10000
+        subDir.setLastModified(lastModified)
+        rootDir.setLastModified(lastModified)
+        def walker = new CachingDirectoryWalker(TestFiles.fileSystem(), CacheBuilder.newBuilder().build())
+
+        expect:
+        walkFiles(rootDir, walker)*.path == ["a", "a/1.txt"]
+
+        when:
+        subDir.createFile("2.txt")
+        subDir.setLastModified(lastModified)
+
+        then:
+        walkFiles(rootDir, walker)*.path == ["a", "a/1.txt"]
+
+        when:
+        subDir.setLastModified(lastModified + 2000)
+
+        then:
+        walkFiles(rootDir, walker)*.path.sort() == ["a", "a/1.txt", "a/2.txt"]
+    }
+
+    def "caching walker reads the attributes of files when a listing is reused"() {
+        given:
+        def rootDir = tmpDir.createDir("root")
+        def file = rootDir.createFile("1.txt")
+        file << "1"
+        rootDir.setLastModified(System.currentTimeMillis() - 10000)
+        def walker = new CachingDirectoryWalker(TestFiles.fileSystem(), CacheBuilder.newBuilder().build())
+        walkFiles(rootDir, walker)
+
+        when:
+        file << "2345"
+        def visited = walkFiles(rootDir, walker)
+
+        then:
+        visited.size() == 1
+        visited[0].size == 5
+    }
+
     private void checkFileVisitDetailsEqual(List<FileVisitDetails> visitedWithDefaultWalker, List<FileVisitDetails> visitedWithJdk7Walker) {
         visitedWithDefaultWalker.each { FileVisitDetails details ->
             def detailsFromJdk7Walker = visitedWithJdk7Walker.find { it.file.absolutePath == details.file.absolutePath }
@@ -188,7 +292,7 @@ class Jdk7DirectoryWalkerTest extends Specification {
         link.delete()
 
         where:
-        walkerInstance << [new DefaultDirectoryWalker(), new Jdk7DirectoryWalker()]
+        walkerInstance << [new DefaultDirectoryWalker(), new Jdk7DirectoryWalker(), new ParallelDirectoryWalker(TestFiles.fileSystem()), new CachingDirectoryWalker(TestFiles.fileSystem(), CacheBuilder.newBuilder().build())]
     }
 
     @Requires(TestPrecondition.SYMLINKS)
@@ -219,7 +323,7 @@ class Jdk7DirectoryWalkerTest extends Specification {
         link.delete()
 
         where:
-        walkerInstance << [new DefaultDirectoryWalker(), new Jdk7DirectoryWalker()]
+        walkerInstance << [new DefaultDirectoryWalker(), new Jdk7DirectoryWalker(), new ParallelDirectoryWalker(TestFiles.fileSystem()), new CachingDirectoryWalker(TestFiles.fileSystem(), CacheBuilder.newBuilder().build())]
     }
 
     @Requires(TestPrecondition.SYMLINKS)
@@ -248,7 +352,7 @@ class Jdk7DirectoryWalkerTest extends Specification {
         link.delete()
 
         where:
-        walkerInstance << [new DefaultDirectoryWalker(), new Jdk7DirectoryWalker()]
+        walkerInstance << [new DefaultDirectoryWalker(), new Jdk7DirectoryWalker(), new ParallelDirectoryWalker(TestFiles.fileSystem()), new CachingDirectoryWalker(TestFiles.fileSystem(), CacheBuilder.newBuilder().build())]
     }
 
     @Issue("GRADLE-3400")
@@ -282,7 +386,7 @@ class Jdk7DirectoryWalkerTest extends Specification {
         link.delete()
 
         where:
-        walkerInstance << [new DefaultDirectoryWalker(), new Jdk7DirectoryWalker()]
+        walkerInstance << [new DefaultDirectoryWalker(), new Jdk7DirectoryWalker(), new ParallelDirectoryWalker(TestFiles.fileSystem()), new CachingDirectoryWalker(TestFiles.fileSystem(), CacheBuilder.newBuilder().build())]
     }
 
     def "file walker sees a snapshot of file metadata even if files are deleted after walking has started"() {
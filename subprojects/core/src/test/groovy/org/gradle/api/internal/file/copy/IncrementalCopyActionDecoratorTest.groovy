@@ -0,0 +1,75 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.file.copy
+package org.gradle.api.internal.file.copy
+
+import org.gradle.api.internal.file.TestFiles
+import org.gradle.internal.reflect.DirectInstantiator
+import org.gradle.test.fixtures.file.WorkspaceTest
+
+class IncrementalCopyActionDecoratorTest extends WorkspaceTest {
+    def resolver = TestFiles.resolver(testDirectory)
+    def executer = new CopyActionExecuter(DirectInstantiator.INSTANCE, TestFiles.fileSystem())
+
+    def "copies only changed files and all directories"() {
+        given:
+        file("src").with {
+            createFile("a.txt").text = "a"
+            createFile("b.txt").text = "b"
+            createFile("sub/c.txt").text = "c"
+        }
+        file("dest").with {
+            createFile("a.txt").text = "previous a"
+            createFile("b.txt").text = "previous b"
+        }
+
+        when:
+        def result = copy([file("src/b.txt").absolutePath] as Set) {
+            from "src"
+        }
+
+        then:
+        result.didWork
+        file("dest/a.txt").text == "previous a"
+        file("dest/b.txt").text == "b"
+        file("dest/sub").directory
+        !file("dest/sub/c.txt").exists()
+    }
+
+    def "copies all files mapped to the same destination path after the first one"() {
+        given:
+        file("src1/x.txt").createFile().text = "first"
+        file("src2/x.txt").createFile().text = "second"
+        file("dest/x.txt").createFile().text = "previous"
+
+        when:
+        copy([] as Set) {
+            from "src1"
+            from "src2"
+        }
+
+        then:
+        file("dest/x.txt").text == "second"
+    }
+
+    private copy(Set<String> changedSourcePaths, Closure configure) {
+        def copySpec = new DestinationRootCopySpec(resolver, new DefaultCopySpec(resolver, DirectInstantiator.INSTANCE))
+        copySpec.into "dest"
+        copySpec.with(configure)
+        def fileCopyAction = new FileCopyAction(TestFiles.fileLookup().getFileResolver(file("dest")))
+        return executer.execute(copySpec, new IncrementalCopyActionDecorator(changedSourcePaths, fileCopyAction))
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.file.pattern
+
+import org.apache.tools.ant.DirectoryScanner
+import org.gradle.api.file.RelativePath
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class PatternTriePathMatcherTest extends Specification {
+    static final List<String> PATHS = [
+        "", "a", "b", "a/b", "a/b/c", "a/b/c/d", "a/c", "a/c/d", "b/a", "c/a/b", "x/a/b/c", "A/B/C",
+        "Foo.java", "a/Foo.java", "a/b/Foo.java", "a/b/Foo.groovy", "c/d/e.java", "1/c/d/e.java", "a/c/d/e.groovy",
+        ".git", ".git/refs", "src/.git/refs/heads", "src/.svn", "a/#foo#", "b/._foo", "c/foo~", "CVS/Entries", "src/main/CVS"
+    ]
+
+    @Unroll
+    def "matches the same paths as the individual patterns #patterns (case sensitive: #caseSensitive)"() {
+        def matcher = new PatternTriePathMatcher(patterns, caseSensitive)
+        def individualMatchers = patterns.collect { PatternMatcherFactory.getPatternMatcher(false, caseSensitive, it) }
+        def individualPrefixMatchers = patterns.collect { PatternMatcherFactory.getPatternMatcher(true, caseSensitive, it) }
+
+        expect:
+        PATHS.each { path ->
+            String[] segments = path.empty ? [] as String[] : path.split("/")
+            def file = new RelativePath(true, segments)
+            def dir = new RelativePath(false, segments)
+            assert matcher.matches(segments, 0) == individualMatchers.any { it.isSatisfiedBy(file) }: path
+            assert matcher.isPrefix(segments, 0) == individualPrefixMatchers.any { it.isSatisfiedBy(dir) }: path
+        }
+
+        where:
+        patterns                                                        | caseSensitive
+        ["a/b/c"]                                                       | true
+        ["a/b/c"]                                                       | false
+        ["a/b/**", "**/c/d/*.java"]                                     | true
+        ["a/b/**", "a/b/c", "a/*/d", "a/c/"]                            | true
+        ["**/*.java", "**/*.groovy", "a/**/b/**/c"]                     | true
+        ["", "a"]                                                       | true
+        [""]                                                            | true
+        ["**"]                                                          | true
+        ["a/**/**/d", "a\\b\\c"]                                        | true
+        ["*", "?/c/**", "a*/b*c/*"]                                     | true
+        ["A/b/*", "**/foo.JAVA", "CVS"]                                 | false
+        DirectoryScanner.getDefaultExcludes() as List                   | true
+        DirectoryScanner.getDefaultExcludes() as List                   | false
+    }
+
+    def "calculates min and max number of segments"() {
+        expect:
+        def matcher = new PatternTriePathMatcher(patterns, true)
+        matcher.minSegments == min
+        matcher.maxSegments == max
+
+        where:
+        patterns             | min | max
+        ["a/b", "c"]         | 1   | 2
+        ["a/**/b", "c/d/e"]  | 2   | Integer.MAX_VALUE
+        ["", "a/b"]          | 0   | 2
+    }
+
+    def "shares compiled matcher for the same set of patterns"() {
+        def first = PatternMatcherFactory.getPatternsMatcher(true, true, ["a/**", "b"])
+        def second = PatternMatcherFactory.getPatternsMatcher(false, true, ["b", "a/**"])
+        def caseInsensitive = PatternMatcherFactory.getPatternsMatcher(false, false, ["b", "a/**"])
+
+        expect:
+        first.pathMatcher.is(second.pathMatcher)
+        !first.pathMatcher.is(caseInsensitive.pathMatcher)
+        first.pathMatcher instanceof PatternTriePathMatcher
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.cache
+
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.nativeintegration.filesystem.FileException
+import org.gradle.internal.nativeplatform.filesystem.FileSystem
+
+/**
+ * Runs the round trip tests of {@link TarTaskOutputPackerTest} with files being written concurrently when unpacking.
+ */
+class ConcurrentlyUnpackingTarTaskOutputPackerTest extends TarTaskOutputPackerTest {
+    def executorFactory = new DefaultExecutorFactory()
+
+    @Override
+    protected TarTaskOutputPacker createPacker(FileSystem fileSystem) {
+        return new TarTaskOutputPacker(fileSystem, executorFactory.create("unpack", 4))
+    }
+
+    def cleanup() {
+        executorFactory.stop()
+    }
+
+    def "unpacks many files concurrently"() {
+        def sourceOutputDir = tempDir.file("source").createDir()
+        (1..100).each { sourceOutputDir.file("file-${it}.txt") << "output ${it}" }
+        def targetOutputDir = tempDir.file("target").createDir()
+        def output = new ByteArrayOutputStream()
+
+        when:
+        packer.pack(taskOutputs, output)
+        then:
+        taskOutputs.getFileProperties() >> ([
+            new TestProperty(propertyName: "test", outputFile: sourceOutputDir)
+        ] as SortedSet)
+        _ * fileSystem.getUnixMode(_) >> 0644
+
+        when:
+        packer.unpack(taskOutputs, new ByteArrayInputStream(output.toByteArray()))
+
+        then:
+        taskOutputs.getFileProperties() >> ([
+            new TestProperty(propertyName: "test", outputFile: targetOutputDir)
+        ] as SortedSet)
+        100 * fileSystem.chmod({ it.name.startsWith("file-") }, 0644)
+        (1..100).each {
+            assert targetOutputDir.file("file-${it}.txt").text == "output ${it}"
+        }
+    }
+
+    def "reports failure to write a file that is unpacked concurrently"() {
+        def sourceOutputDir = tempDir.file("source").createDir()
+        sourceOutputDir.file("one.txt") << "one"
+        sourceOutputDir.file("two.txt") << "two"
+        def targetOutputDir = tempDir.file("target").createDir()
+        def failure = new FileException("Could not set file mode", new IOException("Permission denied"))
+        def output = new ByteArrayOutputStream()
+
+        when:
+        packer.pack(taskOutputs, output)
+        then:
+        taskOutputs.getFileProperties() >> ([
+            new TestProperty(propertyName: "test", outputFile: sourceOutputDir)
+        ] as SortedSet)
+        _ * fileSystem.getUnixMode(_) >> 0644
+
+        when:
+        packer.unpack(taskOutputs, new ByteArrayInputStream(output.toByteArray()))
+
+        then:
+        taskOutputs.getFileProperties() >> ([
+            new TestProperty(propertyName: "test", outputFile: targetOutputDir)
+        ] as SortedSet)
+        _ * fileSystem.chmod(targetOutputDir.file("one.txt"), _) >> { throw failure }
+        _ * fileSystem.chmod(_, _)
+        def e = thrown(FileException)
+        e.is(failure)
+    }
+}
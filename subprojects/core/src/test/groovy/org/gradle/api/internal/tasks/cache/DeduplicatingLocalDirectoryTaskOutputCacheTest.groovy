@@ -0,0 +1,152 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.cache
+
+import org.apache.tools.tar.TarEntry
+import org.apache.tools.tar.TarInputStream
+import org.apache.tools.tar.TarOutputStream
+import org.gradle.cache.internal.DefaultFileLockManagerTestHelper
+import org.gradle.test.fixtures.file.CleanupTestDirectory
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+import java.util.zip.GZIPInputStream
+import java.util.zip.GZIPOutputStream
+
+@CleanupTestDirectory(fieldName = "tempDir")
+class DeduplicatingLocalDirectoryTaskOutputCacheTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tempDir = new TestNameTestDirectoryProvider()
+    def cacheDir = tempDir.file("cache")
+    def cache = new DeduplicatingLocalDirectoryTaskOutputCache(cacheDir, 1024 * 1024, DefaultFileLockManagerTestHelper.createDefaultFileLockManager())
+
+    def "can load stored entry"() {
+        when:
+        store("key", ["property-a/": null, "property-a/one.txt": "one", "property-a/two.txt": "two"])
+
+        then:
+        load("key") == ["property-a/": null, "property-a/one.txt": "one", "property-a/two.txt": "two"]
+    }
+
+    def "does not find missing entry"() {
+        expect:
+        !cache.load(key("missing"), Mock(TaskOutputReader))
+    }
+
+    def "stores identical content once"() {
+        when:
+        store("key1", ["property-a": "shared"])
+        store("key2", ["property-b": "shared", "property-c": "other"])
+
+        then:
+        cacheDir.file("content").listFiles().collect { it.listFiles().toList() }.flatten().size() == 2
+        load("key1") == ["property-a": "shared"]
+        load("key2") == ["property-b": "shared", "property-c": "other"]
+    }
+
+    def "loads entry without staging it in temporary files"() {
+        def content = "content" * 10000
+        store("key", ["property-a": content])
+
+        when:
+        def loaded = load("key") {
+            assert cacheDir.file("tmp").list().length == 0
+        }
+
+        then:
+        loaded == ["property-a": content]
+    }
+
+    def "can load entry while another load is in progress"() {
+        store("key1", ["property-a": "one"])
+        store("key2", ["property-b": "two"])
+        def nested = null
+
+        when:
+        def loaded = load("key1") {
+            nested = load("key2")
+        }
+
+        then:
+        loaded == ["property-a": "one"]
+        nested == ["property-b": "two"]
+    }
+
+    def "removes least recently used entries when cache grows beyond maximum size"() {
+        cache = new DeduplicatingLocalDirectoryTaskOutputCache(cacheDir, 3000, DefaultFileLockManagerTestHelper.createDefaultFileLockManager())
+        store("old", ["property-a": "a" * 2000])
+        cacheDir.file("manifests/old").lastModified = System.currentTimeMillis() - 10000
+
+        when:
+        // Cleanup is checked once per cache instance, i.e. once per build
+        cache = new DeduplicatingLocalDirectoryTaskOutputCache(cacheDir, 3000, DefaultFileLockManagerTestHelper.createDefaultFileLockManager())
+        store("new", ["property-a": "b" * 2000])
+
+        then:
+        !cacheDir.file("manifests/old").exists()
+        load("new") == ["property-a": "b" * 2000]
+    }
+
+    private void store(String key, Map<String, String> entries) {
+        cache.store(key(key), new TaskOutputWriter() {
+            @Override
+            void writeTo(OutputStream output) throws IOException {
+                def tarOutput = new TarOutputStream(new GZIPOutputStream(output), "utf-8")
+                entries.each { name, content ->
+                    def entry = new TarEntry(name)
+                    entry.modTime = 1234000L
+                    if (content != null) {
+                        entry.size = content.bytes.length
+                    }
+                    tarOutput.putNextEntry(entry)
+                    if (content != null) {
+                        tarOutput.write(content.bytes)
+                    }
+                    tarOutput.closeEntry()
+                }
+                tarOutput.close()
+            }
+        })
+    }
+
+    private Map<String, String> load(String key, Closure whileLoading = {}) {
+        def entries = [:]
+        assert cache.load(key(key), new TaskOutputReader() {
+            @Override
+            void readFrom(InputStream input) throws IOException {
+                whileLoading.call()
+                def tarInput = new TarInputStream(new GZIPInputStream(input))
+                def entry
+                while ((entry = tarInput.nextEntry) != null) {
+                    assert entry.modTime.time == 1234000L
+                    entries[entry.name] = entry.directory ? null : new String(tarInput.bytes)
+                }
+            }
+        })
+        return entries
+    }
+
+    private static TaskCacheKey key(String hashCode) {
+        return new TaskCacheKey() {
+            @Override
+            String getHashCode() {
+                return hashCode
+            }
+        }
+    }
+}
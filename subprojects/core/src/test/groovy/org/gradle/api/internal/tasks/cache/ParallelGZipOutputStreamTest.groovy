@@ -0,0 +1,94 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.cache
+
+import com.google.common.io.ByteStreams
+import spock.lang.Specification
+
+import java.util.concurrent.Executors
+import java.util.zip.GZIPInputStream
+
+class ParallelGZipOutputStreamTest extends Specification {
+    def executor = Executors.newFixedThreadPool(4)
+
+    def cleanup() {
+        executor.shutdownNow()
+    }
+
+    def "compressed output spanning multiple blocks can be read as a single gzip stream"() {
+        def data = new byte[10000]
+        new Random(42).nextBytes(data)
+
+        when:
+        def compressed = compress(data, 1000)
+
+        then:
+        decompress(compressed) == data
+    }
+
+    def "compressed output can be read from a stream that does not report the available bytes"() {
+        def data = new byte[10000]
+        new Random(42).nextBytes(data)
+        def compressed = compress(data, 1000)
+
+        when:
+        def input = new FilterInputStream(new ByteArrayInputStream(compressed)) {
+            @Override
+            int available() {
+                return 0
+            }
+        }
+
+        then:
+        ByteStreams.toByteArray(new GZIPInputStream(input)) == data
+    }
+
+    def "produces the same output regardless of how data is written"() {
+        def data = ("some repetitive content " * 1000).bytes
+
+        when:
+        def first = compress(data, 512)
+        def second = new ByteArrayOutputStream()
+        def output = new ParallelGZipOutputStream(second, executor, 512, 2)
+        data.each { output.write(it) }
+        output.close()
+
+        then:
+        second.toByteArray() == first
+        decompress(first) == data
+    }
+
+    def "produces valid gzip stream when nothing is written"() {
+        when:
+        def compressed = compress(new byte[0], 1000)
+
+        then:
+        decompress(compressed) == new byte[0]
+    }
+
+    private byte[] compress(byte[] data, int blockSize) {
+        def target = new ByteArrayOutputStream()
+        def output = new ParallelGZipOutputStream(target, executor, blockSize, 2)
+        output.write(data)
+        output.close()
+        return target.toByteArray()
+    }
+
+    private static byte[] decompress(byte[] data) {
+        return ByteStreams.toByteArray(new GZIPInputStream(new ByteArrayInputStream(data)))
+    }
+}
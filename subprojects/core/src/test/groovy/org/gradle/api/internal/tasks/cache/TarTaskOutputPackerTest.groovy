@@ -24,7 +24,15 @@ import static org.gradle.api.internal.tasks.properties.CacheableTaskOutputFilePr
 
 class TarTaskOutputPackerTest extends AbstractTaskOutputPackerSpec {
     def fileSystem = Mock(FileSystem)
-    def packer = new TarTaskOutputPacker(fileSystem)
+    TarTaskOutputPacker packer
+
+    def setup() {
+        packer = createPacker(fileSystem)
+    }
+
+    protected TarTaskOutputPacker createPacker(FileSystem fileSystem) {
+        return new TarTaskOutputPacker(fileSystem)
+    }
 
     @Unroll
     def "can pack single task output file with file mode #mode"() {
@@ -21,11 +21,16 @@ import org.gradle.api.GradleException
 import org.gradle.api.Project
 import org.gradle.api.internal.TaskInternal
 import org.gradle.api.internal.TaskOutputsInternal
+import org.gradle.api.execution.TaskExecutionGraph
 import org.gradle.api.internal.changedetection.TaskArtifactState
+import org.gradle.api.internal.changedetection.TaskArtifactStateRepository
+import org.gradle.api.internal.changedetection.changes.PreparedTaskArtifactStateRepository
 import org.gradle.api.internal.tasks.TaskExecuter
 import org.gradle.api.internal.tasks.TaskExecutionContext
 import org.gradle.api.internal.tasks.TaskExecutionOutcome
 import org.gradle.api.internal.tasks.TaskStateInternal
+import org.gradle.api.internal.tasks.TaskDependencyInternal
+import org.gradle.api.internal.tasks.cache.BatchingTaskOutputCache
 import org.gradle.api.internal.tasks.cache.TaskCacheKey
 import org.gradle.api.internal.tasks.cache.TaskOutputCache
 import org.gradle.api.internal.tasks.cache.TaskOutputCacheFactory
@@ -330,4 +335,92 @@ public class SkipCachedTaskExecuterTest extends Specification {
         1 * taskOutputCache.store(cacheKey, _) >> { throw new RuntimeException("Bad result") }
         0 * _
     }
+
+    def "prefetches cached results of tasks without dependencies before the task graph is executed"() {
+        def repository = Mock(TaskArtifactStateRepository)
+        def preparedStateRepository = new PreparedTaskArtifactStateRepository(repository)
+        def batchingCache = Mock(BatchingTaskOutputCache)
+        def graph = Mock(TaskExecutionGraph)
+        def dependentTask = Mock(TaskInternal)
+        def noDependencies = Stub(TaskDependencyInternal) {
+            getDependencies(_) >> ([] as Set)
+        }
+        def someDependencies = Stub(TaskDependencyInternal) {
+            getDependencies(_) >> ([task] as Set)
+        }
+        executer = new SkipCachedTaskExecuter(taskCaching, taskOutputPacker, startParameter, internalTaskExecutionListener, preparedStateRepository, null, null, delegate)
+
+        when:
+        executer.beforeGraphExecuted(graph)
+
+        then:
+        1 * taskCaching.isPullAllowed() >> true
+        1 * taskCaching.getCacheFactory() >> taskOutputCacheFactory
+        1 * taskOutputCacheFactory.createCache(_) >> batchingCache
+        _ * batchingCache.getDescription() >> "test"
+        1 * graph.getAllTasks() >> [task, dependentTask]
+
+        _ * task.getOutputs() >> outputs
+        _ * dependentTask.getOutputs() >> outputs
+        _ * outputs.isCacheEnabled() >> true
+        _ * outputs.hasDeclaredOutputs() >> true
+        _ * outputs.isCacheAllowed() >> true
+        _ * task.getTaskDependencies() >> noDependencies
+        _ * task.getMustRunAfter() >> noDependencies
+        _ * dependentTask.getTaskDependencies() >> someDependencies
+
+        1 * repository.getStateFor(task) >> taskArtifactState
+        1 * taskArtifactState.isAllowedToUseCachedResults() >> true
+        1 * taskArtifactState.isUpToDate(null) >> false
+        1 * taskArtifactState.calculateCacheKey() >> cacheKey
+
+        then:
+        1 * batchingCache.prefetch([cacheKey])
+        0 * _
+
+        and:
+        preparedStateRepository.getStateFor(task) == taskArtifactState
+    }
+
+    def "does not keep the prepared state of up-to-date tasks"() {
+        def repository = Mock(TaskArtifactStateRepository)
+        def preparedStateRepository = new PreparedTaskArtifactStateRepository(repository)
+        def batchingCache = Mock(BatchingTaskOutputCache)
+        def graph = Mock(TaskExecutionGraph)
+        def noDependencies = Stub(TaskDependencyInternal) {
+            getDependencies(_) >> ([] as Set)
+        }
+        def otherState = Mock(TaskArtifactState)
+        executer = new SkipCachedTaskExecuter(taskCaching, taskOutputPacker, startParameter, internalTaskExecutionListener, preparedStateRepository, null, null, delegate)
+
+        when:
+        executer.beforeGraphExecuted(graph)
+
+        then:
+        1 * taskCaching.isPullAllowed() >> true
+        1 * taskCaching.getCacheFactory() >> taskOutputCacheFactory
+        1 * taskOutputCacheFactory.createCache(_) >> batchingCache
+        _ * batchingCache.getDescription() >> "test"
+        1 * graph.getAllTasks() >> [task]
+
+        _ * task.getOutputs() >> outputs
+        _ * outputs.isCacheEnabled() >> true
+        _ * outputs.hasDeclaredOutputs() >> true
+        _ * outputs.isCacheAllowed() >> true
+        _ * task.getTaskDependencies() >> noDependencies
+        _ * task.getMustRunAfter() >> noDependencies
+
+        1 * repository.getStateFor(task) >> taskArtifactState
+        1 * taskArtifactState.isAllowedToUseCachedResults() >> true
+        1 * taskArtifactState.isUpToDate(null) >> true
+        1 * taskArtifactState.finished()
+        0 * _
+
+        when:
+        def state = preparedStateRepository.getStateFor(task)
+
+        then:
+        1 * repository.getStateFor(task) >> otherState
+        state == otherState
+    }
 }
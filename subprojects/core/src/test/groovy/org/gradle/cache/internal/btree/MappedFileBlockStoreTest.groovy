@@ -0,0 +1,183 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.btree
+
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.util.Requires
+import org.gradle.util.TestPrecondition
+import org.junit.Rule
+import spock.lang.Specification
+
+class MappedFileBlockStoreTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    def cacheFile = tmpDir.file("cache.bin")
+    def factory = new BlockStore.Factory() {
+        Object create(Class<? extends BlockPayload> type) {
+            return new TestPayload()
+        }
+    }
+
+    def "can write and read back blocks that span region boundaries"() {
+        def store = new MappedFileBlockStore(cacheFile, 16)
+        store.open({} as Runnable, factory)
+
+        when:
+        def first = new TestPayload(value: "first block value")
+        def second = new TestPayload(value: "a rather longer value for the second block")
+        write(store, first)
+        write(store, second)
+
+        then:
+        store.read(first.pos, TestPayload).value == "first block value"
+        store.read(second.pos, TestPayload).value == "a rather longer value for the second block"
+        store.readFirst(TestPayload).value == "first block value"
+
+        cleanup:
+        store.close()
+    }
+
+    def "sees updates made to a block that has already been read"() {
+        def store = new MappedFileBlockStore(cacheFile, 16)
+        store.open({} as Runnable, factory)
+        def block = new TestPayload(value: "value 1")
+        write(store, block)
+
+        expect:
+        store.read(block.pos, TestPayload).value == "value 1"
+
+        when:
+        block.value = "value 2"
+        write(store, block)
+
+        then:
+        store.read(block.pos, TestPayload).value == "value 2"
+
+        cleanup:
+        store.close()
+    }
+
+    def "uses the same file format as the file backed store"() {
+        def mappedStore = new MappedFileBlockStore(cacheFile)
+        mappedStore.open({} as Runnable, factory)
+        def block = new TestPayload(value: "written by mapped store")
+        write(mappedStore, block)
+        mappedStore.close()
+
+        def fileStore = new FileBackedBlockStore(cacheFile)
+        fileStore.open({} as Runnable, factory)
+        def other = new TestPayload(value: "written by file store")
+        write(fileStore, other)
+        fileStore.close()
+
+        when:
+        mappedStore = new MappedFileBlockStore(cacheFile)
+        mappedStore.open({} as Runnable, factory)
+
+        then:
+        mappedStore.read(block.pos, TestPayload).value == "written by mapped store"
+        mappedStore.read(other.pos, TestPayload).value == "written by file store"
+
+        cleanup:
+        mappedStore.close()
+    }
+
+    def "can read blocks written after the store has been cleared"() {
+        def store = new MappedFileBlockStore(cacheFile, 16)
+        store.open({} as Runnable, factory)
+        def block = new TestPayload(value: "value 1")
+        write(store, block)
+        assert store.read(block.pos, TestPayload).value == "value 1"
+
+        when:
+        store.clear()
+        def other = new TestPayload(value: "value 2")
+        write(store, other)
+
+        then:
+        store.read(other.pos, TestPayload).value == "value 2"
+
+        cleanup:
+        store.close()
+    }
+
+    @Requires(TestPrecondition.LINUX)
+    def "unmaps regions of the file when closed"() {
+        def store = new MappedFileBlockStore(cacheFile, 16)
+        store.open({} as Runnable, factory)
+        def block = new TestPayload(value: "a value that spans several regions")
+        write(store, block)
+        store.read(block.pos, TestPayload)
+
+        expect:
+        mapped(cacheFile)
+
+        when:
+        store.close()
+
+        then:
+        !mapped(cacheFile)
+    }
+
+    def "reports corrupted block when reading beyond end of file"() {
+        def store = new MappedFileBlockStore(cacheFile)
+        store.open({} as Runnable, factory)
+        write(store, new TestPayload(value: "value"))
+
+        when:
+        store.read(new BlockPointer(1000), TestPayload)
+
+        then:
+        thrown(CorruptedCacheException)
+
+        cleanup:
+        store.close()
+    }
+
+    private static void write(BlockStore store, TestPayload payload) {
+        store.attach(payload)
+        store.write(payload)
+    }
+
+    private static boolean mapped(File file) {
+        return new File("/proc/self/maps").readLines().any { it.endsWith(file.absolutePath) }
+    }
+
+    static class TestPayload extends BlockPayload {
+        String value
+
+        @Override
+        protected int getSize() {
+            return 200
+        }
+
+        @Override
+        protected byte getType() {
+            return 0x33
+        }
+
+        @Override
+        protected void read(DataInputStream inputStream) throws Exception {
+            value = inputStream.readUTF()
+        }
+
+        @Override
+        protected void write(DataOutputStream outputStream) throws Exception {
+            outputStream.writeUTF(value)
+        }
+    }
+}
@@ -172,6 +172,57 @@ class DefaultTaskExecutionPlanParallelTaskHandlingTest extends AbstractProjectBu
         requestedTasksBecomeAvailableForExecution()
     }
 
+    def "candidate task can only be started once all of its dependencies complete"() {
+        given:
+        Task a = root.task("a", type: Parallel)
+        Task b = root.task("b", type: Parallel).dependsOn(a)
+
+        when:
+        addToGraphAndPopulate(b)
+        startTasks(1)
+        def candidate = startedTasks[0].dependencyPredecessors.first()
+
+        then:
+        candidate.task == b
+        executionPlan.tryStartExecution([candidate]) == null
+
+        when:
+        completeAllStartedTasks()
+
+        then:
+        executionPlan.tryStartExecution([candidate]) == candidate
+        executionPlan.tryStartExecution([candidate]) == null
+
+        cleanup:
+        executionPlan.taskComplete(candidate)
+    }
+
+    def "candidate task that should run after another task is not started ahead of the plan"() {
+        given:
+        Task a = root.task("a", type: Parallel)
+        Task b = root.task("b", type: Parallel)
+        Task c = root.task("c", type: Parallel).dependsOn(a)
+        c.shouldRunAfter(b)
+
+        when:
+        executionPlan.addToTaskGraph([c])
+        executionPlan.addToTaskGraph([b])
+        executionPlan.determineExecutionPlan()
+        startTasks(1)
+        def candidate = startedTasks[0].dependencyPredecessors.first()
+        completeAllStartedTasks()
+
+        then:
+        candidate.task == c
+        executionPlan.tryStartExecution([candidate]) == null
+
+        when:
+        startTasks(1)
+
+        then:
+        startedTasks*.task == [b]
+    }
+
     def "a parallelizable task with custom actions is not run in parallel"() {
         given:
         Task a = root.task("a", type: Parallel)
@@ -885,6 +885,64 @@ public class DefaultTaskExecutionPlanTest extends AbstractProjectBuilderSpec {
         t3.task.project != t4.task.project
     }
 
+    def "prefers tasks with the longest remaining path when duration history is used"() {
+        given:
+        Task a = task("a")
+        Task b = task("b")
+        Task c = task("c", dependsOn: [b])
+        def history = Stub(TaskDurationHistory) {
+            getPreviousDuration(a) >> 100
+            getPreviousDuration(b) >> 10
+            getPreviousDuration(c) >> 500
+        }
+
+        when:
+        executionPlan.useDurationHistory(history)
+        addToGraphAndPopulate([a, c])
+
+        then:
+        executionPlan.tasks == [a, b, c]
+        executedTasks == [b, c, a]
+    }
+
+    def "keeps the order of the plan for tasks without history"() {
+        given:
+        Task a = task("a")
+        Task b = task("b")
+        Task c = task("c", dependsOn: [b])
+        def history = Stub(TaskDurationHistory) {
+            getPreviousDuration(_) >> -1
+        }
+
+        when:
+        executionPlan.useDurationHistory(history)
+        addToGraphAndPopulate([a, c])
+
+        then:
+        executedTasks == [a, b, c]
+    }
+
+    def "keeps the order of entry task groups when duration history is used"() {
+        given:
+        Task a = task("a")
+        Task b = task("b")
+        Task c = task("c", dependsOn: [b])
+        def history = Stub(TaskDurationHistory) {
+            getPreviousDuration(a) >> 10
+            getPreviousDuration(b) >> 100
+            getPreviousDuration(c) >> 500
+        }
+
+        when:
+        executionPlan.useDurationHistory(history)
+        executionPlan.addToTaskGraph([a])
+        executionPlan.addToTaskGraph([c])
+        executionPlan.determineExecutionPlan()
+
+        then:
+        executedTasks == [a, b, c]
+    }
+
     void executes(Task... expectedTasks) {
         assert executionPlan.tasks == expectedTasks as List
         assert expectedTasks == expectedTasks as List
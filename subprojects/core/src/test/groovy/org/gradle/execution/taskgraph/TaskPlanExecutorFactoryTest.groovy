@@ -41,4 +41,12 @@ public class TaskPlanExecutorFactoryTest extends Specification {
         then:
         factory.create().class == ParallelTaskPlanExecutor
     }
+
+    def "creates a work stealing executor when enabled"() {
+        when:
+        def factory = new TaskPlanExecutorFactory(3, executorFactory, buildOperationWorkerRegistry, true)
+
+        then:
+        factory.create().class == WorkStealingTaskPlanExecutor
+    }
 }
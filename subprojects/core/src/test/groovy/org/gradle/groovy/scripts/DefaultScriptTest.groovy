@@ -21,6 +21,7 @@ package org.gradle.groovy.scripts
 import org.codehaus.groovy.control.CompilerConfiguration
 import org.gradle.api.initialization.dsl.ScriptHandler
 import org.gradle.api.internal.file.FileLookup
+import org.gradle.api.internal.file.archive.TarIndexCache
 import org.gradle.api.internal.file.collections.DirectoryFileTreeFactory
 import org.gradle.api.internal.project.ProjectInternal
 import org.gradle.api.logging.LoggingManager
@@ -58,6 +59,8 @@ class DefaultScriptTest {
             will(returnValue(context.mock(FileLookup)))
             allowing(serviceRegistryMock).get(DirectoryFileTreeFactory)
             will(returnValue(context.mock(DirectoryFileTreeFactory)))
+            allowing(serviceRegistryMock).get(TarIndexCache)
+            will(returnValue(new TarIndexCache()))
         }
 
         DefaultScript script = new GroovyShell(createBaseCompilerConfiguration()).parse(testScriptText)
@@ -16,6 +16,7 @@
 package org.gradle.api.internal.artifacts.ivyservice;
 
 import com.google.common.collect.Sets;
+import org.gradle.api.Nullable;
 import org.gradle.api.artifacts.Configuration;
 import org.gradle.api.artifacts.Dependency;
 import org.gradle.api.artifacts.FileCollectionDependency;
@@ -31,6 +32,7 @@ import org.gradle.api.component.Artifact;
 import org.gradle.api.file.FileCollection;
 import org.gradle.api.internal.artifacts.DefaultResolvedDependency;
 import org.gradle.api.internal.artifacts.configurations.ConfigurationInternal;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.ArtifactFilePrefetcher;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.ArtifactResults;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.FileDependencyResults;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.ResolvedArtifacts;
@@ -48,6 +50,7 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Deque;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -61,15 +64,24 @@ public class DefaultLenientConfiguration implements LenientConfiguration, Artifa
     private final ResolvedArtifacts artifactResults;
     private final FileDependencyResults fileDependencyResults;
     private final Factory<TransientConfigurationResults> transientConfigurationResultsFactory;
+    private final ArtifactFilePrefetcher artifactFilePrefetcher;
+    private final Set<ResolvedArtifact> prefetchedArtifacts = new HashSet<ResolvedArtifact>();
 
     public DefaultLenientConfiguration(ConfigurationInternal configuration, CacheLockingManager cacheLockingManager, Set<UnresolvedDependency> unresolvedDependencies,
                                        ResolvedArtifacts artifactResults, FileDependencyResults fileDependencyResults, Factory<TransientConfigurationResults> transientConfigurationResultsLoader) {
+        this(configuration, cacheLockingManager, unresolvedDependencies, artifactResults, fileDependencyResults, transientConfigurationResultsLoader, null);
+    }
+
+    public DefaultLenientConfiguration(ConfigurationInternal configuration, CacheLockingManager cacheLockingManager, Set<UnresolvedDependency> unresolvedDependencies,
+                                       ResolvedArtifacts artifactResults, FileDependencyResults fileDependencyResults, Factory<TransientConfigurationResults> transientConfigurationResultsLoader,
+                                       @Nullable ArtifactFilePrefetcher artifactFilePrefetcher) {
         this.configuration = configuration;
         this.cacheLockingManager = cacheLockingManager;
         this.unresolvedDependencies = unresolvedDependencies;
         this.artifactResults = artifactResults;
         this.fileDependencyResults = fileDependencyResults;
         this.transientConfigurationResultsFactory = transientConfigurationResultsLoader;
+        this.artifactFilePrefetcher = artifactFilePrefetcher;
     }
 
     public boolean hasError() {
@@ -142,6 +154,7 @@ public class DefaultLenientConfiguration implements LenientConfiguration, Artifa
         ResolvedFilesCollectingVisitor visitor = new ResolvedFilesCollectingVisitor(dest);
         try {
             visitArtifacts(dependencySpec, visitor);
+            prefetchFiles(visitor.artifacts);
             // The visitor adds file dependencies directly to the destination collection however defers adding the artifacts. This is to ensure a fixed order regardless of whether the first level dependencies are filtered or not
             // File dependencies and artifacts are currently treated separately as a migration step
             visitor.addArtifacts();
@@ -159,6 +172,7 @@ public class DefaultLenientConfiguration implements LenientConfiguration, Artifa
     public void collectArtifacts(Collection<? super ResolvedArtifactResult> dest) {
         ResolvedArtifactCollectingVisitor visitor = new ResolvedArtifactCollectingVisitor(dest);
         try {
+            prefetchFiles(artifactResults.getArtifacts());
             visitArtifacts(Specs.<Dependency>satisfyAll(), visitor);
         } catch (Throwable t) {
             visitor.failures.add(t);
@@ -178,6 +192,7 @@ public class DefaultLenientConfiguration implements LenientConfiguration, Artifa
     }
 
     private Set<ResolvedArtifact> filterUnresolved(final Set<ResolvedArtifact> artifacts) {
+        prefetchFiles(artifacts);
         return cacheLockingManager.useCache("retrieve artifacts from " + configuration, new Factory<Set<ResolvedArtifact>>() {
             public Set<ResolvedArtifact> create() {
                 return CollectionUtils.filter(artifacts, new IgnoreMissingExternalArtifacts());
@@ -185,6 +200,24 @@ public class DefaultLenientConfiguration implements LenientConfiguration, Artifa
         });
     }
 
+    /**
+     * Resolves the files of the given artifacts concurrently, when enabled, so that they are not downloaded one at a time as they are iterated.
+     */
+    private void prefetchFiles(Set<ResolvedArtifact> artifacts) {
+        if (artifactFilePrefetcher == null || !artifactFilePrefetcher.isEnabled()) {
+            return;
+        }
+        List<ResolvedArtifact> pending = new ArrayList<ResolvedArtifact>();
+        synchronized (prefetchedArtifacts) {
+            for (ResolvedArtifact artifact : artifacts) {
+                if (prefetchedArtifacts.add(artifact)) {
+                    pending.add(artifact);
+                }
+            }
+        }
+        artifactFilePrefetcher.prefetch(configuration.getDisplayName(), pending);
+    }
+
     private Set<File> getFiles(final Set<ResolvedArtifact> artifacts) {
         final Set<File> files = new LinkedHashSet<File>();
         cacheLockingManager.useCache("resolve files from " + configuration, new Runnable() {
@@ -17,6 +17,7 @@
 package org.gradle.api.internal.artifacts.ivyservice.ivyresolve;
 
 import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.internal.UncheckedException;
 import org.gradle.internal.component.model.ComponentOverrideMetadata;
 import org.gradle.internal.resolve.result.BuildableModuleComponentMetaDataResolveResult;
 import org.gradle.internal.resolve.result.DefaultBuildableModuleComponentMetaDataResolveResult;
@@ -31,6 +32,9 @@ class ComponentMetaDataResolveState {
 
     private boolean searchedLocally;
     private boolean searchedRemotely;
+    private boolean localResultPending;
+    private boolean fetchedRemotely;
+    private Throwable remoteFailure;
 
     public ComponentMetaDataResolveState(ModuleComponentIdentifier componentIdentifier, ComponentOverrideMetadata componentOverrideMetadata, ModuleComponentRepository repository, VersionedComponentChooser versionedComponentChooser) {
         this.componentOverrideMetadata = componentOverrideMetadata;
@@ -41,29 +45,80 @@ class ComponentMetaDataResolveState {
 
     BuildableModuleComponentMetaDataResolveResult resolve() {
         if (!searchedLocally) {
-            searchedLocally = true;
-            process(repository.getLocalAccess());
+            searchLocally();
             if (resolveResult.hasResult()) {
-                if (resolveResult.isAuthoritative()) {
-                    // Don't bother searching remotely
-                    searchedRemotely = true;
-                }
                 return resolveResult;
             }
             // If unknown, try a remote search
         }
+        if (localResultPending) {
+            localResultPending = false;
+            return resolveResult;
+        }
 
         if (!searchedRemotely) {
             searchedRemotely = true;
-            process(repository.getRemoteAccess());
+            if (!fetchedRemotely) {
+                fetch(repository.getRemoteAccess());
+            } else if (remoteFailure != null) {
+                throw UncheckedException.throwAsUncheckedException(remoteFailure);
+            }
+            checkRejected();
             return resolveResult;
         }
 
         throw new IllegalStateException();
     }
 
+    /**
+     * Searches the local access, if not already done, and returns whether the next call to {@link #resolve()} will search the remote access.
+     */
+    boolean requiresRemoteSearch() {
+        if (!searchedLocally) {
+            searchLocally();
+            localResultPending = resolveResult.hasResult();
+        }
+        return !localResultPending && !searchedRemotely && !fetchedRemotely;
+    }
+
+    /**
+     * Returns true when the next call to {@link #resolve()} will return a component found in the local access.
+     */
+    boolean isResolvedLocally() {
+        return localResultPending && resolveResult.getState() == BuildableModuleComponentMetaDataResolveResult.State.Resolved && !resolveResult.getMetaData().isGenerated();
+    }
+
+    /**
+     * Searches the remote access ahead of the next call to {@link #resolve()}, which then returns the result. May be called from any thread.
+     */
+    void searchRemotely() {
+        fetchedRemotely = true;
+        try {
+            fetch(repository.getRemoteAccess());
+        } catch (Throwable t) {
+            remoteFailure = t;
+        }
+    }
+
+    private void searchLocally() {
+        process(repository.getLocalAccess());
+        searchedLocally = true;
+        if (resolveResult.hasResult() && resolveResult.isAuthoritative()) {
+            // Don't bother searching remotely
+            searchedRemotely = true;
+        }
+    }
+
     protected void process(ModuleComponentRepositoryAccess moduleAccess) {
+        fetch(moduleAccess);
+        checkRejected();
+    }
+
+    private void fetch(ModuleComponentRepositoryAccess moduleAccess) {
         moduleAccess.resolveComponentMetaData(componentIdentifier, componentOverrideMetadata, resolveResult);
+    }
+
+    private void checkRejected() {
         if (resolveResult.getState() == BuildableModuleComponentMetaDataResolveResult.State.Resolved) {
             if (versionedComponentChooser.isRejectedComponent(componentIdentifier, new MetadataProvider(resolveResult))) {
                 resolveResult.missing();
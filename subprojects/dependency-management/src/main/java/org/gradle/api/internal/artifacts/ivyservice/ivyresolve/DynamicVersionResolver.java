@@ -17,9 +17,11 @@
 package org.gradle.api.internal.artifacts.ivyservice.ivyresolve;
 
 import org.gradle.api.Action;
+import org.gradle.api.Nullable;
 import org.gradle.api.Transformer;
 import org.gradle.api.artifacts.ModuleVersionSelector;
 import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.internal.UncheckedException;
 import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier;
 import org.gradle.internal.component.external.model.ModuleComponentResolveMetadata;
 import org.gradle.internal.component.model.DefaultComponentOverrideMetadata;
@@ -43,10 +45,16 @@ public class DynamicVersionResolver implements DependencyToComponentIdResolver {
     private final List<String> repositoryNames = new ArrayList<String>();
     private final VersionedComponentChooser versionedComponentChooser;
     private final Transformer<ModuleComponentResolveMetadata, RepositoryChainModuleResolution> metaDataFactory;
+    private final ParallelRepositoryProber repositoryProber;
 
-    public DynamicVersionResolver(VersionedComponentChooser versionedComponentChooser, Transformer<ModuleComponentResolveMetadata, RepositoryChainModuleResolution> metaDataFactory) {
+    /**
+     * @param repositoryProber used to list the versions from the remote repositories concurrently, or null to list them one at a time.
+     */
+    public DynamicVersionResolver(VersionedComponentChooser versionedComponentChooser, Transformer<ModuleComponentResolveMetadata, RepositoryChainModuleResolution> metaDataFactory,
+                                  @Nullable ParallelRepositoryProber repositoryProber) {
         this.versionedComponentChooser = versionedComponentChooser;
         this.metaDataFactory = metaDataFactory;
+        this.repositoryProber = repositoryProber;
     }
 
     public void add(ModuleComponentRepository repository) {
@@ -109,6 +117,10 @@ public class DynamicVersionResolver implements DependencyToComponentIdResolver {
     }
 
     private RepositoryChainModuleResolution findLatestModule(LinkedList<RepositoryResolveState> queue, Collection<Throwable> failures, Collection<RepositoryResolveState> missing) {
+        if (repositoryProber != null) {
+            listVersionsRemotelyAhead(queue);
+        }
+
         RepositoryChainModuleResolution best = null;
         while (!queue.isEmpty()) {
             RepositoryResolveState request = queue.removeFirst();
@@ -141,6 +153,33 @@ public class DynamicVersionResolver implements DependencyToComponentIdResolver {
         return best;
     }
 
+    /**
+     * Lists concurrently the versions from the remote repositories that would be searched by a pass over the given queue. Every repository is searched
+     * by a pass, so this does not make any additional requests. Versions are still selected on the calling thread, in repository order.
+     */
+    private void listVersionsRemotelyAhead(List<RepositoryResolveState> queue) {
+        List<Runnable> searches = new ArrayList<Runnable>();
+        for (RepositoryResolveState request : queue) {
+            final VersionListResult versionListing = request.versionListingResult;
+            try {
+                if (versionListing.requiresRemoteSearch()) {
+                    searches.add(new Runnable() {
+                        @Override
+                        public void run() {
+                            versionListing.searchRemotely();
+                        }
+                    });
+                }
+            } catch (Throwable t) {
+                // Reported when the repository is searched again
+                break;
+            }
+        }
+        if (searches.size() > 1) {
+            repositoryProber.search(searches);
+        }
+    }
+
     private RepositoryChainModuleResolution chooseBest(RepositoryChainModuleResolution one, RepositoryChainModuleResolution two) {
         if (one == null || two == null) {
             return two == null ? one : two;
@@ -327,6 +366,9 @@ public class DynamicVersionResolver implements DependencyToComponentIdResolver {
 
         private boolean searchedLocally;
         private boolean searchedRemotely;
+        private boolean localResultPending;
+        private boolean fetchedRemotely;
+        private Throwable remoteFailure;
 
         public VersionListResult(DependencyMetadata dependency, ModuleComponentRepository repository) {
             this.dependency = dependency;
@@ -335,25 +377,60 @@ public class DynamicVersionResolver implements DependencyToComponentIdResolver {
 
         void resolve() {
             if (!searchedLocally) {
-                searchedLocally = true;
-                process(dependency, repository.getLocalAccess());
+                searchLocally();
                 if (result.hasResult()) {
-                    if (result.isAuthoritative()) {
-                        // Authoritative result - don't need to try remote
-                        searchedRemotely = true;
-                    }
                     return;
                 }
                 // Otherwise, try remotely
             }
+            if (localResultPending) {
+                localResultPending = false;
+                return;
+            }
             if (!searchedRemotely) {
                 searchedRemotely = true;
-                process(dependency, repository.getRemoteAccess());
+                if (!fetchedRemotely) {
+                    process(dependency, repository.getRemoteAccess());
+                } else if (remoteFailure != null) {
+                    throw UncheckedException.throwAsUncheckedException(remoteFailure);
+                }
             }
 
             // Otherwise, just reuse previous result
         }
 
+        /**
+         * Searches the local access, if not already done, and returns whether the next call to {@link #resolve()} will search the remote access.
+         */
+        boolean requiresRemoteSearch() {
+            if (!searchedLocally) {
+                searchLocally();
+                localResultPending = result.hasResult();
+            }
+            return !localResultPending && !searchedRemotely && !fetchedRemotely;
+        }
+
+        /**
+         * Searches the remote access ahead of the next call to {@link #resolve()}. May be called from any thread.
+         */
+        void searchRemotely() {
+            fetchedRemotely = true;
+            try {
+                process(dependency, repository.getRemoteAccess());
+            } catch (Throwable t) {
+                remoteFailure = t;
+            }
+        }
+
+        private void searchLocally() {
+            process(dependency, repository.getLocalAccess());
+            searchedLocally = true;
+            if (result.hasResult() && result.isAuthoritative()) {
+                // Authoritative result - don't need to try remote
+                searchedRemotely = true;
+            }
+        }
+
         public boolean canMakeFurtherAttempts() {
             return !searchedRemotely;
         }
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.gradle.cache.CacheAccess;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.concurrent.StoppableExecutor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Searches several repositories concurrently, using at most a fixed number of threads for the whole build.
+ *
+ * <p>Each search holds the cache lock, which the repositories release around their remote requests, so that only the remote requests run concurrently.
+ * A search made from within another search, such as the lookup of a parent POM, runs on the calling thread so that it cannot starve the pool.</p>
+ */
+public class ParallelRepositoryProber implements Stoppable {
+    /**
+     * When set to {@code true}, the remote repositories are searched concurrently for a component.
+     */
+    public static final String TOGGLE_PROPERTY = "org.gradle.resolution.parallelRepositoryProbing";
+    /**
+     * The maximum number of concurrent requests made to the repositories by a build, defaults to 8.
+     */
+    public static final String MAX_CONCURRENT_REQUESTS_PROPERTY = "org.gradle.resolution.maxConcurrentRepositoryRequests";
+    private static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 8;
+
+    private final ExecutorFactory executorFactory;
+    private final CacheAccess cacheAccess;
+    private final ThreadLocal<Boolean> searching = new ThreadLocal<Boolean>();
+    private final boolean enabled;
+    private final int maxConcurrentRequests;
+    private StoppableExecutor executor;
+
+    public ParallelRepositoryProber(ExecutorFactory executorFactory, CacheAccess cacheAccess) {
+        this(executorFactory, cacheAccess, Boolean.getBoolean(TOGGLE_PROPERTY), Integer.getInteger(MAX_CONCURRENT_REQUESTS_PROPERTY, DEFAULT_MAX_CONCURRENT_REQUESTS));
+    }
+
+    ParallelRepositoryProber(ExecutorFactory executorFactory, CacheAccess cacheAccess, boolean enabled, int maxConcurrentRequests) {
+        this.executorFactory = executorFactory;
+        this.cacheAccess = cacheAccess;
+        this.enabled = enabled;
+        this.maxConcurrentRequests = Math.max(1, maxConcurrentRequests);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Runs the given searches, blocking until all of them have completed. Searches are expected to record their own failures.
+     */
+    public void search(List<? extends Runnable> searches) {
+        if (searches.size() < 2 || searching.get() != null) {
+            for (Runnable search : searches) {
+                search.run();
+            }
+            return;
+        }
+
+        StoppableExecutor executor = getExecutor();
+        final List<Future<?>> results = new ArrayList<Future<?>>(searches.size());
+        for (final Runnable search : searches) {
+            results.add(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    searching.set(Boolean.TRUE);
+                    try {
+                        cacheAccess.useCache("Search repository", search);
+                    } finally {
+                        searching.remove();
+                    }
+                }
+            }));
+        }
+        cacheAccess.longRunningOperation("Search " + searches.size() + " repositories", new Runnable() {
+            @Override
+            public void run() {
+                for (Future<?> result : results) {
+                    try {
+                        Uninterruptibles.getUninterruptibly(result);
+                    } catch (ExecutionException e) {
+                        // Searches record their own failures
+                    }
+                }
+            }
+        });
+    }
+
+    private synchronized StoppableExecutor getExecutor() {
+        if (executor == null) {
+            executor = executorFactory.create("Search repositories", maxConcurrentRequests);
+        }
+        return executor;
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.stop();
+            executor = null;
+        }
+    }
+}
@@ -16,6 +16,7 @@
 
 package org.gradle.api.internal.artifacts.ivyservice.ivyresolve;
 
+import org.gradle.api.Nullable;
 import org.gradle.api.Transformer;
 import org.gradle.api.artifacts.component.ComponentIdentifier;
 import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
@@ -40,10 +41,20 @@ public class RepositoryChainComponentMetaDataResolver implements ComponentMetaDa
     private final List<String> repositoryNames = new ArrayList<String>();
     private final VersionedComponentChooser versionedComponentChooser;
     private final Transformer<ModuleComponentResolveMetadata, RepositoryChainModuleResolution> metaDataFactory;
+    private final ParallelRepositoryProber repositoryProber;
 
     public RepositoryChainComponentMetaDataResolver(VersionedComponentChooser componentChooser, Transformer<ModuleComponentResolveMetadata, RepositoryChainModuleResolution> metaDataFactory) {
+        this(componentChooser, metaDataFactory, null);
+    }
+
+    /**
+     * @param repositoryProber used to search the remote repositories concurrently, or null to search them one at a time.
+     */
+    public RepositoryChainComponentMetaDataResolver(VersionedComponentChooser componentChooser, Transformer<ModuleComponentResolveMetadata, RepositoryChainModuleResolution> metaDataFactory,
+                                                    @Nullable ParallelRepositoryProber repositoryProber) {
         this.versionedComponentChooser = componentChooser;
         this.metaDataFactory = metaDataFactory;
+        this.repositoryProber = repositoryProber;
     }
 
     public void add(ModuleComponentRepository repository) {
@@ -108,6 +119,10 @@ public class RepositoryChainComponentMetaDataResolver implements ComponentMetaDa
     }
 
     private RepositoryChainModuleResolution findBestMatch(LinkedList<ComponentMetaDataResolveState> queue, Collection<Throwable> failures, Collection<ComponentMetaDataResolveState> missing) {
+        if (repositoryProber != null) {
+            searchRemotelyAhead(queue);
+        }
+
         RepositoryChainModuleResolution best = null;
         while (!queue.isEmpty()) {
             ComponentMetaDataResolveState request = queue.removeFirst();
@@ -142,4 +157,32 @@ public class RepositoryChainComponentMetaDataResolver implements ComponentMetaDa
 
         return best;
     }
+
+    /**
+     * Searches concurrently the remote repositories that would be searched by a pass over the given queue, up to the first repository that contains
+     * the component locally. The results are then used in repository order, so the first repository that contains the component still wins.
+     */
+    private void searchRemotelyAhead(List<ComponentMetaDataResolveState> queue) {
+        List<Runnable> searches = new ArrayList<Runnable>();
+        for (final ComponentMetaDataResolveState request : queue) {
+            try {
+                if (request.requiresRemoteSearch()) {
+                    searches.add(new Runnable() {
+                        @Override
+                        public void run() {
+                            request.searchRemotely();
+                        }
+                    });
+                } else if (request.isResolvedLocally()) {
+                    break;
+                }
+            } catch (Throwable t) {
+                // Reported when the repository is searched again
+                break;
+            }
+        }
+        if (searches.size() > 1) {
+            repositoryProber.search(searches);
+        }
+    }
 }
@@ -15,6 +15,8 @@
  */
 package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.gradle.api.artifacts.ModuleVersionIdentifier;
 import org.gradle.api.artifacts.ModuleVersionSelector;
 import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
@@ -30,6 +32,7 @@ import org.gradle.internal.component.external.model.DefaultModuleComponentIdenti
 import org.gradle.internal.component.external.model.DefaultMutableMavenModuleResolveMetadata;
 import org.gradle.internal.component.external.model.MutableMavenModuleResolveMetadata;
 import org.gradle.internal.component.model.DependencyMetadata;
+import org.gradle.internal.hash.HashValue;
 import org.gradle.internal.resource.local.LocallyAvailableExternalResource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -44,12 +47,15 @@ import java.util.Map;
 
 /**
  * This based on a copy of org.apache.ivy.plugins.parser.m2.PomModuleDescriptorParser, but now heavily refactored.
+ *
+ * <p>The parent and imported POMs are shared by many modules, so their parsed content is kept, keyed by the hash of the POM.</p>
  */
 public final class GradlePomModuleDescriptorParser extends AbstractModuleDescriptorParser<MutableMavenModuleResolveMetadata> {
     private static final Logger LOGGER = LoggerFactory.getLogger(GradlePomModuleDescriptorParser.class);
     private static final String DEPENDENCY_IMPORT_SCOPE = "import";
     private final VersionSelectorScheme gradleVersionSelectorScheme;
     private final VersionSelectorScheme mavenVersionSelectorScheme;
+    private final Cache<HashValue, PomElement> parsedPoms = CacheBuilder.newBuilder().maximumSize(500).softValues().build();
 
     public GradlePomModuleDescriptorParser(VersionSelectorScheme gradleVersionSelectorScheme) {
         this.gradleVersionSelectorScheme = gradleVersionSelectorScheme;
@@ -201,9 +207,19 @@ public final class GradlePomModuleDescriptorParser extends AbstractModuleDescrip
      */
     private PomReader parseOtherPom(DescriptorParseContext parseContext, ModuleComponentIdentifier parentId) throws IOException, SAXException {
         LocallyAvailableExternalResource localResource = parseContext.getMetaDataArtifact(parentId, ArtifactType.MAVEN_POM);
-        PomReader pomReader = new PomReader(localResource);
+        PomReader pomReader = new PomReader(localResource, parseOtherPom(localResource));
         GradlePomModuleDescriptorBuilder mdBuilder = new GradlePomModuleDescriptorBuilder(pomReader, gradleVersionSelectorScheme, mavenVersionSelectorScheme);
         doParsePom(parseContext, mdBuilder, pomReader);
         return pomReader;
     }
+
+    private PomElement parseOtherPom(LocallyAvailableExternalResource resource) throws SAXException {
+        HashValue hash = resource.getLocalResource().getSha1();
+        PomElement projectElement = parsedPoms.getIfPresent(hash);
+        if (projectElement == null) {
+            projectElement = PomReader.parse(resource);
+            parsedPoms.put(hash, projectElement);
+        }
+        return projectElement;
+    }
 }
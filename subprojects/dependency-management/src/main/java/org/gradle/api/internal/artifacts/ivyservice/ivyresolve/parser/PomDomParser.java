@@ -21,6 +21,7 @@ import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
 import java.io.*;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -84,6 +85,17 @@ public final class PomDomParser {
         return r;
     }
 
+    /**
+     * Converts the given element and its descendants into {@link PomElement}s.
+     */
+    public static PomElement toPomElement(Element element) {
+        List<PomElement> children = new ArrayList<PomElement>();
+        for (Element child : getAllChilds(element)) {
+            children.add(toPomElement(child));
+        }
+        return new PomElement(element.getNodeName(), getTextContent(element), children);
+    }
+
     public static final class AddDTDFilterInputStream extends FilterInputStream {
         private static final int MARK = 10000;
         private static final String DOCTYPE = "<!DOCTYPE project SYSTEM \"m2-entities.ent\">\n";
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An immutable element of a parsed POM, holding its name, the text directly contained by the element and its child elements.
+ */
+public final class PomElement {
+    private final String name;
+    private final String text;
+    private final List<PomElement> children;
+
+    PomElement(String name, String text, List<PomElement> children) {
+        this.name = name;
+        this.text = text;
+        this.children = children;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public List<PomElement> getChildren() {
+        return children;
+    }
+
+    public static String getTextContent(PomElement element) {
+        return element.text;
+    }
+
+    public static String getFirstChildText(PomElement parentElem, String name) {
+        PomElement node = getFirstChildElement(parentElem, name);
+        if (node != null) {
+            return node.text;
+        } else {
+            return null;
+        }
+    }
+
+    public static PomElement getFirstChildElement(PomElement parentElem, String name) {
+        if (parentElem == null) {
+            return null;
+        }
+        for (PomElement child : parentElem.children) {
+            if (name.equals(child.name)) {
+                return child;
+            }
+        }
+        return null;
+    }
+
+    public static List<PomElement> getAllChilds(PomElement parent) {
+        if (parent == null) {
+            return Collections.emptyList();
+        }
+        return parent.children;
+    }
+}
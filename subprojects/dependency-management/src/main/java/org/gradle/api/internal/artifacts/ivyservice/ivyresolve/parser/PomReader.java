@@ -29,10 +29,9 @@ import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser.data.PomPr
 import org.gradle.internal.UncheckedException;
 import org.gradle.internal.classloader.ClassLoaderUtils;
 import org.gradle.internal.resource.local.LocallyAvailableExternalResource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 import org.xml.sax.EntityResolver;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
@@ -41,6 +40,7 @@ import org.xml.sax.SAXParseException;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -51,12 +51,15 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
-import static org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser.PomDomParser.*;
+import static org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser.PomElement.*;
 
 /**
  * Copied from org.apache.ivy.plugins.parser.m2.PomReader.
+ *
+ * <p>POMs are read with {@link PomStaxParser}. POMs that it cannot read, such as those that use the entities defined by Maven, are read into a DOM instead.</p>
  */
 public class PomReader implements PomParent {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PomReader.class);
 
     private static final String PACKAGING = "packaging";
     private static final String DEPENDENCY = "dependency";
@@ -126,24 +129,20 @@ public class PomReader implements PomParent {
     private final Map<MavenDependencyKey, PomDependencyMgt> importedDependencyMgts = new LinkedHashMap<MavenDependencyKey, PomDependencyMgt>();
     private Map<MavenDependencyKey, PomDependencyData> resolvedDependencies;
 
-    private final Element projectElement;
-    private final Element parentElement;
+    private final String systemId;
+    private final PomElement projectElement;
+    private final PomElement parentElement;
 
-    public PomReader(final LocallyAvailableExternalResource resource) throws SAXException {
-        final String systemId = resource.getLocalResource().getFile().toURI().toASCIIString();
-        Document pomDomDoc = resource.withContent(new Transformer<Document, InputStream>() {
-            public Document transform(InputStream inputStream) {
-                try {
-                    return parseToDom(inputStream, systemId);
-                } catch (Exception e) {
-                    throw new MetaDataParseException("POM", resource, e);
-                }
-            }
-        });
-        projectElement = pomDomDoc.getDocumentElement();
-        if (!PROJECT.equals(projectElement.getNodeName()) && !MODEL.equals(projectElement.getNodeName())) {
-            throw new SAXParseException("project must be the root tag", systemId, systemId, 0, 0);
-        }
+    public PomReader(LocallyAvailableExternalResource resource) throws SAXException {
+        this(resource, parse(resource));
+    }
+
+    /**
+     * Creates a reader for the given POM, whose content has already been parsed with {@link #parse(LocallyAvailableExternalResource)}.
+     */
+    public PomReader(LocallyAvailableExternalResource resource, PomElement projectElement) {
+        this.systemId = getSystemId(resource);
+        this.projectElement = projectElement;
         parentElement = getFirstChildElement(projectElement, PARENT);
 
         setDefaultParentGavProperties();
@@ -224,7 +223,44 @@ public class PomReader implements PomParent {
 
     @Override
     public String toString() {
-        return projectElement.getOwnerDocument().getDocumentURI();
+        return systemId;
+    }
+
+    /**
+     * Parses the given POM, returning its project element.
+     */
+    public static PomElement parse(final LocallyAvailableExternalResource resource) throws SAXException {
+        final String systemId = getSystemId(resource);
+        PomElement projectElement = resource.withContent(new Transformer<PomElement, InputStream>() {
+            public PomElement transform(InputStream inputStream) {
+                try {
+                    return PomStaxParser.parse(inputStream, systemId);
+                } catch (XMLStreamException e) {
+                    LOGGER.debug("Could not read POM {} with a streaming parser, reading it into a DOM instead.", systemId, e);
+                    return null;
+                }
+            }
+        });
+        if (projectElement == null) {
+            Document pomDomDoc = resource.withContent(new Transformer<Document, InputStream>() {
+                public Document transform(InputStream inputStream) {
+                    try {
+                        return parseToDom(inputStream, systemId);
+                    } catch (Exception e) {
+                        throw new MetaDataParseException("POM", resource, e);
+                    }
+                }
+            });
+            projectElement = PomDomParser.toPomElement(pomDomDoc.getDocumentElement());
+        }
+        if (!PROJECT.equals(projectElement.getName()) && !MODEL.equals(projectElement.getName())) {
+            throw new SAXParseException("project must be the root tag", systemId, systemId, 0, 0);
+        }
+        return projectElement;
+    }
+
+    private static String getSystemId(LocallyAvailableExternalResource resource) {
+        return resource.getLocalResource().getFile().toURI().toASCIIString();
     }
 
     private static DocumentBuilder getDocBuilder(EntityResolver entityResolver) {
@@ -245,7 +281,7 @@ public class PomReader implements PomParent {
         ClassLoader original = Thread.currentThread().getContextClassLoader();
         Thread.currentThread().setContextClassLoader(ClassLoaderUtils.getPlatformClassLoader());
         try {
-            InputStream dtdStream = new AddDTDFilterInputStream(stream);
+            InputStream dtdStream = new PomDomParser.AddDTDFilterInputStream(stream);
             return getDocBuilder(M2_ENTITY_RESOLVER).parse(dtdStream, systemId);
         } finally {
             Thread.currentThread().setContextClassLoader(original);
@@ -347,8 +383,8 @@ public class PomReader implements PomParent {
     }
 
     public ModuleVersionIdentifier getRelocation() {
-        Element distrMgt = getFirstChildElement(projectElement, DISTRIBUTION_MGT);
-        Element relocation = getFirstChildElement(distrMgt , RELOCATION);
+        PomElement distrMgt = getFirstChildElement(projectElement, DISTRIBUTION_MGT);
+        PomElement relocation = getFirstChildElement(distrMgt , RELOCATION);
         if (relocation == null) {
             return null;
         } else {
@@ -395,16 +431,12 @@ public class PomReader implements PomParent {
         return dependencies;
     }
 
-    private List<PomDependencyData> getDependencyData(Element parentElement) {
+    private List<PomDependencyData> getDependencyData(PomElement parentElement) {
         List<PomDependencyData> depElements = new ArrayList<PomDependencyData>();
-        Element dependenciesElement = getFirstChildElement(parentElement, DEPENDENCIES);
-        if (dependenciesElement != null) {
-            NodeList childs = dependenciesElement.getChildNodes();
-            for (int i = 0; i < childs.getLength(); i++) {
-                Node node = childs.item(i);
-                if (node instanceof Element && DEPENDENCY.equals(node.getNodeName())) {
-                    depElements.add(new PomDependencyData((Element) node));
-                }
+        PomElement dependenciesElement = getFirstChildElement(parentElement, DEPENDENCIES);
+        for (PomElement node : getAllChilds(dependenciesElement)) {
+            if (DEPENDENCY.equals(node.getName())) {
+                depElements.add(new PomDependencyData(node));
             }
         }
 
@@ -452,18 +484,14 @@ public class PomReader implements PomParent {
         return declaredDependencyMgts;
     }
 
-    private List<PomDependencyMgt> getDependencyMgt(Element parentElement) {
+    private List<PomDependencyMgt> getDependencyMgt(PomElement parentElement) {
         List<PomDependencyMgt> depMgmtElements = new ArrayList<PomDependencyMgt>();
-        Element dependenciesElement = getFirstChildElement(parentElement, DEPENDENCY_MGT);
+        PomElement dependenciesElement = getFirstChildElement(parentElement, DEPENDENCY_MGT);
         dependenciesElement = getFirstChildElement(dependenciesElement, DEPENDENCIES);
 
-        if (dependenciesElement != null) {
-            NodeList childs = dependenciesElement.getChildNodes();
-            for (int i = 0; i < childs.getLength(); i++) {
-                Node node = childs.item(i);
-                if (node instanceof Element && DEPENDENCY.equals(node.getNodeName())) {
-                    depMgmtElements.add(new PomDependencyMgtElement((Element) node));
-                }
+        for (PomElement node : getAllChilds(dependenciesElement)) {
+            if (DEPENDENCY.equals(node.getName())) {
+                depMgmtElements.add(new PomDependencyMgtElement(node));
             }
         }
 
@@ -487,9 +515,9 @@ public class PomReader implements PomParent {
     }
 
     public class PomDependencyMgtElement implements PomDependencyMgt {
-        private final Element depElement;
+        private final PomElement depElement;
 
-        PomDependencyMgtElement(Element depElement) {
+        PomDependencyMgtElement(PomElement depElement) {
             this.depElement = depElement;
         }
 
@@ -545,15 +573,13 @@ public class PomReader implements PomParent {
         }
 
         public List<ModuleIdentifier> getExcludedModules() {
-            Element exclusionsElement = getFirstChildElement(depElement, EXCLUSIONS);
+            PomElement exclusionsElement = getFirstChildElement(depElement, EXCLUSIONS);
             if (exclusionsElement != null) {
-                NodeList childs = exclusionsElement.getChildNodes();
                 List<ModuleIdentifier> exclusions = Lists.newArrayList();
-                for (int i = 0; i < childs.getLength(); i++) {
-                    Node node = childs.item(i);
-                    if (node instanceof Element && EXCLUSION.equals(node.getNodeName())) {
-                        String groupId = getFirstChildText((Element) node, GROUP_ID);
-                        String artifactId = getFirstChildText((Element) node, ARTIFACT_ID);
+                for (PomElement node : exclusionsElement.getChildren()) {
+                    if (EXCLUSION.equals(node.getName())) {
+                        String groupId = getFirstChildText(node, GROUP_ID);
+                        String artifactId = getFirstChildText(node, ARTIFACT_ID);
                         if ((groupId != null) && (artifactId != null)) {
                             exclusions.add(DefaultModuleIdentifier.newId(groupId, artifactId));
                         }
@@ -566,24 +592,24 @@ public class PomReader implements PomParent {
     }
 
     public class PomDependencyData extends PomDependencyMgtElement {
-        private final Element depElement;
-        PomDependencyData(Element depElement) {
+        private final PomElement depElement;
+        PomDependencyData(PomElement depElement) {
             super(depElement);
             this.depElement = depElement;
         }
 
         public boolean isOptional() {
-            Element e = getFirstChildElement(depElement, OPTIONAL);
+            PomElement e = getFirstChildElement(depElement, OPTIONAL);
             return (e != null) && "true".equalsIgnoreCase(getTextContent(e));
         }
     }
 
     public class PomProfileElement implements PomProfile {
-        private final Element element;
+        private final PomElement element;
         private List<PomDependencyMgt> declaredDependencyMgts;
         private List<PomDependencyData> declaredDependencies;
 
-        PomProfileElement(Element element) {
+        PomProfileElement(PomElement element) {
             this.element = element;
         }
 
@@ -621,12 +647,12 @@ public class PomReader implements PomParent {
         if(declaredActivePomProfiles == null) {
             List<PomProfile> activeByDefaultPomProfiles = new ArrayList<PomProfile>();
             List<PomProfile> activeByAbsenceOfPropertyPomProfiles = new ArrayList<PomProfile>();
-            Element profilesElement = getFirstChildElement(projectElement, PROFILES);
+            PomElement profilesElement = getFirstChildElement(projectElement, PROFILES);
 
             if(profilesElement != null) {
-                for(Element profileElement : getAllChilds(profilesElement)) {
-                    if(PROFILE.equals(profileElement.getNodeName())) {
-                        Element activationElement = getFirstChildElement(profileElement, PROFILE_ACTIVATION);
+                for(PomElement profileElement : getAllChilds(profilesElement)) {
+                    if(PROFILE.equals(profileElement.getName())) {
+                        PomElement activationElement = getFirstChildElement(profileElement, PROFILE_ACTIVATION);
 
                         if(activationElement != null) {
                             String activeByDefault = getFirstChildText(activationElement, PROFILE_ACTIVATION_ACTIVE_BY_DEFAULT);
@@ -634,7 +660,7 @@ public class PomReader implements PomParent {
                             if(activeByDefault != null && "true".equals(activeByDefault)) {
                                 activeByDefaultPomProfiles.add(new PomProfileElement(profileElement));
                             } else {
-                                Element propertyElement = getFirstChildElement(activationElement, PROFILE_ACTIVATION_PROPERTY);
+                                PomElement propertyElement = getFirstChildElement(activationElement, PROFILE_ACTIVATION_PROPERTY);
 
                                 if(propertyElement != null) {
                                     if(isActivationPropertyActivated(propertyElement)) {
@@ -672,7 +698,7 @@ public class PomReader implements PomParent {
      * @return Activation indicator
      * @see <a href="http://books.sonatype.com/mvnref-book/reference/profiles-sect-activation.html#profiles-sect-activation-config">Maven documentation</a>
      */
-    private boolean isActivationPropertyActivated(Element propertyElement) {
+    private boolean isActivationPropertyActivated(PomElement propertyElement) {
         String propertyName = getFirstChildText(propertyElement, "name");
         return propertyName.startsWith("!");
     }
@@ -684,14 +710,11 @@ public class PomReader implements PomParent {
         return getPomProperties(projectElement);
     }
 
-    private Map<String, String> getPomProperties(Element parentElement) {
+    private Map<String, String> getPomProperties(PomElement parentElement) {
         Map<String, String> pomProperties = new HashMap<String, String>();
-        Element propsEl = getFirstChildElement(parentElement, PROPERTIES);
-        if (propsEl != null) {
-            propsEl.normalize();
-        }
-        for (Element prop : getAllChilds(propsEl)) {
-            pomProperties.put(prop.getNodeName(), getTextContent(prop));
+        PomElement propsEl = getFirstChildElement(parentElement, PROPERTIES);
+        for (PomElement prop : getAllChilds(propsEl)) {
+            pomProperties.put(prop.getName(), getTextContent(prop));
         }
         return pomProperties;
     }
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser;
+
+import com.google.common.collect.ImmutableSet;
+import org.gradle.internal.classloader.ClassLoaderUtils;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reads a POM into a tree of {@link PomElement}s with a streaming parser.
+ *
+ * <p>The sections of the project and of its profiles that are not used to build the module meta-data, such as the build and reporting configuration,
+ * are skipped rather than kept in memory. POMs that reference entities outside of these sections are rejected, and should be parsed with
+ * {@link PomDomParser} instead, which provides the entities that Maven defines.</p>
+ */
+public final class PomStaxParser {
+    private static final String PROFILES = "profiles";
+    private static final String PROFILE = "profile";
+    private static final Set<String> IGNORED_SECTIONS = ImmutableSet.of(
+        "name", "url", "inceptionYear", "organization", "licenses", "developers", "contributors", "mailingLists", "prerequisites", "modules",
+        "scm", "issueManagement", "ciManagement", "repositories", "pluginRepositories", "build", "reporting", "reports");
+    private static final XMLInputFactory XML_INPUT_FACTORY;
+
+    static {
+        // Set the context classloader the bootstrap classloader, to work around the way that JAXP locates implementation classes
+        // This should ensure that the StAX implementation provided by the JVM is used, rather than some other implementation
+        ClassLoader original = Thread.currentThread().getContextClassLoader();
+        Thread.currentThread().setContextClassLoader(ClassLoaderUtils.getPlatformClassLoader());
+        try {
+            XML_INPUT_FACTORY = XMLInputFactory.newInstance();
+            XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+            XML_INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+            XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+            // Report the references to undeclared entities rather than failing, so that they are only rejected outside of the skipped sections
+            XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_REPLACING_ENTITY_REFERENCES, false);
+        } finally {
+            Thread.currentThread().setContextClassLoader(original);
+        }
+    }
+
+    private PomStaxParser() {}
+
+    /**
+     * Parses the given POM, returning its root element.
+     *
+     * @throws XMLStreamException if the content is not well-formed, or references an entity that is not predefined by XML.
+     */
+    public static PomElement parse(InputStream stream, String systemId) throws XMLStreamException {
+        XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(systemId, stream);
+        try {
+            Deque<ElementBuilder> openElements = new ArrayDeque<ElementBuilder>();
+            PomElement root = null;
+            while (reader.hasNext()) {
+                switch (reader.next()) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        String name = getName(reader);
+                        ElementBuilder parent = openElements.peek();
+                        if (parent != null && parent.skipsIgnoredSections && IGNORED_SECTIONS.contains(name)) {
+                            skipElement(reader);
+                        } else {
+                            openElements.push(new ElementBuilder(name, parent == null || isProfile(name, parent, openElements.size())));
+                        }
+                        break;
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA:
+                    case XMLStreamConstants.SPACE:
+                        if (!openElements.isEmpty()) {
+                            openElements.peek().appendText(reader);
+                        }
+                        break;
+                    case XMLStreamConstants.ENTITY_REFERENCE:
+                        throw new XMLStreamException("Undeclared entity '" + reader.getLocalName() + "' referenced.", reader.getLocation());
+                    case XMLStreamConstants.END_ELEMENT:
+                        PomElement element = openElements.pop().build();
+                        if (openElements.isEmpty()) {
+                            root = element;
+                        } else {
+                            openElements.peek().addChild(element);
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            }
+            return root;
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static boolean isProfile(String name, ElementBuilder parent, int depth) {
+        return depth == 2 && PROFILE.equals(name) && PROFILES.equals(parent.name);
+    }
+
+    private static String getName(XMLStreamReader reader) {
+        // Use the qualified name, as a DOM that is not namespace aware does
+        String prefix = reader.getPrefix();
+        if (prefix == null || prefix.length() == 0) {
+            return reader.getLocalName();
+        }
+        return prefix + ":" + reader.getLocalName();
+    }
+
+    private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    private static class ElementBuilder {
+        private final String name;
+        private final boolean skipsIgnoredSections;
+        private StringBuilder text;
+        private List<PomElement> children;
+
+        ElementBuilder(String name, boolean skipsIgnoredSections) {
+            this.name = name;
+            this.skipsIgnoredSections = skipsIgnoredSections;
+        }
+
+        void appendText(XMLStreamReader reader) {
+            if (text == null) {
+                text = new StringBuilder(reader.getTextLength());
+            }
+            text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+        }
+
+        void addChild(PomElement child) {
+            if (children == null) {
+                children = new ArrayList<PomElement>();
+            }
+            children.add(child);
+        }
+
+        PomElement build() {
+            return new PomElement(name, text == null ? "" : text.toString(), children == null ? Collections.<PomElement>emptyList() : children);
+        }
+    }
+}
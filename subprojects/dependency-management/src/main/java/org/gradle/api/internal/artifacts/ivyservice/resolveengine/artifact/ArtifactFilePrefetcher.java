@@ -0,0 +1,151 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.gradle.api.artifacts.ResolvedArtifact;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.cache.CacheAccess;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.concurrent.StoppableExecutor;
+import org.gradle.internal.logging.progress.ProgressLogger;
+import org.gradle.internal.logging.progress.ProgressLoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Resolves the files of external artifacts concurrently, so that the artifacts missing from the cache are downloaded in parallel rather than one at a time
+ * as the files of a configuration are iterated.
+ *
+ * <p>The artifact resolvers hold the cache lock while resolving an artifact and release it around the download, so that only the downloads run concurrently.
+ * A download is written to a temporary file and then moved into the file store under the cross-process cache lock, so that builds sharing the cache never
+ * see a partial file. The number of concurrent requests to a single host is bounded by the HTTP connection pool.</p>
+ *
+ * <p>Failures are ignored here: the files are requested again by the caller, which reports the failures in the order of the artifacts.</p>
+ */
+public class ArtifactFilePrefetcher implements Stoppable {
+    private static final Logger LOGGER = Logging.getLogger(ArtifactFilePrefetcher.class);
+
+    /**
+     * When set to {@code true}, the files of the external artifacts of a configuration are resolved concurrently.
+     */
+    public static final String TOGGLE_PROPERTY = "org.gradle.resolution.parallelArtifactDownload";
+    /**
+     * The maximum number of artifacts downloaded concurrently by a build, defaults to 8.
+     */
+    public static final String MAX_CONCURRENT_DOWNLOADS_PROPERTY = "org.gradle.resolution.maxConcurrentArtifactDownloads";
+    private static final int DEFAULT_MAX_CONCURRENT_DOWNLOADS = 8;
+
+    private final ExecutorFactory executorFactory;
+    private final CacheAccess cacheAccess;
+    private final ProgressLoggerFactory progressLoggerFactory;
+    private final boolean enabled;
+    private final int maxConcurrentDownloads;
+    private StoppableExecutor executor;
+
+    public ArtifactFilePrefetcher(ExecutorFactory executorFactory, CacheAccess cacheAccess, ProgressLoggerFactory progressLoggerFactory) {
+        this(executorFactory, cacheAccess, progressLoggerFactory, Boolean.getBoolean(TOGGLE_PROPERTY), Integer.getInteger(MAX_CONCURRENT_DOWNLOADS_PROPERTY, DEFAULT_MAX_CONCURRENT_DOWNLOADS));
+    }
+
+    ArtifactFilePrefetcher(ExecutorFactory executorFactory, CacheAccess cacheAccess, ProgressLoggerFactory progressLoggerFactory, boolean enabled, int maxConcurrentDownloads) {
+        this.executorFactory = executorFactory;
+        this.cacheAccess = cacheAccess;
+        this.progressLoggerFactory = progressLoggerFactory;
+        this.enabled = enabled;
+        this.maxConcurrentDownloads = Math.max(1, maxConcurrentDownloads);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Resolves the files of the given artifacts that belong to external modules, blocking until all of them have been resolved or have failed.
+     */
+    public void prefetch(String displayName, Iterable<? extends ResolvedArtifact> artifacts) {
+        if (!enabled) {
+            return;
+        }
+        final List<ResolvedArtifact> externalArtifacts = new ArrayList<ResolvedArtifact>();
+        for (ResolvedArtifact artifact : artifacts) {
+            if (artifact.getId().getComponentIdentifier() instanceof ModuleComponentIdentifier) {
+                externalArtifacts.add(artifact);
+            }
+        }
+        if (externalArtifacts.size() < 2) {
+            return;
+        }
+
+        final BlockingQueue<Future<ResolvedArtifact>> completed = new LinkedBlockingQueue<Future<ResolvedArtifact>>();
+        CompletionService<ResolvedArtifact> completionService = new ExecutorCompletionService<ResolvedArtifact>(getExecutor(), completed);
+        for (final ResolvedArtifact artifact : externalArtifacts) {
+            completionService.submit(new Runnable() {
+                @Override
+                public void run() {
+                    artifact.getFile();
+                }
+            }, artifact);
+        }
+
+        final ProgressLogger progressLogger = progressLoggerFactory.newOperation(ArtifactFilePrefetcher.class);
+        progressLogger.setDescription("Resolve files of " + displayName);
+        progressLogger.started();
+        try {
+            cacheAccess.longRunningOperation("Resolve files of " + displayName, new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 1; i <= externalArtifacts.size(); i++) {
+                        Future<ResolvedArtifact> result = Uninterruptibles.takeUninterruptibly(completed);
+                        try {
+                            Uninterruptibles.getUninterruptibly(result);
+                        } catch (ExecutionException e) {
+                            LOGGER.debug("Could not resolve artifact file ahead of use.", e.getCause());
+                        }
+                        progressLogger.progress(i + "/" + externalArtifacts.size() + " artifacts");
+                    }
+                }
+            });
+        } finally {
+            progressLogger.completed();
+        }
+    }
+
+    private synchronized StoppableExecutor getExecutor() {
+        if (executor == null) {
+            executor = executorFactory.create("Resolve artifact files", maxConcurrentDownloads);
+        }
+        return executor;
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.stop();
+            executor = null;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.cache.CacheAccess;
+import org.gradle.internal.Factory;
+import org.gradle.internal.component.model.ComponentOverrideMetadata;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.concurrent.StoppableExecutor;
+import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver;
+import org.gradle.internal.resolve.result.DefaultBuildableComponentResolveResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Resolves the meta-data of several components concurrently, on a bounded pool of threads.
+ *
+ * <p>The calling thread releases the cache lock while it waits for the results, and each resolution holds the lock, so that only the remote requests made by the
+ * repositories, which release the lock, actually run concurrently. The results are returned to the calling thread, which is the only one to modify the graph.</p>
+ */
+public class ComponentMetaDataPrefetcher implements Stoppable {
+    /**
+     * When set to {@code true}, the meta-data of the modules selected by the outgoing dependencies of a node is resolved concurrently.
+     */
+    public static final String TOGGLE_PROPERTY = "org.gradle.resolution.parallelMetadata";
+    private static final Logger LOGGER = LoggerFactory.getLogger(ComponentMetaDataPrefetcher.class);
+    private static final int MAX_CONCURRENT_REQUESTS = 8;
+
+    private final CacheAccess cacheAccess;
+    private final StoppableExecutor executor;
+
+    public ComponentMetaDataPrefetcher(ExecutorFactory executorFactory, CacheAccess cacheAccess) {
+        this.cacheAccess = cacheAccess;
+        this.executor = executorFactory.create("Resolve component meta-data", MAX_CONCURRENT_REQUESTS);
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(TOGGLE_PROPERTY);
+    }
+
+    /**
+     * Resolves the given components, blocking until all of them have been resolved. Components whose resolution failed unexpectedly are left out of the result,
+     * so that the failure is reported when they are resolved again on the calling thread.
+     */
+    public Map<ComponentIdentifier, DefaultBuildableComponentResolveResult> resolve(final ComponentMetaDataResolver resolver, final Map<ComponentIdentifier, ComponentOverrideMetadata> components) {
+        final List<Future<DefaultBuildableComponentResolveResult>> results = new ArrayList<Future<DefaultBuildableComponentResolveResult>>(components.size());
+        for (final Map.Entry<ComponentIdentifier, ComponentOverrideMetadata> component : components.entrySet()) {
+            results.add(executor.submit(new Callable<DefaultBuildableComponentResolveResult>() {
+                @Override
+                public DefaultBuildableComponentResolveResult call() {
+                    return cacheAccess.useCache("Resolve " + component.getKey(), new Factory<DefaultBuildableComponentResolveResult>() {
+                        @Override
+                        public DefaultBuildableComponentResolveResult create() {
+                            DefaultBuildableComponentResolveResult result = new DefaultBuildableComponentResolveResult();
+                            resolver.resolve(component.getKey(), component.getValue(), result);
+                            return result;
+                        }
+                    });
+                }
+            }));
+        }
+
+        return cacheAccess.longRunningOperation("Resolve meta-data of " + components.size() + " components", new Factory<Map<ComponentIdentifier, DefaultBuildableComponentResolveResult>>() {
+            @Override
+            public Map<ComponentIdentifier, DefaultBuildableComponentResolveResult> create() {
+                Map<ComponentIdentifier, DefaultBuildableComponentResolveResult> resolved = new LinkedHashMap<ComponentIdentifier, DefaultBuildableComponentResolveResult>();
+                int i = 0;
+                for (ComponentIdentifier component : components.keySet()) {
+                    DefaultBuildableComponentResolveResult result = getResult(component, results.get(i++));
+                    if (result != null && result.hasResult()) {
+                        resolved.put(component, result);
+                    }
+                }
+                return resolved;
+            }
+        });
+    }
+
+    private static DefaultBuildableComponentResolveResult getResult(ComponentIdentifier component, Future<DefaultBuildableComponentResolveResult> result) {
+        try {
+            return Uninterruptibles.getUninterruptibly(result);
+        } catch (ExecutionException e) {
+            LOGGER.debug("Could not resolve meta-data of {} concurrently.", component, e.getCause());
+            return null;
+        }
+    }
+
+    @Override
+    public void stop() {
+        executor.stop();
+    }
+}
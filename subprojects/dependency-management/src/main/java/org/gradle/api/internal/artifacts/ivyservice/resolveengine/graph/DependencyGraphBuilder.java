@@ -16,12 +16,14 @@
 package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph;
 
 import org.gradle.api.Action;
+import org.gradle.api.Nullable;
 import org.gradle.api.artifacts.ModuleDependency;
 import org.gradle.api.artifacts.ModuleIdentifier;
 import org.gradle.api.artifacts.ModuleVersionIdentifier;
 import org.gradle.api.artifacts.ModuleVersionSelector;
 import org.gradle.api.artifacts.component.ComponentIdentifier;
 import org.gradle.api.artifacts.component.ComponentSelector;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
 import org.gradle.api.artifacts.result.ComponentSelectionReason;
 import org.gradle.api.internal.artifacts.DefaultModuleIdentifier;
 import org.gradle.api.internal.artifacts.ResolveContext;
@@ -38,6 +40,7 @@ import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.Version
 import org.gradle.api.specs.Spec;
 import org.gradle.internal.component.local.model.DslOriginDependencyMetadata;
 import org.gradle.internal.component.model.ComponentArtifactMetadata;
+import org.gradle.internal.component.model.ComponentOverrideMetadata;
 import org.gradle.internal.component.model.ComponentResolveMetadata;
 import org.gradle.internal.component.model.ConfigurationMetadata;
 import org.gradle.internal.component.model.DefaultComponentOverrideMetadata;
@@ -73,15 +76,27 @@ public class DependencyGraphBuilder {
     private final ResolveContextToComponentResolver moduleResolver;
     private final DependencyToComponentIdResolver idResolver;
     private final ComponentMetaDataResolver metaDataResolver;
+    private final ComponentMetaDataPrefetcher metaDataPrefetcher;
 
     public DependencyGraphBuilder(DependencyToComponentIdResolver componentIdResolver, ComponentMetaDataResolver componentMetaDataResolver,
                                   ResolveContextToComponentResolver resolveContextToComponentResolver,
                                   ConflictHandler conflictHandler, Spec<? super DependencyMetadata> edgeFilter) {
+        this(componentIdResolver, componentMetaDataResolver, resolveContextToComponentResolver, conflictHandler, edgeFilter, null);
+    }
+
+    /**
+     * @param metaDataPrefetcher used to resolve the meta-data of the modules selected by the outgoing dependencies of a configuration concurrently, or null to resolve it as the dependencies are visited.
+     */
+    public DependencyGraphBuilder(DependencyToComponentIdResolver componentIdResolver, ComponentMetaDataResolver componentMetaDataResolver,
+                                  ResolveContextToComponentResolver resolveContextToComponentResolver,
+                                  ConflictHandler conflictHandler, Spec<? super DependencyMetadata> edgeFilter,
+                                  @Nullable ComponentMetaDataPrefetcher metaDataPrefetcher) {
         this.idResolver = componentIdResolver;
         this.metaDataResolver = componentMetaDataResolver;
         this.moduleResolver = resolveContextToComponentResolver;
         this.conflictHandler = conflictHandler;
         this.edgeFilter = edgeFilter;
+        this.metaDataPrefetcher = metaDataPrefetcher;
     }
 
     public void resolve(ResolveContext resolveContext, DependencyGraphVisitor modelVisitor) {
@@ -113,6 +128,9 @@ public class DependencyGraphBuilder {
                 // Calculate the outgoing edges of this configuration
                 dependencies.clear();
                 node.visitOutgoingDependencies(dependencies);
+                if (metaDataPrefetcher != null) {
+                    prefetchMetaData(dependencies);
+                }
 
                 for (DependencyEdge dependency : dependencies) {
                     LOGGER.debug("Visiting dependency {}", dependency);
@@ -175,6 +193,37 @@ public class DependencyGraphBuilder {
         }
     }
 
+    /**
+     * Resolves the meta-data of the external modules that the given dependencies will be attached to, so that the remote requests are made concurrently
+     * rather than one at a time as the dependencies are attached. The graph itself is only changed on the calling thread.
+     */
+    private void prefetchMetaData(List<DependencyEdge> dependencies) {
+        Map<ComponentIdentifier, ModuleVersionResolveState> toResolve = new LinkedHashMap<ComponentIdentifier, ModuleVersionResolveState>();
+        Map<ComponentIdentifier, ComponentOverrideMetadata> overrides = new LinkedHashMap<ComponentIdentifier, ComponentOverrideMetadata>();
+        for (DependencyEdge dependency : dependencies) {
+            ModuleVersionResolveState moduleRevision = dependency.resolveModuleRevisionId();
+            if (moduleRevision == null || !(moduleRevision.state == ModuleState.Selected || moduleRevision.state == ModuleState.New && moduleRevision.module.selected == null)) {
+                continue;
+            }
+            ComponentIdentifier componentId = moduleRevision.getComponentIdToResolve();
+            if (componentId instanceof ModuleComponentIdentifier && !toResolve.containsKey(componentId)) {
+                toResolve.put(componentId, moduleRevision);
+                overrides.put(componentId, moduleRevision.getOverrideMetadata());
+            }
+        }
+        if (toResolve.size() < 2) {
+            return;
+        }
+
+        Map<ComponentIdentifier, DefaultBuildableComponentResolveResult> results = metaDataPrefetcher.resolve(metaDataResolver, overrides);
+        for (Map.Entry<ComponentIdentifier, ModuleVersionResolveState> entry : toResolve.entrySet()) {
+            DefaultBuildableComponentResolveResult result = results.get(entry.getKey());
+            if (result != null) {
+                entry.getValue().setResolveResult(result);
+            }
+        }
+    }
+
     /**
      * Populates the result from the graph traversal state.
      */
@@ -610,7 +659,30 @@ public class DependencyGraphBuilder {
             }
 
             DefaultBuildableComponentResolveResult result = new DefaultBuildableComponentResolveResult();
-            resolver.resolve(idResolveResult.getId(), DefaultComponentOverrideMetadata.forDependency(firstReference.dependencyMetadata), result);
+            resolver.resolve(idResolveResult.getId(), getOverrideMetadata(), result);
+            setResolveResult(result);
+        }
+
+        /**
+         * Returns the id of the component whose meta-data still has to be resolved, or null when the meta-data or failure is already known.
+         */
+        @Nullable
+        public ComponentIdentifier getComponentIdToResolve() {
+            if (metaData != null || failure != null || firstReference == null) {
+                return null;
+            }
+            ComponentIdResolveResult idResolveResult = firstReference.idResolveResult;
+            if (idResolveResult == null || idResolveResult.getFailure() != null || idResolveResult.getMetaData() != null) {
+                return null;
+            }
+            return idResolveResult.getId();
+        }
+
+        public ComponentOverrideMetadata getOverrideMetadata() {
+            return DefaultComponentOverrideMetadata.forDependency(firstReference.dependencyMetadata);
+        }
+
+        public void setResolveResult(ComponentResolveResult result) {
             if (result.getFailure() != null) {
                 failure = result.getFailure();
                 return;
@@ -20,11 +20,25 @@ import org.gradle.api.artifacts.ModuleDependency
 import org.gradle.api.artifacts.ResolvedArtifact
 import org.gradle.api.artifacts.ResolvedDependency
 import org.gradle.api.artifacts.ResolvedModuleVersion
+import org.gradle.api.artifacts.component.ComponentArtifactIdentifier
+import org.gradle.api.internal.artifacts.configurations.ConfigurationInternal
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.ArtifactFilePrefetcher
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.FileDependencyResults
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.ResolvedArtifacts
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.oldresult.TransientConfigurationResults
 import org.gradle.api.specs.Spec
+import org.gradle.api.specs.Specs
 import org.gradle.internal.Factory
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.logging.progress.ProgressLogger
+import org.gradle.internal.logging.progress.ProgressLoggerFactory
 import spock.lang.Specification
 
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
 class DefaultLenientConfigurationTest extends Specification {
     def "should resolve first level dependencies in tree"() {
         given:
@@ -84,6 +98,54 @@ class DefaultLenientConfigurationTest extends Specification {
         [0: [1, 2, 3, 4, 5], 5: [6, 7, 8], 7: [9, 10], 9: [11, 12]] | 12
     }
 
+    def "resolves the files of external artifacts concurrently before collecting them"() {
+        given:
+        def executorFactory = new DefaultExecutorFactory()
+        def cacheLockingManager = Stub(CacheLockingManager) {
+            longRunningOperation(_, _ as Runnable) >> { String operationDisplayName, Runnable action -> action.run() }
+        }
+        def progressLoggerFactory = Stub(ProgressLoggerFactory) {
+            newOperation(_ as Class) >> Stub(ProgressLogger)
+        }
+        def prefetcher = new ArtifactFilePrefetcher(executorFactory, cacheLockingManager, progressLoggerFactory, true, 4)
+        def latch = new CountDownLatch(3)
+        def concurrentCalls = new AtomicInteger()
+        def artifacts = (1..3).collect { i ->
+            def file = new File("lib-${i}.jar")
+            Stub(ResolvedArtifact) {
+                getId() >> Stub(ComponentArtifactIdentifier) {
+                    getComponentIdentifier() >> DefaultModuleComponentIdentifier.newId("group", "lib-${i}", "1.0")
+                }
+                getFile() >> {
+                    latch.countDown()
+                    if (latch.await(10, TimeUnit.SECONDS)) {
+                        concurrentCalls.incrementAndGet()
+                    }
+                    file
+                }
+            }
+        } as LinkedHashSet
+        def artifactResults = Stub(ResolvedArtifacts) {
+            getArtifacts() >> artifacts
+        }
+        def fileDependencyResults = Stub(FileDependencyResults) {
+            getFiles() >> ([] as Set)
+        }
+        def lenientConfiguration = new DefaultLenientConfiguration(Stub(ConfigurationInternal), cacheLockingManager, [] as Set, artifactResults, fileDependencyResults, Stub(Factory), prefetcher)
+        def files = []
+
+        when:
+        lenientConfiguration.collectFiles(Specs.satisfyAll(), files)
+
+        then:
+        files == [new File("lib-1.jar"), new File("lib-2.jar"), new File("lib-3.jar")]
+        concurrentCalls.get() == 6
+
+        cleanup:
+        prefetcher.stop()
+        executorFactory.stop()
+    }
+
     def generateDependenciesWithChildren(Map treeStructure) {
         Map<Integer, TestResolvedDependency> dependenciesById = [:]
         for (Map.Entry entry : treeStructure.entrySet()) {
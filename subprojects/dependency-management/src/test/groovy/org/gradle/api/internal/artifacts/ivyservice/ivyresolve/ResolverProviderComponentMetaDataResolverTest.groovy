@@ -23,10 +23,12 @@ import org.gradle.api.artifacts.ModuleVersionSelector
 import org.gradle.api.internal.artifacts.DefaultModuleVersionIdentifier
 import org.gradle.api.internal.artifacts.DefaultModuleVersionSelector
 import org.gradle.api.internal.artifacts.ivyservice.IvyUtil
+import org.gradle.cache.CacheAccess
 import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier
 import org.gradle.internal.component.external.model.ModuleComponentResolveMetadata
 import org.gradle.internal.component.model.ComponentOverrideMetadata
 import org.gradle.internal.component.model.DependencyMetadata
+import org.gradle.internal.concurrent.DefaultExecutorFactory
 import org.gradle.internal.resolve.ModuleVersionResolveException
 import org.gradle.internal.resolve.result.BuildableComponentResolveResult
 import spock.lang.Specification
@@ -46,7 +48,7 @@ class ResolverProviderComponentMetaDataResolverTest extends Specification {
     def remoteAccess2 = Mock(ModuleComponentRepositoryAccess)
 
     final VersionedComponentChooser componentSelectionStrategy = Mock(VersionedComponentChooser)
-    final RepositoryChainComponentMetaDataResolver resolver = new RepositoryChainComponentMetaDataResolver(componentSelectionStrategy, transformer)
+    RepositoryChainComponentMetaDataResolver resolver = new RepositoryChainComponentMetaDataResolver(componentSelectionStrategy, transformer)
 
     ModuleVersionIdentifier moduleVersionIdentifier(ModuleDescriptor moduleDescriptor) {
         def moduleRevId = moduleDescriptor.moduleRevisionId
@@ -442,6 +444,52 @@ class ResolverProviderComponentMetaDataResolverTest extends Specification {
         0 * result._
     }
 
+    def "searches remote repositories concurrently and uses the first repository that contains the dependency"() {
+        given:
+        def cacheAccess = Mock(CacheAccess) {
+            _ * useCache(_, _ as Runnable) >> { String name, Runnable action -> action.run() }
+            _ * longRunningOperation(_, _ as Runnable) >> { String name, Runnable action -> action.run() }
+        }
+        def executorFactory = new DefaultExecutorFactory()
+        def prober = new ParallelRepositoryProber(executorFactory, cacheAccess, true, 2)
+        resolver = new RepositoryChainComponentMetaDataResolver(componentSelectionStrategy, transformer, prober)
+        def repo1 = addRepo1()
+        def repo2 = addRepo2()
+        def metaData2 = metaData("1.3")
+
+        when:
+        resolver.resolve(moduleComponentId, componentRequestMetaData, result)
+
+        then:
+        1 * localAccess.resolveComponentMetaData(moduleComponentId, componentRequestMetaData, _)
+        1 * localAccess2.resolveComponentMetaData(moduleComponentId, componentRequestMetaData, _)
+        1 * remoteAccess.resolveComponentMetaData(moduleComponentId, componentRequestMetaData, _) >> { id, meta, result ->
+            result.resolved(metaData)
+        }
+        1 * remoteAccess2.resolveComponentMetaData(moduleComponentId, componentRequestMetaData, _) >> { id, meta, result ->
+            result.resolved(metaData2)
+        }
+        1 * transformer.transform(_) >> { RepositoryChainModuleResolution it ->
+            assert it.module == metaData
+            assert it.repository == repo1
+            metaData
+        }
+        1 * result.resolved(_) >> { ModuleComponentResolveMetadata metaData ->
+            assert metaData == this.metaData
+        }
+
+        and:
+        0 * localAccess._
+        0 * remoteAccess._
+        0 * localAccess2._
+        0 * remoteAccess2._
+        0 * result._
+
+        cleanup:
+        prober.stop()
+        executorFactory.stop()
+    }
+
     def "ignores failure to resolve local dependency when available in another repository"() {
         given:
         def repo1 = addRepo1()
@@ -837,6 +837,24 @@ class PomReaderTest extends AbstractPomReaderTest {
         packaging << ['pom', 'jar', 'ejb', 'war', 'ear', 'rar', 'par']
     }
 
+    def "reads POM that uses the entities defined by Maven"() {
+        when:
+        pomFile << """
+<project>
+    <modelVersion>4.0.0</modelVersion>
+    <groupId>group-one</groupId>
+    <artifactId>artifact-one</artifactId>
+    <version>version-one</version>
+    <description>Caf&eacute;</description>
+</project>
+"""
+        pomReader = new PomReader(locallyAvailableExternalResource)
+
+        then:
+        pomReader.groupId == 'group-one'
+        pomReader.description == 'Caf\u00e9'
+    }
+
     @Issue("GRADLE-3299")
     def "can define GAV with reference to parent.GAV"() {
         when:
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser
+
+import spock.lang.Specification
+
+import javax.xml.stream.XMLStreamException
+
+class PomStaxParserTest extends Specification {
+    def "reads elements and their text"() {
+        when:
+        def project = parse """<?xml version="1.0" encoding="UTF-8"?>
+<project xmlns="http://maven.apache.org/POM/4.0.0">
+    <groupId>group-one</groupId>
+    <description><![CDATA[some <description>]]> &amp; more</description>
+    <dependencies>
+        <dependency>
+            <artifactId>artifact-two</artifactId>
+        </dependency>
+    </dependencies>
+</project>
+"""
+
+        then:
+        project.name == "project"
+        project.children*.name == ["groupId", "description", "dependencies"]
+        PomElement.getFirstChildText(project, "groupId") == "group-one"
+        PomElement.getFirstChildText(project, "description") == "some <description> & more"
+        PomElement.getFirstChildText(PomElement.getFirstChildElement(PomElement.getFirstChildElement(project, "dependencies"), "dependency"), "artifactId") == "artifact-two"
+        PomElement.getFirstChildText(project, "version") == null
+    }
+
+    def "skips the sections of the project and its profiles that are not used"() {
+        when:
+        def project = parse """
+<project>
+    <name>Some name</name>
+    <developers>
+        <developer><name>J&oslash;rgen</name></developer>
+    </developers>
+    <build>
+        <plugins><plugin><artifactId>some-plugin</artifactId></plugin></plugins>
+    </build>
+    <dependencies/>
+    <profiles>
+        <profile>
+            <id>profile-one</id>
+            <build/>
+            <properties><name>value</name></properties>
+        </profile>
+    </profiles>
+</project>
+"""
+
+        then:
+        project.children*.name == ["dependencies", "profiles"]
+        def profile = PomElement.getFirstChildElement(PomElement.getFirstChildElement(project, "profiles"), "profile")
+        profile.children*.name == ["id", "properties"]
+        PomElement.getFirstChildText(PomElement.getFirstChildElement(profile, "properties"), "name") == "value"
+    }
+
+    def "uses the qualified name of elements"() {
+        when:
+        def project = parse """
+<pom:project xmlns:pom="http://maven.apache.org/POM/4.0.0">
+    <pom:groupId>group-one</pom:groupId>
+</pom:project>
+"""
+
+        then:
+        project.name == "pom:project"
+        project.children*.name == ["pom:groupId"]
+    }
+
+    def "fails for entities that are not predefined"() {
+        when:
+        parse """
+<project>
+    <description>J&oslash;rgen</description>
+</project>
+"""
+
+        then:
+        thrown(XMLStreamException)
+    }
+
+    private static PomElement parse(String content) {
+        return PomStaxParser.parse(new ByteArrayInputStream(content.getBytes("UTF-8")), "pom.xml")
+    }
+}
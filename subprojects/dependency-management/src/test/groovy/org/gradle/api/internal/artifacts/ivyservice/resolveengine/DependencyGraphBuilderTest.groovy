@@ -25,6 +25,7 @@ import org.gradle.api.artifacts.component.ComponentSelector
 import org.gradle.api.internal.artifacts.DefaultModuleIdentifier
 import org.gradle.api.internal.artifacts.configurations.ConfigurationInternal
 import org.gradle.api.internal.artifacts.dsl.ModuleReplacementsData
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.ComponentMetaDataPrefetcher
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphBuilder
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphNode
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphPathResolver
@@ -32,6 +33,8 @@ import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.Dependen
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.conflicts.DefaultConflictHandler
 import org.gradle.api.internal.artifacts.publish.DefaultPublishArtifact
 import org.gradle.api.specs.Specs
+import org.gradle.cache.CacheAccess
+import org.gradle.internal.Factory
 import org.gradle.internal.component.external.descriptor.DefaultExclude
 import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier
 import org.gradle.internal.component.external.model.DefaultModuleComponentSelector
@@ -42,6 +45,7 @@ import org.gradle.internal.component.model.ComponentResolveMetadata
 import org.gradle.internal.component.model.DependencyMetadata
 import org.gradle.internal.component.model.IvyArtifactName
 import org.gradle.internal.component.model.LocalComponentDependencyMetadata
+import org.gradle.internal.concurrent.DefaultExecutorFactory
 import org.gradle.internal.resolve.ModuleVersionNotFoundException
 import org.gradle.internal.resolve.ModuleVersionResolveException
 import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver
@@ -517,6 +521,38 @@ class DependencyGraphBuilderTest extends Specification {
         result.components == ids(root, a, b, d)
     }
 
+    def "resolves meta-data of the modules selected by a configuration concurrently"() {
+        given:
+        def cacheAccess = Mock(CacheAccess) {
+            _ * useCache(_, _ as Factory) >> { String name, Factory action -> action.create() }
+            _ * longRunningOperation(_, _ as Factory) >> { String name, Factory action -> action.create() }
+        }
+        def executorFactory = new DefaultExecutorFactory()
+        def prefetcher = new ComponentMetaDataPrefetcher(executorFactory, cacheAccess)
+        builder = new DependencyGraphBuilder(idResolver, metaDataResolver, moduleResolver, new DefaultConflictHandler(conflictResolver, moduleReplacements), Specs.satisfyAll(), prefetcher)
+
+        def a = revision('a')
+        def b = revision('b')
+        def c = revision('c')
+        def d = revision('d')
+        traverses root, a
+        traverses root, b
+        traversesMissing root, c
+        traverses a, d
+        doesNotResolve b, d
+
+        when:
+        def result = resolve(builder)
+
+        then:
+        result.components == ids(root, a, b, d)
+        result.unresolvedDependencies == [newSelector('group', 'c', '1.0')] as Set
+
+        cleanup:
+        prefetcher.stop()
+        executorFactory.stop()
+    }
+
     def "does not attempt to resolve a dependency whose target module is excluded earlier in the path"() {
         given:
         def a = revision('a')
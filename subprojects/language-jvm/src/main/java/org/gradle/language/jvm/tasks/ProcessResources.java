@@ -17,6 +17,7 @@ package org.gradle.language.jvm.tasks;
 
 import org.gradle.api.Incubating;
 import org.gradle.api.tasks.Copy;
+import org.gradle.api.tasks.incremental.IncrementalTaskInputs;
 import org.gradle.language.base.internal.tasks.SimpleStaleClassCleaner;
 import org.gradle.language.base.internal.tasks.StaleClassCleaner;
 
@@ -27,6 +28,12 @@ import org.gradle.language.base.internal.tasks.StaleClassCleaner;
 @Incubating
 public class ProcessResources extends Copy {
 
+    @Override
+    protected void copy(IncrementalTaskInputs inputs) {
+        // All previous outputs are removed as stale resources, so every resource needs to be copied again
+        copy();
+    }
+
     @Override
     protected void copy() {
         StaleClassCleaner cleaner = new SimpleStaleClassCleaner(getOutputs());
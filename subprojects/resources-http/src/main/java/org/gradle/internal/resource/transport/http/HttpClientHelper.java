@@ -32,6 +32,7 @@ import org.apache.http.entity.BufferedHttpEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.protocol.BasicHttpContext;
+import org.gradle.api.Nullable;
 import org.gradle.api.UncheckedIOException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -49,9 +50,18 @@ public class HttpClientHelper implements Closeable {
     private CloseableHttpClient client;
     private final BasicHttpContext httpContext = new BasicHttpContext();
     private final HttpSettings settings;
+    private final HttpConnectionPool connectionPool;
 
     public HttpClientHelper(HttpSettings settings) {
+        this(settings, null);
+    }
+
+    /**
+     * @param connectionPool the pool to lease connections from, or null to use a pool owned by this helper.
+     */
+    public HttpClientHelper(HttpSettings settings, @Nullable HttpConnectionPool connectionPool) {
         this.settings = settings;
+        this.connectionPool = connectionPool;
     }
 
     public CloseableHttpResponse performRawHead(String source, boolean revalidate) {
@@ -132,6 +142,10 @@ public class HttpClientHelper implements Closeable {
             HttpClientBuilder builder = HttpClientBuilder.create();
             builder.setRedirectStrategy(new AlwaysRedirectRedirectStrategy());
             new HttpClientConfigurer(settings).configure(builder);
+            if (connectionPool != null) {
+                builder.setConnectionManager(connectionPool.getConnectionManager(settings.getSslContextFactory().createSslContext()));
+                builder.setConnectionManagerShared(true);
+            }
             this.client = builder.build();
         }
         return client;
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.resource.transport.http;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.DefaultHostnameVerifier;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.protocol.HttpContext;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.Stoppable;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pools the HTTP connections made to the repositories, so that they are reused by all the repositories of a build and by later builds in the same process.
+ *
+ * <p>There is one pool for each SSL context, so that TLS sessions are resumed when a new connection is made to the same server. Connections that are idle
+ * for longer than {@link #IDLE_TIMEOUT_MILLIS} are closed before a connection is leased. The number of connections to a single host is bounded, and a request
+ * waits for a connection to the host to be released once the limit is reached.</p>
+ */
+public class HttpConnectionPool implements Stoppable {
+    /**
+     * The maximum number of concurrent connections to a single host, defaults to {@link #MAX_CONNECTIONS_PER_ROUTE}.
+     */
+    public static final String MAX_CONNECTIONS_PER_HOST_PROPERTY = "org.gradle.internal.http.maxConnectionsPerHost";
+    static final int MAX_CONNECTIONS_PER_ROUTE = 20;
+    static final int MAX_CONNECTIONS = 100;
+    static final long IDLE_TIMEOUT_MILLIS = 30000;
+    private static final long EVICTION_INTERVAL_MILLIS = 5000;
+    private static final int VALIDATE_AFTER_INACTIVITY_MILLIS = 2000;
+
+    private final Cache<SSLContext, InstrumentedConnectionManager> managers = CacheBuilder.newBuilder()
+        .maximumSize(4)
+        .removalListener(new RemovalListener<SSLContext, InstrumentedConnectionManager>() {
+            @Override
+            public void onRemoval(RemovalNotification<SSLContext, InstrumentedConnectionManager> notification) {
+                // Connections still leased are closed once released
+                notification.getValue().closeIdleConnections(0, TimeUnit.MILLISECONDS);
+            }
+        })
+        .build();
+    private final int maxConnectionsPerRoute;
+    private final AtomicLong leases = new AtomicLong();
+    private final AtomicLong reusedConnections = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+    private final AtomicLong handshakes = new AtomicLong();
+    private final AtomicLong resumedHandshakes = new AtomicLong();
+
+    public HttpConnectionPool() {
+        this(Integer.getInteger(MAX_CONNECTIONS_PER_HOST_PROPERTY, MAX_CONNECTIONS_PER_ROUTE));
+    }
+
+    HttpConnectionPool(int maxConnectionsPerRoute) {
+        this.maxConnectionsPerRoute = Math.max(1, Math.min(maxConnectionsPerRoute, MAX_CONNECTIONS));
+    }
+
+    /**
+     * Returns the connection manager to use for the given SSL context. The manager is shared, and must not be shut down by its clients.
+     */
+    public HttpClientConnectionManager getConnectionManager(final SSLContext sslContext) {
+        try {
+            return managers.get(sslContext, new Callable<InstrumentedConnectionManager>() {
+                @Override
+                public InstrumentedConnectionManager call() {
+                    return new InstrumentedConnectionManager(RegistryBuilder.<ConnectionSocketFactory>create()
+                        .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                        .register("https", new InstrumentedSslSocketFactory(sslContext))
+                        .build());
+                }
+            });
+        } catch (ExecutionException e) {
+            throw UncheckedException.throwAsUncheckedException(e.getCause());
+        }
+    }
+
+    /**
+     * Returns the statistics of the connections leased since this pool was created.
+     */
+    public Stats getStats() {
+        return new Stats(leases.get(), reusedConnections.get(), TimeUnit.NANOSECONDS.toMillis(waitNanos.get()), handshakes.get(), resumedHandshakes.get());
+    }
+
+    @Override
+    public void stop() {
+        for (InstrumentedConnectionManager manager : managers.asMap().values()) {
+            manager.shutdown();
+        }
+        managers.invalidateAll();
+    }
+
+    public static class Stats {
+        private final long leases;
+        private final long reusedConnections;
+        private final long waitMillis;
+        private final long handshakes;
+        private final long resumedHandshakes;
+
+        Stats(long leases, long reusedConnections, long waitMillis, long handshakes, long resumedHandshakes) {
+            this.leases = leases;
+            this.reusedConnections = reusedConnections;
+            this.waitMillis = waitMillis;
+            this.handshakes = handshakes;
+            this.resumedHandshakes = resumedHandshakes;
+        }
+
+        /**
+         * Returns the statistics of the connections leased since the given statistics were taken.
+         */
+        public Stats since(Stats earlier) {
+            return new Stats(leases - earlier.leases, reusedConnections - earlier.reusedConnections, waitMillis - earlier.waitMillis, handshakes - earlier.handshakes, resumedHandshakes - earlier.resumedHandshakes);
+        }
+
+        public long getLeases() {
+            return leases;
+        }
+
+        public long getReusedConnections() {
+            return reusedConnections;
+        }
+
+        public long getWaitMillis() {
+            return waitMillis;
+        }
+
+        public long getHandshakes() {
+            return handshakes;
+        }
+
+        public long getResumedHandshakes() {
+            return resumedHandshakes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d requests, %d reused connections, %d new connections, %d TLS handshakes (%d resumed sessions), %d ms waiting for a connection",
+                leases, reusedConnections, leases - reusedConnections, handshakes, resumedHandshakes, waitMillis);
+        }
+    }
+
+    private class InstrumentedConnectionManager extends PoolingHttpClientConnectionManager {
+        private final AtomicLong lastEviction = new AtomicLong(System.currentTimeMillis());
+
+        InstrumentedConnectionManager(Registry<ConnectionSocketFactory> socketFactoryRegistry) {
+            super(socketFactoryRegistry);
+            setMaxTotal(MAX_CONNECTIONS);
+            setDefaultMaxPerRoute(maxConnectionsPerRoute);
+            setValidateAfterInactivity(VALIDATE_AFTER_INACTIVITY_MILLIS);
+        }
+
+        @Override
+        public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+            evictIdleConnections();
+            final ConnectionRequest request = super.requestConnection(route, state);
+            return new ConnectionRequest() {
+                @Override
+                public HttpClientConnection get(long timeout, TimeUnit tunit) throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+                    long start = System.nanoTime();
+                    HttpClientConnection connection = request.get(timeout, tunit);
+                    waitNanos.addAndGet(System.nanoTime() - start);
+                    leases.incrementAndGet();
+                    if (connection.isOpen()) {
+                        reusedConnections.incrementAndGet();
+                    }
+                    return connection;
+                }
+
+                @Override
+                public boolean cancel() {
+                    return request.cancel();
+                }
+            };
+        }
+
+        private void evictIdleConnections() {
+            long now = System.currentTimeMillis();
+            long last = lastEviction.get();
+            if (now - last > EVICTION_INTERVAL_MILLIS && lastEviction.compareAndSet(last, now)) {
+                closeExpiredConnections();
+                closeIdleConnections(IDLE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private class InstrumentedSslSocketFactory extends SSLConnectionSocketFactory {
+        InstrumentedSslSocketFactory(SSLContext sslContext) {
+            super(sslContext, new DefaultHostnameVerifier(null));
+        }
+
+        @Override
+        public Socket createLayeredSocket(Socket socket, String target, int port, HttpContext context) throws IOException {
+            long start = System.currentTimeMillis();
+            Socket sslSocket = super.createLayeredSocket(socket, target, port, context);
+            handshakes.incrementAndGet();
+            // A resumed session was created by an earlier handshake
+            if (sslSocket instanceof SSLSocket && ((SSLSocket) sslSocket).getSession().getCreationTime() < start) {
+                resumedHandshakes.incrementAndGet();
+            }
+            return sslSocket;
+        }
+    }
+}
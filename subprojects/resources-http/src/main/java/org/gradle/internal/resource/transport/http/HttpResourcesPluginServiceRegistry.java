@@ -16,16 +16,23 @@
 
 package org.gradle.internal.resource.transport.http;
 
+import org.gradle.BuildAdapter;
+import org.gradle.BuildResult;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
 import org.gradle.authentication.http.BasicAuthentication;
 import org.gradle.authentication.http.DigestAuthentication;
 import org.gradle.internal.authentication.DefaultBasicAuthentication;
 import org.gradle.internal.authentication.DefaultDigestAuthentication;
 import org.gradle.internal.authentication.AuthenticationSchemeRegistry;
+import org.gradle.internal.event.ListenerManager;
 import org.gradle.internal.resource.connector.ResourceConnectorFactory;
 import org.gradle.internal.service.ServiceRegistration;
 import org.gradle.internal.service.scopes.PluginServiceRegistry;
 
 public class HttpResourcesPluginServiceRegistry implements PluginServiceRegistry {
+    private static final Logger LOGGER = Logging.getLogger(HttpResourcesPluginServiceRegistry.class);
+
     public void registerGlobalServices(ServiceRegistration registration) {
         registration.addProvider(new GlobalScopeServices());
     }
@@ -35,6 +42,7 @@ public class HttpResourcesPluginServiceRegistry implements PluginServiceRegistry
 
     public void registerBuildServices(ServiceRegistration registration) {
         registration.addProvider(new AuthenticationSchemeAction());
+        registration.addProvider(new ConnectionStatsAction());
     }
 
     public void registerGradleServices(ServiceRegistration registration) {
@@ -48,8 +56,12 @@ public class HttpResourcesPluginServiceRegistry implements PluginServiceRegistry
             return new DefaultSslContextFactory();
         }
 
-        ResourceConnectorFactory createHttpConnectorFactory(SslContextFactory sslContextFactory) {
-            return new HttpConnectorFactory(sslContextFactory);
+        HttpConnectionPool createHttpConnectionPool() {
+            return new HttpConnectionPool();
+        }
+
+        ResourceConnectorFactory createHttpConnectorFactory(SslContextFactory sslContextFactory, HttpConnectionPool connectionPool) {
+            return new HttpConnectorFactory(sslContextFactory, connectionPool);
         }
     }
 
@@ -59,4 +71,19 @@ public class HttpResourcesPluginServiceRegistry implements PluginServiceRegistry
             authenticationSchemeRegistry.registerScheme(DigestAuthentication.class, DefaultDigestAuthentication.class);
         }
     }
+
+    private static class ConnectionStatsAction {
+        public void configure(ServiceRegistration registration, ListenerManager listenerManager, final HttpConnectionPool connectionPool) {
+            final HttpConnectionPool.Stats atStart = connectionPool.getStats();
+            listenerManager.addListener(new BuildAdapter() {
+                @Override
+                public void buildFinished(BuildResult result) {
+                    HttpConnectionPool.Stats stats = connectionPool.getStats().since(atStart);
+                    if (stats.getLeases() > 0) {
+                        LOGGER.info("HTTP connections: {}.", stats);
+                    }
+                }
+            });
+        }
+    }
 }
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.resource.transport.http
+
+import org.apache.http.HttpHost
+import org.apache.http.conn.ConnectionPoolTimeoutException
+import org.apache.http.conn.routing.HttpRoute
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager
+import org.apache.http.ssl.SSLContexts
+import spock.lang.Specification
+
+import java.util.concurrent.TimeUnit
+
+class HttpConnectionPoolTest extends Specification {
+    def pool = new HttpConnectionPool()
+
+    def cleanup() {
+        pool.stop()
+    }
+
+    def "shares a connection manager for each SSL context"() {
+        def context = SSLContexts.createDefault()
+        def otherContext = SSLContexts.createDefault()
+
+        expect:
+        pool.getConnectionManager(context).is(pool.getConnectionManager(context))
+        !pool.getConnectionManager(context).is(pool.getConnectionManager(otherContext))
+    }
+
+    def "uses per-route limits that allow parallel requests"() {
+        when:
+        def manager = pool.getConnectionManager(SSLContexts.createDefault()) as PoolingHttpClientConnectionManager
+
+        then:
+        manager.defaultMaxPerRoute == HttpConnectionPool.MAX_CONNECTIONS_PER_ROUTE
+        manager.maxTotal == HttpConnectionPool.MAX_CONNECTIONS
+    }
+
+    def "limits the number of connections to a host"() {
+        def limitedPool = new HttpConnectionPool(2)
+        def manager = limitedPool.getConnectionManager(SSLContexts.createDefault())
+        def route = new HttpRoute(new HttpHost("localhost", 80))
+
+        when:
+        def first = manager.requestConnection(route, null).get(1, TimeUnit.SECONDS)
+        def second = manager.requestConnection(route, null).get(1, TimeUnit.SECONDS)
+        manager.requestConnection(route, null).get(100, TimeUnit.MILLISECONDS)
+
+        then:
+        thrown(ConnectionPoolTimeoutException)
+
+        when:
+        manager.releaseConnection(first, null, 0, TimeUnit.MILLISECONDS)
+        def third = manager.requestConnection(route, null).get(1, TimeUnit.SECONDS)
+
+        then:
+        third != null
+
+        cleanup:
+        limitedPool.stop()
+    }
+
+    def "counts leased connections"() {
+        def manager = pool.getConnectionManager(SSLContexts.createDefault())
+        def route = new HttpRoute(new HttpHost("localhost", 80))
+        def atStart = pool.stats
+
+        when:
+        def connection = manager.requestConnection(route, null).get(1, TimeUnit.SECONDS)
+        manager.releaseConnection(connection, null, 0, TimeUnit.MILLISECONDS)
+        def stats = pool.stats.since(atStart)
+
+        then:
+        stats.leases == 1
+        stats.reusedConnections == 0
+        stats.handshakes == 0
+        stats.toString() == "1 requests, 0 reused connections, 1 new connections, 0 TLS handshakes (0 resumed sessions), ${stats.waitMillis} ms waiting for a connection"
+    }
+}
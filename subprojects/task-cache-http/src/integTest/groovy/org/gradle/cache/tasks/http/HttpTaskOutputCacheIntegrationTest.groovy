@@ -101,6 +101,21 @@ class HttpTaskOutputCacheIntegrationTest extends AbstractIntegrationSpec {
         skippedTasks.containsAll ":compileJava", ":jar"
     }
 
+    def "loads outputs of tasks without dependencies from prefetched entries"() {
+        withTaskCache().succeeds "compileJava"
+        withTaskCache().succeeds "clean"
+
+        when:
+        executer.withArgument("--info")
+        withTaskCache().succeeds "compileJava"
+
+        then:
+        skippedTasks.contains ":compileJava"
+        output.contains("Prefetching 1 entries")
+        output.contains("Loaded prefetched entry")
+        file("build/classes/main/Hello.class").isFile()
+    }
+
     def "outputs are correctly loaded from cache"() {
         buildFile << """
             apply plugin: "application"
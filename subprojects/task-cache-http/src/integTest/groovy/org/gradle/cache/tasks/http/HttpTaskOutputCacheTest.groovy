@@ -16,7 +16,10 @@
 
 package org.gradle.cache.tasks.http
 
+import org.gradle.api.internal.file.DefaultTemporaryFileProvider
 import org.gradle.api.internal.tasks.cache.TaskCacheKey
+import org.gradle.internal.Factory
+import org.gradle.internal.concurrent.DefaultExecutorFactory
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.gradle.test.fixtures.server.http.HttpServer
 import org.junit.Rule
@@ -28,10 +31,17 @@ class HttpTaskOutputCacheTest extends Specification {
 
     HttpTaskOutputCache cache
     def key = Mock(TaskCacheKey)
+    def executorFactory = new DefaultExecutorFactory()
+    def temporaryFileProvider = new DefaultTemporaryFileProvider({ tempDir.file("tmp") } as Factory)
+
+    def cleanup() {
+        cache.close()
+        executorFactory.stop()
+    }
 
     def setup() {
         server.start()
-        cache = new HttpTaskOutputCache(server.uri.resolve("/cache/"))
+        cache = new HttpTaskOutputCache(server.uri.resolve("/cache/"), executorFactory, temporaryFileProvider)
     }
 
     def "can cache artifact"() {
@@ -47,6 +57,23 @@ class HttpTaskOutputCacheTest extends Specification {
         destFile.text == "Data"
     }
 
+    def "can cache artifact asynchronously"() {
+        def destFile = tempDir.file("cached.zip")
+        server.expectPut("/cache/0123456abcdef", destFile)
+        cache = new HttpTaskOutputCache(server.uri.resolve("/cache/"), executorFactory, temporaryFileProvider, true, 2, 30)
+
+        when:
+        cache.store(key) { output ->
+            output << "Data"
+        }
+        cache.close()
+
+        then:
+        1 * key.hashCode >> "0123456abcdef"
+        destFile.text == "Data"
+        tempDir.file("tmp").assertIsEmptyDir()
+    }
+
     def "can load artifact from cache"() {
         def srcFile = tempDir.file("cached.zip")
         srcFile.text = "Data"
@@ -59,4 +86,27 @@ class HttpTaskOutputCacheTest extends Specification {
         then:
         1 * key.hashCode >> "0123456abcdef"
     }
+
+    def "loads prefetched artifact without requesting it again"() {
+        def srcFile = tempDir.file("cached.zip")
+        srcFile.text = "Data"
+        server.expectGet("/cache/0123456abcdef", srcFile)
+        server.expectGetMissing("/cache/fedcba6543210")
+        def missingKey = Mock(TaskCacheKey)
+
+        when:
+        cache.prefetch([key, missingKey])
+        def found = cache.load(key) { input ->
+            assert input.text == "Data"
+        }
+        def missing = cache.load(missingKey) { input ->
+            throw new AssertionError()
+        }
+
+        then:
+        _ * key.hashCode >> "0123456abcdef"
+        _ * missingKey.hashCode >> "fedcba6543210"
+        found
+        !missing
+    }
 }
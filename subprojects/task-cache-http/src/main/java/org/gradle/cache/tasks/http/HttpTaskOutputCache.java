@@ -17,105 +17,401 @@
 package org.gradle.cache.tasks.http;
 
 import org.apache.commons.lang.IncompleteArgumentException;
+import org.apache.http.HttpEntity;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPut;
 import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.FileEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+import org.gradle.api.internal.file.TemporaryFileProvider;
+import org.gradle.api.internal.tasks.cache.BatchingTaskOutputCache;
 import org.gradle.api.internal.tasks.cache.TaskCacheKey;
-import org.gradle.api.internal.tasks.cache.TaskOutputCache;
 import org.gradle.api.internal.tasks.cache.TaskOutputReader;
 import org.gradle.api.internal.tasks.cache.TaskOutputWriter;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.StoppableExecutor;
+import org.gradle.util.GFileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.net.URI;
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
-public class HttpTaskOutputCache implements TaskOutputCache {
+/**
+ * Task output cache backed by an HTTP server. Entries are stored using PUT and loaded using GET requests, reusing connections across requests.
+ *
+ * <p>When created with asynchronous stores enabled, the packed task output is written to a temporary file on the calling thread and then uploaded
+ * by a background worker. At most {@code maxPendingUploads} uploads can be pending at any time, after which {@link #store(TaskCacheKey, TaskOutputWriter)}
+ * blocks until an upload completes. Pending uploads are awaited by {@link #close()}, up to the configured timeout.</p>
+ *
+ * <p>Entries can be prefetched in batches. There is no batch lookup in the HTTP cache protocol, so the entries are requested concurrently over
+ * the pooled connections and downloaded into temporary files, from which they are later loaded. At most {@value #MAX_PREFETCHED_ENTRIES} entries
+ * are prefetched at any time, and an entry is loaded directly from the server instead when staging it would exceed {@value #MAX_STAGED_BYTES} bytes.</p>
+ *
+ * <p>Temporary files are kept in a directory of their own, which is deleted when the cache is closed.</p>
+ */
+public class HttpTaskOutputCache implements BatchingTaskOutputCache, Closeable {
     private static final Logger LOGGER = LoggerFactory.getLogger(HttpTaskOutputCache.class);
+    private static final int MAX_CONNECTIONS = 8;
+    private static final int UPLOAD_THREADS = 4;
+    private static final int PREFETCH_THREADS = 4;
+    private static final int MAX_PREFETCHED_ENTRIES = 64;
+    private static final long MAX_STAGED_BYTES = 256L * 1024 * 1024;
 
     private final URI root;
+    private final ExecutorFactory executorFactory;
+    private final TemporaryFileProvider temporaryFileProvider;
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient httpClient;
+    private final boolean asyncStore;
+    private final Semaphore pendingUploads;
+    private final int uploadTimeoutSeconds;
+    private final ConcurrentMap<String, Future<File>> prefetched = new ConcurrentHashMap<String, Future<File>>();
+    private final AtomicLong stagedBytes = new AtomicLong();
+    private StoppableExecutor uploadExecutor;
+    private StoppableExecutor prefetchExecutor;
+    private File stagingDir;
+
+    public HttpTaskOutputCache(URI root, ExecutorFactory executorFactory, TemporaryFileProvider temporaryFileProvider) {
+        this(root, executorFactory, temporaryFileProvider, false, 0, 0);
+    }
 
-    public HttpTaskOutputCache(URI root) {
+    public HttpTaskOutputCache(URI root, ExecutorFactory executorFactory, TemporaryFileProvider temporaryFileProvider, boolean asyncStore, int maxPendingUploads, int uploadTimeoutSeconds) {
         if (!root.getPath().endsWith("/")) {
             throw new IncompleteArgumentException("HTTP cache root URI must end with '/'");
         }
         this.root = root;
+        this.executorFactory = executorFactory;
+        this.temporaryFileProvider = temporaryFileProvider;
+        this.asyncStore = asyncStore;
+        this.pendingUploads = new Semaphore(Math.max(1, maxPendingUploads));
+        this.uploadTimeoutSeconds = uploadTimeoutSeconds;
+        this.connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(MAX_CONNECTIONS);
+        connectionManager.setDefaultMaxPerRoute(MAX_CONNECTIONS);
+        this.httpClient = HttpClients.custom().setConnectionManager(connectionManager).build();
     }
 
     @Override
     public boolean load(TaskCacheKey key, TaskOutputReader reader) throws IOException {
-        CloseableHttpClient httpClient = HttpClients.createDefault();
-        try {
-            final URI uri = root.resolve("./" + key.getHashCode());
-            HttpGet httpGet = new HttpGet(uri);
-            final CloseableHttpResponse response = httpClient.execute(httpGet);
-            if (LOGGER.isDebugEnabled()) {
-                LOGGER.debug("Response for GET {}: {}", uri, response.getStatusLine());
-            }
+        URI uri = root.resolve("./" + key.getHashCode());
+        Future<File> prefetch = prefetched.remove(key.getHashCode());
+        if (prefetch != null) {
             try {
-                int statusCode = response.getStatusLine().getStatusCode();
-                if (statusCode >= 200 && statusCode < 300) {
-                    reader.readFrom(response.getEntity().getContent());
-                    return true;
-                } else {
+                File staged = prefetch.get();
+                if (staged == null) {
                     return false;
                 }
-            } finally {
-                response.close();
+                try {
+                    InputStream input = new BufferedInputStream(new FileInputStream(staged));
+                    try {
+                        reader.readFrom(input);
+                    } finally {
+                        input.close();
+                    }
+                    LOGGER.info("Loaded prefetched entry {}", uri);
+                    return true;
+                } finally {
+                    discardStaged(staged);
+                }
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException("Interrupted while waiting for prefetch of " + uri);
+            } catch (ExecutionException e) {
+                LOGGER.debug("Could not prefetch {}, loading it again", uri, e.getCause());
+            }
+        }
+        return loadRemote(uri, reader);
+    }
+
+    private boolean loadRemote(URI uri, TaskOutputReader reader) throws IOException {
+        HttpGet httpGet = new HttpGet(uri);
+        final CloseableHttpResponse response = httpClient.execute(httpGet);
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Response for GET {}: {}", uri, response.getStatusLine());
+        }
+        try {
+            int statusCode = response.getStatusLine().getStatusCode();
+            if (statusCode >= 200 && statusCode < 300) {
+                reader.readFrom(response.getEntity().getContent());
+                return true;
+            } else {
+                return false;
             }
         } finally {
-            httpClient.close();
+            response.close();
         }
     }
 
     @Override
     public void store(TaskCacheKey key, final TaskOutputWriter output) throws IOException {
-        CloseableHttpClient httpClient = HttpClients.createDefault();
-        try {
-            final URI uri = root.resolve(key.getHashCode());
-            HttpPut httpPut = new HttpPut(uri);
-            httpPut.setEntity(new AbstractHttpEntity() {
-                @Override
-                public boolean isRepeatable() {
-                    return true;
-                }
+        final URI uri = root.resolve(key.getHashCode());
+        if (asyncStore) {
+            storeAsync(uri, output);
+            return;
+        }
+        put(uri, new AbstractHttpEntity() {
+            @Override
+            public boolean isRepeatable() {
+                return true;
+            }
+
+            @Override
+            public long getContentLength() {
+                return -1;
+            }
+
+            @Override
+            public InputStream getContent() throws IOException, UnsupportedOperationException {
+                throw new UnsupportedOperationException();
+            }
 
+            @Override
+            public void writeTo(OutputStream outstream) throws IOException {
+                output.writeTo(outstream);
+            }
+
+            @Override
+            public boolean isStreaming() {
+                return false;
+            }
+        });
+    }
+
+    @Override
+    public void prefetch(Collection<? extends TaskCacheKey> keys) {
+        StoppableExecutor executor = getPrefetchExecutor();
+        for (TaskCacheKey key : keys) {
+            String hashCode = key.getHashCode();
+            if (prefetched.containsKey(hashCode)) {
+                continue;
+            }
+            if (prefetched.size() >= MAX_PREFETCHED_ENTRIES) {
+                LOGGER.debug("Not prefetching more than {} entries from {}", MAX_PREFETCHED_ENTRIES, root);
+                break;
+            }
+            final URI uri = root.resolve("./" + hashCode);
+            prefetched.put(hashCode, executor.submit(new Callable<File>() {
                 @Override
-                public long getContentLength() {
-                    return -1;
+                public File call() throws Exception {
+                    return fetch(uri);
                 }
+            }));
+        }
+    }
 
+    /**
+     * Downloads the entry at the given URI into a temporary file, or returns {@code null} when there is no such entry.
+     */
+    private File fetch(URI uri) throws IOException {
+        final File staged = File.createTempFile("task-output-prefetch", ".tgz", getStagingDir());
+        try {
+            boolean found = loadRemote(uri, new TaskOutputReader() {
                 @Override
-                public InputStream getContent() throws IOException, UnsupportedOperationException {
-                    throw new UnsupportedOperationException();
+                public void readFrom(InputStream input) throws IOException {
+                    stage(input, staged);
                 }
+            });
+            if (found) {
+                return staged;
+            }
+        } catch (IOException e) {
+            discardStaged(staged);
+            throw e;
+        } catch (RuntimeException e) {
+            discardStaged(staged);
+            throw e;
+        }
+        discardStaged(staged);
+        return null;
+    }
 
-                @Override
-                public void writeTo(OutputStream outstream) throws IOException {
-                    output.writeTo(outstream);
+    /**
+     * Copies the given content into the staged file, failing when the staged entries would exceed the maximum size.
+     */
+    private void stage(InputStream input, File staged) throws IOException {
+        OutputStream output = new BufferedOutputStream(new FileOutputStream(staged));
+        try {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = input.read(buffer)) >= 0) {
+                if (stagedBytes.addAndGet(read) > MAX_STAGED_BYTES) {
+                    stagedBytes.addAndGet(-read);
+                    throw new IOException("Prefetched entries would exceed " + MAX_STAGED_BYTES + " bytes");
                 }
+                output.write(buffer, 0, read);
+            }
+        } finally {
+            output.close();
+        }
+    }
+
+    private void discardStaged(File staged) {
+        stagedBytes.addAndGet(-staged.length());
+        staged.delete();
+    }
+
+    private synchronized StoppableExecutor getPrefetchExecutor() {
+        if (prefetchExecutor == null) {
+            prefetchExecutor = executorFactory.create("HTTP task output cache prefetch", PREFETCH_THREADS);
+        }
+        return prefetchExecutor;
+    }
+
+    private void storeAsync(final URI uri, TaskOutputWriter output) throws IOException {
+        // Pack the output on the calling thread, as the task outputs may change once the task has completed
+        final File packed = File.createTempFile("task-output", ".tgz", getStagingDir());
+        try {
+            OutputStream fileOutput = new BufferedOutputStream(new FileOutputStream(packed));
+            try {
+                output.writeTo(fileOutput);
+            } finally {
+                fileOutput.close();
+            }
+            acquireUploadPermit();
+        } catch (IOException e) {
+            packed.delete();
+            throw e;
+        } catch (RuntimeException e) {
+            packed.delete();
+            throw e;
+        }
 
+        try {
+            getUploadExecutor().execute(new Runnable() {
                 @Override
-                public boolean isStreaming() {
-                    return false;
+                public void run() {
+                    try {
+                        FileEntity entity = new FileEntity(packed, ContentType.APPLICATION_OCTET_STREAM);
+                        entity.setChunked(true);
+                        put(uri, entity);
+                    } catch (Exception e) {
+                        LOGGER.warn("Could not upload cached task output to {}", uri, e);
+                    } finally {
+                        packed.delete();
+                        pendingUploads.release();
+                    }
                 }
             });
-            CloseableHttpResponse response = httpClient.execute(httpPut);
+        } catch (RuntimeException e) {
+            packed.delete();
+            pendingUploads.release();
+            throw e;
+        }
+    }
+
+    private void acquireUploadPermit() throws InterruptedIOException {
+        try {
+            pendingUploads.acquire();
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException("Interrupted while waiting for pending uploads to " + root);
+        }
+    }
+
+    private synchronized StoppableExecutor getUploadExecutor() {
+        if (uploadExecutor == null) {
+            uploadExecutor = executorFactory.create("HTTP task output cache upload", UPLOAD_THREADS);
+        }
+        return uploadExecutor;
+    }
+
+    private synchronized File getStagingDir() {
+        if (stagingDir == null) {
+            stagingDir = temporaryFileProvider.createTemporaryDirectory("http-task-output-cache", null);
+        }
+        return stagingDir;
+    }
+
+    private void put(URI uri, HttpEntity entity) throws IOException {
+        HttpPut httpPut = new HttpPut(uri);
+        httpPut.setEntity(entity);
+        CloseableHttpResponse response = httpClient.execute(httpPut);
+        try {
             if (LOGGER.isDebugEnabled()) {
                 LOGGER.debug("Response for PUT {}: {}", uri, response.getStatusLine());
             }
+            // Consume the response so that the connection can be reused
+            EntityUtils.consume(response.getEntity());
         } finally {
-            httpClient.close();
+            response.close();
+        }
+    }
+
+    private void discardPrefetched() {
+        for (Future<File> prefetch : prefetched.values()) {
+            if (prefetch.isDone() && !prefetch.isCancelled()) {
+                try {
+                    File staged = prefetch.get();
+                    if (staged != null) {
+                        discardStaged(staged);
+                    }
+                } catch (Exception e) {
+                    // Ignore, nothing was staged
+                }
+            }
         }
+        prefetched.clear();
     }
 
     @Override
     public String getDescription() {
         return "HTTP cache at " + root;
     }
+
+    /**
+     * Waits for pending uploads to complete, up to the configured timeout, discards prefetched entries that were not loaded, deletes the temporary files
+     * of uploads that were abandoned and releases the connections held by this cache.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            synchronized (this) {
+                if (prefetchExecutor != null) {
+                    for (Future<File> prefetch : prefetched.values()) {
+                        prefetch.cancel(false);
+                    }
+                    prefetchExecutor.stop();
+                    prefetchExecutor = null;
+                    discardPrefetched();
+                }
+                if (uploadExecutor != null) {
+                    try {
+                        uploadExecutor.stop(uploadTimeoutSeconds, TimeUnit.SECONDS);
+                    } catch (IllegalStateException e) {
+                        LOGGER.warn("Gave up waiting for pending uploads to {} after {} seconds.", root, uploadTimeoutSeconds);
+                    } finally {
+                        uploadExecutor = null;
+                    }
+                }
+                if (stagingDir != null) {
+                    GFileUtils.deleteQuietly(stagingDir);
+                    stagingDir = null;
+                }
+            }
+        } finally {
+            httpClient.close();
+        }
+    }
 }
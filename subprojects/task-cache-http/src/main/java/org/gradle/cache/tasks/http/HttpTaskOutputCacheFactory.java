@@ -18,13 +18,22 @@ package org.gradle.cache.tasks.http;
 
 import org.gradle.StartParameter;
 import org.gradle.api.GradleException;
+import org.gradle.api.internal.file.TemporaryFileProvider;
+import org.gradle.api.internal.file.TmpDirTemporaryFileProvider;
+import org.gradle.api.internal.tasks.cache.ServiceAwareTaskOutputCacheFactory;
 import org.gradle.api.internal.tasks.cache.TaskOutputCache;
-import org.gradle.api.internal.tasks.cache.TaskOutputCacheFactory;
+import org.gradle.internal.concurrent.DefaultExecutorFactory;
+import org.gradle.internal.concurrent.ExecutorFactory;
 
 import java.net.URI;
 
-public class HttpTaskOutputCacheFactory implements TaskOutputCacheFactory {
+public class HttpTaskOutputCacheFactory implements ServiceAwareTaskOutputCacheFactory {
     private static final String HTTP_URI_PROPERTY = "org.gradle.cache.tasks.http.uri";
+    private static final String ASYNC_STORE_PROPERTY = "org.gradle.cache.tasks.http.async-store";
+    private static final String MAX_PENDING_UPLOADS_PROPERTY = "org.gradle.cache.tasks.http.max-pending-uploads";
+    private static final String UPLOAD_TIMEOUT_PROPERTY = "org.gradle.cache.tasks.http.upload-timeout";
+    private static final int DEFAULT_MAX_PENDING_UPLOADS = 16;
+    private static final int DEFAULT_UPLOAD_TIMEOUT_SECONDS = 300;
 
     private final URI root;
 
@@ -42,6 +51,17 @@ public class HttpTaskOutputCacheFactory implements TaskOutputCacheFactory {
 
     @Override
     public TaskOutputCache createCache(StartParameter startParameter) {
-        return new HttpTaskOutputCache(root);
+        // Only used when the build services are not available; the executors are stopped when the cache is closed
+        return createCache(startParameter, new DefaultExecutorFactory(), new TmpDirTemporaryFileProvider());
+    }
+
+    @Override
+    public TaskOutputCache createCache(StartParameter startParameter, ExecutorFactory executorFactory, TemporaryFileProvider temporaryFileProvider) {
+        if (Boolean.getBoolean(ASYNC_STORE_PROPERTY)) {
+            int maxPendingUploads = Integer.getInteger(MAX_PENDING_UPLOADS_PROPERTY, DEFAULT_MAX_PENDING_UPLOADS);
+            int uploadTimeoutSeconds = Integer.getInteger(UPLOAD_TIMEOUT_PROPERTY, DEFAULT_UPLOAD_TIMEOUT_SECONDS);
+            return new HttpTaskOutputCache(root, executorFactory, temporaryFileProvider, true, maxPendingUploads, uploadTimeoutSeconds);
+        }
+        return new HttpTaskOutputCache(root, executorFactory, temporaryFileProvider);
     }
 }